@@ -0,0 +1,47 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.bindings.core.api;
+
+import java.io.IOException;
+
+/**
+ * A binding to String which can also unmarshal from a range of any CharSequence (such as a 
+ * {@link java.nio.CharBuffer} or StringBuilder), and marshal to any {@link Appendable}, without
+ * creating an intermediate String.
+ * <p>
+ * Implementations must be idempotent between calls and are expected to be thread-safe.
+ * @param <S> Source type for the conversion
+ */
+public interface CharSequenceBinding<S> extends Binding<S, String> {
+
+    /**
+     * Converts the given range of characters to the bound type, as {@link #unmarshal(Object)} would
+     * convert a String containing the same characters
+     * @param chars The characters, not null
+     * @param start Index of the first character of the range
+     * @param end Index after the last character of the range
+     * @return The bound object
+     */
+    S unmarshal(CharSequence chars, int start, int end);
+
+    /**
+     * Appends the characters that {@link #marshal(Object)} would return for the given object
+     * @param object Object to transform, not null
+     * @param appendable The Appendable to write to
+     * @throws IOException If the Appendable throws IOException
+     */
+    void marshal(S object, Appendable appendable) throws IOException;
+}
@@ -18,6 +18,7 @@ package org.jadira.bindings.core.binder;
 import java.io.File;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
@@ -26,7 +27,9 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Currency;
 import java.util.Date;
 import java.util.Enumeration;
@@ -39,6 +42,9 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -48,6 +54,7 @@ import javax.enterprise.inject.Typed;
 import org.jadira.bindings.core.annotation.BindingScope;
 import org.jadira.bindings.core.annotation.DefaultBinding;
 import org.jadira.bindings.core.api.Binding;
+import org.jadira.bindings.core.api.CharSequenceBinding;
 import org.jadira.bindings.core.api.Converter;
 import org.jadira.bindings.core.api.FromUnmarshaller;
 import org.jadira.bindings.core.api.ToMarshaller;
@@ -111,7 +118,7 @@ import org.jadira.bindings.core.utils.reflection.ClassLoaderUtils;
  * @see Binding Binding is used to define a binding
  */
 @Typed({})
-public class BasicBinder implements Binder, RegisterableBinder {
+public class BasicBinder implements Binder, RegisterableBinder, CharSequenceBinder {
 
 	/**
 	 * ConverterProviders are used to resolve converters using annotations on the target class.
@@ -124,6 +131,28 @@ public class BasicBinder implements Binder, RegisterableBinder {
 	 */
 	private ConcurrentHashMap<ConverterKey<?,?>, Converter<?,?>> registeredConverters = new ConcurrentHashMap<ConverterKey<?,?>, Converter<?,?>>();
 
+	/**
+	 * Converters found for an exact input class, output class and qualifier, including those that could not
+	 * be found. The tables are cleared when the registrations change.
+	 */
+	private final ConverterTable foundConverters = newFoundConverters();
+
+	/**
+	 * Converters resolved for a runtime class, output class and qualifier by searching its interfaces and 
+	 * superclasses, including those that could not be resolved
+	 */
+	private final ConverterTable resolvedConverters = newResolvedConverters();
+
+	/**
+	 * Pool used to convert large batches in parallel, if any
+	 */
+	private ForkJoinPool forkJoinPool;
+
+	/**
+	 * The minimum size of a batch that is converted in parallel
+	 */
+	private int parallelThreshold = 1024;
+
 	/**
 	 * A map of registered converters
 	 */
@@ -175,6 +204,7 @@ public class BasicBinder implements Binder, RegisterableBinder {
 	 */
 	private void initExtendedBinders() {
 		extendedBinders.put(StringBinder.class, this);
+		extendedBinders.put(CharSequenceBinder.class, this);
 	}
     
     /**
@@ -343,6 +373,7 @@ public class BasicBinder implements Binder, RegisterableBinder {
      */
     public void registerConverterProvider(ConverterProvider provider) {
         this.converterProviders.add(provider);
+        invalidateResolvedConverters();
     }
     
     /**
@@ -488,7 +519,7 @@ public class BasicBinder implements Binder, RegisterableBinder {
 		for (Class<?> nextClass : classesToInspect) {
 			
 			Class<?> loopClass = nextClass;
-			while ((loopClass != Object.class) && (!inspectedClasses.contains(loopClass))) {
+			while ((loopClass != null) && (loopClass != Object.class) && (!inspectedClasses.contains(loopClass))) {
 	
 				attachForAnnotations(loopClass);
 	
@@ -691,10 +722,45 @@ public class BasicBinder implements Binder, RegisterableBinder {
         }
 
         Converter<?,?> old = registeredConverters.putIfAbsent(key, converter);
-        if (old != null && (!isSameConverter(old, converter))) {
+        if (old == null) {
+        	invalidateResolvedConverters();
+        } else if (!isSameConverter(old, converter)) {
         	throw new IllegalStateException("Converter already registered for key: " + key);
         }
     }
+
+	/**
+	 * Discards converters resolved against the previous registrations
+	 */
+	private void invalidateResolvedConverters() {
+		foundConverters.clear();
+		resolvedConverters.clear();
+	}
+
+	private ConverterTable newFoundConverters() {
+		return new ConverterTable() {
+
+			@Override
+			protected Converter<?, ?> resolve(Class<?> input, Class<?> output, Class<? extends Annotation> qualifier) {
+				return findConverter(new ConverterKey<Object, Object>(uncheckedClass(input), uncheckedClass(output), qualifier));
+			}
+		};
+	}
+
+	private ConverterTable newResolvedConverters() {
+		return new ConverterTable() {
+
+			@Override
+			protected Converter<?, ?> resolve(Class<?> input, Class<?> output, Class<? extends Annotation> qualifier) {
+				return determineConverter(input, output, qualifier);
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Class<Object> uncheckedClass(Class<?> cls) {
+		return (Class<Object>) cls;
+	}
 	
 	private boolean isSameConverter(Converter<?,?> old, Converter<?,?> converter) {
 		
@@ -744,22 +810,56 @@ public class BasicBinder implements Binder, RegisterableBinder {
 		}
 		
 		@SuppressWarnings("unchecked")
-		Converter<S, T> conv = (Converter<S, T>) determineConverter(object.getClass(), output, qualifier == null ? DefaultBinding.class : qualifier);
+		Class<S> inputClass = (Class<S>)object.getClass();
+		Class<? extends Annotation> resolvedQualifier = qualifier == null ? DefaultBinding.class : qualifier;
+		Converter<S, T> conv = resolvedConverters.get(inputClass, output, resolvedQualifier);
 		
 		if (conv == null) {
-			@SuppressWarnings("unchecked")
-			Class<S> inputClass = (Class<S>)object.getClass();
-			throw new NoConverterFoundException(new ConverterKey<S,T>(inputClass, output, qualifier == null ? DefaultBinding.class : qualifier));
+			throw new NoConverterFoundException(new ConverterKey<S,T>(inputClass, output, resolvedQualifier));
 		}
 		
 		@SuppressWarnings("unchecked")
 		S myObject = (S)object;
 		return conv.convert(myObject);
 	}
+	
+	/**
+	 * Resolve the Converter for instances of the given class, searching its interfaces and superclasses in the 
+	 * same way as {@link #convertTo(Class, Object)}. Callers converting many instances of the same class can 
+	 * retain the result and so avoid any lookup per conversion.
+	 * @param input The class of the objects to be converted
+	 * @param output The target class to convert the objects to
+	 * @return The converter
+	 * @throws NoConverterFoundException If no converter can be resolved
+	 */
+	public <S, T> Converter<S, T> resolveConverter(Class<S> input, Class<T> output) {
+		return resolveConverter(input, output, DefaultBinding.class);
+	}
+	
+	/**
+	 * Resolve the Converter for instances of the given class, searching its interfaces and superclasses in the 
+	 * same way as {@link #convertTo(Class, Object, Class)}. Callers converting many instances of the same class can 
+	 * retain the result and so avoid any lookup per conversion.
+	 * @param input The class of the objects to be converted
+	 * @param output The target class to convert the objects to
+	 * @param qualifier The qualifier for which the converter must be registered
+	 * @return The converter
+	 * @throws NoConverterFoundException If no converter can be resolved
+	 */
+	public <S, T> Converter<S, T> resolveConverter(Class<S> input, Class<T> output, Class<? extends Annotation> qualifier) {
+		
+		Class<? extends Annotation> resolvedQualifier = qualifier == null ? DefaultBinding.class : qualifier;
+		Converter<S, T> conv = resolvedConverters.get(input, output, resolvedQualifier);
+		if (conv == null) {
+			throw new NoConverterFoundException(new ConverterKey<S,T>(input, output, resolvedQualifier));
+		}
+		return conv;
+	}
 		
 	private <S, T> Converter<S, T> determineConverter(Class<S> candidateClass, Class<T> output, Class<? extends Annotation> qualifier) {
 		
-		if (!candidateClass.equals(Object.class)) {
+		// Interfaces have no superclass
+		if (candidateClass != null && !candidateClass.equals(Object.class)) {
 			Converter<S, T> match = findConverter(candidateClass, output, qualifier);
 			if (match != null) {
 				return match;
@@ -791,7 +891,7 @@ public class BasicBinder implements Binder, RegisterableBinder {
 	 * @param object The object to be converted
 	 */
 	public <S, T> T convertTo(Class<S> input, Class<T> output, Object object) {
-		return convertTo(new ConverterKey<S,T>(input, output, DefaultBinding.class), object);
+		return convertTo(input, output, object, DefaultBinding.class);
 	}
 
 	/**
@@ -803,7 +903,20 @@ public class BasicBinder implements Binder, RegisterableBinder {
 	 */
 	public <S, T> T convertTo(Class<S> input, Class<T> output, Object object, Class<? extends Annotation> qualifier) {
 
-		return convertTo(new ConverterKey<S,T>(input, output, qualifier), object);
+		if (object == null) {
+			return null;
+		}
+		
+		Class<? extends Annotation> resolvedQualifier = qualifier == null ? DefaultBinding.class : qualifier;
+		Converter<S, T> conv = findConverter(input, output, resolvedQualifier);
+		
+		if (conv == null) {
+			throw new NoConverterFoundException(new ConverterKey<S,T>(input, output, resolvedQualifier));
+		}
+		
+		@SuppressWarnings("unchecked")
+		S myObject = (S)object;
+		return conv.convert(myObject);
 	}
 
 	/**
@@ -828,6 +941,148 @@ public class BasicBinder implements Binder, RegisterableBinder {
 		return conv.convert(myObject);
 	}
 	
+    /*******************
+     *                 *
+     * Bulk Conversion * 
+     *                 *
+     *******************/
+	
+	/**
+	 * Convert each of the given objects to the given target class, inferring the source type of each
+	 * conversion from the runtime type of the object as for {@link #convertTo(Class, Object)}. The converter is 
+	 * resolved once for each run of objects of the same class. If a ForkJoinPool has been configured the objects 
+	 * are converted in parallel once there are at least as many as the parallel threshold.
+	 * @param output The target class to convert the objects to
+	 * @param objects The objects to be converted
+	 * @return A list of the results, in the iteration order of the collection
+	 * @throws NoConverterFoundException If no converter can be resolved for one of the objects
+	 */
+	public <T> List<T> convertAll(Class<T> output, Collection<?> objects) {
+		return convertAll(output, objects, DefaultBinding.class);
+	}
+	
+	/**
+	 * Convert each of the given objects to the given target class, as for {@link #convertAll(Class, Collection)}
+	 * @param output The target class to convert the objects to
+	 * @param objects The objects to be converted
+	 * @param qualifier The qualifier for which the converters must be registered
+	 * @return A list of the results, in the iteration order of the collection
+	 * @throws NoConverterFoundException If no converter can be resolved for one of the objects
+	 */
+	public <T> List<T> convertAll(Class<T> output, Collection<?> objects, Class<? extends Annotation> qualifier) {
+		
+		final Object[] elements = objects.toArray();
+		convertElements(output, elements, elements, qualifier == null ? DefaultBinding.class : qualifier);
+		
+		@SuppressWarnings("unchecked")
+		List<T> results = (List<T>) Arrays.asList(elements);
+		return new ArrayList<T>(results);
+	}
+	
+	/**
+	 * Convert each of the given objects to the given target class, as for {@link #convertAll(Class, Collection)}
+	 * @param output The target class to convert the objects to
+	 * @param objects The objects to be converted
+	 * @return A new array of the target class containing the results
+	 * @throws NoConverterFoundException If no converter can be resolved for one of the objects
+	 */
+	public <T> T[] convertAll(Class<T> output, Object[] objects) {
+		return convertAll(output, objects, DefaultBinding.class);
+	}
+	
+	/**
+	 * Convert each of the given objects to the given target class, as for {@link #convertAll(Class, Collection)}
+	 * @param output The target class to convert the objects to
+	 * @param objects The objects to be converted
+	 * @param qualifier The qualifier for which the converters must be registered
+	 * @return A new array of the target class containing the results
+	 * @throws NoConverterFoundException If no converter can be resolved for one of the objects
+	 */
+	public <T> T[] convertAll(Class<T> output, Object[] objects, Class<? extends Annotation> qualifier) {
+		
+		@SuppressWarnings("unchecked")
+		final T[] results = (T[]) Array.newInstance(output, objects.length);
+		convertElements(output, objects, results, qualifier == null ? DefaultBinding.class : qualifier);
+		return results;
+	}
+	
+	/**
+	 * Gets the ForkJoinPool used to convert large batches in parallel
+	 * @return The ForkJoinPool, or null if batches are converted using the calling thread only
+	 */
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+	
+	/**
+	 * Sets the ForkJoinPool used to convert large batches in parallel. The converters used must be thread-safe.
+	 * @param forkJoinPool The ForkJoinPool to use, or null to convert using the calling thread only
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+	
+	/**
+	 * Gets the minimum size of a batch that is converted in parallel
+	 * @return The parallel threshold
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/**
+	 * Sets the minimum size of a batch that is converted in parallel
+	 * @param parallelThreshold The parallel threshold. Default is 1024.
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("parallelThreshold must be at least 1: " + parallelThreshold);
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	private <T> void convertElements(Class<T> output, Object[] elements, Object[] results, Class<? extends Annotation> qualifier) {
+		
+		final ForkJoinPool pool = forkJoinPool;
+		if (pool == null || elements.length < parallelThreshold) {
+			convertRange(output, elements, results, qualifier, 0, elements.length);
+		} else if (ForkJoinTask.getPool() == pool) {
+			new ConvertRangeTask<T>(this, output, elements, results, qualifier, 0, elements.length).compute();
+		} else {
+			pool.invoke(new ConvertRangeTask<T>(this, output, elements, results, qualifier, 0, elements.length));
+		}
+	}
+	
+	private <S, T> void convertRange(Class<T> output, Object[] elements, Object[] results, Class<? extends Annotation> qualifier, int from, int to) {
+		
+		Class<?> lastClass = null;
+		Converter<S, T> conv = null;
+		
+		for (int i = from; i < to; i++) {
+			
+			final Object next = elements[i];
+			if (next == null) {
+				results[i] = null;
+				continue;
+			}
+			
+			if (next.getClass() != lastClass) {
+				
+				@SuppressWarnings("unchecked")
+				Class<S> inputClass = (Class<S>)next.getClass();
+				conv = resolvedConverters.get(inputClass, output, qualifier);
+				if (conv == null) {
+					throw new NoConverterFoundException(new ConverterKey<S,T>(inputClass, output, qualifier));
+				}
+				lastClass = inputClass;
+			}
+			
+			@SuppressWarnings("unchecked")
+			S myObject = (S)next;
+			results[i] = conv.convert(myObject);
+		}
+	}
+	
     /*************************
      *                       *
      * Conversion Resolution * 
@@ -864,7 +1119,7 @@ public class BasicBinder implements Binder, RegisterableBinder {
 	 * @param output The output class  
 	 */
 	public <S, T> Converter<S, T> findConverter(Class<S> input, Class<T> output) {
-		return findConverter(new ConverterKey<S,T>(input, output, DefaultBinding.class));
+		return foundConverters.get(input, output, DefaultBinding.class);
 	}
 
 	/**
@@ -980,7 +1235,7 @@ public class BasicBinder implements Binder, RegisterableBinder {
 	 * @param qualifier The qualifier for which the marshaller must be registered   
 	 */
 	public <S, T> Converter<S, T> findConverter(Class<S> source, Class<T> target, Class<? extends Annotation> qualifier) {
-		return findConverter(new ConverterKey<S,T>(source, target, qualifier == null ? DefaultBinding.class : qualifier));
+		return foundConverters.get(source, target, qualifier == null ? DefaultBinding.class : qualifier);
 	}
 	
 	/**
@@ -1199,4 +1454,105 @@ public class BasicBinder implements Binder, RegisterableBinder {
 			Class<? extends Annotation> qualifier) {
 		return convertTo(input, String.class, object, qualifier);
 	}
+
+    /************************
+     *                      *
+     * CharSequence Binder  * 
+     *                      *
+     ************************/
+
+	public <T> T convertFromCharSequence(Class<T> output, CharSequence chars, int start, int end) {
+		return convertFromCharSequence(output, chars, start, end, DefaultBinding.class);
+	}
+
+	public <T> T convertFromCharSequence(Class<T> output, CharSequence chars, int start, int end,
+			Class<? extends Annotation> qualifier) {
+
+		if (chars == null) {
+			return null;
+		}
+
+		Class<? extends Annotation> resolvedQualifier = qualifier == null ? DefaultBinding.class : qualifier;
+		Converter<String, T> conv = findConverter(String.class, output, resolvedQualifier);
+		if (conv == null) {
+			throw new NoConverterFoundException(new ConverterKey<String,T>(String.class, output, resolvedQualifier));
+		}
+
+		if (conv instanceof FromUnmarshallerConverter<?, ?>) {
+			FromUnmarshaller<?, ?> unmarshaller = ((FromUnmarshallerConverter<?, ?>) conv).getUnmarshaller();
+			if (unmarshaller instanceof CharSequenceBinding<?>) {
+				@SuppressWarnings("unchecked")
+				T result = (T) ((CharSequenceBinding<?>) unmarshaller).unmarshal(chars, start, end);
+				return result;
+			}
+		}
+		return conv.convert(chars.subSequence(start, end).toString());
+	}
+
+	public void convertToAppendable(Object object, Appendable appendable) throws IOException {
+		convertToAppendable(object, appendable, DefaultBinding.class);
+	}
+
+	public void convertToAppendable(Object object, Appendable appendable,
+			Class<? extends Annotation> qualifier) throws IOException {
+
+		if (object == null) {
+			return;
+		}
+
+		Class<Object> inputClass = uncheckedClass(object.getClass());
+		Class<? extends Annotation> resolvedQualifier = qualifier == null ? DefaultBinding.class : qualifier;
+		Converter<Object, String> conv = resolvedConverters.get(inputClass, String.class, resolvedQualifier);
+		if (conv == null) {
+			throw new NoConverterFoundException(new ConverterKey<Object,String>(inputClass, String.class, resolvedQualifier));
+		}
+
+		if (conv instanceof ToMarshallerConverter<?, ?>) {
+			ToMarshaller<Object, String> marshaller = ((ToMarshallerConverter<Object, String>) conv).getMarshaller();
+			if (marshaller instanceof CharSequenceBinding<?>) {
+				((CharSequenceBinding<Object>) marshaller).marshal(object, appendable);
+				return;
+			}
+		}
+		appendable.append(conv.convert(object));
+	}
+
+	/**
+	 * Converts a range of a batch, dividing it until the parts are smaller than the parallel threshold
+	 */
+	private static final class ConvertRangeTask<T> extends RecursiveAction {
+
+		private static final long serialVersionUID = -2815209613640370174L;
+
+		private final BasicBinder binder;
+		private final Class<T> output;
+		private final Object[] elements;
+		private final Object[] results;
+		private final Class<? extends Annotation> qualifier;
+		private final int from;
+		private final int to;
+
+		ConvertRangeTask(BasicBinder binder, Class<T> output, Object[] elements, Object[] results, Class<? extends Annotation> qualifier, int from, int to) {
+			this.binder = binder;
+			this.output = output;
+			this.elements = elements;
+			this.results = results;
+			this.qualifier = qualifier;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			
+			if (to - from < binder.parallelThreshold) {
+				binder.convertRange(output, elements, results, qualifier, from, to);
+				return;
+			}
+			
+			final int middle = (from + to) >>> 1;
+			invokeAll(new ConvertRangeTask<T>(binder, output, elements, results, qualifier, from, middle),
+					new ConvertRangeTask<T>(binder, output, elements, results, qualifier, middle, to));
+		}
+	}
 }
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.bindings.core.binder;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+
+/**
+ * The counterpart to {@link StringBinder} for callers that hold text in character buffers. Where the
+ * binding to String for a class is a {@link org.jadira.bindings.core.api.CharSequenceBinding}, no 
+ * intermediate String is created. Other bindings are used by way of a String.
+ */
+public interface CharSequenceBinder {
+
+	/**
+	 * Convert a range of characters to the given target class
+	 * @param output The target class to convert the characters to
+	 * @param chars The characters to be converted
+	 * @param start Index of the first character of the range
+	 * @param end Index after the last character of the range
+	 * @param <T> The type of the target class
+	 * @return An instance of the target class
+	 */
+	<T> T convertFromCharSequence(Class<T> output, CharSequence chars, int start, int end);
+
+	/**
+	 * Convert a range of characters to the given target class
+	 * @param output The target class to convert the characters to
+	 * @param chars The characters to be converted
+	 * @param start Index of the first character of the range
+	 * @param end Index after the last character of the range
+	 * @param qualifier The qualifier for which the binding must be registered
+	 * @param <T> The type of the target class
+	 * @return An instance of the target class
+	 */
+	<T> T convertFromCharSequence(Class<T> output, CharSequence chars, int start, int end, Class<? extends Annotation> qualifier);
+
+	/**
+	 * Convert an object to characters, appending them to the given Appendable
+	 * This method infers the source type for the conversion from the runtime type of object.
+	 * @param object The object to be converted
+	 * @param appendable The Appendable to write to
+	 * @throws IOException If the Appendable throws IOException
+	 */
+	void convertToAppendable(Object object, Appendable appendable) throws IOException;
+
+	/**
+	 * Convert an object to characters, appending them to the given Appendable
+	 * This method infers the source type for the conversion from the runtime type of object.
+	 * @param object The object to be converted
+	 * @param appendable The Appendable to write to
+	 * @param qualifier The qualifier for which the binding must be registered
+	 * @throws IOException If the Appendable throws IOException
+	 */
+	void convertToAppendable(Object object, Appendable appendable, Class<? extends Annotation> qualifier) throws IOException;
+}
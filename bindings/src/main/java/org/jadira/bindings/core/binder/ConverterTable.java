@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.bindings.core.binder;
+
+import java.lang.annotation.Annotation;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.bindings.core.api.Converter;
+
+/**
+ * A read optimised table of converters, keyed first by input class and then by output class and qualifier.
+ * Unlike a map keyed by {@link ConverterKey}, lookups allocate nothing: the entries for each input class
+ * are held in a map keyed by the class and are matched by identity. Both converters and the absence of a
+ * converter are recorded until the table is cleared. A plain map is used rather than a {@link ClassValue},
+ * whose values would be held by the input classes and, for JDK classes, could keep the binder and its
+ * ClassLoader reachable.
+ */
+abstract class ConverterTable {
+
+	/**
+	 * Marker recorded where no converter could be resolved
+	 */
+	private static final Object NO_CONVERTER = new Object();
+
+	private final ConcurrentHashMap<Class<?>, Entries> entries = new ConcurrentHashMap<Class<?>, Entries>();
+
+	/**
+	 * Resolve the converter to be recorded for the given classes and qualifier
+	 * @param input The input class
+	 * @param output The output class
+	 * @param qualifier The qualifier
+	 * @return The converter, or null if there is none
+	 */
+	protected abstract Converter<?, ?> resolve(Class<?> input, Class<?> output, Class<? extends Annotation> qualifier);
+
+	/**
+	 * Look up the converter for the given classes and qualifier, resolving it on first use
+	 * @param input The input class
+	 * @param output The output class
+	 * @param qualifier The qualifier, not null
+	 * @param <S> The input type
+	 * @param <T> The output type
+	 * @return The converter, or null if there is none
+	 */
+	<S, T> Converter<S, T> get(Class<S> input, Class<T> output, Class<? extends Annotation> qualifier) {
+
+		// The entries are obtained before resolving, so that a resolution which races with clear() can only
+		// populate entries that have already been discarded
+		Entries inputEntries = entries.get(input);
+		if (inputEntries == null) {
+			final Entries created = new Entries();
+			inputEntries = entries.putIfAbsent(input, created);
+			if (inputEntries == null) {
+				inputEntries = created;
+			}
+		}
+
+		Object converter = inputEntries.find(output, qualifier);
+		if (converter == null) {
+			final Converter<?, ?> resolved = resolve(input, output, qualifier);
+			converter = inputEntries.add(output, qualifier, resolved == null ? NO_CONVERTER : resolved);
+		}
+
+		if (converter == NO_CONVERTER) {
+			return null;
+		}
+		@SuppressWarnings("unchecked")
+		Converter<S, T> myConverter = (Converter<S, T>) converter;
+		return myConverter;
+	}
+
+	/**
+	 * Discard all recorded converters, so that each is resolved again on its next use
+	 */
+	void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * The entries for a single input class, held as output class, qualifier and converter triples in an
+	 * array that is copied on each addition. Each input class is typically converted to only a few outputs.
+	 */
+	private static final class Entries {
+
+		private static final Object[] EMPTY = new Object[0];
+
+		private volatile Object[] triples = EMPTY;
+
+		private Object find(Class<?> output, Class<? extends Annotation> qualifier) {
+
+			final Object[] current = triples;
+			for (int i = 0; i < current.length; i += 3) {
+				if (current[i] == output && current[i + 1] == qualifier) {
+					return current[i + 2];
+				}
+			}
+			return null;
+		}
+
+		private synchronized Object add(Class<?> output, Class<? extends Annotation> qualifier, Object converter) {
+
+			final Object existing = find(output, qualifier);
+			if (existing != null) {
+				return existing;
+			}
+
+			final Object[] current = triples;
+			final Object[] updated = new Object[current.length + 3];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			updated[current.length] = output;
+			updated[current.length + 1] = qualifier;
+			updated[current.length + 2] = converter;
+			triples = updated;
+			return converter;
+		}
+	}
+}
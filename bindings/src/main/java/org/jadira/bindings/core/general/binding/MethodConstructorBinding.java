@@ -15,8 +15,10 @@
  */
 package org.jadira.bindings.core.general.binding;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
@@ -31,7 +33,11 @@ import org.jadira.bindings.core.general.marshaller.MethodToMarshaller;
  */
 public final class MethodConstructorBinding<S, T> extends MethodToMarshaller<S, T> implements Binding<S, T> {
 
-    private final Constructor<S> unmarshal;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    
+    private static final MethodType ERASED_TYPE = MethodType.methodType(Object.class, Object.class);
+    
+    private final MethodHandle unmarshalHandle;
 
     /**
      * Constructs a binding that supports a marshal method and an unmarshalling constructor
@@ -50,7 +56,11 @@ public final class MethodConstructorBinding<S, T> extends MethodToMarshaller<S,
             throw new IllegalStateException("unmarshal constructor must have an instantiable target class");
         }
         
-        this.unmarshal = unmarshal;
+        try {
+            this.unmarshalHandle = LOOKUP.unreflectConstructor(unmarshal).asType(ERASED_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Constructor is not accessible: " + unmarshal);
+        }
     }
 
     /**
@@ -59,16 +69,13 @@ public final class MethodConstructorBinding<S, T> extends MethodToMarshaller<S,
     @Override
     public S unmarshal(T str) {
         try {
-            return unmarshal.newInstance(str);
-        } catch (IllegalAccessException ex) {
-            throw new IllegalStateException("Constructor is not accessible");
-        } catch (InstantiationException ex) {
-            throw new IllegalStateException("Constructor is not valid");
-        } catch (InvocationTargetException ex) {
-            if (ex.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) ex.getCause();
-            }
-            throw new BindingException(ex.getMessage(), ex.getCause());
+            return getBoundClass().cast(unmarshalHandle.invokeExact((Object) str));
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new BindingException(ex.getMessage(), ex);
         }
     }
 }
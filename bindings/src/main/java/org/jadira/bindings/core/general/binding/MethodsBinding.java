@@ -17,6 +17,7 @@ package org.jadira.bindings.core.general.binding;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
@@ -38,6 +39,8 @@ public final class MethodsBinding<S, T> extends MethodToMarshaller<S, T> impleme
 
 	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 	
+	private static final MethodType ERASED_TYPE = MethodType.methodType(Object.class, Object.class);
+	
     private final MethodHandle unmarshalHandle;
 
     /**
@@ -66,9 +69,9 @@ public final class MethodsBinding<S, T> extends MethodToMarshaller<S, T> impleme
         }
         
         try {
-			this.unmarshalHandle = LOOKUP.unreflect(unmarshal);
+			this.unmarshalHandle = LOOKUP.unreflect(unmarshal).asType(ERASED_TYPE);
 		} catch (IllegalAccessException e) {
-			throw new IllegalStateException("Method is not accessible" + unmarshal);
+			throw new IllegalStateException("Method is not accessible: " + unmarshal);
 		}
     }
 
@@ -79,12 +82,13 @@ public final class MethodsBinding<S, T> extends MethodToMarshaller<S, T> impleme
     public S unmarshal(T string) {
 
         try {
-            return getBoundClass().cast(unmarshalHandle.invoke(string));
+            return getBoundClass().cast(unmarshalHandle.invokeExact((Object) string));
+        } catch (RuntimeException ex) {
+        	throw ex;
+        } catch (Error ex) {
+        	throw ex;
         } catch (Throwable ex) {
-        	if (ex.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) ex.getCause();
-            }
-            throw new BindingException(ex.getMessage(), ex.getCause());
+            throw new BindingException(ex.getMessage(), ex);
         }
     }
 }
@@ -17,6 +17,7 @@ package org.jadira.bindings.core.general.marshaller;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
@@ -25,7 +26,8 @@ import org.jadira.bindings.core.api.ToMarshaller;
 
 /**
  * Base class providing capability to perform marshalling of source object type
- * to target. This class uses reflection.
+ * to target. The method is invoked through a MethodHandle, adapted once to an erased 
+ * type so that each invocation is an exact invocation.
  * <p>
  * The marshal method must either
  * </p>
@@ -50,6 +52,8 @@ public class MethodToMarshaller<S, T> implements ToMarshaller<S, T> {
 
 	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 	
+	private static final MethodType ERASED_TYPE = MethodType.methodType(Object.class, Object.class);
+	
     private final Class<S> boundClass;
 
     private final Class<T> targetClass;
@@ -83,9 +87,9 @@ public class MethodToMarshaller<S, T> implements ToMarshaller<S, T> {
         this.targetClass = targetClass;
 
         try {
-			this.marshalHandle = LOOKUP.unreflect(marshal);
+			this.marshalHandle = LOOKUP.unreflect(marshal).asType(ERASED_TYPE);
 		} catch (IllegalAccessException e) {
-			throw new IllegalStateException("Method is not accessible" + marshal);
+			throw new IllegalStateException("Method is not accessible: " + marshal);
 		}
 
     }
@@ -97,13 +101,15 @@ public class MethodToMarshaller<S, T> implements ToMarshaller<S, T> {
     public T marshal(S object) {
 
         try {
-        	final T result = (T) marshalHandle.invoke(object);
+        	@SuppressWarnings("unchecked")
+        	final T result = (T) marshalHandle.invokeExact((Object) object);
             return result;
+        } catch (RuntimeException ex) {
+        	throw ex;
+        } catch (Error ex) {
+        	throw ex;
         } catch (Throwable ex) {
-        	if (ex.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) ex.getCause();
-            }
-            throw new BindingException(ex.getMessage(), ex.getCause());
+            throw new BindingException(ex.getMessage(), ex);
         }
     }
    
@@ -15,8 +15,10 @@
  */
 package org.jadira.bindings.core.general.unmarshaller;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 
 import org.jadira.bindings.core.api.BindingException;
@@ -29,7 +31,11 @@ import org.jadira.bindings.core.api.FromUnmarshaller;
  */
 public final class ConstructorFromUnmarshaller<S, T> implements FromUnmarshaller<S, T> {
 
-    private final Constructor<S> unmarshal;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    
+    private static final MethodType ERASED_TYPE = MethodType.methodType(Object.class, Object.class);
+    
+    private final MethodHandle unmarshalHandle;
 
     private final Class<S> boundClass;
     
@@ -54,7 +60,11 @@ public final class ConstructorFromUnmarshaller<S, T> implements FromUnmarshaller
         	throw new IllegalStateException("unmarshal constructor must have a single parameter");
         }
         
-        this.unmarshal = unmarshal;
+        try {
+            this.unmarshalHandle = LOOKUP.unreflectConstructor(unmarshal).asType(ERASED_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Constructor is not accessible: " + unmarshal);
+        }
         
         @SuppressWarnings("unchecked")
         Class<T> myTarget = (Class<T>)unmarshal.getParameterTypes()[0];
@@ -72,16 +82,13 @@ public final class ConstructorFromUnmarshaller<S, T> implements FromUnmarshaller
     	}
     	
         try {
-            return unmarshal.newInstance(object);
-        } catch (IllegalAccessException ex) {
-            throw new IllegalStateException("Constructor is not accessible");
-        } catch (InstantiationException ex) {
-            throw new IllegalStateException("Constructor is not valid");
-        } catch (InvocationTargetException ex) {
-            if (ex.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) ex.getCause();
-            }
-            throw new BindingException(ex.getMessage(), ex.getCause());
+            return getBoundClass().cast(unmarshalHandle.invokeExact((Object) object));
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new BindingException(ex.getMessage(), ex);
         }
     }
     
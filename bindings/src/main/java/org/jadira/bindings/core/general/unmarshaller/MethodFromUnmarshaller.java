@@ -17,6 +17,7 @@ package org.jadira.bindings.core.general.unmarshaller;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 
@@ -37,6 +38,8 @@ public final class MethodFromUnmarshaller<S, T> implements FromUnmarshaller<S, T
 
 	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
 	
+	private static final MethodType ERASED_TYPE = MethodType.methodType(Object.class, Object.class);
+	
     private final MethodHandle unmarshalHandle;
 
     private final Class<S> boundClass;
@@ -63,9 +66,9 @@ public final class MethodFromUnmarshaller<S, T> implements FromUnmarshaller<S, T
         }
 
         try {
-			this.unmarshalHandle = LOOKUP.unreflect(unmarshal);
+			this.unmarshalHandle = LOOKUP.unreflect(unmarshal).asType(ERASED_TYPE);
 		} catch (IllegalAccessException e) {
-			throw new IllegalStateException("Method is not accessible" + unmarshal);
+			throw new IllegalStateException("Method is not accessible: " + unmarshal);
 		}
         
         @SuppressWarnings("unchecked")
@@ -84,12 +87,13 @@ public final class MethodFromUnmarshaller<S, T> implements FromUnmarshaller<S, T
     	}
     	
         try {
-            return getBoundClass().cast(unmarshalHandle.invoke(object));
+            return getBoundClass().cast(unmarshalHandle.invokeExact((Object) object));
+        } catch (RuntimeException ex) {
+        	throw ex;
+        } catch (Error ex) {
+        	throw ex;
         } catch (Throwable ex) {
-        	if (ex.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) ex.getCause();
-            }
-            throw new BindingException(ex.getMessage(), ex.getCause());
+            throw new BindingException(ex.getMessage(), ex);
         }
     }
     
@@ -15,14 +15,17 @@
  */
 package org.jadira.bindings.core.jdk;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.CharBuffer;
 
 import org.jadira.bindings.core.api.Binding;
+import org.jadira.bindings.core.api.CharSequenceBinding;
 
 /**
  * Binds a BigDecimal to a String
  */
-public class BigDecimalStringBinding extends AbstractStringBinding<BigDecimal> implements Binding<BigDecimal, String> {
+public class BigDecimalStringBinding extends AbstractStringBinding<BigDecimal> implements Binding<BigDecimal, String>, CharSequenceBinding<BigDecimal> {
 
     /**
      * {@inheritDoc}
@@ -32,6 +35,35 @@ public class BigDecimalStringBinding extends AbstractStringBinding<BigDecimal> i
         return new BigDecimal(object);
     }
 
+    /**
+     * {@inheritDoc}
+     * The characters of an array backed CharBuffer are read in place, otherwise they are copied.
+     */
+    /* @Override */
+    public BigDecimal unmarshal(CharSequence chars, int start, int end) {
+
+        CharSequences.checkRange(chars, start, end);
+        if (chars instanceof CharBuffer && ((CharBuffer) chars).hasArray()) {
+            final CharBuffer buffer = (CharBuffer) chars;
+            return new BigDecimal(buffer.array(), buffer.arrayOffset() + buffer.position() + start, end - start);
+        }
+
+        final char[] digits = new char[end - start];
+        for (int i = start; i < end; i++) {
+            digits[i - start] = chars.charAt(i);
+        }
+        return new BigDecimal(digits);
+    }
+
+    /**
+     * {@inheritDoc}
+     * BigDecimal can only be formatted by way of a String.
+     */
+    /* @Override */
+    public void marshal(BigDecimal object, Appendable appendable) throws IOException {
+        appendable.append(object.toString());
+    }
+
     /**
      * {@inheritDoc}
      */
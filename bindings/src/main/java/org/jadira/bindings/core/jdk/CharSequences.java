@@ -0,0 +1,167 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.bindings.core.jdk;
+
+import java.io.IOException;
+
+/**
+ * Parsing and formatting of numbers directly from and to character ranges, used by the
+ * {@link org.jadira.bindings.core.api.CharSequenceBinding} implementations
+ */
+final class CharSequences {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private CharSequences() {
+	}
+
+	/**
+	 * Checks that the given range lies within the CharSequence
+	 */
+	static void checkRange(CharSequence chars, int start, int end) {
+		if (start < 0 || end > chars.length() || start > end) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") is not within length " + chars.length());
+		}
+	}
+
+	/**
+	 * Parses a signed decimal integer as {@link Long#parseLong(String)} does, checking that it lies within the given bounds
+	 */
+	static long parseLong(CharSequence chars, int start, int end, long min, long max) {
+
+		checkRange(chars, start, end);
+		if (start == end) {
+			throw numberFormatException(chars, start, end);
+		}
+
+		int index = start;
+		boolean negative = false;
+		final char first = chars.charAt(index);
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			index++;
+			if (index == end) {
+				throw numberFormatException(chars, start, end);
+			}
+		}
+
+		// Accumulate negatively, as the magnitude of the minimum exceeds that of the maximum
+		final long limit = negative ? min : -max;
+		final long multiplyLimit = limit / 10;
+		long result = 0;
+		while (index < end) {
+			final int digit = Character.digit(chars.charAt(index++), 10);
+			if (digit < 0 || result < multiplyLimit) {
+				throw numberFormatException(chars, start, end);
+			}
+			result *= 10;
+			if (result < limit + digit) {
+				throw numberFormatException(chars, start, end);
+			}
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	/**
+	 * Parses an unsigned hexadecimal value of at most 16 digits
+	 */
+	static long parseHex(CharSequence chars, int start, int end) {
+
+		if (start == end || end - start > 16) {
+			throw numberFormatException(chars, start, end);
+		}
+		long result = 0;
+		for (int i = start; i < end; i++) {
+			final int digit = Character.digit(chars.charAt(i), 16);
+			if (digit < 0) {
+				throw numberFormatException(chars, start, end);
+			}
+			result = (result << 4) | digit;
+		}
+		return result;
+	}
+
+	/**
+	 * Parses a fixed width, unsigned decimal field
+	 * @return The value, or -1 if the field contains anything other than ASCII digits
+	 */
+	static int parseDigits(CharSequence chars, int start, int end) {
+
+		int result = 0;
+		for (int i = start; i < end; i++) {
+			final char next = chars.charAt(i);
+			if (next < '0' || next > '9') {
+				return -1;
+			}
+			result = result * 10 + (next - '0');
+		}
+		return result;
+	}
+
+	/**
+	 * Appends a signed decimal integer as {@link Long#toString(long)} formats it
+	 */
+	static void appendLong(long value, Appendable appendable) throws IOException {
+
+		// Work with the negative value, as the magnitude of the minimum exceeds that of the maximum
+		long remaining = value;
+		if (value < 0) {
+			appendable.append('-');
+		} else {
+			remaining = -value;
+		}
+
+		long divisor = 1;
+		while (remaining / divisor <= -10) {
+			divisor *= 10;
+		}
+		while (divisor > 0) {
+			appendable.append((char) ('0' - (remaining / divisor)));
+			remaining = remaining % divisor;
+			divisor /= 10;
+		}
+	}
+
+	/**
+	 * Appends a fixed width, zero padded decimal field
+	 */
+	static void appendDigits(int value, int width, Appendable appendable) throws IOException {
+
+		int divisor = 1;
+		for (int i = 1; i < width; i++) {
+			divisor *= 10;
+		}
+		while (divisor > 0) {
+			appendable.append((char) ('0' + (value / divisor) % 10));
+			divisor /= 10;
+		}
+	}
+
+	/**
+	 * Appends the given number of low order hexadecimal digits of the value
+	 */
+	static void appendHex(long value, int digits, Appendable appendable) throws IOException {
+
+		for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+			appendable.append(HEX_DIGITS[(int) ((value >>> shift) & 0xF)]);
+		}
+	}
+
+	private static NumberFormatException numberFormatException(CharSequence chars, int start, int end) {
+		return new NumberFormatException("For input string: \"" + chars.subSequence(start, end) + "\"");
+	}
+}
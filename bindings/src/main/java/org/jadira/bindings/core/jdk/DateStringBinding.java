@@ -15,18 +15,38 @@
  */
 package org.jadira.bindings.core.jdk;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
 
 import org.jadira.bindings.core.api.Binding;
+import org.jadira.bindings.core.api.CharSequenceBinding;
 
 /**
  * Binds a Date to a String. Date String binding always uses the GMT zone to render.... if you 
  * want control over the zone, use CalendarStringBinding instead or better still use JodaTime or JSR310.
  */
-public class DateStringBinding extends AbstractStringBinding<Date> implements Binding<Date, String> {
+public class DateStringBinding extends AbstractStringBinding<Date> implements Binding<Date, String>, CharSequenceBinding<Date> {
+
+    private static final int DATE_LENGTH = 29;
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * Dates from the first whole year of the Gregorian calendar up to the last year with four digits 
+     * are parsed and formatted directly. Other dates are handled by way of SimpleDateFormat.
+     */
+    private static final int MIN_DIRECT_YEAR = 1583;
+
+    private static final int MAX_DIRECT_YEAR = 9999;
+
+    private static final long MIN_DIRECT_MILLIS = daysFromCivil(MIN_DIRECT_YEAR, 1, 1) * MILLIS_PER_DAY;
+
+    private static final long MAX_DIRECT_MILLIS = daysFromCivil(MAX_DIRECT_YEAR + 1, 1, 1) * MILLIS_PER_DAY;
 
     private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
         @Override
@@ -65,6 +85,125 @@ public class DateStringBinding extends AbstractStringBinding<Date> implements Bi
         return output.substring(0, 26) + ":" + output.substring(26);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    /* @Override */
+    public Date unmarshal(CharSequence chars, int start, int end) {
+
+        CharSequences.checkRange(chars, start, end);
+        if (end - start == DATE_LENGTH) {
+            final long millis = parseMillis(chars, start);
+            if (millis != INVALID) {
+                return new Date(millis);
+            }
+        }
+        return unmarshal(chars.subSequence(start, end).toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    /* @Override */
+    public void marshal(Date object, Appendable appendable) throws IOException {
+
+        final long millis = object.getTime();
+        if (millis < MIN_DIRECT_MILLIS || millis >= MAX_DIRECT_MILLIS) {
+            appendable.append(marshal(object));
+            return;
+        }
+
+        // Floor division, as dates before the epoch are negative
+        final long days = millis >= 0 ? millis / MILLIS_PER_DAY : (millis - MILLIS_PER_DAY + 1) / MILLIS_PER_DAY;
+        final int millisOfDay = (int) (millis - days * MILLIS_PER_DAY);
+
+        // Civil date from days since the epoch, after Howard Hinnant's days_from_civil inverse
+        final long dayOfEra400 = days + 719468;
+        final long era = dayOfEra400 / 146097;
+        final int dayOfEra = (int) (dayOfEra400 - era * 146097);
+        final int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        final int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        final int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        final int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        final int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        final int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        CharSequences.appendDigits(year, 4, appendable);
+        appendable.append('-');
+        CharSequences.appendDigits(month, 2, appendable);
+        appendable.append('-');
+        CharSequences.appendDigits(day, 2, appendable);
+        appendable.append('T');
+        CharSequences.appendDigits(millisOfDay / 3600000, 2, appendable);
+        appendable.append(':');
+        CharSequences.appendDigits((millisOfDay / 60000) % 60, 2, appendable);
+        appendable.append(':');
+        CharSequences.appendDigits((millisOfDay / 1000) % 60, 2, appendable);
+        appendable.append('.');
+        CharSequences.appendDigits(millisOfDay % 1000, 3, appendable);
+        appendable.append("+00:00");
+    }
+
+    /**
+     * Parses the date starting at the given index
+     * @return The milliseconds since the epoch, or INVALID if the date must be parsed by SimpleDateFormat
+     */
+    private static long parseMillis(CharSequence chars, int start) {
+
+        if (chars.charAt(start + 4) != '-' || chars.charAt(start + 7) != '-' || chars.charAt(start + 10) != 'T'
+                || chars.charAt(start + 13) != ':' || chars.charAt(start + 16) != ':' || chars.charAt(start + 19) != '.'
+                || chars.charAt(start + 26) != ':') {
+            return INVALID;
+        }
+
+        final char sign = chars.charAt(start + 23);
+        final int year = CharSequences.parseDigits(chars, start, start + 4);
+        final int month = CharSequences.parseDigits(chars, start + 5, start + 7);
+        final int day = CharSequences.parseDigits(chars, start + 8, start + 10);
+        final int hour = CharSequences.parseDigits(chars, start + 11, start + 13);
+        final int minute = CharSequences.parseDigits(chars, start + 14, start + 16);
+        final int second = CharSequences.parseDigits(chars, start + 17, start + 19);
+        final int millis = CharSequences.parseDigits(chars, start + 20, start + 23);
+        final int offsetHours = CharSequences.parseDigits(chars, start + 24, start + 26);
+        final int offsetMinutes = CharSequences.parseDigits(chars, start + 27, start + 29);
+
+        // Out of range fields are left to SimpleDateFormat, which is lenient
+        if ((sign != '+' && sign != '-') || millis < 0
+                || year < MIN_DIRECT_YEAR || year > MAX_DIRECT_YEAR || month < 1 || month > 12
+                || day < 1 || day > daysInMonth(year, month) || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59
+                || offsetHours < 0 || offsetHours > 23 || offsetMinutes < 0 || offsetMinutes > 59) {
+            return INVALID;
+        }
+
+        final long offsetMillis = (offsetHours * 60L + offsetMinutes) * 60000L;
+        final long localMillis = daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60L + second) * 1000L + millis;
+        return sign == '+' ? localMillis - offsetMillis : localMillis + offsetMillis;
+    }
+
+    /**
+     * Days since the epoch of the given date in the proleptic Gregorian calendar, after Howard Hinnant's 
+     * days_from_civil. Only valid for years from zero onwards.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+
+        final int adjustedYear = month <= 2 ? year - 1 : year;
+        final int era = adjustedYear / 400;
+        final int yearOfEra = adjustedYear - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -15,12 +15,15 @@
  */
 package org.jadira.bindings.core.jdk;
 
+import java.io.IOException;
+
 import org.jadira.bindings.core.api.Binding;
+import org.jadira.bindings.core.api.CharSequenceBinding;
 
 /**
  * Binds a Integer to a String
  */
-public class IntegerStringBinding extends AbstractStringBinding<Integer> implements Binding<Integer, String> {
+public class IntegerStringBinding extends AbstractStringBinding<Integer> implements Binding<Integer, String>, CharSequenceBinding<Integer> {
 
     /**
      * {@inheritDoc}
@@ -30,6 +33,22 @@ public class IntegerStringBinding extends AbstractStringBinding<Integer> impleme
         return Integer.valueOf(Integer.parseInt(object));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    /* @Override */
+    public Integer unmarshal(CharSequence chars, int start, int end) {
+        return Integer.valueOf((int) CharSequences.parseLong(chars, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    /* @Override */
+    public void marshal(Integer object, Appendable appendable) throws IOException {
+        CharSequences.appendLong(object.intValue(), appendable);
+    }
+
     /**
      * {@inheritDoc}
      */
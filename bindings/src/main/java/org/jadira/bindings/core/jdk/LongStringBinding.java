@@ -15,12 +15,15 @@
  */
 package org.jadira.bindings.core.jdk;
 
+import java.io.IOException;
+
 import org.jadira.bindings.core.api.Binding;
+import org.jadira.bindings.core.api.CharSequenceBinding;
 
 /**
  * Binds a Long to a String
  */
-public class LongStringBinding extends AbstractStringBinding<Long> implements Binding<Long, String> {
+public class LongStringBinding extends AbstractStringBinding<Long> implements Binding<Long, String>, CharSequenceBinding<Long> {
 
     /**
      * {@inheritDoc}
@@ -30,6 +33,22 @@ public class LongStringBinding extends AbstractStringBinding<Long> implements Bi
         return Long.valueOf(Long.parseLong(object));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    /* @Override */
+    public Long unmarshal(CharSequence chars, int start, int end) {
+        return Long.valueOf(CharSequences.parseLong(chars, start, end, Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    /* @Override */
+    public void marshal(Long object, Appendable appendable) throws IOException {
+        CharSequences.appendLong(object.longValue(), appendable);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -15,14 +15,18 @@
  */
 package org.jadira.bindings.core.jdk;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import org.jadira.bindings.core.api.Binding;
+import org.jadira.bindings.core.api.CharSequenceBinding;
 
 /**
  * Binds a UUID to a String
  */
-public class UUIDStringBinding extends AbstractStringBinding<UUID> implements Binding<UUID, String> {
+public class UUIDStringBinding extends AbstractStringBinding<UUID> implements Binding<UUID, String>, CharSequenceBinding<UUID> {
+
+    private static final int CANONICAL_LENGTH = 36;
 
     /**
      * {@inheritDoc}
@@ -33,6 +37,49 @@ public class UUIDStringBinding extends AbstractStringBinding<UUID> implements Bi
         return java.util.UUID.fromString(object);
     }
 
+    /**
+     * {@inheritDoc}
+     * Only the canonical form is parsed in place; other forms are parsed by way of a String.
+     */
+    /* @Override */
+    public UUID unmarshal(CharSequence chars, int start, int end) {
+
+        CharSequences.checkRange(chars, start, end);
+        if (end - start != CANONICAL_LENGTH
+                || chars.charAt(start + 8) != '-' || chars.charAt(start + 13) != '-'
+                || chars.charAt(start + 18) != '-' || chars.charAt(start + 23) != '-') {
+            return unmarshal(chars.subSequence(start, end).toString());
+        }
+
+        long mostSigBits = CharSequences.parseHex(chars, start, start + 8);
+        mostSigBits = (mostSigBits << 16) | CharSequences.parseHex(chars, start + 9, start + 13);
+        mostSigBits = (mostSigBits << 16) | CharSequences.parseHex(chars, start + 14, start + 18);
+        long leastSigBits = CharSequences.parseHex(chars, start + 19, start + 23);
+        leastSigBits = (leastSigBits << 48) | CharSequences.parseHex(chars, start + 24, end);
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    /* @Override */
+    public void marshal(UUID object, Appendable appendable) throws IOException {
+
+        final long mostSigBits = object.getMostSignificantBits();
+        final long leastSigBits = object.getLeastSignificantBits();
+
+        CharSequences.appendHex(mostSigBits >>> 32, 8, appendable);
+        appendable.append('-');
+        CharSequences.appendHex(mostSigBits >>> 16, 4, appendable);
+        appendable.append('-');
+        CharSequences.appendHex(mostSigBits, 4, appendable);
+        appendable.append('-');
+        CharSequences.appendHex(leastSigBits >>> 48, 4, appendable);
+        appendable.append('-');
+        CharSequences.appendHex(leastSigBits, 12, appendable);
+    }
+
     /**
      * {@inheritDoc}
      */
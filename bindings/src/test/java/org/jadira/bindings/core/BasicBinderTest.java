@@ -16,15 +16,27 @@
 package org.jadira.bindings.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.jadira.bindings.core.annotation.DefaultBinding;
 import org.jadira.bindings.core.api.Binding;
+import org.jadira.bindings.core.api.Converter;
 import org.jadira.bindings.core.api.FromUnmarshaller;
 import org.jadira.bindings.core.api.ToMarshaller;
 import org.jadira.bindings.core.binder.BasicBinder;
 import org.jadira.bindings.core.binder.Binder;
+import org.jadira.bindings.core.binder.NoConverterFoundException;
 import org.jadira.bindings.core.general.binding.CompositeBinding;
 import org.jadira.bindings.core.jdk.AtomicBooleanStringBinding;
 import org.jadira.bindings.core.test.Narrow;
@@ -115,4 +127,157 @@ public class BasicBinderTest {
         FromUnmarshaller<AtomicBoolean, String> match2 = BINDER.findUnmarshaller(AtomicBoolean.class, String.class, DefaultBinding.class);
         assertEquals(AtomicBooleanStringBinding.class, match2.getClass());
     }
+
+    @Test
+    public void testResolvedConverterInvalidatedOnRegistration() {
+
+        BasicBinder binder = new BasicBinder(false);
+        try {
+            binder.convertTo(String.class, Integer.valueOf(5));
+            fail("No converter should be resolved");
+        } catch (NoConverterFoundException e) {
+            assertEquals(Integer.class, e.getConverterKey().getInputClass());
+        }
+        try {
+            binder.convertTo(String.class, Integer.valueOf(5), null);
+            fail("No converter should be resolved");
+        } catch (NoConverterFoundException e) {
+            assertEquals(DefaultBinding.class, e.getConverterKey().getQualifierAnnotation());
+        }
+
+        binder.registerConverter(Number.class, String.class, new Converter<Number, String>() {
+
+            public String convert(Number inputObject) {
+                return "Number:" + inputObject;
+            }
+
+            public Class<Number> getInputClass() {
+                return Number.class;
+            }
+
+            public Class<String> getOutputClass() {
+                return String.class;
+            }
+        });
+
+        assertEquals("Number:5", binder.convertTo(String.class, Integer.valueOf(5)));
+        assertEquals("Number:6", binder.convertTo(String.class, Integer.valueOf(6)));
+    }
+
+    @Test
+    public void testResolveConverter() {
+
+        BasicBinder binder = new BasicBinder(false);
+        assertNull(binder.findConverter(Number.class, String.class));
+
+        Converter<Number, String> numberConverter = new Converter<Number, String>() {
+
+            public String convert(Number inputObject) {
+                return "Number:" + inputObject;
+            }
+
+            public Class<Number> getInputClass() {
+                return Number.class;
+            }
+
+            public Class<String> getOutputClass() {
+                return String.class;
+            }
+        };
+        binder.registerConverter(Number.class, String.class, numberConverter);
+
+        assertSame(numberConverter, binder.findConverter(Number.class, String.class));
+        assertSame(numberConverter, binder.findConverter(Number.class, String.class, DefaultBinding.class));
+        assertNull(binder.findConverter(Long.class, String.class));
+
+        Converter<Long, String> resolved = binder.resolveConverter(Long.class, String.class);
+        assertSame(numberConverter, resolved);
+        assertEquals("Number:7", resolved.convert(Long.valueOf(7L)));
+        assertEquals("Number:8", binder.convertTo(String.class, Long.valueOf(8L)));
+
+        try {
+            binder.resolveConverter(String.class, Long.class, Narrow.class);
+            fail("No converter should be resolved");
+        } catch (NoConverterFoundException e) {
+            assertEquals(Narrow.class, e.getConverterKey().getQualifierAnnotation());
+        }
+        try {
+            binder.resolveConverter(String.class, Long.class, null);
+            fail("No converter should be resolved");
+        } catch (NoConverterFoundException e) {
+            assertEquals(DefaultBinding.class, e.getConverterKey().getQualifierAnnotation());
+        }
+    }
+
+    @Test
+    public void testConvertAll() {
+
+        BasicBinder binder = new BasicBinder();
+
+        List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < 5000; i++) {
+            values.add(i % 2 == 0 ? (Object) Integer.valueOf(i) : (Object) Long.valueOf(i));
+        }
+        values.add(null);
+
+        List<String> strings = binder.convertAll(String.class, values);
+        assertEquals(values.size(), strings.size());
+        assertEquals("4998", strings.get(4998));
+        assertEquals("4999", strings.get(4999));
+        assertNull(strings.get(5000));
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            binder.setForkJoinPool(pool);
+            binder.setParallelThreshold(100);
+            String[] parallelStrings = binder.convertAll(String.class, values.toArray());
+            assertEquals(strings, Arrays.asList(parallelStrings));
+        } finally {
+            pool.shutdown();
+        }
+
+        try {
+            binder.convertAll(String.class, new Object[] { Integer.valueOf(1), new Object() });
+            fail("No converter should be resolved");
+        } catch (NoConverterFoundException e) {
+            assertEquals(Object.class, e.getConverterKey().getInputClass());
+        }
+    }
+
+    @Test
+    public void testCharSequenceBinder() throws IOException {
+
+        BasicBinder binder = new BasicBinder();
+
+        assertEquals(Integer.valueOf(123), binder.convertFromCharSequence(Integer.class, "x123y", 1, 4));
+        assertEquals(Long.valueOf(-5), binder.convertFromCharSequence(Long.class, CharBuffer.wrap("[-5]"), 1, 3));
+        // Bindings that do not parse character ranges are given the range as a String
+        assertEquals(Locale.UK, binder.convertFromCharSequence(Locale.class, "(en_GB)", 1, 6));
+
+        StringBuilder builder = new StringBuilder();
+        binder.convertToAppendable(Long.valueOf(5), builder);
+        builder.append(',');
+        binder.convertToAppendable(Locale.UK, builder);
+        builder.append(',');
+        binder.convertToAppendable(null, builder);
+        assertEquals("5,en_GB,", builder.toString());
+
+        assertEquals(Integer.valueOf(42), binder.convertFromCharSequence(Integer.class, "42", 0, 2, null));
+        builder.setLength(0);
+        binder.convertToAppendable(Long.valueOf(6), builder, null);
+        assertEquals("6", builder.toString());
+
+        try {
+            binder.convertFromCharSequence(Object.class, "x", 0, 1, null);
+            fail("No converter should be resolved");
+        } catch (NoConverterFoundException e) {
+            assertEquals(DefaultBinding.class, e.getConverterKey().getQualifierAnnotation());
+        }
+        try {
+            binder.convertToAppendable(new Object(), builder, null);
+            fail("No converter should be resolved");
+        } catch (NoConverterFoundException e) {
+            assertEquals(DefaultBinding.class, e.getConverterKey().getQualifierAnnotation());
+        }
+    }
 }
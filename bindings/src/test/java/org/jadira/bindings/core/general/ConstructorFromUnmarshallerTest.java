@@ -16,11 +16,16 @@
 package org.jadira.bindings.core.general;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 
+import org.jadira.bindings.core.api.BindingException;
 import org.jadira.bindings.core.general.unmarshaller.ConstructorFromUnmarshaller;
 import org.jadira.bindings.core.test.SubjectA;
+import org.jadira.bindings.core.test.SubjectFailing;
 import org.junit.Test;
 
 public class ConstructorFromUnmarshallerTest {
@@ -32,4 +37,17 @@ public class ConstructorFromUnmarshallerTest {
         ConstructorFromUnmarshaller<SubjectA, String> unmarshaller = new ConstructorFromUnmarshaller<SubjectA, String>(constructor);
         assertEquals(new SubjectA("UNMARSHALLED_BY_A"), unmarshaller.unmarshal("UNMARSHALLED_BY_A"));
     }    
+    
+    @Test
+    public void testUnmarshalWrapsCheckedException() throws SecurityException, NoSuchMethodException {
+        
+        Constructor<SubjectFailing> constructor = SubjectFailing.class.getConstructor(new Class[]{ String.class });
+        ConstructorFromUnmarshaller<SubjectFailing, String> unmarshaller = new ConstructorFromUnmarshaller<SubjectFailing, String>(constructor);
+        try {
+            unmarshaller.unmarshal("FAILING");
+            fail("Expected BindingException");
+        } catch (BindingException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
 }
@@ -16,11 +16,16 @@
 package org.jadira.bindings.core.general;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 
+import org.jadira.bindings.core.api.BindingException;
 import org.jadira.bindings.core.general.unmarshaller.MethodFromUnmarshaller;
 import org.jadira.bindings.core.test.SubjectA;
+import org.jadira.bindings.core.test.SubjectFailing;
 import org.jadira.bindings.core.test.SubjectB;
 import org.junit.Test;
 
@@ -41,4 +46,25 @@ public class MethodFromUnmarshallerTest {
         MethodFromUnmarshaller<SubjectA, String> unmarshaller = new MethodFromUnmarshaller<SubjectA, String>(SubjectA.class, method);
         assertEquals(new SubjectA("UNMARSHALLED_BY_A"), unmarshaller.unmarshal("UNMARSHALLED_BY_A:MARSHALLED_BY_A"));
     }
+    
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void testUnmarshalRethrowsRuntimeException() throws SecurityException, NoSuchMethodException {
+        
+        Method method = SubjectA.class.getMethod("unmarshalMethodA", new Class[]{ String.class });
+        MethodFromUnmarshaller<SubjectA, String> unmarshaller = new MethodFromUnmarshaller<SubjectA, String>(SubjectA.class, method);
+        unmarshaller.unmarshal("NOT_MARSHALLED");
+    }
+    
+    @Test
+    public void testUnmarshalWrapsCheckedException() throws SecurityException, NoSuchMethodException {
+        
+        Method method = SubjectFailing.class.getMethod("unmarshal", new Class[]{ String.class });
+        MethodFromUnmarshaller<SubjectFailing, String> unmarshaller = new MethodFromUnmarshaller<SubjectFailing, String>(SubjectFailing.class, method);
+        try {
+            unmarshaller.unmarshal("FAILING");
+            fail("Expected BindingException");
+        } catch (BindingException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
 }
@@ -16,11 +16,16 @@
 package org.jadira.bindings.core.general;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 
+import org.jadira.bindings.core.api.BindingException;
 import org.jadira.bindings.core.general.marshaller.MethodToMarshaller;
 import org.jadira.bindings.core.test.SubjectA;
+import org.jadira.bindings.core.test.SubjectFailing;
 import org.jadira.bindings.core.test.SubjectB;
 import org.junit.Test;
 
@@ -49,4 +54,17 @@ public class MethodToMarshallerTest {
         MethodToMarshaller<SubjectA, String> marshaller = new MethodToMarshaller<SubjectA, String>(SubjectA.class, String.class, method);
         assertEquals("3:MARSHALLED_BY_C", marshaller.marshal(new SubjectA("3")));
     }
+    
+    @Test
+    public void testMarshalWrapsCheckedException() throws SecurityException, NoSuchMethodException {
+        
+        Method method = SubjectFailing.class.getMethod("marshal", new Class[]{});
+        MethodToMarshaller<SubjectFailing, String> marshaller = new MethodToMarshaller<SubjectFailing, String>(SubjectFailing.class, String.class, method);
+        try {
+            marshaller.marshal(new SubjectFailing());
+            fail("Expected BindingException");
+        } catch (BindingException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
 }
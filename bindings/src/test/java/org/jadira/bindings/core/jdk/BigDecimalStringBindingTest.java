@@ -17,7 +17,9 @@ package org.jadira.bindings.core.jdk;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.CharBuffer;
 
 import org.junit.Test;
 
@@ -58,4 +60,21 @@ public class BigDecimalStringBindingTest {
         assertEquals("9223372036854775808.234234324324324", BINDING.marshal(new BigDecimal("9223372036854775808.234234324324324")));
         assertEquals("-9223372036854775809.234234324324324", BINDING.marshal(new BigDecimal("-9223372036854775809.234234324324324")));
     }
+    
+    @Test
+    public void testUnmarshalCharSequence() {
+        
+        CharBuffer buffer = CharBuffer.wrap("1.5,-9223372036854775809.234".toCharArray());
+        buffer.position(4);
+        assertEquals(new BigDecimal("-9223372036854775809.234"), BINDING.unmarshal(buffer, 0, 24));
+        assertEquals(new BigDecimal("1.5"), BINDING.unmarshal(new StringBuilder("1.5,"), 0, 3));
+    }
+    
+    @Test
+    public void testMarshalAppendable() throws IOException {
+
+        StringBuilder builder = new StringBuilder();
+        BINDING.marshal(new BigDecimal("1.123"), builder);
+        assertEquals("1.123", builder.toString());
+    }
 }
@@ -17,8 +17,12 @@ package org.jadira.bindings.core.jdk;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.Calendar;
+import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.junit.Test;
@@ -46,4 +50,30 @@ public class DateStringBindingTest {
         
         assertEquals("2000-11-01T23:45:00.000+00:00", BINDING.marshal(cal.getTime()));
     }
+    
+    @Test
+    public void testUnmarshalCharSequence() {
+
+        assertEquals(BINDING.unmarshal("2000-11-01T23:45:00.000+00:00"), BINDING.unmarshal(CharBuffer.wrap("[2000-11-01T23:45:00.000+00:00]"), 1, 30));
+        assertEquals(BINDING.unmarshal("1969-12-31T19:00:00.001-05:00"), BINDING.unmarshal(new StringBuilder("1969-12-31T19:00:00.001-05:00"), 0, 29));
+        assertEquals(BINDING.unmarshal("2012-02-29T12:00:59.999+05:30"), BINDING.unmarshal("2012-02-29T12:00:59.999+05:30", 0, 29));
+        // Lenient and pre-Gregorian values are handled by way of SimpleDateFormat
+        assertEquals(BINDING.unmarshal("2011-02-29T12:00:00.000+00:00"), BINDING.unmarshal("2011-02-29T12:00:00.000+00:00", 0, 29));
+        assertEquals(BINDING.unmarshal("1066-10-14T09:00:00.000+00:00"), BINDING.unmarshal("1066-10-14T09:00:00.000+00:00", 0, 29));
+    }
+    
+    @Test
+    public void testMarshalAppendable() throws IOException {
+
+        Random random = new Random(17L);
+        for (int i = 0; i < 1000; i++) {
+            // Dates between 1500 and 2500
+            Date date = new Date(-14831769600000L + (long) (random.nextDouble() * 31556952000000L));
+            
+            StringBuilder builder = new StringBuilder();
+            BINDING.marshal(date, builder);
+            assertEquals(BINDING.marshal(date), builder.toString());
+            assertEquals(date, BINDING.unmarshal(builder, 0, builder.length()));
+        }
+    }
 }
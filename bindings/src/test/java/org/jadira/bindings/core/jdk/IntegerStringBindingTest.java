@@ -17,6 +17,9 @@ package org.jadira.bindings.core.jdk;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+
 import org.junit.Test;
 
 public class IntegerStringBindingTest {
@@ -40,4 +43,30 @@ public class IntegerStringBindingTest {
         assertEquals("2147483647", BINDING.marshal(new Integer(Integer.MAX_VALUE)));
         assertEquals("-2147483648", BINDING.marshal(new Integer(Integer.MIN_VALUE)));
     }
+    
+    @Test
+    public void testUnmarshalCharSequence() {
+        
+        assertEquals(Integer.valueOf(0), BINDING.unmarshal(CharBuffer.wrap("[0]"), 1, 2));
+        assertEquals(Integer.valueOf(12), BINDING.unmarshal(new StringBuilder("1234"), 0, 2));
+        assertEquals(Integer.valueOf(Integer.MAX_VALUE), BINDING.unmarshal("+" + Integer.MAX_VALUE, 0, 11));
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), BINDING.unmarshal("x" + Integer.MIN_VALUE, 1, 12));
+    }
+    
+    @Test(expected = NumberFormatException.class)
+    public void testUnmarshalCharSequenceOverflow() {
+        BINDING.unmarshal("2147483648", 0, 10);
+    }
+    
+    @Test
+    public void testMarshalAppendable() throws IOException {
+
+        StringBuilder builder = new StringBuilder();
+        BINDING.marshal(Integer.valueOf(0), builder);
+        builder.append(',');
+        BINDING.marshal(Integer.valueOf(Integer.MAX_VALUE), builder);
+        builder.append(',');
+        BINDING.marshal(Integer.valueOf(Integer.MIN_VALUE), builder);
+        assertEquals("0,2147483647,-2147483648", builder.toString());
+    }
 }
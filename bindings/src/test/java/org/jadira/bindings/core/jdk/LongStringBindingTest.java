@@ -17,6 +17,9 @@ package org.jadira.bindings.core.jdk;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
+
 import org.junit.Test;
 
 public class LongStringBindingTest {
@@ -40,4 +43,30 @@ public class LongStringBindingTest {
         assertEquals("9223372036854775807", BINDING.marshal(new Long(Long.MAX_VALUE)));
         assertEquals("-9223372036854775808", BINDING.marshal(new Long(Long.MIN_VALUE)));
     }
+    
+    @Test
+    public void testUnmarshalCharSequence() {
+        
+        assertEquals(Long.valueOf(0), BINDING.unmarshal(CharBuffer.wrap("[0]"), 1, 2));
+        assertEquals(Long.valueOf(-12), BINDING.unmarshal(new StringBuilder("-1234"), 0, 3));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), BINDING.unmarshal("" + Long.MAX_VALUE, 0, 19));
+        assertEquals(Long.valueOf(Long.MIN_VALUE), BINDING.unmarshal("x" + Long.MIN_VALUE, 1, 21));
+    }
+    
+    @Test(expected = NumberFormatException.class)
+    public void testUnmarshalCharSequenceOverflow() {
+        BINDING.unmarshal("-9223372036854775809", 0, 20);
+    }
+    
+    @Test
+    public void testMarshalAppendable() throws IOException {
+
+        StringBuilder builder = new StringBuilder();
+        BINDING.marshal(Long.valueOf(7), builder);
+        builder.append(',');
+        BINDING.marshal(Long.valueOf(Long.MAX_VALUE), builder);
+        builder.append(',');
+        BINDING.marshal(Long.valueOf(Long.MIN_VALUE), builder);
+        assertEquals("7,9223372036854775807,-9223372036854775808", builder.toString());
+    }
 }
@@ -17,6 +17,8 @@ package org.jadira.bindings.core.jdk;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.UUID;
 
 import org.junit.Test;
@@ -39,4 +41,19 @@ public class UUIDStringBindingTest {
 
         assertEquals(RND.toString(), BINDING.marshal(RND));
     }
+    
+    @Test
+    public void testUnmarshalCharSequence() {
+        
+        assertEquals(RND, BINDING.unmarshal(CharBuffer.wrap("<" + RND + ">"), 1, 37));
+        assertEquals(UUID.fromString("1-0-1-0-2"), BINDING.unmarshal("1-0-1-0-2", 0, 9));
+    }
+    
+    @Test
+    public void testMarshalAppendable() throws IOException {
+
+        StringBuilder builder = new StringBuilder();
+        BINDING.marshal(RND, builder);
+        assertEquals(RND.toString(), builder.toString());
+    }
 }
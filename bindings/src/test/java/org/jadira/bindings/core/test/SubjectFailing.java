@@ -0,0 +1,43 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.bindings.core.test;
+
+import java.io.IOException;
+
+/**
+ * A subject whose conversions fail with a checked exception that has a RuntimeException as its cause
+ */
+public class SubjectFailing {
+
+    public SubjectFailing() {
+    }
+
+    public SubjectFailing(String value) throws IOException {
+        throw failure();
+    }
+
+    public static SubjectFailing unmarshal(String value) throws IOException {
+        throw failure();
+    }
+
+    public String marshal() throws IOException {
+        throw failure();
+    }
+
+    private static IOException failure() {
+        return new IOException("FAILED", new IllegalArgumentException("CAUSE"));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jadira.reflection.cloning.BasicCloner;
+import org.jadira.reflection.cloning.MinimalCloner;
+import org.jadira.reflection.cloning.api.Cloner;
+import org.jadira.reflection.cloning.benchmark.data.FlatPojo;
+import org.jadira.reflection.cloning.benchmark.data.GraphNode;
+import org.jadira.reflection.cloning.benchmark.data.TreeNode;
+import org.jadira.reflection.cloning.implementor.AsmCloneStrategy;
+import org.jadira.reflection.cloning.implementor.InvokeDynamicCloneStrategy;
+import org.jadira.reflection.cloning.implementor.PortableCloneStrategy;
+import org.jadira.reflection.cloning.implementor.UnsafeCloneStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of cloning representative object graphs with each {@link Cloner}
+ * configuration. Run with the gc profiler (-prof gc) to also report allocation rates. Clone plans
+ * can be compared by passing -p clonePlans=false,true.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CloneBenchmark {
+
+	@Param({ "unsafe", "asm", "invokedynamic", "portable", "minimal" })
+	public String strategy;
+
+	@Param({ "false" })
+	public boolean clonePlans;
+
+	private Cloner cloner;
+
+	private FlatPojo flatPojo;
+	private TreeNode deepTree;
+	private GraphNode cyclicGraph;
+	private long[] primitiveArray;
+	private ArrayList<FlatPojo> arrayList;
+	private HashMap<String, FlatPojo> hashMap;
+
+	/**
+	 * Creates the Cloner and the data to be cloned
+	 */
+	@Setup
+	public void setUp() {
+
+		cloner = createCloner(strategy, clonePlans);
+
+		flatPojo = new FlatPojo(1L, 100, 99.5D, true, 'B', "Flat");
+		deepTree = TreeNode.build(12);
+		cyclicGraph = GraphNode.build(1000);
+
+		primitiveArray = new long[100000];
+		for (int i = 0; i < primitiveArray.length; i++) {
+			primitiveArray[i] = i;
+		}
+
+		arrayList = new ArrayList<FlatPojo>();
+		hashMap = new HashMap<String, FlatPojo>();
+		for (int i = 0; i < 1000; i++) {
+			final FlatPojo next = new FlatPojo(i, i, i, i % 2 == 0, 'S', "Item " + i);
+			arrayList.add(next);
+			hashMap.put(next.getName(), next);
+		}
+	}
+
+	/**
+	 * Creates a Cloner for the named strategy
+	 * @param strategy One of unsafe, asm, invokedynamic, portable or minimal
+	 * @param clonePlans True if the BasicCloner should use generated clone plans
+	 * @return The Cloner
+	 */
+	private static Cloner createCloner(String strategy, boolean clonePlans) {
+
+		final BasicCloner basicCloner;
+		if ("unsafe".equals(strategy)) {
+			basicCloner = new BasicCloner(new UnsafeCloneStrategy());
+		} else if ("asm".equals(strategy)) {
+			basicCloner = new BasicCloner(new AsmCloneStrategy());
+		} else if ("invokedynamic".equals(strategy)) {
+			basicCloner = new BasicCloner(new InvokeDynamicCloneStrategy());
+		} else if ("portable".equals(strategy)) {
+			basicCloner = new BasicCloner(new PortableCloneStrategy());
+		} else if ("minimal".equals(strategy)) {
+			return new MinimalCloner();
+		} else {
+			throw new IllegalStateException("Unknown strategy: " + strategy);
+		}
+		basicCloner.setUseClonePlans(clonePlans);
+		return basicCloner;
+	}
+
+	@Benchmark
+	public FlatPojo cloneFlatPojo() {
+		return cloner.clone(flatPojo);
+	}
+
+	@Benchmark
+	public TreeNode cloneDeepTree() {
+		return cloner.clone(deepTree);
+	}
+
+	@Benchmark
+	public GraphNode cloneCyclicGraph() {
+		return cloner.clone(cyclicGraph);
+	}
+
+	@Benchmark
+	public long[] clonePrimitiveArray() {
+		return cloner.clone(primitiveArray);
+	}
+
+	@Benchmark
+	public ArrayList<FlatPojo> cloneArrayList() {
+		return cloner.clone(arrayList);
+	}
+
+	@Benchmark
+	public HashMap<String, FlatPojo> cloneHashMap() {
+		return cloner.clone(hashMap);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jadira.reflection.access.api.ClassAccess;
+import org.jadira.reflection.access.api.FieldAccess;
+import org.jadira.reflection.access.asm.AsmClassAccess;
+import org.jadira.reflection.access.invokedynamic.InvokeDynamicClassAccess;
+import org.jadira.reflection.access.methodhandle.MethodHandleClassAccess;
+import org.jadira.reflection.access.portable.PortableClassAccess;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
+import org.jadira.reflection.cloning.benchmark.data.FlatPojo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of reading and writing fields through each {@link ClassAccess} implementation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldAccessBenchmark {
+
+	@Param({ "unsafe", "asm", "invokedynamic", "methodhandle", "portable" })
+	public String access;
+
+	private FlatPojo pojo;
+
+	private FieldAccess<FlatPojo> longAccess;
+	private FieldAccess<FlatPojo> objectAccess;
+
+	private long nextValue;
+
+	/**
+	 * Obtains the FieldAccess instances to be measured
+	 * @throws NoSuchFieldException If FlatPojo does not declare the expected fields
+	 */
+	@Setup
+	public void setUp() throws NoSuchFieldException {
+
+		final ClassAccess<FlatPojo> classAccess;
+		if ("unsafe".equals(access)) {
+			classAccess = UnsafeClassAccess.get(FlatPojo.class);
+		} else if ("asm".equals(access)) {
+			classAccess = AsmClassAccess.get(FlatPojo.class);
+		} else if ("invokedynamic".equals(access)) {
+			classAccess = InvokeDynamicClassAccess.get(FlatPojo.class);
+		} else if ("methodhandle".equals(access)) {
+			classAccess = MethodHandleClassAccess.get(FlatPojo.class);
+		} else if ("portable".equals(access)) {
+			classAccess = PortableClassAccess.get(FlatPojo.class);
+		} else {
+			throw new IllegalStateException("Unknown access: " + access);
+		}
+
+		pojo = new FlatPojo(1L, 100, 99.5D, true, 'B', "Flat");
+		longAccess = classAccess.getDeclaredFieldAccess(FlatPojo.class.getDeclaredField("id"));
+		objectAccess = classAccess.getDeclaredFieldAccess(FlatPojo.class.getDeclaredField("name"));
+	}
+
+	@Benchmark
+	public long getLong() {
+		return longAccess.getLongValue(pojo);
+	}
+
+	@Benchmark
+	public void putLong() {
+		longAccess.putLongValue(pojo, nextValue++);
+	}
+
+	@Benchmark
+	public Object getObject() {
+		return objectAccess.getValue(pojo);
+	}
+
+	@Benchmark
+	public void putObject() {
+		objectAccess.putValue(pojo, "Flat");
+	}
+}
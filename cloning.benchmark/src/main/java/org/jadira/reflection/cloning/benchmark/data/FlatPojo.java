@@ -0,0 +1,91 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.benchmark.data;
+
+/**
+ * A class with primitive and immutable fields only. The fields are not private so that the ASM
+ * strategy accesses them with generated code rather than falling back to reflection. Accessors
+ * are provided for the invokedynamic strategy, which accesses bean properties.
+ */
+public class FlatPojo {
+
+	protected long id;
+	protected int quantity;
+	protected double price;
+	protected boolean active;
+	protected char side;
+	protected String name;
+
+	public FlatPojo() {
+	}
+
+	public FlatPojo(long id, int quantity, double price, boolean active, char side, String name) {
+		this.id = id;
+		this.quantity = quantity;
+		this.price = price;
+		this.active = active;
+		this.side = side;
+		this.name = name;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public void setPrice(double price) {
+		this.price = price;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	public void setActive(boolean active) {
+		this.active = active;
+	}
+
+	public char getSide() {
+		return side;
+	}
+
+	public void setSide(char side) {
+		this.side = side;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.benchmark.data;
+
+/**
+ * A node in a graph containing cycles and shared references
+ */
+public class GraphNode {
+
+	protected int id;
+	protected GraphNode next;
+	protected GraphNode previous;
+	protected GraphNode shared;
+
+	/**
+	 * Builds a doubly linked ring of nodes, each of which also refers to the first node
+	 * @param size The number of nodes
+	 * @return The first node
+	 */
+	public static GraphNode build(int size) {
+
+		final GraphNode first = new GraphNode();
+		GraphNode last = first;
+		for (int i = 1; i < size; i++) {
+			final GraphNode node = new GraphNode();
+			node.id = i;
+			node.previous = last;
+			node.shared = first;
+			last.next = node;
+			last = node;
+		}
+		last.next = first;
+		first.previous = last;
+		first.shared = first;
+		return first;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public GraphNode getNext() {
+		return next;
+	}
+
+	public void setNext(GraphNode next) {
+		this.next = next;
+	}
+
+	public GraphNode getPrevious() {
+		return previous;
+	}
+
+	public void setPrevious(GraphNode previous) {
+		this.previous = previous;
+	}
+
+	public GraphNode getShared() {
+		return shared;
+	}
+
+	public void setShared(GraphNode shared) {
+		this.shared = shared;
+	}
+}
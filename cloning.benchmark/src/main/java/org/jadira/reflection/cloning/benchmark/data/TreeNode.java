@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.benchmark.data;
+
+/**
+ * A node in a binary tree
+ */
+public class TreeNode {
+
+	protected int value;
+	protected TreeNode left;
+	protected TreeNode right;
+
+	/**
+	 * Builds a complete binary tree
+	 * @param depth The number of levels
+	 * @return The root node
+	 */
+	public static TreeNode build(int depth) {
+
+		final TreeNode node = new TreeNode();
+		node.value = depth;
+		if (depth > 1) {
+			node.left = build(depth - 1);
+			node.right = build(depth - 1);
+		}
+		return node;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public void setValue(int value) {
+		this.value = value;
+	}
+
+	public TreeNode getLeft() {
+		return left;
+	}
+
+	public void setLeft(TreeNode left) {
+		this.left = left;
+	}
+
+	public TreeNode getRight() {
+		return right;
+	}
+
+	public void setRight(TreeNode right) {
+		this.right = right;
+	}
+}
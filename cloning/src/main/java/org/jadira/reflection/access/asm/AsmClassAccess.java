@@ -61,6 +61,7 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.jadira.reflection.access.AbstractClassAccess;
@@ -121,17 +122,10 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
         if (access != null) {
             return access;
         }
-        	    
-		Class<?> enclosingType = clazz.getEnclosingClass();
 
-		final boolean isNonStaticMemberClass = determineNonStaticMemberClass(clazz, enclosingType);
+		final boolean isNonStaticMemberClass = determineNonStaticMemberClass(clazz, clazz.getEnclosingClass());
 
-		String clazzName = clazz.getName();
-		
-		Field[] fields = ClassUtils.collectInstanceFields(clazz, false, false, true);
-		Method[] methods = ClassUtils.collectMethods(clazz);
-		
-		String accessClassName = constructAccessClassName(clazzName);
+		String accessClassName = constructAccessClassName(clazz.getName());
 
 		Class<?> accessClass = null;
 
@@ -141,50 +135,7 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
 				accessClass = loader.loadClass(accessClassName);
 			} catch (ClassNotFoundException ignored) {
 
-				String accessClassNm = accessClassName.replace('.', '/');
-				String clazzNm = clazzName.replace('.', '/');
-				String enclosingClassNm = determineEnclosingClassNm(clazz, enclosingType, isNonStaticMemberClass);
-
-				String signatureString = "L" + ASM_CLASS_ACCESS_NM + "<L" + clazzNm + ";>;L" + CLASS_ACCESS_NM + "<L" + clazzNm + ";>;";
-
-				ClassWriter cw = new ClassWriter(0);
-
-//				TraceClassVisitor tcv = new TraceClassVisitor(cv, new PrintWriter(System.err));
-//				CheckClassAdapter cw = new CheckClassAdapter(tcv);
-
-				cw.visit(V1_7, ACC_PUBLIC + ACC_SUPER, accessClassNm, signatureString, ASM_CLASS_ACCESS_NM, null);
-
-				enhanceForConstructor(cw, accessClassNm, clazzNm);
-
-				if (isNonStaticMemberClass) {
-					enhanceForNewInstanceInner(cw, clazzNm, enclosingClassNm);
-				} else {
-					enhanceForNewInstance(cw, clazzNm);
-				}
-
-				enhanceForGetValueObject(cw, accessClassNm, clazzNm, fields);
-				enhanceForPutValueObject(cw, accessClassNm, clazzNm, fields);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BOOLEAN_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BOOLEAN_TYPE);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BYTE_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BYTE_TYPE);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.SHORT_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.SHORT_TYPE);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.INT_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.INT_TYPE);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.LONG_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.LONG_TYPE);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.DOUBLE_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.DOUBLE_TYPE);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.FLOAT_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.FLOAT_TYPE);
-				enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.CHAR_TYPE);
-				enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.CHAR_TYPE);
-				enhanceForInvokeMethod(cw, accessClassNm, clazzNm, methods);
-
-				cw.visitEnd();
-
-				loader.registerClass(accessClassName, cw.toByteArray());
+				loader.registerClass(accessClassName, generateAccessClass(clazz));
 
 				try {
 					accessClass = loader.findClass(accessClassName);
@@ -201,19 +152,101 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
 			access = c.newInstance(clazz);
 			access.isNonStaticMemberClass = isNonStaticMemberClass;
 				        
-			CLASS_ACCESSES.putIfAbsent(clazz, access);
-			
-			return access;
+			@SuppressWarnings("unchecked")
+			final AsmClassAccess<C> existing = (AsmClassAccess<C>) CLASS_ACCESSES.putIfAbsent(clazz, access);
+			return existing == null ? access : existing;
 		} catch (Exception ex) {
 		    throw new RuntimeException("Error constructing constructor access class: " + accessClassName + "{ " + ex.getMessage() + " }", ex);
 		}
 	}
 
-	private static Label[] constructLabels(Field[] fields) {
+	/**
+	 * Generates the bytecode for the specialised subclass used to access the given Class
+	 */
+	private static byte[] generateAccessClass(Class<?> clazz) {
+
+		Class<?> enclosingType = clazz.getEnclosingClass();
+
+		final boolean isNonStaticMemberClass = determineNonStaticMemberClass(clazz, enclosingType);
+
+		String clazzName = clazz.getName();
+		
+		Field[] fields = collectGeneratedFields(clazz);
+		Method[] methods = ClassUtils.collectMethods(clazz);
+		
+		String accessClassNm = constructAccessClassName(clazzName).replace('.', '/');
+		String clazzNm = clazzName.replace('.', '/');
+		String enclosingClassNm = determineEnclosingClassNm(clazz, enclosingType, isNonStaticMemberClass);
+
+		String signatureString = "L" + ASM_CLASS_ACCESS_NM + "<L" + clazzNm + ";>;L" + CLASS_ACCESS_NM + "<L" + clazzNm + ";>;";
+
+		ClassWriter cw = new ClassWriter(0);
+
+//		TraceClassVisitor tcv = new TraceClassVisitor(cv, new PrintWriter(System.err));
+//		CheckClassAdapter cw = new CheckClassAdapter(tcv);
+
+		cw.visit(V1_7, ACC_PUBLIC + ACC_SUPER, accessClassNm, signatureString, ASM_CLASS_ACCESS_NM, null);
+
+		enhanceForConstructor(cw, accessClassNm, clazzNm);
+
+		if (isNonStaticMemberClass) {
+			enhanceForNewInstanceInner(cw, clazzNm, enclosingClassNm);
+		} else {
+			enhanceForNewInstance(cw, clazzNm);
+		}
+
+		enhanceForGetValueObject(cw, accessClassNm, clazzNm, fields);
+		enhanceForPutValueObject(cw, accessClassNm, clazzNm, fields);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BOOLEAN_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BOOLEAN_TYPE);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BYTE_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.BYTE_TYPE);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.SHORT_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.SHORT_TYPE);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.INT_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.INT_TYPE);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.LONG_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.LONG_TYPE);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.DOUBLE_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.DOUBLE_TYPE);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.FLOAT_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.FLOAT_TYPE);
+		enhanceForGetValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.CHAR_TYPE);
+		enhanceForPutValuePrimitive(cw, accessClassNm, clazzNm, fields, Type.CHAR_TYPE);
+		enhanceForInvokeMethod(cw, accessClassNm, clazzNm, methods);
+
+		cw.visitEnd();
+
+		return cw.toByteArray();
+	}
+
+	/**
+	 * Returns the declared instance fields in the order of the sorted field names that generated
+	 * methods are indexed by. Private fields, which the generated class cannot access and which are
+	 * accessed portably instead, are left as null.
+	 */
+	private static Field[] collectGeneratedFields(Class<?> clazz) {
+
+		Field[] fields = ClassUtils.collectDeclaredInstanceFields(clazz);
+		Arrays.sort(fields, new Comparator<Field>() {
+			@Override
+			public int compare(Field o1, Field o2) {
+				return o1.getName().compareTo(o2.getName());
+			}
+		});
+		for (int i = 0; i < fields.length; i++) {
+			if ((fields[i].getModifiers() & Modifier.PRIVATE) != 0) {
+				fields[i] = null;
+			}
+		}
+		return fields;
+	}
+
+	private static Label[] constructLabels(Field[] fields, Label defaultLabel) {
 
 		Label[] labels = new Label[fields.length];
 		for (int i = 0, n = labels.length; i < n; i++) {
-			labels[i] = new Label();
+			labels[i] = fields[i] == null ? defaultLabel : new Label();
 		}
 		return labels;
 	}
@@ -318,13 +351,15 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
 
 		if (fields.length > 0) {
 			maxStack = 5;
-			Label[] labels = constructLabels(fields);
-
 			Label defaultLabel = new Label();
+			Label[] labels = constructLabels(fields, defaultLabel);
 			mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
 
 			for (int i = 0, n = labels.length; i < n; i++) {
 				Field field = fields[i];
+				if (field == null) {
+					continue;
+				}
 				mv.visitLabel(labels[i]);
 				mv.visitFrame(F_SAME, 0, null, 0, null);
 				mv.visitVarInsn(ALOAD, 1);
@@ -388,13 +423,15 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
 
 		if (fields.length > 0) {
 			maxStack = 5;
-			Label[] labels = constructLabels(fields);
-
 			Label defaultLabel = new Label();
+			Label[] labels = constructLabels(fields, defaultLabel);
 			mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
 
 			for (int i = 0, n = labels.length; i < n; i++) {
 				Field field = fields[i];
+				if (field == null) {
+					continue;
+				}
 
 				mv.visitLabel(labels[i]);
 				mv.visitFrame(F_SAME, 0, null, 0, null);
@@ -524,21 +561,23 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
 
 			Label[] labels = new Label[fields.length];
 			Label labelForInvalidTypes = new Label();
+			Label defaultLabel = new Label();
 			boolean hasAnyBadTypeLabel = false;
 
 			for (int i = 0, n = labels.length; i < n; i++) {
-				if (Type.getType(fields[i].getType()).equals(type))
+				if (fields[i] == null) {
+					labels[i] = defaultLabel;
+				} else if (Type.getType(fields[i].getType()).equals(type))
 					labels[i] = new Label();
 				else {
 					labels[i] = labelForInvalidTypes;
 					hasAnyBadTypeLabel = true;
 				}
 			}
-			Label defaultLabel = new Label();
 			mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
 
 			for (int i = 0, n = labels.length; i < n; i++) {
-				if (!labels[i].equals(labelForInvalidTypes)) {
+				if (labels[i] != labelForInvalidTypes && labels[i] != defaultLabel) {
 					Field field = fields[i];
 
 					mv.visitLabel(labels[i]);
@@ -628,13 +667,15 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
 
 		if (fields.length > 0) {
 			maxStack = 5;
-			Label[] labels = constructLabels(fields);
-
 			Label defaultLabel = new Label();
+			Label[] labels = constructLabels(fields, defaultLabel);
 			mv.visitTableSwitchInsn(0, labels.length - 1, defaultLabel, labels);
 
 			for (int i = 0, n = labels.length; i < n; i++) {
 				Field field = fields[i];
+				if (field == null) {
+					continue;
+				}
 				mv.visitLabel(labels[i]);
 				mv.visitFrame(F_SAME, 0, null, 0, null);
 				mv.visitVarInsn(ALOAD, 1);
@@ -663,7 +704,9 @@ public abstract class AsmClassAccess<C> extends AbstractClassAccess<C> implement
 		mv.visitLdcInsn(msg);
 		mv.visitMethodInsn(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V");
 		mv.visitVarInsn(instruction, slot);
-		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + argType + ")Ljava/lang/StringBuilder;");
+		// StringBuilder has no byte or short overloads, the value on the stack is an int
+		String appendType = ("B".equals(argType) || "S".equals(argType)) ? "I" : argType;
+		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + appendType + ")Ljava/lang/StringBuilder;");
 		mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
 		mv.visitMethodInsn(INVOKESPECIAL, exceptionClassNm, "<init>", "(Ljava/lang/String;)V");
 		mv.visitInsn(ATHROW);
@@ -144,8 +144,9 @@ public abstract class InvokeDynamicClassAccess<C> extends AbstractClassAccess<C>
             access = c.newInstance(clazz);
             access.isNonStaticMemberClass = isNonStaticMemberClass;
             
-            CLASS_ACCESSES.putIfAbsent(clazz, access);
-            return access;
+            @SuppressWarnings("unchecked")
+            final InvokeDynamicClassAccess<C> existing = (InvokeDynamicClassAccess<C>) CLASS_ACCESSES.putIfAbsent(clazz, access);
+            return existing == null ? access : existing;
         } catch (Exception ex) {
             throw new RuntimeException("Error constructing constructor access class: " + accessClassName + "{ " + ex.getMessage() + " }", ex);
         }
@@ -55,8 +55,14 @@ public class InvokeDynamicFieldAccess<C> implements FieldAccess<C> {
 		setCallSite = DefaultBootstrapper.publicBootstrap(null, "dyn:setProp:" + fieldName, MethodType.methodType(void.class, Object.class, fieldClass));
 		getCallSite = DefaultBootstrapper.publicBootstrap(null, "dyn:getProp:" + fieldName, MethodType.methodType(fieldClass, Object.class));
 		
-		setMh = setCallSite.dynamicInvoker();
-	    getMh = getCallSite.dynamicInvoker();
+		if (fieldClass.isPrimitive()) {
+			setMh = setCallSite.dynamicInvoker();
+			getMh = getCallSite.dynamicInvoker();
+		} else {
+			// References are passed as Object so that getValue and putValue can use invokeExact
+			setMh = setCallSite.dynamicInvoker().asType(MethodType.methodType(void.class, Object.class, Object.class));
+			getMh = getCallSite.dynamicInvoker().asType(MethodType.methodType(Object.class, Object.class));
+		}
 	}
 	
 	@Override
@@ -30,8 +30,9 @@ public class InvokeDynamicMethodAccess<C> implements MethodAccess<C> {
 
 		this.returnType = (Class<?>) m.getReturnType();
 		
-		methodCallSite = DefaultBootstrapper.publicBootstrap(null, "dyn:getMethod:" + methodName, MethodType.methodType(returnType, declaringClass, method.getParameterTypes()));	
-		mh = methodCallSite.dynamicInvoker();		
+		methodCallSite = DefaultBootstrapper.publicBootstrap(null, "dyn:callMethod:" + methodName, MethodType.methodType(returnType, declaringClass, method.getParameterTypes()));
+		// Spread the argument array and box the result so that invoke can use invokeExact
+		mh = methodCallSite.dynamicInvoker().asSpreader(Object[].class, method.getParameterTypes().length).asType(MethodType.methodType(Object.class, Object.class, Object[].class));
 	}
 	
 	public static <C> InvokeDynamicMethodAccess<C> get(Method m) {
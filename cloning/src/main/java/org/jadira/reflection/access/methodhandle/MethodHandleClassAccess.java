@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.access.methodhandle;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.AbstractClassAccess;
+import org.jadira.reflection.access.api.ClassAccess;
+import org.jadira.reflection.access.api.FieldAccess;
+import org.jadira.reflection.access.api.MethodAccess;
+import org.jadira.reflection.access.portable.PortableMethodAccess;
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+
+/**
+ * ClassAccess implementation which uses direct java.lang.invoke MethodHandles for field access.
+ * Unlike {@link org.jadira.reflection.access.unsafe.UnsafeClassAccess} it does not depend on
+ * sun.misc.Unsafe, and unlike the ASM and invokedynamic implementations it does not generate
+ * classes or depend on bean accessors.
+ * As for the other implementations, instances are created using Objenesis without invoking a
+ * constructor.
+ * @param <C> The Class to be accessed
+ */
+public class MethodHandleClassAccess<C> extends AbstractClassAccess<C> implements ClassAccess<C> {
+
+	private static final ConcurrentHashMap<Class<?>, MethodHandleClassAccess<?>> CLASS_ACCESSES = new ConcurrentHashMap<Class<?>, MethodHandleClassAccess<?>>();
+
+	private static final Objenesis OBJENESIS = new ObjenesisStd();
+
+	private MethodHandleClassAccess(Class<C> clazz) {
+		super(clazz);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public C newInstance() {
+		return (C) OBJENESIS.newInstance(getType());
+	}
+
+	/**
+	 * Get a new instance that can access the given Class. If the ClassAccess for this class
+	 * has not been obtained before, then it is created and cached.
+	 * @param clazz Class to be accessed
+	 * @param <C> The type of class
+	 * @return New MethodHandleClassAccess instance
+	 */
+	public static <C> MethodHandleClassAccess<C> get(Class<C> clazz) {
+
+		@SuppressWarnings("unchecked")
+		MethodHandleClassAccess<C> access = (MethodHandleClassAccess<C>) CLASS_ACCESSES.get(clazz);
+		if (access != null) {
+			return access;
+		}
+		access = new MethodHandleClassAccess<C>(clazz);
+		@SuppressWarnings("unchecked")
+		final MethodHandleClassAccess<C> existing = (MethodHandleClassAccess<C>) CLASS_ACCESSES.putIfAbsent(clazz, access);
+		return existing == null ? access : existing;
+	}
+
+	@Override
+	protected MethodAccess<C> constructMethodAccess(Method method) {
+		return PortableMethodAccess.get(method);
+	}
+
+	@Override
+	protected FieldAccess<C> constructFieldAccess(Field field) {
+		return MethodHandleFieldAccess.get(field);
+	}
+
+	@Override
+	protected <X> ClassAccess<X> constructClassAccess(Class<X> clazz) {
+		return MethodHandleClassAccess.get(clazz);
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.access.methodhandle;
+
+import org.jadira.reflection.access.api.ClassAccess;
+import org.jadira.reflection.access.api.ClassAccessFactory;
+
+/**
+ * ClassAccessFactory that provides {@link MethodHandleClassAccess} instances
+ */
+public class MethodHandleClassAccessFactory implements ClassAccessFactory {
+
+	public static final ClassAccessFactory FACTORY = new MethodHandleClassAccessFactory();
+
+	private MethodHandleClassAccessFactory() {
+	}
+
+	@Override
+	public <C> ClassAccess<C> getClassAccess(Class<C> clazz) {
+		return MethodHandleClassAccess.get(clazz);
+	}
+
+	public static ClassAccessFactory get() {
+		return FACTORY;
+	}
+}
@@ -0,0 +1,294 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.access.methodhandle;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import org.jadira.reflection.access.api.FieldAccess;
+
+/**
+ * FieldAccess implementation based on getter and setter MethodHandles. Primitive fields are
+ * accessed without boxing through the typed accessors, while getValue and putValue box and unbox
+ * using handles adapted to Object. Final fields, for which the JVM will not provide a setter handle,
+ * are written through a handle bound to the equivalent reflective setter.
+ * @param <C> The Class containing the Field to be accessed
+ */
+public class MethodHandleFieldAccess<C> implements FieldAccess<C> {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private final Field field;
+	private final Class<C> declaringClass;
+	private final Class<?> type;
+
+	/**
+	 * Getter with type (Object)T, where T is the field type for primitives and Object otherwise
+	 */
+	private final MethodHandle getter;
+
+	/**
+	 * Setter with type (Object,T)void, where T is the field type for primitives and Object otherwise
+	 */
+	private final MethodHandle setter;
+
+	/**
+	 * Getter with type (Object)Object, boxing primitive values
+	 */
+	private final MethodHandle objectGetter;
+
+	/**
+	 * Setter with type (Object,Object)void, unboxing primitive values
+	 */
+	private final MethodHandle objectSetter;
+
+	@SuppressWarnings("unchecked")
+	private MethodHandleFieldAccess(Field f) {
+
+		this.field = f;
+		if (!field.isAccessible()) {
+			field.setAccessible(true);
+		}
+		this.declaringClass = (Class<C>) f.getDeclaringClass();
+		this.type = (Class<?>) f.getType();
+
+		final Class<?> accessType = type.isPrimitive() ? type : Object.class;
+
+		try {
+			this.getter = LOOKUP.unreflectGetter(f).asType(MethodType.methodType(accessType, Object.class));
+			this.setter = findSetter(f, accessType).asType(MethodType.methodType(void.class, Object.class, accessType));
+			this.objectGetter = getter.asType(MethodType.methodType(Object.class, Object.class));
+			this.objectSetter = setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException("Problem obtaining MethodHandles for field {" + field.getName() + "}: " + e.getMessage(), e);
+		}
+	}
+
+	private static MethodHandle findSetter(Field f, Class<?> accessType) throws IllegalAccessException {
+
+		try {
+			return LOOKUP.unreflectSetter(f);
+		} catch (IllegalAccessException e) {
+			// Final fields are only writable reflectively
+			final String setterName;
+			if (accessType == Object.class) {
+				setterName = "set";
+			} else {
+				final String typeName = accessType.getName();
+				setterName = "set" + Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1);
+			}
+			try {
+				return LOOKUP.findVirtual(Field.class, setterName, MethodType.methodType(void.class, Object.class, accessType)).bindTo(f);
+			} catch (NoSuchMethodException nsme) {
+				throw new IllegalStateException("Reflective setter {" + setterName + "} could not be found: " + nsme.getMessage(), nsme);
+			}
+		}
+	}
+
+	/**
+	 * Get a new instance that can access the given Field
+	 * @param f Field to be accessed
+	 * @param <C> The type of class being accessed
+	 * @return New MethodHandleFieldAccess instance
+	 */
+	public static <C> MethodHandleFieldAccess<C> get(Field f) {
+		return new MethodHandleFieldAccess<C>(f);
+	}
+
+	@Override
+	public Class<C> declaringClass() {
+		return declaringClass;
+	}
+
+	@Override
+	public Class<?> fieldClass() {
+		return type;
+	}
+
+	@Override
+	public Field field() {
+		return field;
+	}
+
+	@Override
+	public Object getValue(C parent) {
+		try {
+			return (Object) objectGetter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public boolean getBooleanValue(C parent) {
+		try {
+			return (boolean) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public byte getByteValue(C parent) {
+		try {
+			return (byte) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public char getCharValue(C parent) {
+		try {
+			return (char) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public short getShortValue(C parent) {
+		try {
+			return (short) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public int getIntValue(C parent) {
+		try {
+			return (int) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public long getLongValue(C parent) {
+		try {
+			return (long) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public float getFloatValue(C parent) {
+		try {
+			return (float) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public double getDoubleValue(C parent) {
+		try {
+			return (double) getter.invokeExact((Object) parent);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putValue(C parent, Object newFieldValue) {
+		try {
+			objectSetter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putBooleanValue(C parent, boolean newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putByteValue(C parent, byte newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putCharValue(C parent, char newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putShortValue(C parent, short newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putIntValue(C parent, int newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putLongValue(C parent, long newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putFloatValue(C parent, float newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	@Override
+	public void putDoubleValue(C parent, double newFieldValue) {
+		try {
+			setter.invokeExact((Object) parent, newFieldValue);
+		} catch (Throwable e) {
+			throw accessFailure(parent, e);
+		}
+	}
+
+	private IllegalStateException accessFailure(Object parent, Throwable e) {
+		return new IllegalStateException("Problem accessing {" + field.getName() + "} of object {"
+				+ System.identityHashCode(parent) + "}: " + e.getMessage(), e);
+	}
+}
@@ -28,9 +28,15 @@ public class ClassModel<C> {
 
 	private static final Class<Annotation> JSR305_IMMUTABLE_ANNOTATION;
 
-    private static final ConcurrentHashMap<String, ClassModel<?>> classModels = new ConcurrentHashMap<String, ClassModel<?>>(16);
-    
-	private static final Object MONITOR = new Object();
+	/**
+	 * For each modelled class, its models keyed by the type of ClassAccess they were built with
+	 */
+	private static final ModelRegistry<ConcurrentHashMap<Class<?>, ClassModel<?>>> CLASS_MODELS = new ModelRegistry<ConcurrentHashMap<Class<?>, ClassModel<?>>>() {
+		@Override
+		protected ConcurrentHashMap<Class<?>, ClassModel<?>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<Class<?>, ClassModel<?>>(4);
+		}
+	};
 	
 	static {	
 		Class<Annotation> immutableAnnotation;
@@ -66,28 +72,25 @@ public class ClassModel<C> {
      */
 	@SuppressWarnings("unchecked")
 	public static final <C> ClassModel<C> get(ClassAccess<C> classAccess) {
-        
-		Class<?> clazz = classAccess.getType();
-		
-		String classModelKey = (classAccess.getClass().getName() + ":" + clazz.getName());
-		
-		ClassModel<C> classModel = (ClassModel<C>)classModels.get(classModelKey);
-    	if (classModel != null) {       	
-        	return classModel;
-        }
-    	
-    	synchronized(MONITOR) {
-    		classModel = (ClassModel<C>)classModels.get(classModelKey);
-        	if (classModel != null) {       	
-            	return classModel;
-            } else {
-            	classModel = new ClassModel<C>(classAccess);
-            	classModels.put(classModelKey, classModel);
-            	
-            	return classModel;
-            }
-    	}
-    }
+
+		final ConcurrentHashMap<Class<?>, ClassModel<?>> models = CLASS_MODELS.get(classAccess.getType());
+
+		ClassModel<C> classModel = (ClassModel<C>) models.get(classAccess.getClass());
+		if (classModel != null) {
+			return classModel;
+		}
+
+		// Only models of the same class are built one at a time, so that different classes can be
+		// modelled concurrently. Building a model locks its superclasses in turn, which cannot deadlock.
+		synchronized (models) {
+			classModel = (ClassModel<C>) models.get(classAccess.getClass());
+			if (classModel == null) {
+				classModel = new ClassModel<C>(classAccess);
+				models.put(classAccess.getClass(), classModel);
+			}
+			return classModel;
+		}
+	}
 	
 	private ClassModel(ClassAccess<C> classAccess) {
 
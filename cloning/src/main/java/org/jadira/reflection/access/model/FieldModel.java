@@ -27,9 +27,16 @@ import org.jadira.reflection.cloning.annotation.Transient;
  */
 public class FieldModel<C> {
 	
-	private static final ConcurrentHashMap<String, FieldModel<?>> fieldModels = new ConcurrentHashMap<String, FieldModel<?>>(100);
-    
-	private static final Object MONITOR = new Object();
+	/**
+	 * For each declaring class, the models of its fields keyed by the type of FieldAccess they were
+	 * built with and then by Field
+	 */
+	private static final ModelRegistry<ConcurrentHashMap<Class<?>, ConcurrentHashMap<Field, FieldModel<?>>>> FIELD_MODELS = new ModelRegistry<ConcurrentHashMap<Class<?>, ConcurrentHashMap<Field, FieldModel<?>>>>() {
+		@Override
+		protected ConcurrentHashMap<Class<?>, ConcurrentHashMap<Field, FieldModel<?>>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<Class<?>, ConcurrentHashMap<Field, FieldModel<?>>>(4);
+		}
+	};
 	
 	private final FieldAccess<C> fieldAccess;
 	
@@ -76,25 +83,28 @@ public class FieldModel<C> {
      */
     @SuppressWarnings("unchecked")
 	public static final <C> FieldModel<C> get(Field f, FieldAccess<C> fieldAccess) {
-		
-		String fieldModelKey = (fieldAccess.getClass().getSimpleName() + ":" + f.getClass().getName() + "#" + f.getName());		
-		FieldModel<C> fieldModel = (FieldModel<C>)fieldModels.get(fieldModelKey);
-    	if (fieldModel != null) {       	
-        	return fieldModel;
-        }
-    	
-    	synchronized(MONITOR) {
-    		fieldModel = (FieldModel<C>)fieldModels.get(fieldModelKey);
-        	if (fieldModel != null) {       	
-            	return fieldModel;
-            } else {
-            	fieldModel = new FieldModel<C>(f, fieldAccess);
-            	fieldModels.putIfAbsent(fieldModelKey, fieldModel);
-            	
-            	return fieldModel;
-            }
-    	}
-    }
+
+		final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Field, FieldModel<?>>> modelsByAccess = FIELD_MODELS.get(f.getDeclaringClass());
+		ConcurrentHashMap<Field, FieldModel<?>> models = modelsByAccess.get(fieldAccess.getClass());
+		if (models == null) {
+			models = new ConcurrentHashMap<Field, FieldModel<?>>(16);
+			final ConcurrentHashMap<Field, FieldModel<?>> existingModels = modelsByAccess.putIfAbsent(fieldAccess.getClass(), models);
+			if (existingModels != null) {
+				models = existingModels;
+			}
+		}
+
+		FieldModel<C> fieldModel = (FieldModel<C>) models.get(f);
+		if (fieldModel == null) {
+			// Models are cheap to build, so a model built concurrently by another thread is simply discarded
+			fieldModel = new FieldModel<C>(f, fieldAccess);
+			final FieldModel<C> existing = (FieldModel<C>) models.putIfAbsent(f, fieldModel);
+			if (existing != null) {
+				fieldModel = existing;
+			}
+		}
+		return fieldModel;
+	}
     
     /**
      * Access the FieldAccess associated with the FieldModel
@@ -0,0 +1,81 @@
+package org.jadira.reflection.access.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds a value for each Class on behalf of the model registries, without allowing a class that
+ * outlives this library to pin the library's ClassLoader.
+ * <p>
+ * A value held in a ClassValue stays reachable from the Class it was computed for, and because the
+ * values here refer to classes of this library, the entry can never be cleared while that Class
+ * lives (JDK-8136353). Values for classes defined by the library's own ClassLoader, or by a loader
+ * below it, are held in a ClassValue, as those classes cannot outlive the library. Values for classes
+ * defined by an ancestor loader, such as the JDK classes, are held in a map owned by the registry
+ * instead, so that they are released together with the library.
+ * </p>
+ * @param <V> The type of value held for each class
+ */
+abstract class ModelRegistry<V> {
+
+	private static final ClassLoader LIBRARY_LOADER = ModelRegistry.class.getClassLoader();
+
+	private final ClassValue<V> values = new ClassValue<V>() {
+		@Override
+		protected V computeValue(Class<?> type) {
+			return ModelRegistry.this.computeValue(type);
+		}
+	};
+
+	private final ConcurrentHashMap<Class<?>, V> ancestorValues = new ConcurrentHashMap<Class<?>, V>();
+
+	/**
+	 * Returns the value for the given class, computing it if necessary
+	 * @param type The class
+	 * @return The value
+	 */
+	V get(Class<?> type) {
+
+		if (!isDefinedByAncestorLoader(type)) {
+			return values.get(type);
+		}
+
+		V value = ancestorValues.get(type);
+		if (value == null) {
+			value = computeValue(type);
+			final V existing = ancestorValues.putIfAbsent(type, value);
+			if (existing != null) {
+				value = existing;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Computes the value for a class the first time it is requested
+	 * @param type The class
+	 * @return The value
+	 */
+	protected abstract V computeValue(Class<?> type);
+
+	private static boolean isDefinedByAncestorLoader(Class<?> type) {
+
+		if (LIBRARY_LOADER == null) {
+			// Loaded by the bootstrap loader, so the library is never unloaded
+			return false;
+		}
+		final ClassLoader loader = type.getClassLoader();
+		if (loader == null) {
+			return true;
+		}
+		try {
+			for (ClassLoader next = LIBRARY_LOADER.getParent(); next != null; next = next.getParent()) {
+				if (next == loader) {
+					return true;
+				}
+			}
+		} catch (SecurityException e) {
+			// The loader hierarchy cannot be inspected; treat the class as defined by a descendant loader
+		}
+		return false;
+	}
+}
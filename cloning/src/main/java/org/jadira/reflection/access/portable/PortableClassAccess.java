@@ -62,8 +62,9 @@ public class PortableClassAccess<C> extends AbstractClassAccess<C> implements Cl
             return access;
         }
         access = new PortableClassAccess<C>(clazz);
-        CLASS_ACCESSES.putIfAbsent(clazz, access);
-        return access;
+        @SuppressWarnings("unchecked")
+        final PortableClassAccess<C> existing = (PortableClassAccess<C>) CLASS_ACCESSES.putIfAbsent(clazz, access);
+        return existing == null ? access : existing;
 	}
 
 	@Override
@@ -59,8 +59,9 @@ public class UnsafeClassAccess<C> extends AbstractClassAccess<C> implements Clas
 	    
         access = new UnsafeClassAccess<C>(clazz);
         
-        CLASS_ACCESSES.putIfAbsent(clazz, access);
-        return access;
+        @SuppressWarnings("unchecked")
+        final UnsafeClassAccess<C> existing = (UnsafeClassAccess<C>) CLASS_ACCESSES.putIfAbsent(clazz, access);
+        return existing == null ? access : existing;
 	}
 	
 	@Override
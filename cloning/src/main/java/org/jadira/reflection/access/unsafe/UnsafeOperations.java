@@ -17,10 +17,9 @@ package org.jadira.reflection.access.unsafe;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.jadira.reflection.access.api.ClassAccess;
 import org.jadira.reflection.access.api.FieldAccess;
@@ -279,106 +278,100 @@ public final class UnsafeOperations {
 	 * @param o The object to perform a deep copy for.
 	 * @param referencesToReuse An identity map of references to reuse - this is further populated as the copy progresses.
 	 * The key is the original object reference - the value is the copied instance for that original.
+	 * May be null if the graph is known to be a tree, in which case references are not tracked.
 	 * @param <T> The type being copied
 	 * @return A deep copy of the original object.
 	 */
-	public <T> T deepCopy(final T o, IdentityHashMap<Object, Object> referencesToReuse) {
+	public <T> T deepCopy(final T o, Map<Object, Object> referencesToReuse) {
 
 		/**
 		 * To avoid unnecessary recursion and potential stackoverflow errors, we use an internal
 		 * stack
 		 */
 
-		final Deque<WorkItem<?>> stack;
-		if (referencesToReuse.size() >= REFERENCE_STACK_LIMIT) {
-			stack = new ArrayDeque<WorkItem<?>>();
+		final WorkStack stack;
+		if (referencesToReuse != null && referencesToReuse.size() >= REFERENCE_STACK_LIMIT) {
+			stack = new WorkStack();
 		} else {
 			stack = null;
 		}
 
-		Object objectInput;
+		final Object result = deepCopyStep(o, referencesToReuse, stack);
 
-		WorkItem<?> nextWork = null;
+		if (stack != null) {
+			while (stack.size > 0) {
+				stack.size--;
+				final Object source = stack.sources[stack.size];
+				final Object target = stack.targets[stack.size];
+				final long offset = stack.offsets[stack.size];
+				stack.sources[stack.size] = null;
+				stack.targets[stack.size] = null;
 
-		while (true) {
+				final Object objectResult = deepCopyStep(getObject(source, offset), referencesToReuse, stack);
+				if (objectResult == null) {
+					putNullObject(target, offset);
+				} else {
+					putObject(target, offset, objectResult);
+				}
+			}
+		}
 
-			Object objectResult;
+		@SuppressWarnings("unchecked")
+		final T convertedResult = (T) result;
+		return convertedResult;
+	}
 
-			if (nextWork == null) {
-				objectInput = o;
-			} else {
-				objectInput = getObject(nextWork.getSource(), nextWork.getFieldAccess().fieldOffset());
-			}
+	/**
+	 * Copies a single object. If a stack is given, its reference fields are pushed onto the stack
+	 * rather than being copied recursively.
+	 */
+	private Object deepCopyStep(Object objectInput, Map<Object, Object> referencesToReuse, WorkStack stack) {
 
-			if (objectInput == null) {
-				objectResult = null;
-			} else {
+		if (objectInput == null) {
+			return null;
+		}
 
-			    if (String.class.isAssignableFrom(objectInput.getClass())) {
-			        objectInput = ((String)objectInput);
-			    }
-			    
-				Class<?> clazz = objectInput.getClass();
+		final Class<?> clazz = objectInput.getClass();
 
-				if (clazz.isPrimitive() || clazz.isEnum()) {
-					objectResult = objectInput;
-				} else if (ClassUtils.isJdkImmutable(clazz) || ClassUtils.isWrapper(clazz)) {
-					objectResult = objectInput;
-				} else {
+		if (clazz.isPrimitive() || clazz.isEnum()) {
+			return objectInput;
+		} else if (ClassUtils.isJdkImmutable(clazz) || ClassUtils.isWrapper(clazz)) {
+			return objectInput;
+		}
 
-					final Object result = referencesToReuse.get(objectInput);
-					if (result != null) {
-						objectResult = result;
-					} else {
-						if (clazz.isArray()) {
-							objectResult = deepCopyArray(objectInput, referencesToReuse);
-						} else {
-
-							UnsafeClassAccess<?> classAccess = UnsafeClassAccess.get(clazz);
-							objectResult = allocateInstance(objectInput.getClass());
-
-							referencesToReuse.put(objectInput, objectResult);
-
-							ClassAccess<?> classInHierarchy = classAccess;
-							
-							while (!classInHierarchy.getType().equals(java.lang.Object.class)) {
-							
-								for (FieldAccess<?> f : classInHierarchy.getDeclaredFieldAccessors()) {
-									
-									UnsafeFieldAccess<?> uf = (UnsafeFieldAccess<?>)f;
-									if (f.fieldClass().isPrimitive()) {
-										copyPrimitiveAtOffset(objectInput, objectResult, f.fieldClass(), uf.fieldOffset());
-									} else if (stack == null) {
-										deepCopyObjectAtOffset(objectInput, objectResult, f.fieldClass(), uf.fieldOffset(), referencesToReuse);
-									} else {
-										@SuppressWarnings({ "unchecked", "rawtypes" })
-										final WorkItem item = new WorkItem(objectInput, objectResult, uf);
-										stack.addFirst(item);
-									}
-								}
-							classInHierarchy = classInHierarchy.getSuperClassAccess();
-							}
-						}
-					}
-				}
-			}
+		final Object result = referencesToReuse == null ? null : referencesToReuse.get(objectInput);
+		if (result != null) {
+			return result;
+		}
+		if (clazz.isArray()) {
+			return deepCopyArray(objectInput, referencesToReuse);
+		}
 
-			if (nextWork == null) {
-				nextWork = (stack == null ? null : stack.pollFirst());
-				if (nextWork == null) {
-					@SuppressWarnings("unchecked")
-					final T convertedResult = (T) objectResult;
-					return convertedResult;
-				}
-			} else if (nextWork != null) {
-				if (objectResult == null) {
-					putNullObject(nextWork.getTarget(), nextWork.getFieldAccess().fieldOffset());
+		UnsafeClassAccess<?> classAccess = UnsafeClassAccess.get(clazz);
+		final Object objectResult = allocateInstance(clazz);
+
+		if (referencesToReuse != null) {
+			referencesToReuse.put(objectInput, objectResult);
+		}
+
+		ClassAccess<?> classInHierarchy = classAccess;
+
+		while (!classInHierarchy.getType().equals(java.lang.Object.class)) {
+
+			for (FieldAccess<?> f : classInHierarchy.getDeclaredFieldAccessors()) {
+
+				UnsafeFieldAccess<?> uf = (UnsafeFieldAccess<?>)f;
+				if (f.fieldClass().isPrimitive()) {
+					copyPrimitiveAtOffset(objectInput, objectResult, f.fieldClass(), uf.fieldOffset());
+				} else if (stack == null) {
+					deepCopyObjectAtOffset(objectInput, objectResult, f.fieldClass(), uf.fieldOffset(), referencesToReuse);
 				} else {
-					putObject(nextWork.getTarget(), nextWork.getFieldAccess().fieldOffset(), objectResult);
+					stack.push(objectInput, objectResult, uf.fieldOffset());
 				}
-				nextWork = (stack == null ? null : stack.pollFirst());
 			}
+			classInHierarchy = classInHierarchy.getSuperClassAccess();
 		}
+		return objectResult;
 	}
 
 	/**
@@ -403,7 +396,7 @@ public final class UnsafeOperations {
 	 * @param referencesToReuse An identity map of references to reuse - this is further populated as the copy progresses.
 	 * The key is the original object reference - the value is the copied instance for that original.
 	 */	
-	public final void deepCopyObjectAtOffset(Object source, Object copy, Class<?> fieldClass, long offset, IdentityHashMap<Object, Object> referencesToReuse) {
+	public final void deepCopyObjectAtOffset(Object source, Object copy, Class<?> fieldClass, long offset, Map<Object, Object> referencesToReuse) {
 
 		Object origFieldValue = THE_UNSAFE.getObject(source, offset);
 
@@ -426,7 +419,7 @@ public final class UnsafeOperations {
 	 * @param referencesToReuse An identity map of references to reuse - this is further populated as the copy progresses.
 	 * The key is the original object reference - the value is the copied instance for that original.
 	 */	
-	public final void deepCopyObjectField(Object source, Object copy, Field field, IdentityHashMap<Object, Object> referencesToReuse) {
+	public final void deepCopyObjectField(Object source, Object copy, Field field, Map<Object, Object> referencesToReuse) {
 
 		deepCopyObjectAtOffset(source, copy, field.getType(), getObjectFieldOffset(field), referencesToReuse);
 	}
@@ -465,7 +458,7 @@ public final class UnsafeOperations {
 	 * @param referencesToReuse An identity map of references to reuse - this is further populated as the copy progresses.
 	 * The key is the original object reference - the value is the copied instance for that original.
 	 */	
-	public final void deepCopyArrayAtOffset(Object source, Object copy, Class<?> fieldClass, long offset, IdentityHashMap<Object, Object> referencesToReuse) {
+	public final void deepCopyArrayAtOffset(Object source, Object copy, Class<?> fieldClass, long offset, Map<Object, Object> referencesToReuse) {
 
 		Object origFieldValue = THE_UNSAFE.getObject(source, offset);
 
@@ -488,7 +481,7 @@ public final class UnsafeOperations {
 	 * @param referencesToReuse An identity map of references to reuse - this is further populated as the copy progresses.
 	 * The key is the original object reference - the value is the copied instance for that original.
 	 */	
-	public final void deepCopyArrayField(Object obj, Object copy, Field field, IdentityHashMap<Object, Object> referencesToReuse) {
+	public final void deepCopyArrayField(Object obj, Object copy, Field field, Map<Object, Object> referencesToReuse) {
 
 		deepCopyArrayAtOffset(obj, copy, field.getType(), getObjectFieldOffset(field), referencesToReuse);
 	}
@@ -514,9 +507,9 @@ public final class UnsafeOperations {
 	 * The key is the original object reference - the value is the copied instance for that original.
 	 * @return A deep copy of the original array.
 	 */
-	public final Object deepCopyArray(Object arrayOriginal, IdentityHashMap<Object, Object> visited) {
+	public final Object deepCopyArray(Object arrayOriginal, Map<Object, Object> visited) {
 
-		if (visited.containsKey(arrayOriginal)) {
+		if (visited != null && visited.containsKey(arrayOriginal)) {
 			return visited.get(arrayOriginal);
 		}
 
@@ -563,7 +556,9 @@ public final class UnsafeOperations {
 			result = arrayCopy;
 		}
 
-		visited.put(arrayOriginal, result);
+		if (visited != null) {
+			visited.put(arrayOriginal, result);
+		}
 		return result;
 	}
 
@@ -1024,28 +1019,28 @@ public final class UnsafeOperations {
 		THE_UNSAFE.putByte(parent, offset, value);
 	}
 	
-	private class WorkItem<P> {
-
-		private final Object source;
-		private final Object target;
-		private final UnsafeFieldAccess<P> fieldAccess;
-
-		public WorkItem(Object source, Object target, UnsafeFieldAccess<P> fieldAccess) {
-			this.source = source;
-			this.target = target;
-			this.fieldAccess = fieldAccess;
-		}
+	/**
+	 * Stack of reference fields still to be copied, held in parallel arrays so that no allocation
+	 * is needed per field
+	 */
+	private static final class WorkStack {
 
-		public Object getSource() {
-			return source;
-		}
+		private Object[] sources = new Object[64];
+		private Object[] targets = new Object[64];
+		private long[] offsets = new long[64];
+		private int size;
 
-		public Object getTarget() {
-			return target;
-		}
+		private void push(Object source, Object target, long offset) {
 
-		public UnsafeFieldAccess<P> getFieldAccess() {
-			return fieldAccess;
+			if (size == sources.length) {
+				sources = Arrays.copyOf(sources, size * 2);
+				targets = Arrays.copyOf(targets, size * 2);
+				offsets = Arrays.copyOf(offsets, size * 2);
+			}
+			sources[size] = source;
+			targets[size] = target;
+			offsets[size] = offset;
+			size++;
 		}
 	}
 
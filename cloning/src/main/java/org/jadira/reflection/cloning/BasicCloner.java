@@ -17,17 +17,29 @@ package org.jadira.reflection.cloning;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import org.jadira.reflection.cloning.annotation.Immutable;
 import org.jadira.reflection.cloning.annotation.NonCloneable;
@@ -36,17 +48,33 @@ import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
 import org.jadira.reflection.cloning.api.CloneStrategy;
 import org.jadira.reflection.cloning.api.Cloner;
+import org.jadira.reflection.cloning.collection.CopyOnWriteIdentityHashSet;
 import org.jadira.reflection.cloning.collection.FastIdentityHashSet;
 import org.jadira.reflection.cloning.implementor.AsmCloneStrategy;
+import org.jadira.reflection.cloning.implementor.CloneContext;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
 import org.jadira.reflection.cloning.implementor.PortableCloneStrategy;
+import org.jadira.reflection.cloning.implementor.SharedReferences;
+import org.jadira.reflection.cloning.implementor.TreeShapedClasses;
 import org.jadira.reflection.cloning.implementor.UnsafeCloneStrategy;
+import org.jadira.reflection.cloning.implementor.plan.AsmClonePlan;
+import org.jadira.reflection.cloning.implementor.types.ArrayDequeImplementor;
 import org.jadira.reflection.cloning.implementor.types.ArrayListImplementor;
 import org.jadira.reflection.cloning.implementor.types.ConcurrentHashMapImplementor;
+import org.jadira.reflection.cloning.implementor.types.CopyOnWriteArrayListImplementor;
+import org.jadira.reflection.cloning.implementor.types.EnumMapImplementor;
+import org.jadira.reflection.cloning.implementor.types.EnumSetImplementor;
 import org.jadira.reflection.cloning.implementor.types.GregorianCalendarImplementor;
 import org.jadira.reflection.cloning.implementor.types.HashMapImplementor;
 import org.jadira.reflection.cloning.implementor.types.HashSetImplementor;
+import org.jadira.reflection.cloning.implementor.types.IdentityHashMapImplementor;
+import org.jadira.reflection.cloning.implementor.types.ImmutableCollectionImplementor;
+import org.jadira.reflection.cloning.implementor.types.LinkedHashMapImplementor;
+import org.jadira.reflection.cloning.implementor.types.LinkedHashSetImplementor;
 import org.jadira.reflection.cloning.implementor.types.LinkedListImplementor;
 import org.jadira.reflection.cloning.implementor.types.TreeMapImplementor;
+import org.jadira.reflection.cloning.implementor.types.TreeSetImplementor;
+import org.jadira.reflection.cloning.statistics.CloneStatistics;
 import org.jadira.reflection.core.platform.FeatureDetection;
 
 /**
@@ -95,6 +123,18 @@ import org.jadira.reflection.core.platform.FeatureDetection;
  * {{@link #cloneTransientAnnotatedFields} to enable or disable the capability (by default these
  * fields are not cloned). <br>
  * 
+ * Setting {@link #useClonePlans} enables the generation of an {@link AsmClonePlan} for each class
+ * that would otherwise be cloned by walking its fields. The plan is generated on first sight of
+ * the class and copies primitive fields directly, only dispatching for reference fields. <br>
+ * 
+ * References seen during a clone are tracked using a {@link CloneContext} which is retained and
+ * reused by each thread, or which can be supplied using {@link #clone(Object, CloneContext)}. Where
+ * {@link TreeShapedClasses} shows that the object being cloned can only be the root of a tree,
+ * references are not tracked. <br>
+ * 
+ * Setting a ForkJoinPool using {@link #setForkJoinPool(ForkJoinPool)} enables the elements of large
+ * arrays and collections to be cloned in parallel. <br>
+ * 
  * {@link Immutable} or {@link javax.annotation.concurrent.Immutable} provide an alternative
  * mechanism for indicating that a class is immutable. <br>
  * 
@@ -109,11 +149,15 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 
 	private final CloneStrategy cloneStrategy;
 
+	private final ThreadLocal<CloneContext> pooledContexts = new ThreadLocal<CloneContext>();
+
 	private Map<Class<?>, CloneImplementor> builtInImplementors = new IdentityHashMap<Class<?>, CloneImplementor>();
 	private Map<Class<?>, CloneImplementor> allImplementors = new IdentityHashMap<Class<?>, CloneImplementor>();
-	private Map<Class<?>, CloneImplementor> annotationImplementors = new IdentityHashMap<Class<?>, CloneImplementor>();
+	private Map<Class<?>, CloneImplementor> annotationImplementors = new ConcurrentHashMap<Class<?>, CloneImplementor>();
+
+	private Map<Class<?>, MethodHandle> cloneMethods = new ConcurrentHashMap<Class<?>, MethodHandle>();
 
-	private Map<Class<?>, MethodHandle> cloneMethods = new IdentityHashMap<Class<?>, MethodHandle>();
+	private Map<Class<?>, CloneImplementor> clonePlans = new ConcurrentHashMap<Class<?>, CloneImplementor>();
 
 	private Set<Class<?>> immutableClasses = new FastIdentityHashSet<Class<?>>();
 	private Set<Class<?>> nonCloneableClasses = new FastIdentityHashSet<Class<?>>();
@@ -127,10 +171,18 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 
 	private boolean trackReferences = true;
 	private boolean trackReferencesForFlatClasses;
+
+	private boolean useClonePlans = false;
+
+	private ForkJoinPool forkJoinPool;
+	private int parallelThreshold = 1024;
+
+	private CloneWarmupCache warmupCache;
+
+	private CloneStatistics cloneStatistics;
 	
 	private Map<Class<?>, Object> builtInImmutableInstances = new HashMap<Class<?>, Object>();
-	private IdentityHashMap<Object, Object> allImmutableInstances = new IdentityHashMap<Object, Object>();
-	private Object[] allImmutableInstancesArray;
+	private final CopyOnWriteIdentityHashSet<Object> immutableInstances = new CopyOnWriteIdentityHashSet<Object>();
 
 	/**
 	 * Create a new instance with {@link UnsafeCloneStrategy}, unless it is not available in which
@@ -168,13 +220,30 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 	 * Initialise a set of built in CloneImplementors for commonly used JDK types
 	 */
 	private void initializeBuiltInImplementors() {
+		builtInImplementors.put(ArrayDeque.class, new ArrayDequeImplementor());
 		builtInImplementors.put(ArrayList.class, new ArrayListImplementor());
 		builtInImplementors.put(ConcurrentHashMap.class, new ConcurrentHashMapImplementor());
+		builtInImplementors.put(CopyOnWriteArrayList.class, new CopyOnWriteArrayListImplementor());
+		builtInImplementors.put(EnumMap.class, new EnumMapImplementor());
 		builtInImplementors.put(GregorianCalendar.class, new GregorianCalendarImplementor());
 		builtInImplementors.put(HashMap.class, new HashMapImplementor());
 		builtInImplementors.put(HashSet.class, new HashSetImplementor());
+		builtInImplementors.put(IdentityHashMap.class, new IdentityHashMapImplementor());
+		builtInImplementors.put(LinkedHashMap.class, new LinkedHashMapImplementor());
+		builtInImplementors.put(LinkedHashSet.class, new LinkedHashSetImplementor());
 		builtInImplementors.put(LinkedList.class, new LinkedListImplementor());
 		builtInImplementors.put(TreeMap.class, new TreeMapImplementor());
+		builtInImplementors.put(TreeSet.class, new TreeSetImplementor());
+
+		// These implementors handle JDK classes which are not public
+		final EnumSetImplementor enumSetImplementor = new EnumSetImplementor();
+		for (Class<?> next : EnumSetImplementor.getSupportedClasses()) {
+			builtInImplementors.put(next, enumSetImplementor);
+		}
+		final ImmutableCollectionImplementor immutableCollectionImplementor = new ImmutableCollectionImplementor();
+		for (Class<?> next : ImmutableCollectionImplementor.getSupportedClasses()) {
+			builtInImplementors.put(next, immutableCollectionImplementor);
+		}
 		allImplementors.putAll(builtInImplementors);
 	}
 
@@ -204,7 +273,159 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 
 	@Override
 	public <T> T clone(T obj) {
-		return clone(obj, this, trackReferences ? new IdentityHashMap<Object, Object>(10) : null, 0L);
+
+		if (forkJoinPool != null) {
+			final Map<Object, Object> references = trackReferences ? new SharedReferences(64, forkJoinPool.getParallelism()) : null;
+			if (ForkJoinTask.getPool() == forkJoinPool) {
+				return clone(obj, this, references, 0L);
+			}
+			return forkJoinPool.invoke(new CloneTask<T>(obj, this, references));
+		}
+
+		if (!trackReferences || (obj != null && TreeShapedClasses.isTreeShaped(obj.getClass(), this))) {
+			return clone(obj, this, null, 0L);
+		}
+
+		final CloneContext cloneContext = acquireContext();
+		try {
+			return clone(obj, this, cloneContext.getReferences(), 0L);
+		} finally {
+			releaseContext(cloneContext);
+		}
+	}
+
+	/**
+	 * Clones the given object using the supplied context, rather than the one retained for the calling
+	 * thread. The context is reset once the clone completes. If a ForkJoinPool has been configured the
+	 * context is not used.
+	 * @param obj The object to clone
+	 * @param cloneContext The context, which must not be in use by another clone
+	 * @param <T> The class of the object to be cloned
+	 * @return The clone
+	 */
+	public <T> T clone(T obj, CloneContext cloneContext) {
+
+		if (forkJoinPool != null || !trackReferences || (obj != null && TreeShapedClasses.isTreeShaped(obj.getClass(), this))) {
+			return clone(obj);
+		}
+
+		try {
+			return clone(obj, this, cloneContext.getReferences(), 0L);
+		} finally {
+			cloneContext.reset();
+		}
+	}
+
+	/**
+	 * Clones each of the supplied objects as a single batch, sharing one table of references across the
+	 * batch so that an object referenced from several members is cloned only once. The classes of the
+	 * objects are initialised before cloning begins. If a ForkJoinPool has been configured, the members
+	 * of the batch are cloned in parallel once there are at least as many as the parallel threshold.
+	 * As described for {@link #setForkJoinPool(ForkJoinPool)}, shared objects are still cloned once.
+	 * @param objects The objects to clone
+	 * @param <T> The class of the objects to be cloned
+	 * @return A list of the clones, in the iteration order of the collection
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> List<T> cloneAll(Collection<? extends T> objects) {
+
+		final Object[] elements = objects.toArray();
+		cloneElements(elements);
+		return new ArrayList<T>((List<T>) Arrays.asList(elements));
+	}
+
+	/**
+	 * Clones each of the supplied objects as a single batch, as for {@link #cloneAll(Collection)}
+	 * @param objects The objects to clone
+	 * @param <T> The class of the objects to be cloned
+	 * @return A new array, of the same type as that given, containing the clones
+	 */
+	@Override
+	public <T> T[] cloneAll(T[] objects) {
+
+		final T[] elements = objects.clone();
+		cloneElements(elements);
+		return elements;
+	}
+
+	/**
+	 * Replaces each element of the array with its clone
+	 */
+	private void cloneElements(Object[] elements) {
+
+		final Set<Class<?>> initialisedClasses = new HashSet<Class<?>>();
+		for (Object next : elements) {
+			if (next != null && initialisedClasses.add(next.getClass())) {
+				initialiseFor(next.getClass());
+			}
+		}
+
+		if (forkJoinPool != null) {
+			final Map<Object, Object> references = trackReferences ? new SharedReferences(Math.max(64, elements.length), forkJoinPool.getParallelism()) : null;
+			if (ForkJoinTask.getPool() == forkJoinPool) {
+				ParallelCloneSupport.cloneElements(elements, elements, this, references, 0L);
+			} else {
+				forkJoinPool.invoke(new CloneElementsTask(elements, this, references));
+			}
+			return;
+		}
+
+		if (!trackReferences) {
+			ParallelCloneSupport.cloneElements(elements, elements, this, null, 0L);
+			return;
+		}
+
+		final CloneContext cloneContext = acquireContext();
+		try {
+			ParallelCloneSupport.cloneElements(elements, elements, this, cloneContext.getReferences(), 0L);
+		} finally {
+			releaseContext(cloneContext);
+		}
+	}
+
+	/**
+	 * Copies the source into the existing target, reusing the objects already referenced by the target
+	 * where they are of the same class. Arrays are reused when their length matches. The general purpose
+	 * collections and maps of java.util and java.util.concurrent are reused where they order their
+	 * elements in the same way as the source and, for bounded queues, have room for its elements. Lists
+	 * of the same size are overwritten element by element, while other collections and maps are cleared
+	 * and refilled, retaining their capacity. Map keys that are equal to a key of the source are reused.
+	 * Objects that are handled by a {@link CloneImplementor}, are immutable or are otherwise not reusable
+	 * are cloned as normal. References are always tracked, and this method
+	 * does not clone in parallel.
+	 * @param source The object to copy from
+	 * @param target The object to copy into
+	 * @param <T> The class of the object to be copied
+	 * @throws IllegalArgumentException If the target is not an instance of the same class as source or
+	 * cannot be reused, for example because it is an array of a different length
+	 */
+	@Override
+	public <T> void cloneInto(T source, T target) {
+
+		final CloneContext cloneContext = acquireContext();
+		try {
+			cloneStrategy.cloneInto(source, target, this, cloneContext.getReferences());
+		} finally {
+			releaseContext(cloneContext);
+		}
+	}
+
+	private CloneContext acquireContext() {
+
+		final CloneContext cloneContext = pooledContexts.get();
+		if (cloneContext == null) {
+			return new CloneContext();
+		}
+		// Detach the context so that a nested clone on this thread does not share it
+		pooledContexts.set(null);
+		return cloneContext;
+	}
+
+	private void releaseContext(CloneContext cloneContext) {
+
+		cloneContext.reset();
+		pooledContexts.set(cloneContext);
 	}
 
 	@Override
@@ -218,7 +439,7 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 	}
 
 	@Override
-	public <T> T clone(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+	public <T> T clone(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
 
 		return cloneStrategy.clone(obj, context, referencesToReuse, stackDepth);
 	}
@@ -339,9 +560,51 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 
 	@Override
 	public void initialiseFor(Class<?> classes) {
+		if (warmupCache != null) {
+			warmupCache.record(classes);
+		}
 		cloneStrategy.initialiseFor(classes);
 	}
 
+	/**
+	 * Returns the CloneStrategy used by this instance
+	 * @return The CloneStrategy
+	 */
+	public CloneStrategy getCloneStrategy() {
+		return cloneStrategy;
+	}
+
+	/**
+	 * Returns the cache that classes passed to {@link #initialiseFor(Class)} are recorded in
+	 * @return The CloneWarmupCache, or null if classes are not recorded
+	 */
+	public CloneWarmupCache getWarmupCache() {
+		return warmupCache;
+	}
+
+	/**
+	 * Sets a cache in which to record the classes passed to {@link #initialiseFor(Class)}, so that they can be
+	 * initialised ahead of time in a later run
+	 * @param warmupCache The CloneWarmupCache, or null to stop recording classes
+	 */
+	public void setWarmupCache(CloneWarmupCache warmupCache) {
+		this.warmupCache = warmupCache;
+	}
+
+	@Override
+	public CloneStatistics getCloneStatistics() {
+		return cloneStatistics;
+	}
+
+	/**
+	 * Sets the statistics that objects cloned by this instance are recorded in. A single instance
+	 * may be shared by several cloners.
+	 * @param cloneStatistics The CloneStatistics, or null to stop recording. Default is null.
+	 */
+	public void setCloneStatistics(CloneStatistics cloneStatistics) {
+		this.cloneStatistics = cloneStatistics;
+	}
+
 	@Override
 	public boolean isUseCloneImplementors() {
 		return useCloneImplementors;
@@ -380,33 +643,16 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 
 	@Override
 	public boolean isImmutableInstance(Object instance) {
-		
-		if (allImmutableInstances != null) {
-			for (int i = 0; i < allImmutableInstancesArray.length; i++) {
-				if (allImmutableInstancesArray[i] == instance) {
-					return true;
-				}
-			}
-			return false;
-		} else {
-			return allImmutableInstances.containsKey(instance);
-		}
+		return immutableInstances.contains(instance);
 	}
 
+	/**
+	 * Registers an instance to be treated as immutable. This may be called while clones are in progress.
+	 * @param instance Object to be considered immutable
+	 */
 	@Override
 	public void putImmutableInstance(Object instance) {
-		this.allImmutableInstances.put(instance, Boolean.TRUE);
-		Set<Object> keySet = this.allImmutableInstances.keySet();
-		this.allImmutableInstancesArray = new Object[keySet.size()];
-		
-		int i = 0;
-		for (Object next: keySet) {
-			this.allImmutableInstancesArray[i] = next;
-			i++;
-			if (i >= allImmutableInstancesArray.length) {
-				break;
-			}
-		}
+		immutableInstances.add(instance);
 	}
 
 	public boolean isTrackReferences() {
@@ -432,4 +678,100 @@ public class BasicCloner implements Cloner, CloneDriver, CloneImplementor {
 	public void setTrackReferencesForFlatClasses(boolean trackReferencesForFlatClasses) {
 		this.trackReferencesForFlatClasses = trackReferencesForFlatClasses;
 	}
+
+	@Override
+	public boolean isUseClonePlans() {
+		return useClonePlans;
+	}
+
+	/**
+	 * If true, classes that would be cloned by walking their fields are instead cloned using an
+	 * {@link AsmClonePlan} generated for the class on first use
+	 * @param useClonePlans True if generated clone plans should be used
+	 */
+	public void setUseClonePlans(boolean useClonePlans) {
+		this.useClonePlans = useClonePlans;
+	}
+
+	@Override
+	public CloneImplementor getClonePlan(Class<?> clazz) {
+		return clonePlans.get(clazz);
+	}
+
+	@Override
+	public void putClonePlan(Class<?> clazz, CloneImplementor clonePlan) {
+		clonePlans.put(clazz, clonePlan);
+	}
+
+	@Override
+	public ForkJoinPool getForkJoinPool() {
+		return forkJoinPool;
+	}
+
+	/**
+	 * Sets the ForkJoinPool used to clone the elements of large arrays and collections in parallel.
+	 * When set, references are tracked using {@link SharedReferences}, so an object that is reachable
+	 * from elements being cloned by different threads is still copied once.
+	 * @param forkJoinPool The ForkJoinPool to use, or null to clone using the calling thread only
+	 */
+	public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	@Override
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * Sets the minimum number of elements an array or collection must contain before its elements
+	 * are cloned in parallel
+	 * @param parallelThreshold The parallel threshold. Default is 1024.
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		if (parallelThreshold < 1) {
+			throw new IllegalArgumentException("parallelThreshold must be at least 1: " + parallelThreshold);
+		}
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	private static final class CloneElementsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -1727374651258209641L;
+
+		private final Object[] elements;
+		private final BasicCloner cloner;
+		private final Map<Object, Object> referencesToReuse;
+
+		CloneElementsTask(Object[] elements, BasicCloner cloner, Map<Object, Object> referencesToReuse) {
+			this.elements = elements;
+			this.cloner = cloner;
+			this.referencesToReuse = referencesToReuse;
+		}
+
+		@Override
+		protected void compute() {
+			ParallelCloneSupport.cloneElements(elements, elements, cloner, referencesToReuse, 0L);
+		}
+	}
+
+	private static final class CloneTask<T> extends RecursiveTask<T> {
+
+		private static final long serialVersionUID = 4190658130127383459L;
+
+		private final T obj;
+		private final BasicCloner cloner;
+		private final Map<Object, Object> referencesToReuse;
+
+		CloneTask(T obj, BasicCloner cloner, Map<Object, Object> referencesToReuse) {
+			this.obj = obj;
+			this.cloner = cloner;
+			this.referencesToReuse = referencesToReuse;
+		}
+
+		@Override
+		protected T compute() {
+			return cloner.clone(obj, cloner, referencesToReuse, 0L);
+		}
+	}
 }
@@ -0,0 +1,331 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.jadira.reflection.access.asm.AsmClassAccess;
+import org.jadira.reflection.cloning.implementor.AsmCloneStrategy;
+import org.jadira.reflection.core.misc.ClassUtils;
+import org.objectweb.asm.Type;
+
+/**
+ * Records the classes initialised by a {@link BasicCloner} so that they can be initialised ahead of
+ * time in a later run, avoiding a slow start while class models and accessors are built on demand.
+ * The cache can be saved - for example as a build step or when an instance shuts down - and loaded
+ * again at startup, where {@link #warm(BasicCloner, ForkJoinPool)} initialises the classes in parallel.
+ * <p>
+ * Alongside each class the cache saves a fingerprint of its fields and methods. Entries for classes that
+ * cannot be loaded, or whose fingerprint no longer matches, are ignored. No bytecode is saved: when
+ * warming a cloner that uses the {@link AsmCloneStrategy}, the accessors are generated by
+ * {@link AsmClassAccess} in parallel, so a saved cache names only classes that the given ClassLoader
+ * already provides.
+ * <p>
+ * The header of a saved cache holds a checksum of the entries, which detects a cache damaged, for
+ * example, by an incomplete write. Such a cache is discarded.
+ * <p>
+ * This class is thread safe.
+ */
+public class CloneWarmupCache {
+
+	private static final int MAGIC = 0x4A43574D;
+
+	private static final int VERSION = 3;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Set<Class<?>> recordedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	private final Set<Class<?>> accessedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	/**
+	 * Creates a new, empty instance
+	 */
+	public CloneWarmupCache() {
+	}
+
+	/**
+	 * Records a class to be initialised
+	 * @param clazz The class
+	 */
+	public void record(Class<?> clazz) {
+		recordedClasses.add(clazz);
+	}
+
+	/**
+	 * Returns the classes recorded by this cache, including those loaded from a saved cache
+	 * @return An unmodifiable view of the recorded classes
+	 */
+	public Set<Class<?>> getRecordedClasses() {
+		return Collections.unmodifiableSet(recordedClasses);
+	}
+
+	/**
+	 * Saves the recorded classes, together with the superclasses and field types that initialising them
+	 * would also initialise. The stream is not closed.
+	 * @param out The stream to write to
+	 * @throws IOException If the stream cannot be written
+	 */
+	public void save(OutputStream out) throws IOException {
+
+		final Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+		for (Class<?> next : recordedClasses) {
+			collectClasses(next, classes);
+		}
+
+		final ByteArrayOutputStream entriesOut = new ByteArrayOutputStream();
+		final DataOutputStream entries = new DataOutputStream(entriesOut);
+		entries.writeInt(classes.size());
+
+		for (Class<?> next : classes) {
+			entries.writeUTF(next.getName());
+			entries.writeBoolean(recordedClasses.contains(next));
+			writeBytes(entries, fingerprint(next));
+		}
+		entries.flush();
+		final byte[] body = entriesOut.toByteArray();
+
+		final DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		writeBytes(data, newDigest().digest(body));
+		writeBytes(data, body);
+		data.flush();
+	}
+
+	/**
+	 * Loads a cache previously written by {@link #save(OutputStream)}. The stream is not closed.
+	 * @param in The stream to read from
+	 * @param classLoader The ClassLoader used to load the recorded classes
+	 * @return A cache holding the entries that remain valid. This is empty if the checksum of the
+	 * saved entries does not match.
+	 * @throws IOException If the stream cannot be read or does not contain a saved cache
+	 */
+	public static CloneWarmupCache load(InputStream in, ClassLoader classLoader) throws IOException {
+
+		final DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Stream does not contain a saved CloneWarmupCache");
+		}
+		final int version = data.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported CloneWarmupCache version: " + version);
+		}
+
+		final byte[] checksum = readBytes(data);
+		final byte[] body = readBytes(data);
+		if (body == null) {
+			throw new IOException("Stream does not contain a saved CloneWarmupCache");
+		}
+
+		final CloneWarmupCache cache = new CloneWarmupCache();
+		if (!Arrays.equals(checksum, newDigest().digest(body))) {
+			// The entries were damaged after the cache was saved, so classes are initialised on demand
+			// instead and recorded again for the next save
+			return cache;
+		}
+
+		final DataInputStream entries = new DataInputStream(new ByteArrayInputStream(body));
+		final int count = entries.readInt();
+		for (int i = 0; i < count; i++) {
+
+			final String className = entries.readUTF();
+			final boolean recorded = entries.readBoolean();
+			final byte[] savedFingerprint = readBytes(entries);
+
+			final Class<?> clazz;
+			try {
+				clazz = Class.forName(className, false, classLoader);
+			} catch (ClassNotFoundException e) {
+				continue;
+			} catch (LinkageError e) {
+				continue;
+			}
+
+			if (!Arrays.equals(savedFingerprint, fingerprint(clazz))) {
+				continue;
+			}
+			if (recorded) {
+				cache.recordedClasses.add(clazz);
+			}
+			if (!clazz.isInterface()) {
+				cache.accessedClasses.add(clazz);
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Initialises the recorded classes for the given cloner in parallel. Where the cloner uses the
+	 * {@link AsmCloneStrategy} the accessors for the saved classes are first generated.
+	 * @param cloner The cloner to initialise
+	 * @param pool The ForkJoinPool used to run the initialisation
+	 * @return The number of classes initialised
+	 */
+	public int warm(final BasicCloner cloner, ForkJoinPool pool) {
+
+		if (cloner.getCloneStrategy() instanceof AsmCloneStrategy) {
+			final List<Callable<Object>> generateTasks = new ArrayList<Callable<Object>>(accessedClasses.size());
+			for (final Class<?> next : accessedClasses) {
+				generateTasks.add(new Callable<Object>() {
+					@Override
+					public Object call() {
+						try {
+							return AsmClassAccess.get(next);
+						} catch (RuntimeException e) {
+							// For example where the class cannot be introspected; the accessor is generated on demand instead
+							return null;
+						}
+					}
+				});
+			}
+			invokeAll(pool, generateTasks);
+		}
+
+		final List<Callable<Object>> initialiseTasks = new ArrayList<Callable<Object>>(recordedClasses.size());
+		for (final Class<?> next : recordedClasses) {
+			initialiseTasks.add(new Callable<Object>() {
+				@Override
+				public Object call() {
+					cloner.initialiseFor(next);
+					return next;
+				}
+			});
+		}
+		invokeAll(pool, initialiseTasks);
+
+		return initialiseTasks.size();
+	}
+
+	private static void invokeAll(ForkJoinPool pool, List<Callable<Object>> tasks) {
+
+		try {
+			for (Future<Object> next : pool.invokeAll(tasks)) {
+				next.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while warming classes", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Could not warm class: " + e.getCause().getMessage(), e.getCause());
+		}
+	}
+
+	/**
+	 * Collects the given class, its superclasses and the types of its fields, following the same rules
+	 * as the initialisation performed by the clone strategies
+	 */
+	private static void collectClasses(Class<?> clazz, Set<Class<?>> classes) {
+
+		if (clazz == null || clazz == Object.class || clazz.isPrimitive() || !classes.add(clazz)) {
+			return;
+		}
+		collectClasses(clazz.getSuperclass(), classes);
+
+		for (Field f : clazz.getDeclaredFields()) {
+			if (Modifier.isStatic(f.getModifiers())) {
+				continue;
+			}
+			Class<?> type = f.getType();
+			while (type.isArray()) {
+				type = type.getComponentType();
+			}
+			if (!type.isPrimitive() && !type.isEnum() && !type.isInterface() && !ClassUtils.isWrapper(type) && !ClassUtils.isJdkImmutable(type)) {
+				collectClasses(type, classes);
+			}
+		}
+	}
+
+	/**
+	 * Computes a digest of the declared fields and methods of the class and its superclasses, used to
+	 * detect a saved entry for a class that has since changed
+	 */
+	private static byte[] fingerprint(Class<?> clazz) {
+
+		final MessageDigest digest = newDigest();
+
+		Class<?> next = clazz;
+		while (next != null && next != Object.class) {
+
+			final List<String> members = new ArrayList<String>();
+			for (Field f : next.getDeclaredFields()) {
+				members.add(f.getName() + ":" + Type.getDescriptor(f.getType()) + ":" + f.getModifiers());
+			}
+			for (Method m : next.getDeclaredMethods()) {
+				members.add(m.getName() + Type.getMethodDescriptor(m) + ":" + m.getModifiers());
+			}
+			// Reflection does not guarantee the order of members
+			Collections.sort(members);
+
+			digest.update(next.getName().getBytes(UTF8));
+			for (String member : members) {
+				digest.update(member.getBytes(UTF8));
+			}
+			next = next.getSuperclass();
+		}
+		return digest.digest();
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not available", e);
+		}
+	}
+
+	private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+		if (bytes == null) {
+			data.writeInt(-1);
+		} else {
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream data) throws IOException {
+		final int length = data.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		data.readFully(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.jadira.reflection.cloning.api.Cloner;
+import org.jadira.reflection.cloning.proxy.LazyCloneProxy;
+import org.jadira.reflection.cloning.proxy.LazyCloneProxyFactory;
+import org.jadira.reflection.cloning.proxy.LazyCloneSession;
+
+/**
+ * A {@link Cloner} that returns lazily populated copies. Rather than copying the entire graph up
+ * front, the clone returned is a generated subclass of the object's class (a {@link LazyCloneProxy})
+ * whose fields are copied from the source on the first invocation of one of its methods. The root
+ * of the clone is populated immediately, so that reading its fields is cheap, but any objects it
+ * references are represented by proxies that are only populated when used. This makes cloning
+ * a large graph that is subsequently only partially read much cheaper than a deep clone. <br>
+ *
+ * Objects whose class cannot be proxied, for example JDK classes, arrays, final classes or classes
+ * with non-private fields, are deep cloned using the delegate {@link BasicCloner} when the field
+ * that refers to them is populated. Its configuration (immutable classes, implementors,
+ * treatment of transient fields and so on) is respected. <br>
+ *
+ * Only classes whose state is reached solely through overridable methods invoked on the instance
+ * that holds it are proxied. A class whose code reads the private fields of another instance, as is
+ * common in equals() and compareTo(), or which calls getClass() is deep cloned instead, as these
+ * would otherwise see an unpopulated proxy or a different class. Code outside the class still
+ * sees the proxy class when calling getClass() on a lazy clone. <br>
+ *
+ * Because proxies read their source when they are populated, the source graph must not be
+ * modified while any part of the clone may still be unpopulated. This cloner is therefore
+ * intended for read-mostly data.
+ */
+public class LazyCloner implements Cloner {
+
+	private final BasicCloner delegate;
+
+	/**
+	 * Creates a new instance using a default {@link BasicCloner}
+	 */
+	public LazyCloner() {
+		this(new BasicCloner());
+	}
+
+	/**
+	 * Creates a new instance
+	 * @param delegate The BasicCloner used to clone objects that cannot be proxied
+	 */
+	public LazyCloner(BasicCloner delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public <T> T clone(T obj) {
+
+		if (obj == null) {
+			return null;
+		}
+
+		final LazyCloneSession session = new LazyCloneSession(delegate);
+		if (!session.isProxied(obj)) {
+			return delegate.clone(obj);
+		}
+
+		final T proxy = session.getProxy(obj);
+		session.populate((LazyCloneProxy) proxy);
+		return proxy;
+	}
+
+	/**
+	 * Clones each of the supplied objects lazily within a single session, so that an object referenced
+	 * from several members of the batch is copied only once
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> List<T> cloneAll(Collection<? extends T> objects) {
+
+		final Object[] elements = objects.toArray();
+		cloneElements(elements);
+		return new ArrayList<T>((List<T>) Arrays.asList(elements));
+	}
+
+	/**
+	 * Clones each of the supplied objects lazily within a single session, as for {@link #cloneAll(Collection)}
+	 */
+	@Override
+	public <T> T[] cloneAll(T[] objects) {
+
+		final T[] elements = objects.clone();
+		cloneElements(elements);
+		return elements;
+	}
+
+	private void cloneElements(Object[] elements) {
+
+		final LazyCloneSession session = new LazyCloneSession(delegate);
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = session.copy(elements[i]);
+		}
+	}
+
+	/**
+	 * Copies the source into the existing target eagerly, as for {@link BasicCloner#cloneInto(Object, Object)}.
+	 * Lazy population is not used because the target graph is reused rather than allocated.
+	 */
+	@Override
+	public <T> void cloneInto(T source, T target) {
+		delegate.cloneInto(source, target);
+	}
+
+	/**
+	 * Indicates whether the given object is a lazy clone that has not yet been populated
+	 * @param obj The object
+	 * @return True if the object is a proxy still waiting to be populated
+	 */
+	public static boolean isPending(Object obj) {
+		return obj instanceof LazyCloneProxy && ((LazyCloneProxy) obj).getLazyCloneState() != null;
+	}
+
+	@Override
+	public void initialiseFor(Class<?> classes) {
+		delegate.initialiseFor(classes);
+		if (LazyCloneProxyFactory.isProxyable(classes)) {
+			LazyCloneProxyFactory.getProxyClass(classes);
+		}
+	}
+}
@@ -16,16 +16,27 @@
 package org.jadira.reflection.cloning;
 
 import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.jadira.reflection.access.unsafe.UnsafeOperations;
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
 import org.jadira.reflection.cloning.api.Cloner;
+import org.jadira.reflection.cloning.implementor.CloneContext;
 import org.jadira.reflection.cloning.implementor.PortableCloneStrategy;
+import org.jadira.reflection.cloning.implementor.TreeShapedClasses;
 import org.jadira.reflection.cloning.implementor.UnsafeCloneStrategy;
+import org.jadira.reflection.cloning.statistics.CloneStatistics;
+import org.jadira.reflection.core.misc.ClassUtils;
 import org.objenesis.ObjenesisException;
 
 /**
@@ -48,6 +59,8 @@ public class MinimalCloner implements Cloner, CloneDriver, CloneImplementor {
 
 	private static final UnsafeOperations UNSAFE_OPERATIONS = UnsafeOperations.getUnsafeOperations();
 
+	private final ThreadLocal<CloneContext> pooledContexts = new ThreadLocal<CloneContext>();
+
 	@Override
 	public <T> T newInstance(Class<T> c) {
 		try {
@@ -66,7 +79,7 @@ public class MinimalCloner implements Cloner, CloneDriver, CloneImplementor {
 	}
 
 	@Override
-	public <T> T clone(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+	public <T> T clone(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
 
 		T copy = UNSAFE_OPERATIONS.deepCopy(obj, referencesToReuse);
 		return copy;
@@ -139,7 +152,110 @@ public class MinimalCloner implements Cloner, CloneDriver, CloneImplementor {
 
 	@Override
 	public <T> T clone(T obj) {
-		return clone(obj, this, new IdentityHashMap<Object, Object>(), 0L);
+
+		if (obj != null && TreeShapedClasses.isTreeShaped(obj.getClass(), this)) {
+			return clone(obj, this, null, 0L);
+		}
+
+		final CloneContext cloneContext = acquireContext();
+		try {
+			return clone(obj, this, cloneContext.getReferences(), 0L);
+		} finally {
+			releaseContext(cloneContext);
+		}
+	}
+
+	/**
+	 * Clones the given object using the supplied context, rather than the one retained for the calling
+	 * thread. The context is reset once the clone completes.
+	 * @param obj The object to clone
+	 * @param cloneContext The context, which must not be in use by another clone
+	 * @param <T> The class of the object to be cloned
+	 * @return The clone
+	 */
+	public <T> T clone(T obj, CloneContext cloneContext) {
+
+		if (obj != null && TreeShapedClasses.isTreeShaped(obj.getClass(), this)) {
+			return clone(obj, this, null, 0L);
+		}
+
+		try {
+			return clone(obj, this, cloneContext.getReferences(), 0L);
+		} finally {
+			cloneContext.reset();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> List<T> cloneAll(Collection<? extends T> objects) {
+
+		final Object[] elements = objects.toArray();
+		cloneElements(elements);
+		return new ArrayList<T>((List<T>) Arrays.asList(elements));
+	}
+
+	@Override
+	public <T> T[] cloneAll(T[] objects) {
+
+		final T[] elements = objects.clone();
+		cloneElements(elements);
+		return elements;
+	}
+
+	private void cloneElements(Object[] elements) {
+
+		final CloneContext cloneContext = acquireContext();
+		try {
+			for (int i = 0; i < elements.length; i++) {
+				elements[i] = clone(elements[i], this, cloneContext.getReferences(), 0L);
+			}
+		} finally {
+			releaseContext(cloneContext);
+		}
+	}
+
+	private CloneContext acquireContext() {
+
+		final CloneContext cloneContext = pooledContexts.get();
+		if (cloneContext == null) {
+			return new CloneContext();
+		}
+		// Detach the context so that a nested clone on this thread does not share it
+		pooledContexts.set(null);
+		return cloneContext;
+	}
+
+	private void releaseContext(CloneContext cloneContext) {
+
+		cloneContext.reset();
+		pooledContexts.set(cloneContext);
+	}
+
+	/**
+	 * Deep copies the fields of source into target. Unlike {@link BasicCloner}, objects referenced
+	 * by the target are not reused - each field receives a newly cloned value.
+	 */
+	@Override
+	public <T> void cloneInto(T source, T target) {
+
+		if (source == null || target == null) {
+			throw new IllegalArgumentException("Source and target must not be null");
+		}
+		if (source.getClass() != target.getClass() || source.getClass().isArray()) {
+			throw new IllegalArgumentException("Cannot clone instance of: " + source.getClass().getName() + " into instance of: " + target.getClass().getName());
+		}
+
+		final IdentityHashMap<Object, Object> references = new IdentityHashMap<Object, Object>();
+		references.put(source, target);
+
+		for (Field f : ClassUtils.collectInstanceFields(source.getClass())) {
+			if (f.getType().isPrimitive()) {
+				UNSAFE_OPERATIONS.copyPrimitiveField(source, target, f);
+			} else {
+				UNSAFE_OPERATIONS.deepCopyObjectField(source, target, f, references);
+			}
+		}
 	}
 
 	@Override
@@ -204,4 +320,43 @@ public class MinimalCloner implements Cloner, CloneDriver, CloneImplementor {
 	public boolean isTrackReferencesForFlatClasses() {
 		return true;
 	}
+
+	/**
+	 * Clone plans are not used
+	 */
+	@Override
+	public boolean isUseClonePlans() {
+		return false;
+	}
+
+	@Override
+	public CloneImplementor getClonePlan(Class<?> clazz) {
+		return null;
+	}
+
+	@Override
+	public void putClonePlan(Class<?> clazz, CloneImplementor clonePlan) {
+		// No-op
+	}
+
+	/**
+	 * Parallel cloning is not used
+	 */
+	@Override
+	public ForkJoinPool getForkJoinPool() {
+		return null;
+	}
+
+	@Override
+	public int getParallelThreshold() {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Statistics are not recorded
+	 */
+	@Override
+	public CloneStatistics getCloneStatistics() {
+		return null;
+	}
 }
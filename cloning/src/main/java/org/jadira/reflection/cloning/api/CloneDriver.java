@@ -17,8 +17,10 @@ package org.jadira.reflection.cloning.api;
 
 import java.lang.invoke.MethodHandle;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.jadira.reflection.cloning.annotation.Transient;
+import org.jadira.reflection.cloning.statistics.CloneStatistics;
 
 /**
  * A clone driver defines the features of a class that is used to bootstrap and provide context to a
@@ -147,4 +149,46 @@ public interface CloneDriver extends CloneImplementor {
 	 * @return trackReferences Default is false
 	 */
     boolean isTrackReferencesForFlatClasses();
+
+	/**
+	 * Indicates whether classes that are cloned by walking their fields should instead be cloned
+	 * using a clone plan generated specifically for the class on first use.
+	 * @return useClonePlans Default is false
+	 */
+    boolean isUseClonePlans();
+
+	/**
+	 * Retrieves the clone plan previously generated for the given class
+	 * @param clazz The class
+	 * @return The clone plan, or null if none has been stored
+	 */
+	CloneImplementor getClonePlan(Class<?> clazz);
+
+	/**
+	 * Stores the clone plan generated for the given class, so that it is retained for as long as
+	 * this driver
+	 * @param clazz The class
+	 * @param clonePlan The clone plan
+	 */
+	void putClonePlan(Class<?> clazz, CloneImplementor clonePlan);
+
+	/**
+	 * Provides the ForkJoinPool used to clone the elements of large arrays and collections in
+	 * parallel.
+	 * @return The ForkJoinPool, or null if cloning is performed on the calling thread only
+	 */
+    ForkJoinPool getForkJoinPool();
+
+	/**
+	 * The minimum number of elements an array or collection must contain before its elements
+	 * are cloned in parallel. Only used when {@link #getForkJoinPool()} is not null.
+	 * @return The parallel threshold
+	 */
+    int getParallelThreshold();
+
+	/**
+	 * Provides the statistics that objects cloned by this driver are recorded in
+	 * @return The CloneStatistics, or null if statistics are not recorded
+	 */
+    CloneStatistics getCloneStatistics();
 }
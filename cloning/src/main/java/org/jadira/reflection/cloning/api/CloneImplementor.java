@@ -15,7 +15,7 @@
  */
 package org.jadira.reflection.cloning.api;
 
-import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * A CloneImplementor represents an atomic cloning capability. The interface is implemented by
@@ -52,5 +52,5 @@ public interface CloneImplementor {
 	 * @param <T> The type of the object to be cloned
 	 * @return The cloned object
 	 */
-	<T> T clone(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth);
+	<T> T clone(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth);
 }
@@ -15,6 +15,8 @@
  */
 package org.jadira.reflection.cloning.api;
 
+import java.util.Map;
+
 /**
  * A specific kind of {@link CloneImplementor} that is intended for plugging into a {@link Cloner}.
  * CloneStrategies must be capable of working with all available classes, whereas standard
@@ -26,4 +28,15 @@ public interface CloneStrategy extends CloneImplementor {
 	 * @param classes Classes to initialise for
 	 */
 	void initialiseFor(Class<?>... classes);
+
+	/**
+	 * Deep copies the state of the source object into the existing target object, reusing the
+	 * objects, arrays and collections already referenced by the target where possible
+	 * @param source The object to copy from
+	 * @param target The object to copy into. This must be an instance of the same class as source.
+	 * @param context The CloneDriver to be used
+	 * @param referencesToReuse Used for tracking objects that have already been seen
+	 * @param <T> The type being copied
+	 */
+	<T> void cloneInto(T source, T target, CloneDriver context, Map<Object, Object> referencesToReuse);
 }
@@ -15,6 +15,8 @@
  */
 package org.jadira.reflection.cloning.api;
 
+import java.util.Collection;
+import java.util.List;
 
 /**
  * A Cloner represents the capability for Cloning. Its the interface via which users of the library
@@ -30,6 +32,36 @@ public interface Cloner {
 	 */
 	<T> T clone(T obj);
 
+	/**
+	 * Clones each of the supplied objects as a single batch. An object referenced from more than one
+	 * member of the batch is cloned only once, and the clones share its copy, as if the batch had been
+	 * cloned as one graph.
+	 * @param objects The objects to clone
+	 * @param <T> The class of the objects to be cloned
+	 * @return A list of the clones, in the iteration order of the collection
+	 */
+	<T> List<T> cloneAll(Collection<? extends T> objects);
+
+	/**
+	 * Clones each of the supplied objects as a single batch, as for {@link #cloneAll(Collection)}
+	 * @param objects The objects to clone
+	 * @param <T> The class of the objects to be cloned
+	 * @return A new array, of the same type as that given, containing the clones
+	 */
+	<T> T[] cloneAll(T[] objects);
+
+	/**
+	 * Deep copies the supplied object into an existing instance of the same class, overwriting its
+	 * state. Arrays of the same length, collections and other objects already referenced by the
+	 * target are reused and overwritten in turn where possible, so that repeatedly copying into the
+	 * same target graph allocates little or nothing. The target graph should not share objects with
+	 * the source graph.
+	 * @param source The object to copy from
+	 * @param target The object to copy into
+	 * @param <T> The class of the object to be copied
+	 */
+	<T> void cloneInto(T source, T target);
+
 	/**
 	 * This method is included simply so that cold starts can be avoided. The method performs any
 	 * initialisation needed in order to be able to subsequently process the class. If it is not
@@ -1,6 +1,6 @@
 package org.jadira.reflection.cloning.api;
 
-import java.util.IdentityHashMap;
+import java.util.Map;
 
 /**
  * This class is a placeholder to indicate the lack of CloneImplementor capability.
@@ -20,7 +20,7 @@ public class NoCloneImplementor implements CloneImplementor {
 
 	@Override
 	public <T> T clone(T obj, CloneDriver context,
-			IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+			Map<Object, Object> referencesToReuse, long stackDepth) {
 		throw new UnsupportedOperationException("Should not be invoked");
 	}
 }
@@ -0,0 +1,260 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread safe identity map backed by a ConcurrentHashMap. It is used to track references
+ * when a graph is being cloned by several threads at once. Keys are compared by identity, as for
+ * {@link java.util.IdentityHashMap}. Null values are not supported.
+ * @param <K> The type of keys
+ * @param <V> The type of values
+ */
+public class ConcurrentIdentityHashMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V>, Cloneable {
+
+	private final ConcurrentHashMap<IdentityKey<K>, V> map;
+
+	/**
+	 * Creates a new map
+	 * @param expectedSize The expected number of entries
+	 * @param concurrencyLevel The estimated number of concurrently updating threads
+	 */
+	public ConcurrentIdentityHashMap(int expectedSize, int concurrencyLevel) {
+		this.map = new ConcurrentHashMap<IdentityKey<K>, V>(expectedSize, 0.75f, concurrencyLevel);
+	}
+
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return map.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return map.containsKey(new IdentityKey<Object>(key));
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		for (V next : map.values()) {
+			if (next == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public V get(Object key) {
+		return map.get(new IdentityKey<Object>(key));
+	}
+
+	@Override
+	public V put(K key, V value) {
+		return map.put(new IdentityKey<K>(key), value);
+	}
+
+	@Override
+	public V putIfAbsent(K key, V value) {
+		return map.putIfAbsent(new IdentityKey<K>(key), value);
+	}
+
+	/**
+	 * Removes the mapping for the key only if it is mapped to the given value. Values are compared
+	 * using equals(), as for ConcurrentHashMap.
+	 * @param key The key
+	 * @param value The value expected to be associated with the key
+	 * @return True if the mapping was removed
+	 */
+	@Override
+	public boolean remove(Object key, Object value) {
+		return map.remove(new IdentityKey<Object>(key), value);
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		return map.replace(new IdentityKey<K>(key), oldValue, newValue);
+	}
+
+	@Override
+	public V replace(K key, V value) {
+		return map.replace(new IdentityKey<K>(key), value);
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Map.Entry<? extends K, ? extends V> next : m.entrySet()) {
+			put(next.getKey(), next.getValue());
+		}
+	}
+
+	@Override
+	public V remove(Object key) {
+		return map.remove(new IdentityKey<Object>(key));
+	}
+
+	@Override
+	public void clear() {
+		map.clear();
+	}
+
+	@Override
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
+
+			@Override
+			public Iterator<K> iterator() {
+				final Iterator<IdentityKey<K>> keys = map.keySet().iterator();
+				return new Iterator<K>() {
+
+					@Override
+					public boolean hasNext() {
+						return keys.hasNext();
+					}
+
+					@Override
+					public K next() {
+						return keys.next().key;
+					}
+
+					@Override
+					public void remove() {
+						keys.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return map.size();
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+		};
+	}
+
+	@Override
+	public Collection<V> values() {
+		return map.values();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				final Iterator<Map.Entry<IdentityKey<K>, V>> entries = map.entrySet().iterator();
+				return new Iterator<Map.Entry<K, V>>() {
+
+					@Override
+					public boolean hasNext() {
+						return entries.hasNext();
+					}
+
+					@Override
+					public Map.Entry<K, V> next() {
+						final Map.Entry<IdentityKey<K>, V> next = entries.next();
+						return new AbstractMap.SimpleImmutableEntry<K, V>(next.getKey().key, next.getValue());
+					}
+
+					@Override
+					public void remove() {
+						entries.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return map.size();
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof Map)) {
+			return false;
+		}
+		final Map<?, ?> other = (Map<?, ?>) o;
+		if (other.size() != size()) {
+			return false;
+		}
+		for (Map.Entry<IdentityKey<K>, V> next : map.entrySet()) {
+			if (other.get(next.getKey().key) != next.getValue()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for (Map.Entry<IdentityKey<K>, V> next : map.entrySet()) {
+			result += next.getKey().hashCode() ^ System.identityHashCode(next.getValue());
+		}
+		return result;
+	}
+
+	@Override
+	public Object clone() {
+		ConcurrentIdentityHashMap<K, V> result = new ConcurrentIdentityHashMap<K, V>(map.size(), 16);
+		result.map.putAll(map);
+		return result;
+	}
+
+	private static final class IdentityKey<K> {
+
+		private final K key;
+		private final int hash;
+
+		IdentityKey(K key) {
+			this.key = key;
+			this.hash = System.identityHashCode(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof IdentityKey && ((IdentityKey<?>) obj).key == key;
+		}
+	}
+}
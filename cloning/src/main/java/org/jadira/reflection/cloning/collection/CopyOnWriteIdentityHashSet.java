@@ -0,0 +1,190 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.collection;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.jadira.reflection.core.identity.IdentityHashing;
+
+/**
+ * A thread safe identity set optimised for lookups. Members are held in an open addressing table
+ * that is copied on each modification and published through a volatile field, so that contains
+ * is a lock free probe of a table that is never modified once visible. It is intended for sets
+ * such as registered immutable instances, which are read for every object visited during a
+ * clone but seldom modified. <br>
+ *
+ * Iterators operate over a snapshot of the set and do not support removal. Null is not permitted.
+ * @param <E> The type of entries within the set
+ */
+public class CopyOnWriteIdentityHashSet<E> extends AbstractSet<E> {
+
+	private static final int MINIMUM_CAPACITY = 8;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private volatile Table table = new Table(new Object[MINIMUM_CAPACITY], 0);
+
+	private static int hash(Object key, int mask) {
+		return IdentityHashing.hash(key) & mask;
+	}
+
+	private static int capacityFor(int size) {
+		// Keep the table at most half full
+		long minCapacity = (long) size * 2L;
+		int capacity = MINIMUM_CAPACITY;
+		while (capacity < minCapacity && capacity < MAXIMUM_CAPACITY) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static boolean contains(Object[] slots, Object o) {
+
+		final int mask = slots.length - 1;
+		int idx = hash(o, mask);
+		Object next;
+		while ((next = slots[idx]) != null) {
+			if (next == o) {
+				return true;
+			}
+			idx = (idx + 1) & mask;
+		}
+		return false;
+	}
+
+	private static void insert(Object[] slots, Object o) {
+
+		final int mask = slots.length - 1;
+		int idx = hash(o, mask);
+		while (slots[idx] != null) {
+			idx = (idx + 1) & mask;
+		}
+		slots[idx] = o;
+	}
+
+	private static Object[] rehash(Object[] slots, int capacity, Object excluded) {
+
+		final Object[] result = new Object[capacity];
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i] != null && slots[i] != excluded) {
+				insert(result, slots[i]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return o != null && contains(table.slots, o);
+	}
+
+	@Override
+	public int size() {
+		return table.size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return table.size == 0;
+	}
+
+	@Override
+	public synchronized boolean add(E e) {
+
+		if (e == null) {
+			throw new NullPointerException("Null elements are not supported");
+		}
+
+		final Table current = table;
+		if (contains(current.slots, e)) {
+			return false;
+		}
+		final int newSize = current.size + 1;
+		final Object[] slots = rehash(current.slots, Math.max(current.slots.length, capacityFor(newSize)), null);
+		insert(slots, e);
+		table = new Table(slots, newSize);
+		return true;
+	}
+
+	@Override
+	public synchronized boolean remove(Object o) {
+
+		final Table current = table;
+		if (o == null || !contains(current.slots, o)) {
+			return false;
+		}
+		final int newSize = current.size - 1;
+		table = new Table(rehash(current.slots, capacityFor(newSize), o), newSize);
+		return true;
+	}
+
+	@Override
+	public synchronized void clear() {
+		table = new Table(new Object[MINIMUM_CAPACITY], 0);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+
+		final Object[] slots = table.slots;
+		return new Iterator<E>() {
+
+			private int nextSlot = advance(0);
+
+			private int advance(int from) {
+				int idx = from;
+				while (idx < slots.length && slots[idx] == null) {
+					idx++;
+				}
+				return idx;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return nextSlot < slots.length;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				final Object result = slots[nextSlot];
+				nextSlot = advance(nextSlot + 1);
+				return (E) result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Iterator removal is not supported");
+			}
+		};
+	}
+
+	private static final class Table {
+
+		private final Object[] slots;
+		private final int size;
+
+		Table(Object[] slots, int size) {
+			this.slots = slots;
+			this.size = size;
+		}
+	}
+}
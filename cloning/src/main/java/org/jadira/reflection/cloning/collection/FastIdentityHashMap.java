@@ -0,0 +1,583 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.collection;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jadira.reflection.core.identity.IdentityHashing;
+
+/**
+ * An open addressing identity map using linear probing over parallel key and value arrays. It is
+ * intended for tracking references during a clone, where it avoids the entry allocation and
+ * indirection of a chained map and can be cleared and reused for subsequent operations. <br>
+ *
+ * Keys are compared by identity, as for {@link java.util.IdentityHashMap}. As the table is laid out
+ * by identity hash, only the mappings are serialized and they are reinserted when read.
+ * @param <K> The type of keys
+ * @param <V> The type of values
+ */
+public class FastIdentityHashMap<K, V> extends AbstractMap<K, V> implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = -1618093719316094617L;
+
+	private static final Object NULL_KEY = new Object();
+
+	private static final int DEFAULT_CAPACITY = 32;
+
+	private static final int MINIMUM_CAPACITY = 4;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private transient Object[] keys;
+	private transient Object[] values;
+
+	private transient int size;
+	private transient int resizeThreshold;
+
+	/**
+	 * Creates a new map with the default capacity
+	 */
+	public FastIdentityHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new map able to hold the given number of entries without resizing
+	 * @param expectedSize The expected number of entries
+	 */
+	public FastIdentityHashMap(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expectedSize is negative: " + expectedSize);
+		}
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Creates a new map containing the given mappings
+	 * @param m The mappings to copy
+	 */
+	public FastIdentityHashMap(Map<? extends K, ? extends V> m) {
+		this(m.size());
+		putAll(m);
+	}
+
+	private static int capacityFor(int expectedSize) {
+		// Keep the table at most half full
+		long minCapacity = (long) expectedSize * 2L;
+		int capacity = MINIMUM_CAPACITY;
+		while (capacity < minCapacity && capacity < MAXIMUM_CAPACITY) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		resizeThreshold = capacity >>> 1;
+	}
+
+	private static int hash(Object key, int mask) {
+		return IdentityHashing.hash(key) & mask;
+	}
+
+	private static Object maskNull(Object key) {
+		return key == null ? NULL_KEY : key;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> K unmaskNull(Object key) {
+		return key == NULL_KEY ? null : (K) key;
+	}
+
+	private int indexOf(Object maskedKey) {
+
+		final Object[] myKeys = keys;
+		final int mask = myKeys.length - 1;
+
+		int idx = hash(maskedKey, mask);
+		while (true) {
+			final Object next = myKeys[idx];
+			if (next == maskedKey) {
+				return idx;
+			}
+			if (next == null) {
+				return -1;
+			}
+			idx = (idx + 1) & mask;
+		}
+	}
+
+	/**
+	 * Returns the number of slots in the underlying tables
+	 * @return The capacity
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(maskNull(key)) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		final Object[] myKeys = keys;
+		final Object[] myValues = values;
+		for (int i = 0; i < myKeys.length; i++) {
+			if (myKeys[i] != null && myValues[i] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key) {
+		final int idx = indexOf(maskNull(key));
+		return idx < 0 ? null : (V) values[idx];
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(K key, V value) {
+
+		final Object maskedKey = maskNull(key);
+
+		Object[] myKeys = keys;
+		int mask = myKeys.length - 1;
+
+		int idx = hash(maskedKey, mask);
+		Object next;
+		while ((next = myKeys[idx]) != null) {
+			if (next == maskedKey) {
+				final V oldValue = (V) values[idx];
+				values[idx] = value;
+				return oldValue;
+			}
+			idx = (idx + 1) & mask;
+		}
+
+		if (size >= resizeThreshold && myKeys.length < MAXIMUM_CAPACITY) {
+			resize(myKeys.length << 1);
+			myKeys = keys;
+			mask = myKeys.length - 1;
+			idx = hash(maskedKey, mask);
+			while (myKeys[idx] != null) {
+				idx = (idx + 1) & mask;
+			}
+		} else if (size + 1 >= myKeys.length) {
+			throw new IllegalStateException("Capacity exhausted");
+		}
+
+		myKeys[idx] = maskedKey;
+		values[idx] = value;
+		size++;
+		return null;
+	}
+
+	private void resize(int newCapacity) {
+
+		final Object[] oldKeys = keys;
+		final Object[] oldValues = values;
+
+		allocate(newCapacity);
+
+		final Object[] newKeys = keys;
+		final Object[] newValues = values;
+		final int mask = newKeys.length - 1;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			final Object key = oldKeys[i];
+			if (key != null) {
+				int idx = hash(key, mask);
+				while (newKeys[idx] != null) {
+					idx = (idx + 1) & mask;
+				}
+				newKeys[idx] = key;
+				newValues[idx] = oldValues[i];
+			}
+		}
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		for (Map.Entry<? extends K, ? extends V> next : m.entrySet()) {
+			put(next.getKey(), next.getValue());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+
+		final int idx = indexOf(maskNull(key));
+		if (idx < 0) {
+			return null;
+		}
+		final V oldValue = (V) values[idx];
+		deleteSlot(idx);
+		return oldValue;
+	}
+
+	private void deleteSlot(int slot) {
+
+		final Object[] myKeys = keys;
+		final Object[] myValues = values;
+		final int mask = myKeys.length - 1;
+
+		size--;
+
+		// Shift later members of the probe sequence back so that lookups do not stop early
+		int gap = slot;
+		int idx = (gap + 1) & mask;
+		Object key;
+		while ((key = myKeys[idx]) != null) {
+			final int home = hash(key, mask);
+			if (((idx - home) & mask) >= ((idx - gap) & mask)) {
+				myKeys[gap] = key;
+				myValues[gap] = myValues[idx];
+				gap = idx;
+			}
+			idx = (idx + 1) & mask;
+		}
+		myKeys[gap] = null;
+		myValues[gap] = null;
+	}
+
+	/**
+	 * Removes all mappings, retaining the current capacity so that the map can be reused
+	 */
+	@Override
+	public void clear() {
+		if (size > 0) {
+			Arrays.fill(keys, null);
+			Arrays.fill(values, null);
+			size = 0;
+		}
+	}
+
+	@Override
+	public Set<K> keySet() {
+		return new KeySet();
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new Values();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new EntrySet();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof Map)) {
+			return false;
+		}
+		final Map<?, ?> other = (Map<?, ?>) o;
+		if (other.size() != size) {
+			return false;
+		}
+		for (int i = 0; i < keys.length; i++) {
+			final Object key = keys[i];
+			if (key != null) {
+				final Object k = unmaskNull(key);
+				if (other.get(k) != values[i] || (values[i] == null && !other.containsKey(k))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 0;
+		for (int i = 0; i < keys.length; i++) {
+			final Object key = keys[i];
+			if (key != null) {
+				result += System.identityHashCode(unmaskNull(key)) ^ System.identityHashCode(values[i]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Object clone() {
+		FastIdentityHashMap<K, V> result = new FastIdentityHashMap<K, V>(0);
+		result.keys = keys.clone();
+		result.values = values.clone();
+		result.size = size;
+		result.resizeThreshold = resizeThreshold;
+		return result;
+	}
+
+	private boolean clusterWraps(int slot) {
+
+		final Object[] myKeys = keys;
+		int idx = slot + 1;
+		while (idx < myKeys.length && myKeys[idx] != null) {
+			idx++;
+		}
+		return idx == myKeys.length && myKeys[0] != null;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (int i = 0; i < keys.length; i++) {
+			final Object key = keys[i];
+			if (key != null) {
+				out.writeObject(unmaskNull(key));
+				out.writeObject(values[i]);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+
+		in.defaultReadObject();
+		final int entryCount = in.readInt();
+		if (entryCount < 0) {
+			throw new InvalidObjectException("Illegal mapping count: " + entryCount);
+		}
+		allocate(capacityFor(entryCount));
+		for (int i = 0; i < entryCount; i++) {
+			final K key = (K) in.readObject();
+			final V value = (V) in.readObject();
+			put(key, value);
+		}
+	}
+
+	private abstract class SlotIterator<E> implements Iterator<E> {
+
+		// Traverses a copy of the tables once a removal could shift visited entries ahead of the cursor
+		protected Object[] traversalKeys = keys;
+		protected Object[] traversalValues = values;
+
+		private int nextSlot = advance(0);
+		private int lastSlot = -1;
+
+		private int advance(int from) {
+			final Object[] myKeys = traversalKeys;
+			int idx = from;
+			while (idx < myKeys.length && myKeys[idx] == null) {
+				idx++;
+			}
+			return idx;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextSlot < traversalKeys.length;
+		}
+
+		protected int nextSlot() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final int slot = nextSlot;
+			nextSlot = advance(slot + 1);
+			lastSlot = slot;
+			return slot;
+		}
+
+		@Override
+		public void remove() {
+
+			if (lastSlot < 0) {
+				throw new IllegalStateException("next() has not been called");
+			}
+			final int slot = lastSlot;
+			lastSlot = -1;
+
+			if (traversalKeys != keys) {
+				FastIdentityHashMap.this.remove(unmaskNull(traversalKeys[slot]));
+			} else if (clusterWraps(slot)) {
+				traversalKeys = keys.clone();
+				traversalValues = values.clone();
+				deleteSlot(slot);
+			} else {
+				// Entries shifted back by the deletion land at or after the slot, so rescan from it
+				deleteSlot(slot);
+				nextSlot = advance(slot);
+			}
+		}
+	}
+
+	private final class KeySet extends AbstractSet<K> {
+
+		@Override
+		public Iterator<K> iterator() {
+			return new SlotIterator<K>() {
+				@Override
+				public K next() {
+					return unmaskNull(traversalKeys[nextSlot()]);
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return containsKey(o);
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			final int idx = indexOf(maskNull(o));
+			if (idx < 0) {
+				return false;
+			}
+			deleteSlot(idx);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			FastIdentityHashMap.this.clear();
+		}
+	}
+
+	private final class Values extends AbstractCollection<V> {
+
+		@Override
+		public Iterator<V> iterator() {
+			return new SlotIterator<V>() {
+				@SuppressWarnings("unchecked")
+				@Override
+				public V next() {
+					return (V) traversalValues[nextSlot()];
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return containsValue(o);
+		}
+
+		@Override
+		public void clear() {
+			FastIdentityHashMap.this.clear();
+		}
+	}
+
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new SlotIterator<Map.Entry<K, V>>() {
+				@SuppressWarnings("unchecked")
+				@Override
+				public Map.Entry<K, V> next() {
+					final int slot = nextSlot();
+					final Object maskedKey = traversalKeys[slot];
+					return new AbstractMap.SimpleEntry<K, V>(FastIdentityHashMap.<K>unmaskNull(maskedKey), (V) traversalValues[slot]) {
+
+						private static final long serialVersionUID = 2398134178520530217L;
+
+						@Override
+						public V setValue(V value) {
+							final int idx = indexOf(maskedKey);
+							if (idx >= 0) {
+								values[idx] = value;
+							}
+							return super.setValue(value);
+						}
+					};
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			final int idx = indexOf(maskNull(entry.getKey()));
+			return idx >= 0 && values[idx] == entry.getValue();
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			final int idx = indexOf(maskNull(entry.getKey()));
+			if (idx < 0 || values[idx] != entry.getValue()) {
+				return false;
+			}
+			deleteSlot(idx);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			FastIdentityHashMap.this.clear();
+		}
+	}
+}
@@ -8,40 +8,49 @@ import java.util.Set;
 
 /**
  * A wrapper for IdentityHashMap that resolves object matches quickly for
- * small sets using binary search
+ * small sets using binary search over the identity hash codes of the entries.
+ * As identity hash codes are not unique, candidate matches are confirmed by
+ * comparing references.
  * @param <E> The type of entries within the set 
  */
 public class FastIdentityHashSet<E> implements Set<E> {
 
 	private int[] entryKeys = new int[0];
+	private Object[] entries = new Object[0];
 	private static final int ARRAY_SIZE = 12;
 	
 	private IdentityHashMap<E, Boolean> hashMap = new IdentityHashMap<E, Boolean>(12);
 	
 	@Override
 	public int size() {
-		if (entryKeys != null) {
-			return entryKeys.length;
-		} else {
-			return hashMap.size();
-		}
+		return hashMap.size();
 	}
 	
 	@Override
 	public boolean isEmpty() {
-		if (entryKeys != null) {
-			return entryKeys.length == 0;
-		} else {
-			return hashMap.isEmpty();
-		}		
+		return hashMap.isEmpty();
 	}
 	
 	@Override
 	public boolean contains(Object key) {
 		if (entryKeys != null) {
-			return Arrays.binarySearch(entryKeys, System.identityHashCode(key)) >= 0;
+			final int hash = System.identityHashCode(key);
+			int idx = Arrays.binarySearch(entryKeys, hash);
+			if (idx < 0) {
+				return false;
+			}
+			// Several entries may share the hash - check each of them
+			while (idx > 0 && entryKeys[idx - 1] == hash) {
+				idx--;
+			}
+			for (; idx < entryKeys.length && entryKeys[idx] == hash; idx++) {
+				if (entries[idx] == key) {
+					return true;
+				}
+			}
+			return false;
 		} else {
-			return hashMap.containsKey(System.identityHashCode(key));
+			return hashMap.containsKey(key);
 		}
 	}
 	
@@ -55,48 +64,54 @@ public class FastIdentityHashSet<E> implements Set<E> {
 		return hashMap.keySet().toArray();
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T[] toArray(T[] a) {
-		return (T[]) hashMap.keySet().toArray();
+		return hashMap.keySet().toArray(a);
 	}
 	
 	@Override
 	public boolean add(E e) {
-		boolean res = hashMap.put(e, Boolean.TRUE);
+		boolean res = hashMap.put(e, Boolean.TRUE) == null;
 		if (res) {
-			if (entryKeys == null || (entryKeys.length + 1 <= ARRAY_SIZE)) {
-				Object[] keys = hashMap.keySet().toArray(new Object[]{});
-				entryKeys = new int[keys.length];
-				for (int i = 0; i < keys.length; i++) {
-					entryKeys[i] = System.identityHashCode(keys[i]);
-				}
-				Arrays.sort(entryKeys);
-			} else {
-				entryKeys = null;
-			}
+			rebuildEntryKeys();
 		}
 		return res;
 	}
 	
 	@Override
 	public boolean remove(Object o) {
-		boolean res = hashMap.remove(o);
+		boolean res = hashMap.remove(o) != null;
 		if (res) {
-			if (hashMap.size() <= ARRAY_SIZE) {
-				Object[] keys = hashMap.keySet().toArray(new Object[]{});
-		
-				entryKeys = new int[keys.length];
-				for (int i = 0; i < keys.length; i++) {
-					entryKeys[i] = System.identityHashCode(keys[i]);
-				}
-				Arrays.sort(entryKeys);
-			} else {
-				entryKeys = null;
-			}
+			rebuildEntryKeys();
 		}
 		return res;	
 	}
+
+	private void rebuildEntryKeys() {
+
+		if (hashMap.size() > ARRAY_SIZE) {
+			entryKeys = null;
+			entries = null;
+			return;
+		}
+
+		final Object[] keys = hashMap.keySet().toArray(new Object[hashMap.size()]);
+		final long[] sortable = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			// Sort by hash, carrying the original position in the low bits
+			sortable[i] = ((long) System.identityHashCode(keys[i]) << 32) | i;
+		}
+		Arrays.sort(sortable);
+
+		final int[] newEntryKeys = new int[keys.length];
+		final Object[] newEntries = new Object[keys.length];
+		for (int i = 0; i < sortable.length; i++) {
+			newEntryKeys[i] = (int) (sortable[i] >> 32);
+			newEntries[i] = keys[(int) sortable[i]];
+		}
+		entryKeys = newEntryKeys;
+		entries = newEntries;
+	}
 	
 	@Override
 	public boolean containsAll(Collection<?> c) {
@@ -123,27 +138,15 @@ public class FastIdentityHashSet<E> implements Set<E> {
 	public void clear() {
 		hashMap.clear();
 		entryKeys = new int[]{};
+		entries = new Object[]{};
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> c) {
 		
-		Set<E> keySet = hashMap.keySet();
-		boolean res = keySet.retainAll(c);
-		
-		hashMap.clear();
-		
-		for (E next : keySet) {
-			hashMap.put(next, Boolean.TRUE);
-		}
-		
+		boolean res = hashMap.keySet().retainAll(c);
 		if (res) {
-			Object[] keys = hashMap.keySet().toArray(new Object[]{});
-			entryKeys = new int[keys.length];
-			for (int i = 0; i < keys.length; i++) {
-				entryKeys[i] = System.identityHashCode(keys[i]);
-			}
-			Arrays.sort(entryKeys);
+			rebuildEntryKeys();
 		}
 		return res;
 	}
@@ -17,12 +17,43 @@ package org.jadira.reflection.cloning.implementor;
 
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Deque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
 
 import org.jadira.reflection.access.model.ClassModel;
 import org.jadira.reflection.access.model.FieldModel;
@@ -32,6 +63,8 @@ import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
 import org.jadira.reflection.cloning.api.CloneStrategy;
 import org.jadira.reflection.cloning.api.NoCloneImplementor;
+import org.jadira.reflection.cloning.implementor.plan.AsmClonePlan;
+import org.jadira.reflection.cloning.statistics.CloneStatistics;
 import org.jadira.reflection.core.misc.ClassUtils;
 
 /**
@@ -42,6 +75,33 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 
 	private static final int REFERENCE_STACK_LIMIT = 150;
 
+	/**
+	 * The general purpose JDK collections and maps that are cleared and refilled, rather than cloned,
+	 * when cloning into an existing target
+	 */
+	private static final Set<Class<?>> REUSABLE_COLLECTIONS = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+			ArrayList.class, LinkedList.class, Vector.class, ArrayDeque.class, PriorityQueue.class,
+			HashSet.class, LinkedHashSet.class, TreeSet.class,
+			HashMap.class, LinkedHashMap.class, TreeMap.class, IdentityHashMap.class, Hashtable.class,
+			CopyOnWriteArrayList.class, CopyOnWriteArraySet.class, ConcurrentLinkedQueue.class, ConcurrentLinkedDeque.class,
+			ArrayBlockingQueue.class, LinkedBlockingQueue.class, LinkedBlockingDeque.class, PriorityBlockingQueue.class,
+			ConcurrentSkipListSet.class, ConcurrentHashMap.class, ConcurrentSkipListMap.class));
+
+	/**
+	 * Values held by a ClassValue must not refer back to it, or the classes they are computed for keep
+	 * them reachable for good (JDK-8136353). The dispositions therefore hold no reference to this strategy
+	 * or to the class model, which is obtained from {@link #getClassModel(Class)} where needed.
+	 */
+	private final ClassValue<CloneDisposition> dispositions = new ClassValue<CloneDisposition>() {
+		@Override
+		protected CloneDisposition computeValue(Class<?> type) {
+			if (type.isArray() || CloneDisposition.isImmutableType(type)) {
+				return new CloneDisposition(type, null);
+			}
+			return new CloneDisposition(type, getClassModel(type));
+		}
+	};
+
 	@Override
 	public abstract <T> T newInstance(Class<T> c);
 
@@ -51,77 +111,72 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 	}
 
 	@Override
-	public <T> T clone(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+	public <T> T clone(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
 
-		/**
-		 * To avoid unnecessary recursion and potential stackoverflow errors, we use an internal
-		 * stack
-		 */
 		stackDepth++;
 
-		final Deque<WorkItem> stack;
-		if (REFERENCE_STACK_LIMIT <= stackDepth) {
-			stack = new ArrayDeque<WorkItem>();
-		} else {
-			stack = null;
+		if (REFERENCE_STACK_LIMIT > stackDepth) {
+			@SuppressWarnings("unchecked")
+			final T convertedResult = (T) cloneStep(obj, context, referencesToReuse, null, stackDepth);
+			return convertedResult;
 		}
 
-		Object objectInput;
-
-		// T parentOutput = null;
-		WorkItem nextWork = null;
-
-		while (true) {
-
-			Object objectResult;
-
-			if (nextWork == null) {
-				objectInput = obj;
-			} else {
-				objectInput = getFieldValue(nextWork.getSource(), nextWork.getFieldModel());
-			}
-
-			if (objectInput == null) {
-				objectResult = null;
+		/**
+		 * To avoid unnecessary recursion and potential stackoverflow errors, we use an internal
+		 * stack, reusing the one held by the CloneContext where there is one
+		 */
+		final CloneContext cloneContext = CloneContext.forReferences(referencesToReuse);
+		final CloneWorkStack stack = cloneContext == null ? new CloneWorkStack() : cloneContext.acquireWorkStack();
+		try {
+			final Object result = cloneStep(obj, context, referencesToReuse, stack, stackDepth);
+
+			while (!stack.isEmpty()) {
+				stack.pop();
+				final Object target = stack.getPoppedTarget();
+				final FieldModel<Object> fieldModel = stack.getPoppedFieldModel();
+				final Object objectInput = getFieldValue(stack.getPoppedSource(), fieldModel);
+				putFieldValue(target, fieldModel, cloneStep(objectInput, context, referencesToReuse, stack, stackDepth));
 			}
 
-			else if (context.isImmutableInstance(objectInput)) {
-				objectResult = objectInput;
+			@SuppressWarnings("unchecked")
+			final T convertedResult = (T) result;
+			return convertedResult;
+		} finally {
+			if (cloneContext != null) {
+				cloneContext.releaseWorkStack(stack);
 			}
+		}
+	}
 
-			else {
-				objectResult = doCloneStep(objectInput, context, referencesToReuse, stack, stackDepth);
-			}
+	private Object cloneStep(Object objectInput, CloneDriver context, Map<Object, Object> referencesToReuse, final CloneWorkStack stack, long stackDepth) {
 
-			if (nextWork == null) {
-				nextWork = (stack == null ? null : stack.pollFirst());
-				if (nextWork == null) {
-					@SuppressWarnings("unchecked")
-					final T convertedResult = (T) objectResult;
-					return convertedResult;
-				}
-			} else {
-				putFieldValue(nextWork.getTarget(), nextWork.getFieldModel(), objectResult);
-				nextWork = (stack == null ? null : stack.pollFirst());
-			}
+		if (objectInput == null) {
+			return null;
+		} else if (context.isImmutableInstance(objectInput)) {
+			return objectInput;
+		} else {
+			return doCloneStep(objectInput, context, referencesToReuse, stack, stackDepth);
 		}
 	}
 
-	private Object doCloneStep(Object objectInput, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, final Deque<WorkItem> stack, long stackDepth) {
+	private Object doCloneStep(Object objectInput, CloneDriver context, Map<Object, Object> referencesToReuse, final CloneWorkStack stack, long stackDepth) {
 		Object objectResult;
 
 		@SuppressWarnings("unchecked")
 		final Class<Object> clazz = (Class<Object>) objectInput.getClass();
 
-		if (clazz.isPrimitive() || clazz.isEnum()) {
+		final CloneDisposition disposition = dispositions.get(clazz);
+		final CloneStatistics statistics = context.getCloneStatistics();
+
+		if (disposition.isImmutable()) {
 			objectResult = objectInput;
-		} else if (clazz.isArray()) {
+		} else if (disposition.isArray()) {
 			final Object copy = handleArray(objectInput, context, referencesToReuse, stackDepth);
 			if (referencesToReuse != null) {
 				referencesToReuse.put(objectInput, copy);
 			}
 			objectResult = copy;
-		} else if (ClassUtils.isJdkImmutable(clazz) || ClassUtils.isWrapper(clazz) || context.getImmutableClasses().contains(clazz) || context.getNonCloneableClasses().contains(clazz)) {
+		} else if (context.getImmutableClasses().contains(clazz) || context.getNonCloneableClasses().contains(clazz)) {
 			objectResult = objectInput;
 		} else {
 
@@ -130,101 +185,413 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 				referencesToReuse = null;
 			}
 
-			final Object result = referencesToReuse == null ? null : referencesToReuse.get(objectInput);
+			final SharedReferences sharedReferences = referencesToReuse instanceof SharedReferences ? (SharedReferences) referencesToReuse : null;
+			final Object result;
+			if (referencesToReuse == null) {
+				result = null;
+			} else if (sharedReferences == null) {
+				result = referencesToReuse.get(objectInput);
+			} else {
+				result = sharedReferences.acquire(objectInput);
+			}
+			if (statistics != null && referencesToReuse != null) {
+				statistics.recordReferenceLookup(result != null);
+			}
 			if (result != null) {
 				objectResult = result;
+			} else if (sharedReferences == null) {
+				objectResult = cloneUnseen(objectInput, clazz, disposition, context, referencesToReuse, stack, stackDepth);
 			} else {
+				Object copy = null;
+				try {
+					copy = cloneUnseen(objectInput, clazz, disposition, context, referencesToReuse, stack, stackDepth);
+				} finally {
+					sharedReferences.release(objectInput, copy);
+				}
+				objectResult = copy;
+			}
+		}
+		return objectResult;
+	}
 
-				final CloneImplementor cloneImplementor;
-				if (context.isUseCloneImplementors()) {
-					cloneImplementor = context.getImplementor(clazz);
-				} else {
-					cloneImplementor = context.getBuiltInImplementor(clazz);
+	private Object cloneUnseen(Object objectInput, Class<Object> clazz, CloneDisposition disposition, CloneDriver context, Map<Object, Object> referencesToReuse, final CloneWorkStack stack, long stackDepth) {
+
+		final CloneStatistics statistics = context.getCloneStatistics();
+		final ClassModel<Object> model = getClassModel(clazz);
+		Object objectResult;
+
+		final CloneImplementor cloneImplementor;
+		if (context.isUseCloneImplementors()) {
+			cloneImplementor = context.getImplementor(clazz);
+		} else {
+			cloneImplementor = context.getBuiltInImplementor(clazz);
+		}
+		if (cloneImplementor != null) {
+			final long start = statistics == null ? 0L : System.nanoTime();
+			Object copy = cloneImplementor.clone(objectInput, context, referencesToReuse, stackDepth);
+			if (statistics != null) {
+				statistics.recordImplementor(clazz, copy, System.nanoTime() - start);
+			}
+			if (referencesToReuse != null) {
+				referencesToReuse.put(objectInput, copy);
+			}
+			objectResult = copy;
+		} else {
+
+			if (disposition.isModelImmutable()) {
+				objectResult = objectInput;
+			} else {
+
+				if (disposition.getAnnotationImplementor() != null) {
+					final long start = statistics == null ? 0L : System.nanoTime();
+					final Object copy = handleCloneImplementor(objectInput, context, referencesToReuse, clazz, disposition.getAnnotationImplementor(), stackDepth);
+					if (statistics != null) {
+						statistics.recordImplementor(clazz, copy, System.nanoTime() - start);
+					}
+					if (referencesToReuse != null) {
+						referencesToReuse.put(objectInput, copy);
+					}
+					objectResult = copy;
 				}
-				if (cloneImplementor != null) {
-					Object copy = cloneImplementor.clone(objectInput, context, referencesToReuse, stackDepth);
+
+				else if (model.getCloneImplementor() != null) {
+					final long start = statistics == null ? 0L : System.nanoTime();
+					final Object copy = model.getCloneImplementor().clone(objectInput, context, referencesToReuse, stackDepth);
+					if (statistics != null) {
+						statistics.recordImplementor(clazz, copy, System.nanoTime() - start);
+					}
+					if (referencesToReuse != null) {
+						referencesToReuse.put(objectInput, copy);
+					}
+					objectResult = copy;
+				} else if (context.isUseCloneable() && disposition.isCloneable()) {
+					final Object copy = handleCloneableCloneMethod(objectInput, context, referencesToReuse, clazz);
+					if (statistics != null) {
+						statistics.recordClone(clazz, copy);
+					}
 					if (referencesToReuse != null) {
 						referencesToReuse.put(objectInput, copy);
 					}
 					objectResult = copy;
+				} else if (stack == null && context.isUseClonePlans()) {
+					CloneImplementor clonePlan = context.getClonePlan(clazz);
+					if (clonePlan == null) {
+						clonePlan = AsmClonePlan.get(model);
+						context.putClonePlan(clazz, clonePlan);
+					}
+					objectResult = clonePlan.clone(objectInput, context, referencesToReuse, stackDepth);
+					if (statistics != null) {
+						statistics.recordClone(clazz, objectResult);
+					}
 				} else {
 
-					if (model.isDetectedAsImmutable() || model.isNonCloneable()) {
-						objectResult = objectInput;
-					} else {
-
-						final org.jadira.reflection.cloning.annotation.Cloneable cloneableAnnotation = clazz.getAnnotation(org.jadira.reflection.cloning.annotation.Cloneable.class);
-						if (cloneableAnnotation != null && !NoCloneImplementor.class.equals(cloneableAnnotation.implementor())) {
-							final Object copy = handleCloneImplementor(objectInput, context, referencesToReuse, clazz, cloneableAnnotation, stackDepth);
-							if (referencesToReuse != null) {
-								referencesToReuse.put(objectInput, copy);
-							}
-							objectResult = copy;
-						}
-
-						else if (model.getCloneImplementor() != null) {
-							final Object copy = model.getCloneImplementor().clone(objectInput, context, referencesToReuse, stackDepth);
-							if (referencesToReuse != null) {
-								referencesToReuse.put(objectInput, copy);
-							}
-							objectResult = copy;
-						} else if (context.isUseCloneable() && Cloneable.class.isAssignableFrom(clazz)) {
-							final Object copy = handleCloneableCloneMethod(objectInput, context, referencesToReuse, clazz, cloneableAnnotation);
-							if (referencesToReuse != null) {
-								referencesToReuse.put(objectInput, copy);
-							}
-							objectResult = copy;
-						} else {
-
-							objectResult = newInstance(clazz);
-							if (referencesToReuse != null) {
-								referencesToReuse.put(objectInput, objectResult);
-							}
+					objectResult = newInstance(clazz);
+					if (referencesToReuse != null) {
+						referencesToReuse.put(objectInput, objectResult);
+					}
+					if (statistics != null) {
+						statistics.recordClone(clazz, objectResult);
+					}
 
-							ClassModel<Object> classModelInHierarchy = model;
-							while (classModelInHierarchy != null) {
-							
-								for (FieldModel<Object> f : classModelInHierarchy.getModelFields()) {
-	
-									if (!context.isCloneTransientFields() && f.isTransientField()) {
-										handleTransientField(objectResult, f);
-									} else if (!context.isCloneTransientAnnotatedFields() && f.isTransientAnnotatedField()) {
-										handleTransientField(objectResult, f);
+					ClassModel<Object> classModelInHierarchy = model;
+					while (classModelInHierarchy != null) {
+					
+						for (FieldModel<Object> f : classModelInHierarchy.getModelFields()) {
+
+							if (!context.isCloneTransientFields() && f.isTransientField()) {
+								handleTransientField(objectResult, f);
+							} else if (!context.isCloneTransientAnnotatedFields() && f.isTransientAnnotatedField()) {
+								handleTransientField(objectResult, f);
+							} else {
+								if (stack == null) {
+									handleCloneField(objectInput, objectResult, context, f, referencesToReuse, stackDepth);
+								} else {
+									if (f.getFieldType() == FieldType.PRIMITIVE) {
+										handleClonePrimitiveField(objectInput, objectResult, context, f, referencesToReuse);
 									} else {
-										if (stack == null) {
-											handleCloneField(objectInput, objectResult, context, f, referencesToReuse, stackDepth);
-										} else {
-											if (f.getFieldType() == FieldType.PRIMITIVE) {
-												handleClonePrimitiveField(objectInput, objectResult, context, f, referencesToReuse);
-											} else {
-												if (!context.isCloneSyntheticFields() && f.isSynthetic()) {
-													Object fieldObject = getFieldValue(objectInput, f);
-													if (referencesToReuse != null) {
-														referencesToReuse.put(fieldObject, fieldObject);
-													}
-												} else {
-													stack.addFirst(new WorkItem(objectInput, objectResult, f));
-												}
+										if (!context.isCloneSyntheticFields() && f.isSynthetic()) {
+											Object fieldObject = getFieldValue(objectInput, f);
+											if (referencesToReuse != null) {
+												referencesToReuse.put(fieldObject, fieldObject);
 											}
+										} else {
+											stack.push(objectInput, objectResult, f);
 										}
 									}
 								}
-								classModelInHierarchy = classModelInHierarchy.getSuperClassModel();
 							}
 						}
+						classModelInHierarchy = classModelInHierarchy.getSuperClassModel();
 					}
 				}
 			}
 		}
+
 		return objectResult;
 	}
 
-	private <T> T handleCloneImplementor(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, final Class<T> clazz,
-			org.jadira.reflection.cloning.annotation.Cloneable cloneableAnnotation, long stackDepth) {
+	@Override
+	public <T> void cloneInto(T source, T target, CloneDriver context, Map<Object, Object> referencesToReuse) {
+
+		if (source == null || target == null) {
+			throw new IllegalArgumentException("Source and target must not be null");
+		}
+		if (source.getClass() != target.getClass()) {
+			throw new IllegalArgumentException("Cannot clone instance of: " + source.getClass().getName() + " into instance of: " + target.getClass().getName());
+		}
+		if (source == target) {
+			return;
+		}
+
+		final IdentityHashMap<Object, Object> claimedTargets = new IdentityHashMap<Object, Object>();
+		if (!doCloneIntoStep(source, target, context, referencesToReuse, claimedTargets, 0L)) {
+			throw new IllegalArgumentException("Cannot clone into instance of: " + target.getClass().getName());
+		}
+	}
+
+	/**
+	 * Returns the value to store in place of the existing value when cloning into a target. The existing
+	 * value is overwritten and returned if it can be reused, otherwise a new clone is returned.
+	 */
+	private Object cloneOrReuse(Object source, Object existing, CloneDriver context, Map<Object, Object> referencesToReuse, IdentityHashMap<Object, Object> claimedTargets, long stackDepth) {
+
+		if (source == null) {
+			return null;
+		}
+		if (context.isImmutableInstance(source)) {
+			return source;
+		}
+
+		final Object seen = referencesToReuse.get(source);
+		if (seen != null) {
+			return seen;
+		}
+
+		// Targets already written to cannot be reused for a second source object
+		if (existing != null && existing != source && existing.getClass() == source.getClass()
+				&& stackDepth < REFERENCE_STACK_LIMIT && !claimedTargets.containsKey(existing)
+				&& doCloneIntoStep(source, existing, context, referencesToReuse, claimedTargets, stackDepth)) {
+			return existing;
+		}
+		return clone(source, context, referencesToReuse, stackDepth);
+	}
+
+	/**
+	 * Overwrites target with the state of source, returning false without modifying target if the
+	 * instance cannot be reused
+	 */
+	private boolean doCloneIntoStep(Object source, Object target, CloneDriver context, Map<Object, Object> referencesToReuse, IdentityHashMap<Object, Object> claimedTargets, long stackDepth) {
+
+		@SuppressWarnings("unchecked")
+		final Class<Object> clazz = (Class<Object>) source.getClass();
+
+		stackDepth++;
+
+		final CloneDisposition disposition = dispositions.get(clazz);
+
+		if (disposition.isArray()) {
+
+			final int length = Array.getLength(source);
+			if (length != Array.getLength(target)) {
+				return false;
+			}
+			claim(source, target, referencesToReuse, claimedTargets);
+
+			if (clazz.getComponentType().isPrimitive()) {
+				System.arraycopy(source, 0, target, 0, length);
+			} else {
+				final Object[] sourceArray = (Object[]) source;
+				final Object[] targetArray = (Object[]) target;
+				for (int i = 0; i < length; i++) {
+					targetArray[i] = cloneOrReuse(sourceArray[i], targetArray[i], context, referencesToReuse, claimedTargets, stackDepth);
+				}
+			}
+			return true;
+		}
+
+		if (disposition.isImmutable() || context.getImmutableClasses().contains(clazz) || context.getNonCloneableClasses().contains(clazz)) {
+			return false;
+		}
+
+		if (REUSABLE_COLLECTIONS.contains(clazz)) {
+			if (source instanceof Collection) {
+				return cloneIntoCollection(source, target, context, referencesToReuse, claimedTargets, stackDepth);
+			} else {
+				return cloneIntoMap(source, target, context, referencesToReuse, claimedTargets, stackDepth);
+			}
+		}
+		if (source instanceof Collection || source instanceof Map || clazz.getClassLoader() == null) {
+			// Other collections, including views and wrappers, and other JDK classes are cloned
+			return false;
+		}
+
+		final ClassModel<Object> model = getClassModel(clazz);
+		if (disposition.isModelImmutable() || disposition.getAnnotationImplementor() != null || model.getCloneImplementor() != null
+				|| (context.isUseCloneImplementors() ? context.getImplementor(clazz) : context.getBuiltInImplementor(clazz)) != null
+				|| (context.isUseCloneable() && disposition.isCloneable())) {
+			return false;
+		}
+
+		claim(source, target, referencesToReuse, claimedTargets);
+
+		ClassModel<Object> classModelInHierarchy = model;
+		while (classModelInHierarchy != null) {
+
+			for (FieldModel<Object> f : classModelInHierarchy.getModelFields()) {
+
+				if (!context.isCloneTransientFields() && f.isTransientField()) {
+					handleTransientField(target, f);
+				} else if (!context.isCloneTransientAnnotatedFields() && f.isTransientAnnotatedField()) {
+					handleTransientField(target, f);
+				} else if (f.getFieldType() == FieldType.PRIMITIVE) {
+					handleClonePrimitiveField(source, target, context, f, referencesToReuse);
+				} else if (!context.isCloneSyntheticFields() && f.isSynthetic()) {
+					putFieldValue(target, f, getFieldValue(source, f));
+				} else {
+					final Object value = cloneOrReuse(getFieldValue(source, f), getFieldValue(target, f), context, referencesToReuse, claimedTargets, stackDepth);
+					putFieldValue(target, f, value);
+				}
+			}
+			classModelInHierarchy = classModelInHierarchy.getSuperClassModel();
+		}
+		return true;
+	}
+
+	private boolean cloneIntoCollection(Object source, Object target, CloneDriver context, Map<Object, Object> referencesToReuse, IdentityHashMap<Object, Object> claimedTargets, long stackDepth) {
+
+		@SuppressWarnings("unchecked")
+		final Collection<Object> targetCollection = (Collection<Object>) target;
+		final Collection<?> sourceCollection = (Collection<?>) source;
+
+		if (!hasSameOrdering(source, target)) {
+			return false;
+		}
+		if (target instanceof BlockingQueue
+				&& (long) ((BlockingQueue<?>) target).remainingCapacity() + targetCollection.size() < sourceCollection.size()) {
+			// A bounded queue is only reused if it can hold all of the elements of the source
+			return false;
+		}
+		claim(source, target, referencesToReuse, claimedTargets);
+
+		if (source instanceof List && source instanceof RandomAccess && sourceCollection.size() == targetCollection.size()) {
+			// Same sized lists are overwritten position by position, reusing the existing elements
+			final List<?> sourceList = (List<?>) source;
+			@SuppressWarnings("unchecked")
+			final List<Object> targetList = (List<Object>) target;
+			for (int i = 0; i < sourceList.size(); i++) {
+				targetList.set(i, cloneOrReuse(sourceList.get(i), targetList.get(i), context, referencesToReuse, claimedTargets, stackDepth));
+			}
+		} else {
+			// Elements of sets cannot be modified in place, so are cloned. They are cloned before the target is
+			// cleared so that a failure leaves the target unchanged. Clearing retains the capacity of the collection.
+			final Object[] elements = sourceCollection.toArray();
+			for (int i = 0; i < elements.length; i++) {
+				elements[i] = clone(elements[i], context, referencesToReuse, stackDepth);
+			}
+			targetCollection.clear();
+			for (Object next : elements) {
+				targetCollection.add(next);
+			}
+		}
+		return true;
+	}
+
+	private boolean cloneIntoMap(Object source, Object target, CloneDriver context, Map<Object, Object> referencesToReuse, IdentityHashMap<Object, Object> claimedTargets, long stackDepth) {
+
+		if (!hasSameOrdering(source, target)) {
+			return false;
+		}
+		claim(source, target, referencesToReuse, claimedTargets);
+
+		@SuppressWarnings("unchecked")
+		final Map<Object, Object> targetMap = (Map<Object, Object>) target;
+		final Map<?, ?> sourceMap = (Map<?, ?>) source;
+		final Map.Entry<?, ?>[] sourceEntries = sourceMap.entrySet().toArray(new Map.Entry<?, ?>[0]);
+
+		// Keys and values are reused where the target already holds an equal key. Both are looked up
+		// before any key is overwritten, as overwriting a key can change where the target map holds it.
+		final Object[] keysAndValues = new Object[sourceEntries.length * 2];
+		Map<Object, Object> existingKeys = null;
+		for (int i = 0; i < sourceEntries.length; i++) {
+			final Object key = sourceEntries[i].getKey();
+			if (key != null && !context.isImmutableInstance(key) && !dispositions.get(key.getClass()).isImmutable()) {
+				if (existingKeys == null) {
+					existingKeys = indexKeys(targetMap);
+				}
+				keysAndValues[i * 2] = existingKeys.get(key);
+			}
+			keysAndValues[i * 2 + 1] = targetMap.get(key);
+		}
+		for (int i = 0; i < sourceEntries.length; i++) {
+			keysAndValues[i * 2] = cloneOrReuse(sourceEntries[i].getKey(), keysAndValues[i * 2], context, referencesToReuse, claimedTargets, stackDepth);
+			keysAndValues[i * 2 + 1] = cloneOrReuse(sourceEntries[i].getValue(), keysAndValues[i * 2 + 1], context, referencesToReuse, claimedTargets, stackDepth);
+		}
+
+		targetMap.clear();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			targetMap.put(keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return true;
+	}
+
+	/**
+	 * Maps each key of the given map to itself, using the same notion of key equality as the map
+	 */
+	private static Map<Object, Object> indexKeys(Map<Object, Object> map) {
+
+		final Map<Object, Object> keys;
+		if (map instanceof IdentityHashMap) {
+			keys = new IdentityHashMap<Object, Object>(map.size());
+		} else if (map instanceof SortedMap) {
+			@SuppressWarnings("unchecked")
+			final Comparator<Object> comparator = (Comparator<Object>) ((SortedMap<Object, Object>) map).comparator();
+			keys = new TreeMap<Object, Object>(comparator);
+		} else {
+			keys = new HashMap<Object, Object>(Math.max(16, (int) (map.size() / 0.75F) + 1));
+		}
+		for (Object next : map.keySet()) {
+			keys.put(next, next);
+		}
+		return keys;
+	}
+
+	/**
+	 * Indicates whether the given collections or maps, which are of the same class, order their elements
+	 * in the same way. The elements of the source are added to the target, so a target that orders them
+	 * differently cannot be reused.
+	 */
+	private static boolean hasSameOrdering(Object source, Object target) {
+
+		final Comparator<?> sourceComparator = comparatorOf(source);
+		final Comparator<?> targetComparator = comparatorOf(target);
+		return sourceComparator == targetComparator || (sourceComparator != null && sourceComparator.equals(targetComparator));
+	}
+
+	private static Comparator<?> comparatorOf(Object collection) {
+
+		if (collection instanceof SortedSet) {
+			return ((SortedSet<?>) collection).comparator();
+		} else if (collection instanceof SortedMap) {
+			return ((SortedMap<?, ?>) collection).comparator();
+		} else if (collection instanceof PriorityQueue) {
+			return ((PriorityQueue<?>) collection).comparator();
+		} else if (collection instanceof PriorityBlockingQueue) {
+			return ((PriorityBlockingQueue<?>) collection).comparator();
+		}
+		return null;
+	}
+
+	private static void claim(Object source, Object target, Map<Object, Object> referencesToReuse, IdentityHashMap<Object, Object> claimedTargets) {
+		referencesToReuse.put(source, target);
+		claimedTargets.put(target, target);
+	}
+
+	private <T> T handleCloneImplementor(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, final Class<T> clazz,
+			Class<? extends CloneImplementor> implementorClass, long stackDepth) {
 
 		CloneImplementor cloneImplementor = context.getAnnotationImplementor(clazz);
 		if (cloneImplementor == null) {
-			cloneImplementor = (CloneImplementor) newInstance(cloneableAnnotation.implementor());
+			cloneImplementor = newInstance(implementorClass);
 			context.putAnnotationImplementor(clazz, cloneImplementor);
 		}
 		if (MinimalCloner.class.equals(cloneImplementor.getClass())) {
@@ -238,8 +605,7 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 		}
 	}
 
-	private <T> T handleCloneableCloneMethod(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, final Class<T> clazz,
-			org.jadira.reflection.cloning.annotation.Cloneable cloneableAnnotation) {
+	private <T> T handleCloneableCloneMethod(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, final Class<T> clazz) {
 
 		MethodHandle handle = context.getCloneMethod(clazz);
 		if (handle == null) {
@@ -299,17 +665,48 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
      * @param <T> The type being copied
 	 * @return A clone of the array
 	 */
-	protected <T> T handleArray(T origFieldValue, CloneDriver context, IdentityHashMap<Object, Object> visited, long stackDepth) {
+	protected <T> T handleArray(T origFieldValue, CloneDriver context, Map<Object, Object> visited, long stackDepth) {
+
+		final CloneStatistics statistics = context.getCloneStatistics();
+
+		if (visited instanceof SharedReferences) {
+			final SharedReferences sharedReferences = (SharedReferences) visited;
+			@SuppressWarnings("unchecked")
+			final T castResult = (T) sharedReferences.acquire(origFieldValue);
+
+			if (statistics != null) {
+				statistics.recordReferenceLookup(castResult != null);
+			}
+			if (castResult != null) {
+				return castResult;
+			}
+
+			T copy = null;
+			try {
+				copy = copyArray(origFieldValue, context, visited, stackDepth);
+			} finally {
+				sharedReferences.release(origFieldValue, copy);
+			}
+			return copy;
+		}
 
 		if (visited != null) {
 			@SuppressWarnings("unchecked")
 			final T castResult = (T) visited.get(origFieldValue);
 
+			if (statistics != null) {
+				statistics.recordReferenceLookup(castResult != null);
+			}
 			if (castResult != null) {
 				return castResult;
 			}
 		}
+		return copyArray(origFieldValue, context, visited, stackDepth);
+	}
 
+	private <T> T copyArray(T origFieldValue, CloneDriver context, Map<Object, Object> visited, long stackDepth) {
+
+		final CloneStatistics statistics = context.getCloneStatistics();
 		final Class<?> componentType = origFieldValue.getClass().getComponentType();
 
 		Object result = null;
@@ -337,6 +734,10 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 
 		if (result == null) {
 			Object[] array = Arrays.copyOf((Object[]) origFieldValue, ((Object[]) origFieldValue).length);
+			if (visited != null) {
+				// Record the copy before its elements are cloned so that references back to the array resolve to it
+				visited.put(origFieldValue, array);
+			}
 			if (array.length > 0) {
 
 				if (componentType.isArray()) {
@@ -344,6 +745,8 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 						stackDepth++;
 						array[i] = handleArray(array[i], context, visited, stackDepth);
 					}
+				} else if (ParallelCloneSupport.isParallel(context, array.length)) {
+					ParallelCloneSupport.cloneElements(array, array, context, visited, stackDepth);
 				} else {
 					for (int i = 0; i < array.length; i++) {
 						array[i] = clone(array[i], context, visited, stackDepth);
@@ -356,6 +759,9 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 		if (visited != null) {
 			visited.put(origFieldValue, result);
 		}
+		if (statistics != null) {
+			statistics.recordClone(origFieldValue.getClass(), result);
+		}
 
 		@SuppressWarnings("unchecked")
 		final T castResult = (T) result;
@@ -372,7 +778,7 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 	 * @param stackDepth The current depth of the stack - used to switch from recursion to iteration if the stack grows too deep.
      * @param <T> The type containing the field being cloned
 	 */
-	protected <T> void handleCloneField(T obj, T copy, CloneDriver driver, FieldModel<T> f, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+	protected <T> void handleCloneField(T obj, T copy, CloneDriver driver, FieldModel<T> f, Map<Object, Object> referencesToReuse, long stackDepth) {
 
 		final Class<?> clazz = f.getFieldClass();
 
@@ -405,7 +811,7 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 	 * @param referencesToReuse Used for tracking objects that have already been seen
      * @param <T> The type being copied
 	 */
-	protected abstract <T> void handleClonePrimitiveField(T obj, T copy, CloneDriver driver, FieldModel<T> f, IdentityHashMap<Object, Object> referencesToReuse);
+	protected abstract <T> void handleClonePrimitiveField(T obj, T copy, CloneDriver driver, FieldModel<T> f, Map<Object, Object> referencesToReuse);
 
 	/**
 	 * Method to retrieve the value of a particular field
@@ -461,28 +867,63 @@ public abstract class AbstractCloneStrategy implements CloneStrategy {
 		}
 	}
 
-	private class WorkItem {
+	/**
+	 * The parts of the decision about how to clone instances of a class that depend only on the class
+	 * and this strategy, computed once per class. Settings of the CloneDriver are still consulted on
+	 * each use as they may change between clones.
+	 */
+	private static final class CloneDisposition {
+
+		private final boolean immutable;
+		private final boolean array;
+		private final boolean modelImmutable;
+		private final Class<? extends CloneImplementor> annotationImplementor;
+		private final boolean cloneable;
+
+		CloneDisposition(Class<?> clazz, ClassModel<?> classModel) {
+
+			this.array = clazz.isArray();
+			this.immutable = isImmutableType(clazz);
+
+			if (array || immutable) {
+				this.modelImmutable = false;
+				this.annotationImplementor = null;
+				this.cloneable = false;
+			} else {
+				this.modelImmutable = classModel.isDetectedAsImmutable() || classModel.isNonCloneable();
+
+				final org.jadira.reflection.cloning.annotation.Cloneable cloneableAnnotation = clazz.getAnnotation(org.jadira.reflection.cloning.annotation.Cloneable.class);
+				if (cloneableAnnotation != null && !NoCloneImplementor.class.equals(cloneableAnnotation.implementor())) {
+					this.annotationImplementor = cloneableAnnotation.implementor();
+				} else {
+					this.annotationImplementor = null;
+				}
+				this.cloneable = Cloneable.class.isAssignableFrom(clazz);
+			}
+		}
+
+		static boolean isImmutableType(Class<?> clazz) {
+			return clazz.isPrimitive() || clazz.isEnum() || ClassUtils.isJdkImmutable(clazz) || ClassUtils.isWrapper(clazz);
+		}
 
-		private final Object source;
-		private final Object target;
-		private final FieldModel<Object> fieldModel;
+		boolean isImmutable() {
+			return immutable;
+		}
 
-		public WorkItem(Object source, Object target, FieldModel<Object> fieldModel) {
-			this.source = source;
-			this.target = target;
-			this.fieldModel = fieldModel;
+		boolean isArray() {
+			return array;
 		}
 
-		public Object getSource() {
-			return source;
+		boolean isModelImmutable() {
+			return modelImmutable;
 		}
 
-		public Object getTarget() {
-			return target;
+		Class<? extends CloneImplementor> getAnnotationImplementor() {
+			return annotationImplementor;
 		}
 
-		private FieldModel<Object> getFieldModel() {
-			return fieldModel;
+		boolean isCloneable() {
+			return cloneable;
 		}
 	}
 }
@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.jadira.reflection.cloning.collection.FastIdentityHashMap;
+
+/**
+ * The reusable state of a single clone operation: the table of references already cloned, and the
+ * stacks used by {@link AbstractCloneStrategy} to continue deep clones without recursion. Reusing a
+ * context avoids allocating this state on every clone. A context is confined to one thread at a
+ * time and must be reset before it is reused; the cloners do this on completion of each clone.
+ */
+public final class CloneContext {
+
+	/**
+	 * Capacity above which reset() replaces the reference table rather than emptying it
+	 */
+	private static final int RETAINED_REFERENCES_CAPACITY = 1 << 16;
+
+	private ContextReferences references = new ContextReferences(this);
+
+	private CloneWorkStack[] workStacks = new CloneWorkStack[2];
+
+	private int workStacksInUse;
+
+	/**
+	 * The table of references already cloned, to be passed to the {@link org.jadira.reflection.cloning.api.CloneStrategy}
+	 * @return The reference table
+	 */
+	public Map<Object, Object> getReferences() {
+		return references;
+	}
+
+	/**
+	 * Discards the references and work recorded by the previous clone
+	 */
+	public void reset() {
+
+		if (references.capacity() > RETAINED_REFERENCES_CAPACITY) {
+			references = new ContextReferences(this);
+		} else {
+			references.clear();
+		}
+		for (int i = 0; i < workStacksInUse; i++) {
+			workStacks[i].clear();
+		}
+		workStacksInUse = 0;
+	}
+
+	/**
+	 * Returns the context whose reference table is given, or null if the table does not belong to a context
+	 */
+	static CloneContext forReferences(Map<Object, Object> referencesToReuse) {
+		return referencesToReuse instanceof ContextReferences ? ((ContextReferences) referencesToReuse).context : null;
+	}
+
+	/**
+	 * Takes an unused work stack. Stacks are taken and returned in nested order, as a deep clone
+	 * may itself start a further deep clone.
+	 */
+	CloneWorkStack acquireWorkStack() {
+
+		if (workStacksInUse == workStacks.length) {
+			final CloneWorkStack[] newWorkStacks = new CloneWorkStack[workStacks.length * 2];
+			System.arraycopy(workStacks, 0, newWorkStacks, 0, workStacks.length);
+			workStacks = newWorkStacks;
+		}
+		CloneWorkStack workStack = workStacks[workStacksInUse];
+		if (workStack == null) {
+			workStack = new CloneWorkStack();
+			workStacks[workStacksInUse] = workStack;
+		}
+		workStacksInUse++;
+		return workStack;
+	}
+
+	void releaseWorkStack(CloneWorkStack workStack) {
+		workStack.clear();
+		workStacksInUse--;
+	}
+
+	/**
+	 * A reference table that knows its context, so that the context can be found by strategies that
+	 * are only given the table
+	 */
+	private static final class ContextReferences extends FastIdentityHashMap<Object, Object> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient CloneContext context;
+
+		private ContextReferences(CloneContext context) {
+			this.context = context;
+		}
+	}
+}
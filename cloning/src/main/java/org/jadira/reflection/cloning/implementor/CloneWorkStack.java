@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor;
+
+import org.jadira.reflection.access.model.FieldModel;
+
+/**
+ * Stack of fields still to be cloned, used by {@link AbstractCloneStrategy} once the clone becomes
+ * too deep to continue recursively. Entries are held in parallel arrays so that no allocation is
+ * needed per field, and the stack can be cleared and reused.
+ */
+final class CloneWorkStack {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Capacity above which clear() replaces the arrays rather than emptying them
+	 */
+	private static final int RETAINED_CAPACITY = 4096;
+
+	private Object[] sources;
+	private Object[] targets;
+	private FieldModel<Object>[] fieldModels;
+	private int size;
+
+	private Object poppedSource;
+	private Object poppedTarget;
+	private FieldModel<Object> poppedFieldModel;
+
+	CloneWorkStack() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void allocate(int capacity) {
+		sources = new Object[capacity];
+		targets = new Object[capacity];
+		fieldModels = (FieldModel<Object>[]) new FieldModel[capacity];
+	}
+
+	void push(Object source, Object target, FieldModel<Object> fieldModel) {
+
+		if (size == sources.length) {
+			final Object[] oldSources = sources;
+			final Object[] oldTargets = targets;
+			final FieldModel<Object>[] oldFieldModels = fieldModels;
+			allocate(size * 2);
+			System.arraycopy(oldSources, 0, sources, 0, size);
+			System.arraycopy(oldTargets, 0, targets, 0, size);
+			System.arraycopy(oldFieldModels, 0, fieldModels, 0, size);
+		}
+		sources[size] = source;
+		targets[size] = target;
+		fieldModels[size] = fieldModel;
+		size++;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the top entry, which is then available from the popped accessors until the next pop
+	 */
+	void pop() {
+		size--;
+		poppedSource = sources[size];
+		poppedTarget = targets[size];
+		poppedFieldModel = fieldModels[size];
+		sources[size] = null;
+		targets[size] = null;
+		fieldModels[size] = null;
+	}
+
+	Object getPoppedSource() {
+		return poppedSource;
+	}
+
+	Object getPoppedTarget() {
+		return poppedTarget;
+	}
+
+	FieldModel<Object> getPoppedFieldModel() {
+		return poppedFieldModel;
+	}
+
+	void clear() {
+
+		if (sources.length > RETAINED_CAPACITY) {
+			allocate(DEFAULT_CAPACITY);
+		} else {
+			for (int i = 0; i < size; i++) {
+				sources[i] = null;
+				targets[i] = null;
+				fieldModels[i] = null;
+			}
+		}
+		size = 0;
+		poppedSource = null;
+		poppedTarget = null;
+		poppedFieldModel = null;
+	}
+}
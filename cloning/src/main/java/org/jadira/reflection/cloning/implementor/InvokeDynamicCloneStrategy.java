@@ -15,8 +15,8 @@
  */
 package org.jadira.reflection.cloning.implementor;
 
+import java.util.Map;
 import java.lang.reflect.Field;
-import java.util.IdentityHashMap;
 
 import org.jadira.reflection.access.api.ClassAccess;
 import org.jadira.reflection.access.invokedynamic.InvokeDynamicClassAccess;
@@ -112,7 +112,7 @@ public class InvokeDynamicCloneStrategy extends AbstractCloneStrategy implements
 	}
 
 	@Override
-	protected <T> void handleClonePrimitiveField(T obj, T copy, CloneDriver driver, FieldModel<T> f, IdentityHashMap<Object, Object> referencesToReuse) {
+	protected <T> void handleClonePrimitiveField(T obj, T copy, CloneDriver driver, FieldModel<T> f, Map<Object, Object> referencesToReuse) {
 
 		Field field = f.getField();
 
@@ -0,0 +1,169 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+
+/**
+ * Support for cloning the elements of large arrays and collections using fork join tasks. Elements
+ * are only cloned in parallel where the {@link CloneDriver} provides a ForkJoinPool, the calling
+ * thread is running within that pool and the number of elements reaches the driver's parallel
+ * threshold. Otherwise elements are cloned sequentially on the calling thread.
+ */
+public final class ParallelCloneSupport {
+
+	private ParallelCloneSupport() {
+	}
+
+	/**
+	 * Indicates whether a group of elements of the given size should be cloned in parallel
+	 * @param context The CloneDriver
+	 * @param size The number of elements
+	 * @return True if parallel cloning should be used
+	 */
+	public static boolean isParallel(CloneDriver context, int size) {
+		final ForkJoinPool pool = context.getForkJoinPool();
+		return pool != null && size > 1 && size >= context.getParallelThreshold() && ForkJoinTask.getPool() == pool;
+	}
+
+	/**
+	 * Records the copy of a collection before its elements are cloned. A path that leads back to the
+	 * source from one of its elements then reuses the copy. Without this, a thread that meets a
+	 * collection it has claimed while running another task would copy it a second time.
+	 * @param source The collection being cloned
+	 * @param copy The new, still empty, copy
+	 * @param referencesToReuse Map used to track already seen references, or null
+	 */
+	public static void publishCopy(Object source, Object copy, Map<Object, Object> referencesToReuse) {
+		if (referencesToReuse != null) {
+			referencesToReuse.put(source, copy);
+		}
+	}
+
+	/**
+	 * Clones each element of the source array into the same position of the target array
+	 * @param source The elements to clone
+	 * @param target The array to receive the cloned elements. This may be the same as source.
+	 * @param context The CloneDriver
+	 * @param referencesToReuse Map used to track already seen references. This must be a
+	 * {@link SharedReferences} if elements are to be cloned in parallel.
+	 * @param stackDepth The current depth of the stack - used to switch from recursion to iteration
+	 * if the stack grows too deep.
+	 */
+	public static void cloneElements(Object[] source, Object[] target, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+		if (isParallel(context, source.length)) {
+			// Split into a few tasks per worker so that work can be stolen when elements vary in size
+			final int granularity = Math.max(1, source.length / (context.getForkJoinPool().getParallelism() * 4));
+			new CloneElementsTask(source, target, 0, source.length, granularity, context, referencesToReuse, stackDepth).invoke();
+		} else {
+			cloneElements(source, target, 0, source.length, context, referencesToReuse, stackDepth);
+		}
+	}
+
+	/**
+	 * Clones the keys and values of the source map, adding the cloned entries to the target map
+	 * @param source The map to clone
+	 * @param target The map to receive the cloned entries
+	 * @param context The CloneDriver
+	 * @param referencesToReuse Map used to track already seen references. This must be a
+	 * {@link SharedReferences} if entries are to be cloned in parallel.
+	 * @param stackDepth The current depth of the stack - used to switch from recursion to iteration
+	 * if the stack grows too deep.
+	 */
+	public static void cloneEntries(Map<?, ?> source, Map<Object, Object> target, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+		final Object[] keysAndValues = new Object[source.size() * 2];
+		int i = 0;
+		for (Map.Entry<?, ?> next : source.entrySet()) {
+			keysAndValues[i++] = next.getKey();
+			keysAndValues[i++] = next.getValue();
+		}
+
+		cloneElements(keysAndValues, keysAndValues, context, referencesToReuse, stackDepth);
+
+		for (i = 0; i < keysAndValues.length; i += 2) {
+			target.put(keysAndValues[i], keysAndValues[i + 1]);
+		}
+	}
+
+	private static void cloneElements(Object[] source, Object[] target, int from, int to, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
+		for (int i = from; i < to; i++) {
+			target[i] = context.clone(source[i], context, referencesToReuse, stackDepth);
+		}
+	}
+
+	private static final class CloneElementsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = -3486239541201542342L;
+
+		private final Object[] source;
+		private final Object[] target;
+		private final int from;
+		private final int to;
+		private final int granularity;
+		private final CloneDriver context;
+		private final Map<Object, Object> referencesToReuse;
+		private final long stackDepth;
+		private final SharedReferences.Strand strand;
+
+		CloneElementsTask(Object[] source, Object[] target, int from, int to, int granularity, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
+			this.source = source;
+			this.target = target;
+			this.from = from;
+			this.to = to;
+			this.granularity = granularity;
+			this.context = context;
+			this.referencesToReuse = referencesToReuse;
+			this.stackDepth = stackDepth;
+			// Forked tasks act for the task that forked them, so they share the claims it holds
+			this.strand = referencesToReuse instanceof SharedReferences ? ((SharedReferences) referencesToReuse).currentStrand() : null;
+		}
+
+		@Override
+		protected void compute() {
+
+			if (referencesToReuse instanceof SharedReferences) {
+				final SharedReferences sharedReferences = (SharedReferences) referencesToReuse;
+				final SharedReferences.Strand previous = sharedReferences.enterStrand(strand);
+				try {
+					cloneRange();
+				} finally {
+					sharedReferences.leaveStrand(previous);
+				}
+			} else {
+				cloneRange();
+			}
+		}
+
+		private void cloneRange() {
+
+			final int length = to - from;
+			if (length <= granularity) {
+				cloneElements(source, target, from, to, context, referencesToReuse, stackDepth);
+			} else {
+				final int mid = from + (length >>> 1);
+				invokeAll(new CloneElementsTask(source, target, from, mid, granularity, context, referencesToReuse, stackDepth),
+						new CloneElementsTask(source, target, mid, to, granularity, context, referencesToReuse, stackDepth));
+			}
+		}
+	}
+}
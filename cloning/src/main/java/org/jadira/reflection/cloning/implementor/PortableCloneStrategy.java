@@ -15,8 +15,8 @@
  */
 package org.jadira.reflection.cloning.implementor;
 
+import java.util.Map;
 import java.lang.reflect.Field;
-import java.util.IdentityHashMap;
 
 import org.jadira.reflection.access.model.ClassModel;
 import org.jadira.reflection.access.model.FieldModel;
@@ -96,7 +96,7 @@ public class PortableCloneStrategy extends AbstractCloneStrategy implements Clon
 	}
 
 	@Override
-	protected <T> void handleClonePrimitiveField(T obj, T copy, CloneDriver driver, FieldModel<T> f, IdentityHashMap<Object, Object> referencesToReuse) {
+	protected <T> void handleClonePrimitiveField(T obj, T copy, CloneDriver driver, FieldModel<T> f, Map<Object, Object> referencesToReuse) {
 
 		Field field = f.getField();
 
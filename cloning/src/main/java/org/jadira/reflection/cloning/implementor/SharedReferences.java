@@ -0,0 +1,349 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jadira.reflection.cloning.collection.ConcurrentIdentityHashMap;
+
+/**
+ * The table of references shared by the threads taking part in a parallel clone. Before an object is
+ * copied it is claimed by placing a placeholder in the table using putIfAbsent. A thread that reaches
+ * an object claimed by another thread waits until the copy is put into the table, so each object is
+ * copied exactly once. Most copies are put into the table as soon as they are instantiated, before
+ * their fields are cloned, so waits are short.
+ * <p>
+ * The built in collection implementors publish their copy before cloning the elements, using
+ * {@link ParallelCloneSupport#publishCopy(Object, Object, Map)}. Other copies made by a
+ * {@link org.jadira.reflection.cloning.api.CloneImplementor} are only published once the implementor
+ * returns. Where a cycle passes through such an object, a sequential clone copies the object again
+ * when it meets it a second time. The same happens here when the object was claimed by the same chain
+ * of tasks, or when waiting for it would deadlock two or more threads.
+ * </p>
+ */
+public final class SharedReferences extends ConcurrentIdentityHashMap<Object, Object> {
+
+	private final ThreadLocal<Strand> strands = new ThreadLocal<Strand>();
+
+	private final Object lock = new Object();
+
+	/**
+	 * The threads currently waiting for a claim to complete. Guarded by lock.
+	 */
+	private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+	/**
+	 * Creates a new table
+	 * @param expectedSize The expected number of entries
+	 * @param concurrencyLevel The estimated number of concurrently updating threads
+	 */
+	public SharedReferences(int expectedSize, int concurrencyLevel) {
+		super(expectedSize, concurrencyLevel);
+	}
+
+	/**
+	 * Returns the copy of the given object, waiting for it if the object has been claimed by
+	 * another thread. Null is returned where no copy has been made.
+	 */
+	@Override
+	public Object get(Object key) {
+
+		final Object value = super.get(key);
+		if (value instanceof Claim) {
+			return await((Claim) value);
+		}
+		return value;
+	}
+
+	/**
+	 * Associates the copy with its source, releasing any threads waiting on a claim for the source
+	 */
+	@Override
+	public Object put(Object key, Object value) {
+
+		final Object previous = super.put(key, value);
+		if (previous instanceof Claim) {
+			((Claim) previous).complete(value);
+			return null;
+		}
+		return previous;
+	}
+
+	/**
+	 * Returns the copy of the given object if there is one, waiting for it if the object has been
+	 * claimed by another thread. Otherwise the object is claimed for the calling thread, which must
+	 * make the copy and then call {@link #release(Object, Object)}.
+	 * @param source The object to be copied
+	 * @return The copy, or null if the caller must make the copy
+	 */
+	public Object acquire(Object source) {
+
+		final Claim claim = new Claim(Thread.currentThread());
+		while (true) {
+			final Object existing = putIfAbsent(source, claim);
+			if (existing == null) {
+				strands.set(new Strand(source, claim, strands.get()));
+				return null;
+			}
+			if (!(existing instanceof Claim)) {
+				return existing;
+			}
+
+			final Claim existingClaim = (Claim) existing;
+			final Object copy = await(existingClaim);
+			if (copy != null) {
+				return copy;
+			}
+			if (!existingClaim.isComplete()) {
+				// The claim is held further up this chain of tasks, or waiting would deadlock
+				strands.set(new Strand(source, null, strands.get()));
+				return null;
+			}
+			// The claiming thread failed to make a copy, so try to claim the source again
+		}
+	}
+
+	/**
+	 * Completes a copy begun after {@link #acquire(Object)} returned null. If the copy has not
+	 * already been put into the table it is published now. A null copy indicates the copy failed,
+	 * in which case the claim is withdrawn.
+	 * @param source The object that was copied
+	 * @param copy The copy, or null if none was made
+	 */
+	public void release(Object source, Object copy) {
+
+		final Strand strand = strands.get();
+		if (strand == null || strand.source != source) {
+			throw new IllegalStateException("Source was not acquired by the calling thread: " + source.getClass().getName());
+		}
+		if (strand.next == null) {
+			strands.remove();
+		} else {
+			strands.set(strand.next);
+		}
+
+		final Claim claim = strand.claim;
+		if (claim != null && !claim.isComplete()) {
+			if (copy == null) {
+				remove(source, claim);
+			} else {
+				replace(source, claim, copy);
+			}
+			claim.complete(copy);
+		}
+	}
+
+	/**
+	 * Returns the claims held by the calling thread, so that a task forked by it can act on its behalf
+	 */
+	Strand currentStrand() {
+		return strands.get();
+	}
+
+	/**
+	 * Adopts the claims of the task that forked the current task
+	 * @param strand The strand captured when the task was created
+	 * @return The strand previously held by the calling thread, to be passed to {@link #leaveStrand(Strand)}
+	 */
+	Strand enterStrand(Strand strand) {
+
+		final Strand previous = strands.get();
+		strands.set(strand);
+		return previous;
+	}
+
+	/**
+	 * Restores the strand held by the calling thread before {@link #enterStrand(Strand)}
+	 * @param previous The previous strand
+	 */
+	void leaveStrand(Strand previous) {
+
+		if (previous == null) {
+			strands.remove();
+		} else {
+			strands.set(previous);
+		}
+	}
+
+	private Object await(Claim claim) {
+
+		if (claim.isComplete()) {
+			return claim.getCopy();
+		}
+
+		final Strand strand = strands.get();
+		if (claim.owner == Thread.currentThread() || Strand.holds(strand, claim)) {
+			return null;
+		}
+
+		final Waiter waiter = new Waiter(Thread.currentThread(), strand, claim);
+		synchronized (lock) {
+			claim.waiting = true;
+			if (claim.isComplete()) {
+				return claim.getCopy();
+			}
+			if (wouldDeadlock(waiter)) {
+				return null;
+			}
+			waiters.add(waiter);
+		}
+		try {
+			ForkJoinPool.managedBlock(waiter);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for another thread to clone an instance", e);
+		} finally {
+			synchronized (lock) {
+				waiters.remove(waiter);
+			}
+		}
+		return claim.getCopy();
+	}
+
+	/**
+	 * Follows the claims that block the given waiter. A claim is held up by any waiting thread that
+	 * owns it, or whose strand holds it. If this leads back to a claim held by the waiter, waiting
+	 * would deadlock.
+	 */
+	private boolean wouldDeadlock(Waiter waiter) {
+
+		final Map<Claim, Claim> seen = new IdentityHashMap<Claim, Claim>();
+		final Deque<Claim> pending = new ArrayDeque<Claim>();
+		pending.add(waiter.awaited);
+		seen.put(waiter.awaited, waiter.awaited);
+
+		while (!pending.isEmpty()) {
+			final Claim next = pending.poll();
+			for (Waiter blocked : waiters) {
+				if (blocked.awaited.isComplete()) {
+					continue;
+				}
+				if (blocked.thread == next.owner || Strand.holds(blocked.strand, next)) {
+					if (waiter.thread == blocked.awaited.owner || Strand.holds(waiter.strand, blocked.awaited)) {
+						return true;
+					}
+					if (seen.put(blocked.awaited, blocked.awaited) == null) {
+						pending.add(blocked.awaited);
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	private void signal() {
+		synchronized (lock) {
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * The placeholder for an object that is being copied
+	 */
+	private final class Claim {
+
+		private final Thread owner;
+
+		private volatile boolean complete;
+
+		private volatile boolean waiting;
+
+		private Object copy;
+
+		Claim(Thread owner) {
+			this.owner = owner;
+		}
+
+		void complete(Object copy) {
+			this.copy = copy;
+			this.complete = true;
+			if (waiting) {
+				signal();
+			}
+		}
+
+		boolean isComplete() {
+			return complete;
+		}
+
+		Object getCopy() {
+			return complete ? copy : null;
+		}
+	}
+
+	/**
+	 * The claims held by a chain of tasks, most recent first
+	 */
+	static final class Strand {
+
+		private final Object source;
+
+		private final Claim claim;
+
+		private final Strand next;
+
+		Strand(Object source, Claim claim, Strand next) {
+			this.source = source;
+			this.claim = claim;
+			this.next = next;
+		}
+
+		static boolean holds(Strand strand, Claim claim) {
+			for (Strand current = strand; current != null; current = current.next) {
+				if (current.claim == claim) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private final class Waiter implements ForkJoinPool.ManagedBlocker {
+
+		private final Thread thread;
+
+		private final Strand strand;
+
+		private final Claim awaited;
+
+		Waiter(Thread thread, Strand strand, Claim awaited) {
+			this.thread = thread;
+			this.strand = strand;
+			this.awaited = awaited;
+		}
+
+		@Override
+		public boolean block() throws InterruptedException {
+			synchronized (lock) {
+				while (!awaited.isComplete()) {
+					lock.wait();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public boolean isReleasable() {
+			return awaited.isComplete();
+		}
+	}
+}
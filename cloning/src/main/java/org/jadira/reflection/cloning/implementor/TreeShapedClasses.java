@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jadira.reflection.cloning.annotation.Cloneable;
+import org.jadira.reflection.cloning.annotation.Cloner;
+import org.jadira.reflection.cloning.annotation.Flat;
+import org.jadira.reflection.cloning.annotation.Immutable;
+import org.jadira.reflection.cloning.annotation.NonCloneable;
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.core.misc.ClassUtils;
+
+/**
+ * Determines from the declared field types of a class whether every graph rooted at an instance of
+ * it must be a tree, in which case no object can be reached twice and tracking references while
+ * cloning it is unnecessary.
+ * <p>
+ * This is the case when each reference field is of an immutable type such as String, a wrapper or
+ * an enum, or of a final class which meets the same conditions, and no mutable class occurs more
+ * than once among the field types reachable from the root. Arrays, non-final field types and
+ * classes whose cloning is customised are never considered tree shaped.
+ */
+public final class TreeShapedClasses {
+
+	private static final Class<?>[] NOT_TREE_SHAPED = new Class<?>[0];
+
+	/**
+	 * For each class, the mutable classes in its tree, or NOT_TREE_SHAPED
+	 */
+	private static final ClassValue<Class<?>[]> TREE_CLASSES = new ClassValue<Class<?>[]>() {
+		@Override
+		protected Class<?>[] computeValue(Class<?> type) {
+			final List<Class<?>> treeClasses = new ArrayList<Class<?>>();
+			if (collectTreeClasses(type, treeClasses)) {
+				return treeClasses.toArray(new Class<?>[treeClasses.size()]);
+			}
+			return NOT_TREE_SHAPED;
+		}
+	};
+
+	private TreeShapedClasses() {
+	}
+
+	/**
+	 * Indicates whether instances of the given class can be cloned without tracking references
+	 * @param clazz The class of the object being cloned
+	 * @param driver The CloneDriver, consulted for any implementors registered for classes in the tree
+	 * @return True if every graph rooted at an instance of the class is a tree
+	 */
+	public static boolean isTreeShaped(Class<?> clazz, CloneDriver driver) {
+
+		final Class<?>[] treeClasses = TREE_CLASSES.get(clazz);
+		if (treeClasses == NOT_TREE_SHAPED || driver.isCloneImmutable()) {
+			return false;
+		}
+		for (int i = 0; i < treeClasses.length; i++) {
+			final Class<?> next = treeClasses[i];
+			if ((driver.isUseCloneImplementors() ? driver.getImplementor(next) : driver.getBuiltInImplementor(next)) != null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isImmutable(Class<?> type) {
+		return type.isPrimitive() || type.isEnum() || Enum.class == type || ClassUtils.isJdkImmutable(type) || ClassUtils.isWrapper(type);
+	}
+
+	private static boolean collectTreeClasses(Class<?> clazz, List<Class<?>> treeClasses) {
+
+		if (isImmutable(clazz)) {
+			return true;
+		}
+		if (clazz.isArray() || clazz.isInterface() || treeClasses.contains(clazz) || !isPlain(clazz)) {
+			return false;
+		}
+		treeClasses.add(clazz);
+
+		Class<?> next = clazz;
+		while (next != Object.class) {
+			for (Field f : next.getDeclaredFields()) {
+				final Class<?> fieldType = f.getType();
+				if (Modifier.isStatic(f.getModifiers()) || isImmutable(fieldType)) {
+					continue;
+				}
+				// Only a final field type guarantees the class of the value
+				if (f.isSynthetic() || !Modifier.isFinal(fieldType.getModifiers()) || !collectTreeClasses(fieldType, treeClasses)) {
+					return false;
+				}
+			}
+			next = next.getSuperclass();
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates whether instances of the class and its superclasses are cloned field by field, without customisation
+	 */
+	private static boolean isPlain(Class<?> clazz) {
+
+		Class<?> next = clazz;
+		while (next != null && next != Object.class) {
+			if (java.lang.Cloneable.class.isAssignableFrom(next) || next.getAnnotation(Cloneable.class) != null || next.getAnnotation(Flat.class) != null
+					|| next.getAnnotation(Immutable.class) != null || next.getAnnotation(NonCloneable.class) != null) {
+				return false;
+			}
+			for (Method m : next.getDeclaredMethods()) {
+				if (m.getAnnotation(Cloner.class) != null) {
+					return false;
+				}
+			}
+			for (Constructor<?> c : next.getDeclaredConstructors()) {
+				if (c.getAnnotation(Cloner.class) != null) {
+					return false;
+				}
+			}
+			next = next.getSuperclass();
+		}
+		return true;
+	}
+}
@@ -15,7 +15,7 @@
  */
 package org.jadira.reflection.cloning.implementor;
 
-import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.jadira.reflection.access.model.ClassModel;
 import org.jadira.reflection.access.model.FieldModel;
@@ -85,7 +85,7 @@ public class UnsafeCloneStrategy extends AbstractCloneStrategy implements CloneS
 
     @Override
     protected <T> void handleClonePrimitiveField(T obj, T copy, CloneDriver driver, FieldModel<T> f,
-            IdentityHashMap<Object, Object> referencesToReuse) {
+            Map<Object, Object> referencesToReuse) {
     	
     	Class<?> type = f.getFieldClass();
         if (type.isPrimitive()) {
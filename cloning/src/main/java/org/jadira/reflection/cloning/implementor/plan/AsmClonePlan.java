@@ -0,0 +1,498 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.plan;
+
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.LLOAD;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_7;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jadira.reflection.access.api.FieldAccess;
+import org.jadira.reflection.access.classloader.AccessClassLoader;
+import org.jadira.reflection.access.model.ClassModel;
+import org.jadira.reflection.access.model.FieldModel;
+import org.jadira.reflection.access.portable.PortableFieldAccess;
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+import org.jadira.reflection.cloning.annotation.Transient;
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * A CloneImplementor generated using ASM for a specific class. The generated subclass copies
+ * primitive fields directly and only dispatches to the {@link CloneDriver} for reference fields,
+ * avoiding the need to interpret the {@link ClassModel} for every object being cloned. <br>
+ *
+ * Where sun.misc.Unsafe is available, all fields are accessed using offsets compiled into
+ * the generated class. Otherwise only non-private, non-final fields declared within the package of
+ * the class being cloned are accessed directly. Fields whose treatment depends on the configuration
+ * of the {@link CloneDriver} (transient, @Transient annotated and synthetic fields), together with
+ * any fields that cannot be accessed directly, are processed reflectively in the same way as
+ * {@link org.jadira.reflection.cloning.implementor.AbstractCloneStrategy}. <br>
+ *
+ * This class does not retain the plans it creates. They are held by the {@link CloneDriver} that
+ * uses them, so that neither the plans nor the classes they clone outlive it.
+ * @param <C> The Class to be cloned
+ */
+public abstract class AsmClonePlan<C> implements CloneImplementor {
+
+	private static final boolean IS_UNSAFE_AVAILABLE = UnsafeOperations.isUnsafeAvailable();
+
+	/**
+	 * UnsafeOperations instance used by generated subclasses
+	 */
+	protected static final UnsafeOperations UNSAFE_OPERATIONS = IS_UNSAFE_AVAILABLE ? UnsafeOperations.getUnsafeOperations() : null;
+
+	private static final String ASM_CLONE_PLAN_NM = AsmClonePlan.class.getName().replace('.', '/');
+
+	private static final String UNSAFE_OPERATIONS_NM = UnsafeOperations.class.getName().replace('.', '/');
+
+	private static final String CLONE_DRIVER_NM = CloneDriver.class.getName().replace('.', '/');
+
+	private static final String CLONE_METHOD_DESC = "(Ljava/lang/Object;L" + CLONE_DRIVER_NM + ";Ljava/util/Map;J)Ljava/lang/Object;";
+
+	private static final String REFERENCES_METHOD_DESC = "(Ljava/lang/Object;Ljava/lang/Object;L" + CLONE_DRIVER_NM + ";Ljava/util/Map;J)V";
+
+	private final ClassModel<C> classModel;
+
+	private final FieldModel<C>[] residualFields;
+
+	private final FieldAccess<C>[] residualFieldAccess;
+
+	/**
+	 * Constructor, intended for use by generated subclasses
+	 * @param classModel The ClassModel for the class to be cloned
+	 */
+	protected AsmClonePlan(ClassModel<C> classModel) {
+
+		this.classModel = classModel;
+
+		Class<?> clazz = classModel.getModelClass();
+
+		List<FieldModel<C>> residual = new ArrayList<FieldModel<C>>();
+
+		@SuppressWarnings("unchecked")
+		ClassModel<C> classModelInHierarchy = classModel;
+		while (classModelInHierarchy != null) {
+			for (FieldModel<C> f : classModelInHierarchy.getModelFields()) {
+				if (!isCompiled(f.getField(), clazz)) {
+					residual.add(f);
+				}
+			}
+			@SuppressWarnings("unchecked")
+			final ClassModel<C> superClassModel = (ClassModel<C>) classModelInHierarchy.getSuperClassModel();
+			classModelInHierarchy = superClassModel;
+		}
+
+		@SuppressWarnings("unchecked")
+		final FieldModel<C>[] myResidualFields = (FieldModel<C>[]) residual.toArray(new FieldModel[residual.size()]);
+		this.residualFields = myResidualFields;
+
+		@SuppressWarnings("unchecked")
+		final FieldAccess<C>[] myResidualFieldAccess = (FieldAccess<C>[]) new FieldAccess[myResidualFields.length];
+		for (int i = 0; i < myResidualFields.length; i++) {
+			myResidualFieldAccess[i] = PortableFieldAccess.get(myResidualFields[i].getField());
+		}
+		this.residualFieldAccess = myResidualFieldAccess;
+	}
+
+	/**
+	 * Create a clone plan for the class described by the given ClassModel. If the plan class for the
+	 * model's class has not been generated before, then it is created by generating a specialised
+	 * subclass of this class. Otherwise the existing plan class is loaded from the ClassLoader it
+	 * was defined in. The caller is responsible for retaining the plan.
+	 * @param classModel The ClassModel for the class to be cloned
+	 * @param <C> The type of class
+	 * @return AsmClonePlan instance
+	 */
+	public static <C> AsmClonePlan<C> get(ClassModel<C> classModel) {
+
+		@SuppressWarnings("unchecked")
+		final Class<C> clazz = (Class<C>) classModel.getModelClass();
+
+		final Constructor<AsmClonePlan<C>> c = getPlanConstructor(clazz, classModel);
+		try {
+			return c.newInstance(classModel);
+		} catch (Exception ex) {
+			throw new IllegalStateException("Error constructing clone plan for: " + clazz.getName() + "{ " + ex.getMessage() + " }", ex);
+		}
+	}
+
+	private static <C> Constructor<AsmClonePlan<C>> getPlanConstructor(Class<C> clazz, ClassModel<C> classModel) {
+
+		String clazzName = clazz.getName();
+		String planClassName = constructPlanClassName(clazzName);
+
+		Class<?> planClass = null;
+
+		AccessClassLoader loader = AccessClassLoader.get(clazz);
+		synchronized (loader) {
+			try {
+				planClass = loader.loadClass(planClassName);
+			} catch (ClassNotFoundException ignored) {
+
+				String planClassNm = planClassName.replace('.', '/');
+
+				List<Field> primitiveFields = new ArrayList<Field>();
+				List<Field> referenceFields = new ArrayList<Field>();
+
+				ClassModel<? super C> classModelInHierarchy = classModel;
+				while (classModelInHierarchy != null) {
+					for (FieldModel<? super C> f : classModelInHierarchy.getModelFields()) {
+						Field field = f.getField();
+						if (isCompiled(field, clazz)) {
+							if (field.getType().isPrimitive()) {
+								primitiveFields.add(field);
+							} else {
+								referenceFields.add(field);
+							}
+						}
+					}
+					classModelInHierarchy = classModelInHierarchy.getSuperClassModel();
+				}
+
+				ClassWriter cw = new ClassWriter(0);
+
+				cw.visit(V1_7, ACC_PUBLIC + ACC_SUPER, planClassNm, null, ASM_CLONE_PLAN_NM, null);
+
+				enhanceForConstructor(cw);
+				enhanceForCopyPrimitives(cw, primitiveFields);
+				enhanceForCloneReferences(cw, referenceFields);
+
+				cw.visitEnd();
+
+				loader.registerClass(planClassName, cw.toByteArray());
+
+				try {
+					planClass = loader.findClass(planClassName);
+				} catch (ClassNotFoundException e) {
+					throw new IllegalStateException("Clone plan class unexpectedly could not be found", e);
+				}
+			}
+		}
+
+		try {
+			@SuppressWarnings("unchecked")
+			Constructor<AsmClonePlan<C>> c = (Constructor<AsmClonePlan<C>>) planClass.getConstructor(new Class[] { ClassModel.class });
+			return c;
+		} catch (NoSuchMethodException ex) {
+			throw new IllegalStateException("Error obtaining constructor for clone plan class: " + planClassName + "{ " + ex.getMessage() + " }", ex);
+		}
+	}
+
+	private static String constructPlanClassName(String clazzName) {
+
+		String planClassName = clazzName + AsmClonePlan.class.getSimpleName();
+		if (planClassName.startsWith("java.")) {
+			planClassName = AsmClonePlan.class.getSimpleName().toLowerCase() + planClassName;
+		}
+		return planClassName;
+	}
+
+	/**
+	 * Indicates whether the given field will be handled by the generated code for the plan
+	 * @param field The field
+	 * @param clazz The class being cloned
+	 * @return True if the field is copied by generated code
+	 */
+	private static boolean isCompiled(Field field, Class<?> clazz) {
+
+		final int modifiers = field.getModifiers();
+		if (Modifier.isTransient(modifiers) || field.getAnnotation(Transient.class) != null || field.isSynthetic()) {
+			return false;
+		}
+		if (IS_UNSAFE_AVAILABLE) {
+			return true;
+		}
+		if (Modifier.isPrivate(modifiers) || Modifier.isFinal(modifiers) || clazz.getName().startsWith("java.")) {
+			return false;
+		}
+		final Class<?> declaringClass = field.getDeclaringClass();
+		return declaringClass.getClassLoader() == clazz.getClassLoader() && packageName(declaringClass).equals(packageName(clazz));
+	}
+
+	private static String packageName(Class<?> clazz) {
+		String name = clazz.getName();
+		int idx = name.lastIndexOf('.');
+		return idx == -1 ? "" : name.substring(0, idx);
+	}
+
+	private static void enhanceForConstructor(ClassVisitor cw) {
+		String classModelNm = Type.getInternalName(ClassModel.class);
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(L" + classModelNm + ";)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKESPECIAL, ASM_CLONE_PLAN_NM, "<init>", "(L" + classModelNm + ";)V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(2, 2);
+		mv.visitEnd();
+	}
+
+	private static void enhanceForCopyPrimitives(ClassVisitor cw, List<Field> fields) {
+
+		MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "copyPrimitives", "(Ljava/lang/Object;Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+
+		for (Field field : fields) {
+
+			Type fieldType = Type.getType(field.getType());
+
+			if (IS_UNSAFE_AVAILABLE) {
+				String typeName = unsafeTypeName(fieldType);
+				Long offset = Long.valueOf(UNSAFE_OPERATIONS.getObjectFieldOffset(field));
+
+				mv.visitFieldInsn(GETSTATIC, ASM_CLONE_PLAN_NM, "UNSAFE_OPERATIONS", "L" + UNSAFE_OPERATIONS_NM + ";");
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitLdcInsn(offset);
+				mv.visitFieldInsn(GETSTATIC, ASM_CLONE_PLAN_NM, "UNSAFE_OPERATIONS", "L" + UNSAFE_OPERATIONS_NM + ";");
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitLdcInsn(offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE_OPERATIONS_NM, "get" + typeName, "(Ljava/lang/Object;J)" + fieldType.getDescriptor());
+				mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE_OPERATIONS_NM, "put" + typeName, "(Ljava/lang/Object;J" + fieldType.getDescriptor() + ")V");
+			} else {
+				String ownerNm = Type.getInternalName(field.getDeclaringClass());
+
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitTypeInsn(CHECKCAST, ownerNm);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitTypeInsn(CHECKCAST, ownerNm);
+				mv.visitFieldInsn(GETFIELD, ownerNm, field.getName(), fieldType.getDescriptor());
+				mv.visitFieldInsn(PUTFIELD, ownerNm, field.getName(), fieldType.getDescriptor());
+			}
+		}
+
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(8, 3);
+		mv.visitEnd();
+	}
+
+	private static void enhanceForCloneReferences(ClassVisitor cw, List<Field> fields) {
+
+		MethodVisitor mv = cw.visitMethod(ACC_PROTECTED, "cloneReferences", REFERENCES_METHOD_DESC, null, null);
+		mv.visitCode();
+
+		for (Field field : fields) {
+
+			Type fieldType = Type.getType(field.getType());
+
+			if (IS_UNSAFE_AVAILABLE) {
+				Long offset = Long.valueOf(UNSAFE_OPERATIONS.getObjectFieldOffset(field));
+
+				mv.visitFieldInsn(GETSTATIC, ASM_CLONE_PLAN_NM, "UNSAFE_OPERATIONS", "L" + UNSAFE_OPERATIONS_NM + ";");
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitLdcInsn(offset);
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitFieldInsn(GETSTATIC, ASM_CLONE_PLAN_NM, "UNSAFE_OPERATIONS", "L" + UNSAFE_OPERATIONS_NM + ";");
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitLdcInsn(offset);
+				mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE_OPERATIONS_NM, "getObject", "(Ljava/lang/Object;J)Ljava/lang/Object;");
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitVarInsn(LLOAD, 5);
+				mv.visitMethodInsn(INVOKEINTERFACE, CLONE_DRIVER_NM, "clone", CLONE_METHOD_DESC);
+				mv.visitMethodInsn(INVOKEVIRTUAL, UNSAFE_OPERATIONS_NM, "putObject", "(Ljava/lang/Object;JLjava/lang/Object;)V");
+			} else {
+				String ownerNm = Type.getInternalName(field.getDeclaringClass());
+
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitTypeInsn(CHECKCAST, ownerNm);
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitVarInsn(ALOAD, 1);
+				mv.visitTypeInsn(CHECKCAST, ownerNm);
+				mv.visitFieldInsn(GETFIELD, ownerNm, field.getName(), fieldType.getDescriptor());
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitVarInsn(ALOAD, 4);
+				mv.visitVarInsn(LLOAD, 5);
+				mv.visitMethodInsn(INVOKEINTERFACE, CLONE_DRIVER_NM, "clone", CLONE_METHOD_DESC);
+				mv.visitTypeInsn(CHECKCAST, fieldType.getSort() == Type.ARRAY ? fieldType.getDescriptor() : fieldType.getInternalName());
+				mv.visitFieldInsn(PUTFIELD, ownerNm, field.getName(), fieldType.getDescriptor());
+			}
+		}
+
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(10, 7);
+		mv.visitEnd();
+	}
+
+	private static String unsafeTypeName(Type type) {
+
+		switch (type.getSort()) {
+		case Type.BOOLEAN:
+			return "Boolean";
+		case Type.BYTE:
+			return "Byte";
+		case Type.CHAR:
+			return "Char";
+		case Type.SHORT:
+			return "Short";
+		case Type.INT:
+			return "Int";
+		case Type.FLOAT:
+			return "Float";
+		case Type.LONG:
+			return "Long";
+		case Type.DOUBLE:
+			return "Double";
+		default:
+			throw new IllegalStateException("Expected primitive but was :" + type.getClassName());
+		}
+	}
+
+	/**
+	 * Copies the primitive fields handled by the generated plan from source to copy
+	 * @param source The source object
+	 * @param copy The target object
+	 */
+	protected abstract void copyPrimitives(Object source, Object copy);
+
+	/**
+	 * Clones the reference fields handled by the generated plan from source to copy
+	 * @param source The source object
+	 * @param copy The target object
+	 * @param context The CloneDriver to dispatch to
+	 * @param referencesToReuse Used for tracking objects that have already been seen
+	 * @param stackDepth The current depth of the stack
+	 */
+	protected abstract void cloneReferences(Object source, Object copy, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth);
+
+	/**
+	 * Access the ClassModel associated with the plan
+	 * @return The associated ClassModel
+	 */
+	public ClassModel<C> getClassModel() {
+		return classModel;
+	}
+
+	@Override
+	public <T> T newInstance(Class<T> c) {
+		if (canClone(c)) {
+			@SuppressWarnings("unchecked")
+			final T result = (T) classModel.getClassAccess().newInstance();
+			return result;
+		} else {
+			throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+		}
+	}
+
+	@Override
+	public boolean canClone(Class<?> clazz) {
+		return classModel.getModelClass() == clazz;
+	}
+
+	@Override
+	public <T> T clone(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+		@SuppressWarnings("unchecked")
+		final T copy = context.newInstance((Class<T>) obj.getClass());
+		if (referencesToReuse != null) {
+			referencesToReuse.put(obj, copy);
+		}
+
+		copyPrimitives(obj, copy);
+		cloneReferences(obj, copy, context, referencesToReuse, stackDepth);
+
+		@SuppressWarnings("unchecked")
+		final C source = (C) obj;
+		@SuppressWarnings("unchecked")
+		final C target = (C) copy;
+
+		for (int i = 0; i < residualFields.length; i++) {
+
+			final FieldModel<C> f = residualFields[i];
+			final FieldAccess<C> fieldAccess = residualFieldAccess[i];
+
+			if ((!context.isCloneTransientFields() && f.isTransientField()) || (!context.isCloneTransientAnnotatedFields() && f.isTransientAnnotatedField())) {
+				handleTransientField(target, f, fieldAccess);
+			} else if (f.getFieldClass().isPrimitive()) {
+				handleClonePrimitiveField(source, target, f, fieldAccess);
+			} else if (!context.isCloneSyntheticFields() && f.isSynthetic()) {
+				fieldAccess.putValue(target, fieldAccess.getValue(source));
+			} else {
+				fieldAccess.putValue(target, context.clone(fieldAccess.getValue(source), context, referencesToReuse, stackDepth));
+			}
+		}
+		return copy;
+	}
+
+	private void handleTransientField(C copy, FieldModel<C> f, FieldAccess<C> fieldAccess) {
+
+		final Class<?> type = f.getFieldClass();
+
+		if (java.lang.Boolean.TYPE == type) {
+			fieldAccess.putBooleanValue(copy, false);
+		} else if (java.lang.Byte.TYPE == type) {
+			fieldAccess.putByteValue(copy, (byte) 0);
+		} else if (java.lang.Character.TYPE == type) {
+			fieldAccess.putCharValue(copy, '\u0000');
+		} else if (java.lang.Short.TYPE == type) {
+			fieldAccess.putShortValue(copy, (short) 0);
+		} else if (java.lang.Integer.TYPE == type) {
+			fieldAccess.putIntValue(copy, 0);
+		} else if (java.lang.Long.TYPE == type) {
+			fieldAccess.putLongValue(copy, 0L);
+		} else if (java.lang.Float.TYPE == type) {
+			fieldAccess.putFloatValue(copy, 0.0f);
+		} else if (java.lang.Double.TYPE == type) {
+			fieldAccess.putDoubleValue(copy, 0.0d);
+		} else {
+			fieldAccess.putValue(copy, null);
+		}
+	}
+
+	private void handleClonePrimitiveField(C obj, C copy, FieldModel<C> f, FieldAccess<C> fieldAccess) {
+
+		final Class<?> type = f.getFieldClass();
+
+		if (java.lang.Boolean.TYPE == type) {
+			fieldAccess.putBooleanValue(copy, fieldAccess.getBooleanValue(obj));
+		} else if (java.lang.Byte.TYPE == type) {
+			fieldAccess.putByteValue(copy, fieldAccess.getByteValue(obj));
+		} else if (java.lang.Character.TYPE == type) {
+			fieldAccess.putCharValue(copy, fieldAccess.getCharValue(obj));
+		} else if (java.lang.Short.TYPE == type) {
+			fieldAccess.putShortValue(copy, fieldAccess.getShortValue(obj));
+		} else if (java.lang.Integer.TYPE == type) {
+			fieldAccess.putIntValue(copy, fieldAccess.getIntValue(obj));
+		} else if (java.lang.Long.TYPE == type) {
+			fieldAccess.putLongValue(copy, fieldAccess.getLongValue(obj));
+		} else if (java.lang.Float.TYPE == type) {
+			fieldAccess.putFloatValue(copy, fieldAccess.getFloatValue(obj));
+		} else if (java.lang.Double.TYPE == type) {
+			fieldAccess.putDoubleValue(copy, fieldAccess.getDoubleValue(obj));
+		}
+	}
+}
@@ -15,11 +15,11 @@
  */
 package org.jadira.reflection.cloning.implementor.reflection;
 
+import java.util.Map;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
-import java.util.IdentityHashMap;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
@@ -64,7 +64,7 @@ public final class CopyConstructorImplementor implements CloneImplementor {
     }
 
 	@Override
-    public <T> T clone(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
     	
     	if (obj != null && !(boundClass.equals(obj))) {
     		throw new IllegalArgumentException("Supplied object was not instance of class: " + boundClass.getName());
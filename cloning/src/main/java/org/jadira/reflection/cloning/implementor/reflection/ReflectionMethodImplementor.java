@@ -15,11 +15,11 @@
  */
 package org.jadira.reflection.cloning.implementor.reflection;
 
+import java.util.Map;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.IdentityHashMap;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
@@ -65,7 +65,7 @@ public class ReflectionMethodImplementor implements CloneImplementor {
 	}
 
 	@Override
-	public <T> T clone(T obj, CloneDriver context, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+	public <T> T clone(T obj, CloneDriver context, Map<Object, Object> referencesToReuse, long stackDepth) {
 
 		try {
 			final T result = (T) marshalHandle.invoke(obj);
@@ -16,10 +16,11 @@
 package org.jadira.reflection.cloning.implementor.types;
 
 import java.util.ArrayList;
-import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
 
 /**
  * A Clone Implementor that can handle ArrayList
@@ -28,16 +29,27 @@ public class ArrayListImplementor implements CloneImplementor {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public <T> T clone(T obj, CloneDriver parentContext, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
 
     	stackDepth++;
     	
         final ArrayList source = (ArrayList)obj;
-        
-        final ArrayList copy = new ArrayList();
-        for (final Object o : source) {
-            final Object childCopy = parentContext.clone(o, parentContext, referencesToReuse, stackDepth);
-            copy.add(childCopy);
+        final int size = source.size();
+
+        final ArrayList copy = new ArrayList(size);
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+        if (ParallelCloneSupport.isParallel(parentContext, size)) {
+            // Parallel tasks clone into distinct slots of a snapshot of the elements
+            final Object[] elements = source.toArray();
+            ParallelCloneSupport.cloneElements(elements, elements, parentContext, referencesToReuse, stackDepth);
+            for (int i = 0; i < elements.length; i++) {
+                copy.add(elements[i]);
+            }
+            return (T) copy;
+        }
+
+        for (int i = 0; i < size; i++) {
+            copy.add(parentContext.clone(source.get(i), parentContext, referencesToReuse, stackDepth));
         }
         return (T) copy;
     }
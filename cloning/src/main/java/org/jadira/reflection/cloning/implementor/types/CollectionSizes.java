@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+/**
+ * Sizing calculations used to create copies of collections with the capacity they need
+ */
+final class CollectionSizes {
+
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    private CollectionSizes() {
+    }
+
+    /**
+     * The initial capacity for a hash based collection that must hold the given number of entries without rehashing
+     * @param size The number of entries
+     * @return The initial capacity
+     */
+    static int hashCapacity(int size) {
+        return (int) (size / DEFAULT_LOAD_FACTOR) + 1;
+    }
+}
@@ -15,12 +15,12 @@
  */
 package org.jadira.reflection.cloning.implementor.types;
 
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
 
 /**
  * A Clone Implementor that can handle ConcurrentHashMap
@@ -29,13 +29,19 @@ public class ConcurrentHashMapImplementor implements CloneImplementor {
     
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public <T> T clone(T obj, CloneDriver parentContext, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
         
     	stackDepth++;
     	
         final ConcurrentHashMap<Object, Object> source = (ConcurrentHashMap) obj;
         
-        final ConcurrentHashMap copy = new ConcurrentHashMap();
+        final ConcurrentHashMap copy = new ConcurrentHashMap(CollectionSizes.hashCapacity(source.size()));
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+
+        if (ParallelCloneSupport.isParallel(parentContext, source.size())) {
+            ParallelCloneSupport.cloneEntries(source, copy, parentContext, referencesToReuse, stackDepth);
+            return (T) copy;
+        }
         
         for (final Map.Entry e : source.entrySet()) {
             final Object key = parentContext.clone(e.getKey(), parentContext, referencesToReuse, stackDepth);
@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
+
+/**
+ * A Clone Implementor that can handle CopyOnWriteArrayList
+ */
+public class CopyOnWriteArrayListImplementor implements CloneImplementor {
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+        stackDepth++;
+
+        final CopyOnWriteArrayList source = (CopyOnWriteArrayList)obj;
+
+        // Clone a snapshot of the backing array, avoiding a copy of the array for each element added
+        final Object[] elements = source.toArray();
+        ParallelCloneSupport.cloneElements(elements, elements, parentContext, referencesToReuse, stackDepth);
+        return (T) new CopyOnWriteArrayList(elements);
+    }
+
+    @Override
+    public boolean canClone(Class<?> clazz) {
+        return CopyOnWriteArrayList.class.equals(clazz);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public <T> T newInstance(Class<T> c) {
+        if (canClone(c)) {
+            return (T) new CopyOnWriteArrayList();
+        } else {
+            throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
+
+/**
+ * A Clone Implementor that can handle EnumMap. As enum keys are immutable, the copy is created
+ * from the source - copying its backing array - and only the values are then cloned.
+ */
+public class EnumMapImplementor implements CloneImplementor {
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+        stackDepth++;
+
+        final EnumMap copy = new EnumMap((EnumMap) obj);
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+
+        for (final Object next : copy.entrySet()) {
+            final Map.Entry e = (Map.Entry) next;
+            e.setValue(parentContext.clone(e.getValue(), parentContext, referencesToReuse, stackDepth));
+        }
+        return (T) copy;
+    }
+
+    @Override
+    public boolean canClone(Class<?> clazz) {
+        return EnumMap.class.equals(clazz);
+    }
+
+    @Override
+    public <T> T newInstance(Class<T> c) {
+        // An EnumMap cannot be created without its key type
+        throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+
+/**
+ * A Clone Implementor that can handle the implementations of EnumSet. As enums are immutable the
+ * copy is made using {@link EnumSet#clone()}, which copies the underlying bit vector.
+ */
+public class EnumSetImplementor implements CloneImplementor {
+
+    /**
+     * The implementations used by EnumSet, for enums with up to 64 and more than 64 constants
+     */
+    private static final String[] ENUM_SET_CLASS_NAMES = new String[] { "java.util.RegularEnumSet", "java.util.JumboEnumSet" };
+
+    private static final Class<?>[] SUPPORTED_CLASSES;
+
+    static {
+        final List<Class<?>> supported = new ArrayList<Class<?>>();
+        for (String next : ENUM_SET_CLASS_NAMES) {
+            try {
+                supported.add(Class.forName(next));
+            } catch (ClassNotFoundException e) {
+                // Not present in this JDK
+            }
+        }
+        SUPPORTED_CLASSES = supported.toArray(new Class<?>[supported.size()]);
+    }
+
+    /**
+     * The concrete EnumSet classes handled by this implementor
+     * @return The classes available in this JDK
+     */
+    public static Class<?>[] getSupportedClasses() {
+        return SUPPORTED_CLASSES.clone();
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
+        return (T) ((EnumSet) obj).clone();
+    }
+
+    @Override
+    public boolean canClone(Class<?> clazz) {
+        for (Class<?> next : SUPPORTED_CLASSES) {
+            if (next.equals(clazz)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public <T> T newInstance(Class<T> c) {
+        // An EnumSet cannot be created without its element type
+        throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+    }
+}
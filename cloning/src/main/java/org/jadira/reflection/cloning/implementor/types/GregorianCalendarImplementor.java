@@ -16,7 +16,7 @@
 package org.jadira.reflection.cloning.implementor.types;
 
 import java.util.GregorianCalendar;
-import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
@@ -28,7 +28,7 @@ public class GregorianCalendarImplementor implements CloneImplementor {
     
     @SuppressWarnings("unchecked")
     @Override
-    public <T> T clone(T obj, CloneDriver parentContext, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
     	
         final GregorianCalendar gc = new GregorianCalendar();
         gc.setTimeInMillis(((GregorianCalendar) obj).getTimeInMillis());
@@ -16,11 +16,11 @@
 package org.jadira.reflection.cloning.implementor.types;
 
 import java.util.HashMap;
-import java.util.IdentityHashMap;
 import java.util.Map;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
 
 /**
  * A Clone Implementor that can handle HashMap
@@ -29,13 +29,19 @@ public class HashMapImplementor implements CloneImplementor {
     
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public <T> T clone(T obj, CloneDriver parentContext, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
         
     	stackDepth++;
     	
         final HashMap<Object, Object> source = (HashMap) obj;
 
-        final HashMap copy = new HashMap();
+        final HashMap copy = new HashMap(CollectionSizes.hashCapacity(source.size()));
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+
+        if (ParallelCloneSupport.isParallel(parentContext, source.size())) {
+            ParallelCloneSupport.cloneEntries(source, copy, parentContext, referencesToReuse, stackDepth);
+            return (T) copy;
+        }
         
         for (final Map.Entry e : source.entrySet()) {
             final Object key = parentContext.clone(e.getKey(), parentContext, referencesToReuse, stackDepth);
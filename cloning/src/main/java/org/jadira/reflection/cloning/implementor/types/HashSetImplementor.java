@@ -15,11 +15,13 @@
  */
 package org.jadira.reflection.cloning.implementor.types;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.IdentityHashMap;
+import java.util.Map;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
 
 /**
  * A Clone Implementor that can handle HashSet
@@ -28,13 +30,22 @@ public class HashSetImplementor implements CloneImplementor {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public <T> T clone(T obj, CloneDriver parentContext, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
 
     	stackDepth++;
     	
         final HashSet source = (HashSet)obj;
         
-        final HashSet copy = new HashSet();
+        final HashSet copy = new HashSet(CollectionSizes.hashCapacity(source.size()));
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+
+        if (ParallelCloneSupport.isParallel(parentContext, source.size())) {
+            final Object[] elements = source.toArray();
+            ParallelCloneSupport.cloneElements(elements, elements, parentContext, referencesToReuse, stackDepth);
+            copy.addAll(Arrays.asList(elements));
+            return (T) copy;
+        }
+
         for (final Object o : source) {
             final Object childCopy = parentContext.clone(o, parentContext, referencesToReuse, stackDepth);
             copy.add(childCopy);
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
+
+/**
+ * A Clone Implementor that can handle IdentityHashMap
+ */
+public class IdentityHashMapImplementor implements CloneImplementor {
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+        stackDepth++;
+
+        final IdentityHashMap<Object, Object> source = (IdentityHashMap) obj;
+
+        // IdentityHashMap sizes itself for the expected number of entries
+        final IdentityHashMap copy = new IdentityHashMap(source.size());
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+
+        if (ParallelCloneSupport.isParallel(parentContext, source.size())) {
+            ParallelCloneSupport.cloneEntries(source, copy, parentContext, referencesToReuse, stackDepth);
+            return (T) copy;
+        }
+
+        for (final Map.Entry e : source.entrySet()) {
+            final Object key = parentContext.clone(e.getKey(), parentContext, referencesToReuse, stackDepth);
+            final Object value = parentContext.clone(e.getValue(), parentContext, referencesToReuse, stackDepth);
+
+            copy.put(key, value);
+        }
+        return (T) copy;
+    }
+
+    @Override
+    public boolean canClone(Class<?> clazz) {
+        return IdentityHashMap.class.equals(clazz);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public <T> T newInstance(Class<T> c) {
+        if (canClone(c)) {
+            return (T) new IdentityHashMap();
+        } else {
+            throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+        }
+    }
+}
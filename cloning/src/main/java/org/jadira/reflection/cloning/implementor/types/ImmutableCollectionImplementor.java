@@ -0,0 +1,203 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
+
+/**
+ * A Clone Implementor that can handle the immutable collections of the JDK - the empty and singleton
+ * collections provided by {@link Collections} and, when running on Java 9 or later, the collections
+ * created by List.of(), Set.of() and Map.of(). Empty collections are returned as is. Otherwise the
+ * elements are cloned and, if every element is returned unchanged because it is itself immutable, the
+ * source collection is returned rather than a copy.
+ * <p>
+ * The unmodifiable views returned by Collections.unmodifiableList() and similar methods are not handled,
+ * as the collections they wrap may be mutable.
+ */
+public class ImmutableCollectionImplementor implements CloneImplementor {
+
+    private enum Kind {
+        EMPTY, SINGLETON_LIST, SINGLETON_SET, SINGLETON_MAP, LIST, SET, MAP
+    }
+
+    private static final Map<Class<?>, Kind> KINDS = new HashMap<Class<?>, Kind>();
+
+    private static final MethodHandle LIST_OF;
+
+    private static final MethodHandle SET_OF;
+
+    private static final MethodHandle MAP_OF_ENTRIES;
+
+    static {
+        KINDS.put(Collections.emptyList().getClass(), Kind.EMPTY);
+        KINDS.put(Collections.emptySet().getClass(), Kind.EMPTY);
+        KINDS.put(Collections.emptyMap().getClass(), Kind.EMPTY);
+        KINDS.put(Collections.singletonList(null).getClass(), Kind.SINGLETON_LIST);
+        KINDS.put(Collections.singleton(null).getClass(), Kind.SINGLETON_SET);
+        KINDS.put(Collections.singletonMap(null, null).getClass(), Kind.SINGLETON_MAP);
+
+        MethodHandle listOf = null;
+        MethodHandle setOf = null;
+        MethodHandle mapOfEntries = null;
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            final MethodType type = MethodType.methodType(Object.class, Object[].class);
+            listOf = lookup.findStatic(List.class, "of", MethodType.methodType(List.class, Object[].class)).asFixedArity().asType(type);
+            setOf = lookup.findStatic(Set.class, "of", MethodType.methodType(Set.class, Object[].class)).asFixedArity().asType(type);
+            mapOfEntries = lookup.findStatic(Map.class, "ofEntries", MethodType.methodType(Map.class, Map.Entry[].class)).asFixedArity().asType(type);
+
+            putKind("java.util.ImmutableCollections$List12", Kind.LIST);
+            putKind("java.util.ImmutableCollections$ListN", Kind.LIST);
+            putKind("java.util.ImmutableCollections$SubList", Kind.LIST);
+            putKind("java.util.ImmutableCollections$Set12", Kind.SET);
+            putKind("java.util.ImmutableCollections$SetN", Kind.SET);
+            putKind("java.util.ImmutableCollections$Map1", Kind.MAP);
+            putKind("java.util.ImmutableCollections$MapN", Kind.MAP);
+        } catch (NoSuchMethodException e) {
+            // Prior to Java 9
+        } catch (IllegalAccessException e) {
+            // Prior to Java 9
+        }
+        LIST_OF = listOf;
+        SET_OF = setOf;
+        MAP_OF_ENTRIES = mapOfEntries;
+    }
+
+    private static void putKind(String className, Kind kind) {
+        try {
+            KINDS.put(Class.forName(className), kind);
+        } catch (ClassNotFoundException e) {
+            // Not present in this JDK
+        }
+    }
+
+    /**
+     * The concrete collection classes handled by this implementor
+     * @return The classes available in this JDK
+     */
+    public static Class<?>[] getSupportedClasses() {
+        return KINDS.keySet().toArray(new Class<?>[KINDS.size()]);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+        stackDepth++;
+
+        final Kind kind = KINDS.get(obj.getClass());
+        if (kind == Kind.EMPTY) {
+            return obj;
+        }
+
+        final Object[] source;
+        if (obj instanceof Map) {
+            final Map<?, ?> map = (Map) obj;
+            source = new Object[map.size() * 2];
+            int i = 0;
+            for (Map.Entry<?, ?> next : map.entrySet()) {
+                source[i++] = next.getKey();
+                source[i++] = next.getValue();
+            }
+        } else {
+            source = ((Collection) obj).toArray();
+        }
+
+        final Object[] copy = new Object[source.length];
+        ParallelCloneSupport.cloneElements(source, copy, parentContext, referencesToReuse, stackDepth);
+
+        if (isUnchanged(source, copy)) {
+            return obj;
+        }
+
+        switch (kind) {
+        case SINGLETON_LIST:
+            return (T) Collections.singletonList(copy[0]);
+        case SINGLETON_SET:
+            return (T) Collections.singleton(copy[0]);
+        case SINGLETON_MAP:
+            return (T) Collections.singletonMap(copy[0], copy[1]);
+        case LIST:
+            // Lists created by Stream.toList() may contain null, which List.of() rejects
+            return (T) (containsNull(copy) ? Collections.unmodifiableList(Arrays.asList(copy)) : invoke(LIST_OF, copy));
+        case SET:
+            return (T) invoke(SET_OF, copy);
+        case MAP:
+            final Object[] entries = new Map.Entry[copy.length / 2];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = new AbstractMap.SimpleImmutableEntry(copy[i * 2], copy[i * 2 + 1]);
+            }
+            return (T) invoke(MAP_OF_ENTRIES, entries);
+        default:
+            throw new IllegalStateException("Cannot clone: " + obj.getClass().getName());
+        }
+    }
+
+    private static boolean isUnchanged(Object[] source, Object[] copy) {
+        for (int i = 0; i < source.length; i++) {
+            if (source[i] != copy[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsNull(Object[] elements) {
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i] == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object invoke(MethodHandle factory, Object[] elements) {
+        try {
+            return (Object) factory.invokeExact(elements);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create immutable collection: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean canClone(Class<?> clazz) {
+        return KINDS.containsKey(clazz);
+    }
+
+    @Override
+    public <T> T newInstance(Class<T> c) {
+        // Immutable collections are created with their contents
+        throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
+
+/**
+ * A Clone Implementor that can handle LinkedHashMap. The copy retains the iteration order of the
+ * source and its ordering mode. If the accessOrder flag of LinkedHashMap cannot be read, cloning
+ * fails with an IllegalStateException rather than silently producing an insertion ordered copy.
+ */
+public class LinkedHashMapImplementor implements CloneImplementor {
+
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    private static final Field ACCESS_ORDER_FIELD;
+
+    private static final RuntimeException ACCESS_ORDER_FAILURE;
+
+    static {
+        Field accessOrderField = null;
+        RuntimeException accessOrderFailure = null;
+        try {
+            accessOrderField = LinkedHashMap.class.getDeclaredField("accessOrder");
+            accessOrderField.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            accessOrderField = null;
+            accessOrderFailure = new IllegalStateException("LinkedHashMap does not declare accessOrder", e);
+        } catch (RuntimeException e) {
+            accessOrderField = null;
+            accessOrderFailure = new IllegalStateException("Cannot access accessOrder of LinkedHashMap: " + e.getMessage(), e);
+        }
+        ACCESS_ORDER_FIELD = accessOrderField;
+        ACCESS_ORDER_FAILURE = accessOrderFailure;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+        stackDepth++;
+
+        final LinkedHashMap<Object, Object> source = (LinkedHashMap) obj;
+
+        final LinkedHashMap copy = new LinkedHashMap(CollectionSizes.hashCapacity(source.size()), DEFAULT_LOAD_FACTOR, isAccessOrder(source));
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+
+        if (ParallelCloneSupport.isParallel(parentContext, source.size())) {
+            ParallelCloneSupport.cloneEntries(source, copy, parentContext, referencesToReuse, stackDepth);
+            return (T) copy;
+        }
+
+        for (final Map.Entry e : source.entrySet()) {
+            final Object key = parentContext.clone(e.getKey(), parentContext, referencesToReuse, stackDepth);
+            final Object value = parentContext.clone(e.getValue(), parentContext, referencesToReuse, stackDepth);
+
+            copy.put(key, value);
+        }
+        return (T) copy;
+    }
+
+    private static boolean isAccessOrder(LinkedHashMap<?, ?> map) {
+        if (ACCESS_ORDER_FIELD == null) {
+            throw new IllegalStateException("Cannot clone LinkedHashMap without its accessOrder", ACCESS_ORDER_FAILURE);
+        }
+        try {
+            return ACCESS_ORDER_FIELD.getBoolean(map);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read accessOrder of LinkedHashMap", e);
+        }
+    }
+
+    @Override
+    public boolean canClone(Class<?> clazz) {
+        return LinkedHashMap.class.equals(clazz);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public <T> T newInstance(Class<T> c) {
+        if (canClone(c)) {
+            return (T) new LinkedHashMap();
+        } else {
+            throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+        }
+    }
+}
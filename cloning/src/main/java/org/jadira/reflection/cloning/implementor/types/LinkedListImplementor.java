@@ -15,11 +15,12 @@
  */
 package org.jadira.reflection.cloning.implementor.types;
 
-import java.util.IdentityHashMap;
 import java.util.LinkedList;
+import java.util.Map;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
 
 /**
  * A Clone Implementor that can handle LinkedList
@@ -28,13 +29,14 @@ public class LinkedListImplementor implements CloneImplementor {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public <T> T clone(T obj, CloneDriver parentContext, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
         
     	stackDepth++;
     	
         final LinkedList source = (LinkedList)obj;
         
         final LinkedList copy = new LinkedList();
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
         for (final Object o : source) {
             final Object childCopy = parentContext.clone(o, parentContext, referencesToReuse, stackDepth);
             copy.add(childCopy);
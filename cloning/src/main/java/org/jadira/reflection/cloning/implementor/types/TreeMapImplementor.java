@@ -15,12 +15,12 @@
  */
 package org.jadira.reflection.cloning.implementor.types;
 
-import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
 import org.jadira.reflection.cloning.api.CloneDriver;
 import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
 
 /**
  * A Clone Implementor that can handle TreeMap
@@ -29,13 +29,14 @@ public class TreeMapImplementor implements CloneImplementor {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public <T> T clone(T obj, CloneDriver parentContext, IdentityHashMap<Object, Object> referencesToReuse, long stackDepth) {
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
         
     	stackDepth++;
     	
         final TreeMap<Object, Object> source = (TreeMap)obj;
         
         final TreeMap copy = new TreeMap(source.comparator());
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
         
         for (final Map.Entry e : source.entrySet()) {
             final Object key = parentContext.clone(e.getKey(), parentContext, referencesToReuse, stackDepth);
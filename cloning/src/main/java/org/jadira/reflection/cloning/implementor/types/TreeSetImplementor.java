@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.implementor.types;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.jadira.reflection.cloning.api.CloneDriver;
+import org.jadira.reflection.cloning.api.CloneImplementor;
+import org.jadira.reflection.cloning.implementor.ParallelCloneSupport;
+
+/**
+ * A Clone Implementor that can handle TreeSet
+ */
+public class TreeSetImplementor implements CloneImplementor {
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <T> T clone(T obj, CloneDriver parentContext, Map<Object, Object> referencesToReuse, long stackDepth) {
+
+        stackDepth++;
+
+        final TreeSet source = (TreeSet)obj;
+
+        final TreeSet copy = new TreeSet(source.comparator());
+        ParallelCloneSupport.publishCopy(obj, copy, referencesToReuse);
+
+        final Object[] elements = source.toArray();
+        ParallelCloneSupport.cloneElements(elements, elements, parentContext, referencesToReuse, stackDepth);
+
+        // The copies sort as their sources do, so the tree is built in linear time from the sorted elements
+        copy.addAll(new SortedElements(elements, source.comparator()));
+        return (T) copy;
+    }
+
+    @Override
+    public boolean canClone(Class<?> clazz) {
+        return TreeSet.class.equals(clazz);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    @Override
+    public <T> T newInstance(Class<T> c) {
+        if (canClone(c)) {
+            return (T) new TreeSet();
+        } else {
+            throw new IllegalStateException("Cannot create new instance for: " + c.getName());
+        }
+    }
+
+    /**
+     * Presents already sorted elements as a SortedSet. TreeSet.addAll recognises a SortedSet with the
+     * same comparator when the TreeSet is empty, and builds its tree directly from the iterator
+     * rather than inserting each element in turn. Only the methods needed for this are supported.
+     */
+    private static final class SortedElements extends AbstractSet<Object> implements SortedSet<Object> {
+
+        private final Object[] elements;
+
+        private final Comparator<Object> comparator;
+
+        SortedElements(Object[] elements, Comparator<Object> comparator) {
+            this.elements = elements;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            return Arrays.asList(elements).iterator();
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+
+        @Override
+        public Comparator<Object> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public Object first() {
+            if (elements.length == 0) {
+                throw new NoSuchElementException();
+            }
+            return elements[0];
+        }
+
+        @Override
+        public Object last() {
+            if (elements.length == 0) {
+                throw new NoSuchElementException();
+            }
+            return elements[elements.length - 1];
+        }
+
+        @Override
+        public SortedSet<Object> subSet(Object fromElement, Object toElement) {
+            throw new UnsupportedOperationException("Views are not supported");
+        }
+
+        @Override
+        public SortedSet<Object> headSet(Object toElement) {
+            throw new UnsupportedOperationException("Views are not supported");
+        }
+
+        @Override
+        public SortedSet<Object> tailSet(Object fromElement) {
+            throw new UnsupportedOperationException("Views are not supported");
+        }
+    }
+}
@@ -0,0 +1,599 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Reads the bytecode of a class to determine whether its private state is only ever reached through
+ * the instance that owns it. A lazy clone proxy is populated when one of its methods is invoked, so
+ * code that reads or writes the fields of another instance of the class directly, for example
+ * {@code ((Foo) that).id} within equals(), or that invokes a private method on another instance,
+ * would see an unpopulated proxy. Classes that call getClass() are also rejected, as the proxy is a
+ * subclass and comparisons of classes would differ between a proxy and its source. <br>
+ *
+ * The operand stack is tracked to find the receiver of each field access and method invocation. Where
+ * the receiver cannot be shown to be {@code this} the class is treated as not encapsulated.
+ */
+final class EncapsulationScanner extends ClassVisitor {
+
+	/**
+	 * From Java 11 nest mates access each other's private members directly rather than via synthetic
+	 * accessor methods
+	 */
+	private static final int V11 = 55;
+
+	private final String classNm;
+
+	private final Set<String> privateMethods = new HashSet<String>();
+
+	private boolean encapsulated = true;
+
+	private int version;
+
+	private EncapsulationScanner(Class<?> clazz) {
+		super(Opcodes.ASM4);
+		this.classNm = Type.getInternalName(clazz);
+		for (Method next : clazz.getDeclaredMethods()) {
+			if (Modifier.isPrivate(next.getModifiers()) && !Modifier.isStatic(next.getModifiers())) {
+				privateMethods.add(next.getName() + Type.getMethodDescriptor(next));
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether the fields and private methods of the given class are only used by code
+	 * acting on the instance that owns them. The superclasses of the class are not examined.
+	 * @param clazz The class to examine
+	 * @return True if the state of the class is encapsulated, false if it is not or if the class file
+	 * could not be read
+	 */
+	static boolean isEncapsulated(Class<?> clazz) {
+
+		final ClassLoader loader = clazz.getClassLoader();
+		final InputStream classFile = loader == null ? null : loader.getResourceAsStream(Type.getInternalName(clazz) + ".class");
+		if (classFile == null) {
+			return false;
+		}
+
+		try {
+			final EncapsulationScanner scanner = new EncapsulationScanner(clazz);
+			new ClassReader(classFile).accept(scanner, ClassReader.EXPAND_FRAMES);
+			return scanner.encapsulated;
+		} catch (IOException e) {
+			return false;
+		} catch (RuntimeException e) {
+			// The class file uses features that the version of ASM in use cannot read
+			return false;
+		} finally {
+			try {
+				classFile.close();
+			} catch (IOException e) {
+				// Ignore
+			}
+		}
+	}
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+
+		this.version = version & 0xFFFF;
+		if (this.version < Opcodes.V1_6) {
+			// Without stack map frames the stack cannot be followed across branches
+			encapsulated = false;
+		}
+	}
+
+	@Override
+	public void visitInnerClass(String name, String outerName, String innerName, int access) {
+
+		if (version >= V11 && (name.equals(classNm) || name.startsWith(classNm + "$"))) {
+			encapsulated = false;
+		}
+	}
+
+	@Override
+	public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+		return encapsulated ? new ReceiverTrackingMethodVisitor((access & Opcodes.ACC_STATIC) != 0) : null;
+	}
+
+	/**
+	 * Follows which values on the operand stack are {@code this}
+	 */
+	private final class ReceiverTrackingMethodVisitor extends MethodVisitor {
+
+		private final boolean staticMethod;
+
+		private boolean[] stack = new boolean[16];
+
+		private int size;
+
+		private boolean reachable = true;
+
+		ReceiverTrackingMethodVisitor(boolean staticMethod) {
+			super(Opcodes.ASM4);
+			this.staticMethod = staticMethod;
+		}
+
+		@Override
+		public void visitFrame(int type, int nLocal, Object[] local, int nStack, Object[] frameStack) {
+
+			size = 0;
+			for (int i = 0; i < nStack; i++) {
+				if (frameStack[i] == Opcodes.LONG || frameStack[i] == Opcodes.DOUBLE) {
+					push(false, 2);
+				} else {
+					push(frameStack[i] == Opcodes.UNINITIALIZED_THIS, 1);
+				}
+			}
+			reachable = true;
+		}
+
+		@Override
+		public void visitInsn(int opcode) {
+
+			if (!enter()) {
+				return;
+			}
+
+			switch (opcode) {
+			case Opcodes.NOP:
+				break;
+			case Opcodes.ACONST_NULL:
+			case Opcodes.ICONST_M1:
+			case Opcodes.ICONST_0:
+			case Opcodes.ICONST_1:
+			case Opcodes.ICONST_2:
+			case Opcodes.ICONST_3:
+			case Opcodes.ICONST_4:
+			case Opcodes.ICONST_5:
+			case Opcodes.FCONST_0:
+			case Opcodes.FCONST_1:
+			case Opcodes.FCONST_2:
+				push(false, 1);
+				break;
+			case Opcodes.LCONST_0:
+			case Opcodes.LCONST_1:
+			case Opcodes.DCONST_0:
+			case Opcodes.DCONST_1:
+				push(false, 2);
+				break;
+			case Opcodes.IALOAD:
+			case Opcodes.FALOAD:
+			case Opcodes.AALOAD:
+			case Opcodes.BALOAD:
+			case Opcodes.CALOAD:
+			case Opcodes.SALOAD:
+				apply(2, 1);
+				break;
+			case Opcodes.LALOAD:
+			case Opcodes.DALOAD:
+				apply(2, 2);
+				break;
+			case Opcodes.IASTORE:
+			case Opcodes.FASTORE:
+			case Opcodes.AASTORE:
+			case Opcodes.BASTORE:
+			case Opcodes.CASTORE:
+			case Opcodes.SASTORE:
+				apply(3, 0);
+				break;
+			case Opcodes.LASTORE:
+			case Opcodes.DASTORE:
+				apply(4, 0);
+				break;
+			case Opcodes.POP:
+			case Opcodes.MONITORENTER:
+			case Opcodes.MONITOREXIT:
+				apply(1, 0);
+				break;
+			case Opcodes.POP2:
+				apply(2, 0);
+				break;
+			case Opcodes.DUP:
+				duplicate(1, 0);
+				break;
+			case Opcodes.DUP_X1:
+				duplicate(1, 1);
+				break;
+			case Opcodes.DUP_X2:
+				duplicate(1, 2);
+				break;
+			case Opcodes.DUP2:
+				duplicate(2, 0);
+				break;
+			case Opcodes.DUP2_X1:
+				duplicate(2, 1);
+				break;
+			case Opcodes.DUP2_X2:
+				duplicate(2, 2);
+				break;
+			case Opcodes.SWAP:
+				if (size >= 2) {
+					final boolean top = stack[size - 1];
+					stack[size - 1] = stack[size - 2];
+					stack[size - 2] = top;
+				} else {
+					encapsulated = false;
+				}
+				break;
+			case Opcodes.IADD:
+			case Opcodes.ISUB:
+			case Opcodes.IMUL:
+			case Opcodes.IDIV:
+			case Opcodes.IREM:
+			case Opcodes.ISHL:
+			case Opcodes.ISHR:
+			case Opcodes.IUSHR:
+			case Opcodes.IAND:
+			case Opcodes.IOR:
+			case Opcodes.IXOR:
+			case Opcodes.FADD:
+			case Opcodes.FSUB:
+			case Opcodes.FMUL:
+			case Opcodes.FDIV:
+			case Opcodes.FREM:
+			case Opcodes.FCMPL:
+			case Opcodes.FCMPG:
+			case Opcodes.L2I:
+			case Opcodes.L2F:
+			case Opcodes.D2I:
+			case Opcodes.D2F:
+				apply(2, 1);
+				break;
+			case Opcodes.LADD:
+			case Opcodes.LSUB:
+			case Opcodes.LMUL:
+			case Opcodes.LDIV:
+			case Opcodes.LREM:
+			case Opcodes.LAND:
+			case Opcodes.LOR:
+			case Opcodes.LXOR:
+			case Opcodes.DADD:
+			case Opcodes.DSUB:
+			case Opcodes.DMUL:
+			case Opcodes.DDIV:
+			case Opcodes.DREM:
+				apply(4, 2);
+				break;
+			case Opcodes.LSHL:
+			case Opcodes.LSHR:
+			case Opcodes.LUSHR:
+				apply(3, 2);
+				break;
+			case Opcodes.LCMP:
+			case Opcodes.DCMPL:
+			case Opcodes.DCMPG:
+				apply(4, 1);
+				break;
+			case Opcodes.INEG:
+			case Opcodes.FNEG:
+			case Opcodes.I2F:
+			case Opcodes.F2I:
+			case Opcodes.I2B:
+			case Opcodes.I2C:
+			case Opcodes.I2S:
+			case Opcodes.ARRAYLENGTH:
+				apply(1, 1);
+				break;
+			case Opcodes.LNEG:
+			case Opcodes.DNEG:
+			case Opcodes.L2D:
+			case Opcodes.D2L:
+				apply(2, 2);
+				break;
+			case Opcodes.I2L:
+			case Opcodes.I2D:
+			case Opcodes.F2L:
+			case Opcodes.F2D:
+				apply(1, 2);
+				break;
+			case Opcodes.IRETURN:
+			case Opcodes.LRETURN:
+			case Opcodes.FRETURN:
+			case Opcodes.DRETURN:
+			case Opcodes.ARETURN:
+			case Opcodes.RETURN:
+			case Opcodes.ATHROW:
+				unreachable();
+				break;
+			default:
+				encapsulated = false;
+			}
+		}
+
+		@Override
+		public void visitIntInsn(int opcode, int operand) {
+
+			if (!enter()) {
+				return;
+			}
+			if (opcode == Opcodes.NEWARRAY) {
+				apply(1, 1);
+			} else {
+				push(false, 1);
+			}
+		}
+
+		@Override
+		public void visitVarInsn(int opcode, int var) {
+
+			if (!enter()) {
+				return;
+			}
+
+			switch (opcode) {
+			case Opcodes.ALOAD:
+				push(var == 0 && !staticMethod, 1);
+				break;
+			case Opcodes.ILOAD:
+			case Opcodes.FLOAD:
+				push(false, 1);
+				break;
+			case Opcodes.LLOAD:
+			case Opcodes.DLOAD:
+				push(false, 2);
+				break;
+			case Opcodes.ASTORE:
+				if (var == 0 && !staticMethod) {
+					// Local zero no longer holds this
+					encapsulated = false;
+				}
+				apply(1, 0);
+				break;
+			case Opcodes.ISTORE:
+			case Opcodes.FSTORE:
+				apply(1, 0);
+				break;
+			case Opcodes.LSTORE:
+			case Opcodes.DSTORE:
+				apply(2, 0);
+				break;
+			default:
+				encapsulated = false;
+			}
+		}
+
+		@Override
+		public void visitTypeInsn(int opcode, String type) {
+
+			if (!enter()) {
+				return;
+			}
+
+			switch (opcode) {
+			case Opcodes.NEW:
+				push(false, 1);
+				break;
+			case Opcodes.CHECKCAST:
+				// A cast leaves the reference, and so whether it is this, unchanged
+				break;
+			default:
+				apply(1, 1);
+			}
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+
+			if (!enter()) {
+				return;
+			}
+
+			final int fieldSize = Type.getType(desc).getSize();
+			switch (opcode) {
+			case Opcodes.GETSTATIC:
+				push(false, fieldSize);
+				break;
+			case Opcodes.PUTSTATIC:
+				apply(fieldSize, 0);
+				break;
+			case Opcodes.GETFIELD:
+				checkReceiver(owner, 0);
+				apply(1, fieldSize);
+				break;
+			default:
+				checkReceiver(owner, fieldSize);
+				apply(fieldSize + 1, 0);
+			}
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String desc) {
+
+			if (!enter()) {
+				return;
+			}
+
+			final int sizes = Type.getArgumentsAndReturnSizes(desc);
+			final int argumentsSize = (sizes >> 2) - 1;
+			final int returnSize = sizes & 0x03;
+
+			if (opcode == Opcodes.INVOKESTATIC) {
+				apply(argumentsSize, returnSize);
+				return;
+			}
+			if ("getClass".equals(name) && "()Ljava/lang/Class;".equals(desc)) {
+				encapsulated = false;
+			}
+			if (!"<init>".equals(name) && privateMethods.contains(name + desc)) {
+				checkReceiver(owner, argumentsSize);
+			}
+			apply(argumentsSize + 1, returnSize);
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+
+			if (!enter()) {
+				return;
+			}
+
+			final int sizes = Type.getArgumentsAndReturnSizes(desc);
+			apply((sizes >> 2) - 1, sizes & 0x03);
+		}
+
+		@Override
+		public void visitJumpInsn(int opcode, Label label) {
+
+			if (!enter()) {
+				return;
+			}
+
+			switch (opcode) {
+			case Opcodes.GOTO:
+				unreachable();
+				break;
+			case Opcodes.IF_ICMPEQ:
+			case Opcodes.IF_ICMPNE:
+			case Opcodes.IF_ICMPLT:
+			case Opcodes.IF_ICMPGE:
+			case Opcodes.IF_ICMPGT:
+			case Opcodes.IF_ICMPLE:
+			case Opcodes.IF_ACMPEQ:
+			case Opcodes.IF_ACMPNE:
+				apply(2, 0);
+				break;
+			case Opcodes.JSR:
+				encapsulated = false;
+				break;
+			default:
+				apply(1, 0);
+			}
+		}
+
+		@Override
+		public void visitLdcInsn(Object cst) {
+
+			if (!enter()) {
+				return;
+			}
+			push(false, cst instanceof Long || cst instanceof Double ? 2 : 1);
+		}
+
+		@Override
+		public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+
+			if (enter()) {
+				apply(1, 0);
+				unreachable();
+			}
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+
+			if (enter()) {
+				apply(1, 0);
+				unreachable();
+			}
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(String desc, int dims) {
+
+			if (enter()) {
+				apply(dims, 1);
+			}
+		}
+
+		/**
+		 * Checks the class is still considered encapsulated, and that the stack is known for the next
+		 * instruction
+		 */
+		private boolean enter() {
+
+			if (encapsulated && !reachable) {
+				// Code following an unconditional branch must begin with a frame
+				encapsulated = false;
+			}
+			return encapsulated;
+		}
+
+		/**
+		 * Where the owner is the class being examined, the reference at the given depth below the top of
+		 * the stack must be this
+		 */
+		private void checkReceiver(String owner, int depth) {
+
+			if (classNm.equals(owner) && (size <= depth || !stack[size - depth - 1])) {
+				encapsulated = false;
+			}
+		}
+
+		private void apply(int popped, int pushed) {
+
+			if (size < popped) {
+				encapsulated = false;
+				return;
+			}
+			size -= popped;
+			push(false, pushed);
+		}
+
+		/**
+		 * Duplicates the top values of the stack, inserting the copy beneath the values below them
+		 * @param count The number of slots to duplicate
+		 * @param skipped The number of slots beneath those duplicated that the copy is placed below
+		 */
+		private void duplicate(int count, int skipped) {
+
+			if (size < count + skipped) {
+				encapsulated = false;
+				return;
+			}
+			final boolean[] copied = new boolean[count + skipped];
+			System.arraycopy(stack, size - count - skipped, copied, 0, count + skipped);
+			size -= count + skipped;
+			for (int i = skipped; i < count + skipped; i++) {
+				push(copied[i], 1);
+			}
+			for (int i = 0; i < count + skipped; i++) {
+				push(copied[i], 1);
+			}
+		}
+
+		private void push(boolean isThis, int slots) {
+
+			if (size + slots > stack.length) {
+				final boolean[] grown = new boolean[stack.length * 2 + slots];
+				System.arraycopy(stack, 0, grown, 0, size);
+				stack = grown;
+			}
+			for (int i = 0; i < slots; i++) {
+				stack[size++] = isThis;
+			}
+		}
+
+		private void unreachable() {
+			size = 0;
+			reachable = false;
+		}
+	}
+}
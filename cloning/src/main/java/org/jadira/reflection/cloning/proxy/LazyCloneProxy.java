@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.proxy;
+
+/**
+ * Implemented by the classes generated by {@link LazyCloneProxyFactory}. A proxy is a subclass of
+ * the class being cloned whose fields are populated from the source object the first time one of
+ * its methods is invoked.
+ */
+public interface LazyCloneProxy {
+
+	/**
+	 * Returns the state needed to populate the proxy
+	 * @return The LazyCloneState, or null if the proxy has already been populated
+	 */
+	LazyCloneState getLazyCloneState();
+
+	/**
+	 * Sets the state needed to populate the proxy
+	 * @param state The LazyCloneState, or null once the proxy has been populated
+	 */
+	void setLazyCloneState(LazyCloneState state);
+}
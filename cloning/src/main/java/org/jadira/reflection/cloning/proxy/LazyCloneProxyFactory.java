@@ -0,0 +1,278 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.proxy;
+
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACC_TRANSIENT;
+import static org.objectweb.asm.Opcodes.ACC_VOLATILE;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_7;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.classloader.AccessClassLoader;
+import org.jadira.reflection.core.misc.ClassUtils;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates {@link LazyCloneProxy} subclasses using ASM. Each overridable method of the proxied
+ * class is overridden so that the proxy is populated before the method of the proxied class is
+ * invoked. <br>
+ *
+ * A class can only be proxied where all of its state is reached via methods that can be
+ * intercepted. Final classes, JDK classes, classes with non-private instance fields and classes with
+ * final methods are not proxied. Nor are classes whose code reads or writes the fields of, or invokes
+ * private methods on, an instance other than {@code this} (as equals() commonly does), or which call
+ * getClass(), since a proxy is a subclass of the proxied class. These are found by examining the
+ * bytecode of the class and its superclasses using {@link EncapsulationScanner}.
+ */
+public final class LazyCloneProxyFactory {
+
+	private static final ConcurrentHashMap<Class<?>, Boolean> PROXYABLE_CLASSES = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	private static final ConcurrentHashMap<Class<?>, Class<?>> PROXY_CLASSES = new ConcurrentHashMap<Class<?>, Class<?>>();
+
+	private static final String STATE_FIELD_NAME = "jadira$lazyCloneState";
+
+	private static final String LAZY_CLONE_PROXY_NM = Type.getInternalName(LazyCloneProxy.class);
+
+	private static final String LAZY_CLONE_STATE_NM = Type.getInternalName(LazyCloneState.class);
+
+	private static final String LAZY_CLONE_STATE_DESC = Type.getDescriptor(LazyCloneState.class);
+
+	private LazyCloneProxyFactory() {
+	}
+
+	/**
+	 * Indicates whether instances of the given class can be represented by a lazy clone proxy
+	 * @param clazz The class
+	 * @return True if a proxy class can be generated
+	 */
+	public static boolean isProxyable(Class<?> clazz) {
+
+		Boolean proxyable = PROXYABLE_CLASSES.get(clazz);
+		if (proxyable == null) {
+			proxyable = Boolean.valueOf(determineProxyable(clazz));
+			PROXYABLE_CLASSES.putIfAbsent(clazz, proxyable);
+		}
+		return proxyable.booleanValue();
+	}
+
+	/**
+	 * Get the proxy class for the given class, generating it if necessary
+	 * @param clazz The class to be proxied
+	 * @param <C> The type of the class
+	 * @return The proxy class, a subclass of the given class implementing {@link LazyCloneProxy}
+	 */
+	public static <C> Class<? extends C> getProxyClass(Class<C> clazz) {
+
+		@SuppressWarnings("unchecked")
+		Class<? extends C> proxyClass = (Class<? extends C>) PROXY_CLASSES.get(clazz);
+		if (proxyClass != null) {
+			return proxyClass;
+		}
+
+		if (!isProxyable(clazz)) {
+			throw new IllegalStateException("Cannot generate lazy clone proxy for: " + clazz.getName());
+		}
+
+		String proxyClassName = clazz.getName() + LazyCloneProxy.class.getSimpleName();
+
+		Class<?> generatedClass;
+
+		AccessClassLoader loader = AccessClassLoader.get(clazz);
+		synchronized (loader) {
+			try {
+				generatedClass = loader.loadClass(proxyClassName);
+			} catch (ClassNotFoundException ignored) {
+
+				loader.registerClass(proxyClassName, generateProxyClass(clazz, proxyClassName.replace('.', '/')));
+				try {
+					generatedClass = loader.findClass(proxyClassName);
+				} catch (ClassNotFoundException e) {
+					throw new IllegalStateException("Lazy clone proxy class unexpectedly could not be found", e);
+				}
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		final Class<? extends C> result = (Class<? extends C>) generatedClass;
+		PROXY_CLASSES.putIfAbsent(clazz, result);
+		return result;
+	}
+
+	private static boolean determineProxyable(Class<?> clazz) {
+
+		if (clazz.isArray() || clazz.isPrimitive() || clazz.isInterface() || clazz.isEnum() || clazz.isSynthetic()
+				|| Modifier.isFinal(clazz.getModifiers()) || Modifier.isAbstract(clazz.getModifiers())) {
+			return false;
+		}
+		if (clazz.getClassLoader() == null || ClassUtils.isJdkImmutable(clazz) || ClassUtils.isWrapper(clazz)) {
+			return false;
+		}
+		final String name = clazz.getName();
+		if (name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("com.sun.")) {
+			return false;
+		}
+
+		for (Field next : ClassUtils.collectInstanceFields(clazz)) {
+			// Fields that can be read directly by other classes cannot be intercepted
+			if (!Modifier.isPrivate(next.getModifiers())) {
+				return false;
+			}
+		}
+
+		final List<Method> methods = collectInterceptedMethods(clazz);
+		if (methods == null || methods.isEmpty()) {
+			return false;
+		}
+
+		for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+			// Private fields read from another instance, for example within equals(), would bypass population
+			if (!EncapsulationScanner.isEncapsulated(current)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Collects the methods to be overridden by the proxy
+	 * @param clazz The proxied class
+	 * @return The methods, or null if the class has a method that cannot be intercepted
+	 */
+	private static List<Method> collectInterceptedMethods(Class<?> clazz) {
+
+		final List<Method> methods = new ArrayList<Method>();
+		final Set<String> seenSignatures = new HashSet<String>();
+
+		for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+			for (Method next : current.getDeclaredMethods()) {
+
+				final int modifiers = next.getModifiers();
+				if (Modifier.isStatic(modifiers) || Modifier.isPrivate(modifiers) || next.isSynthetic() || next.isBridge()) {
+					continue;
+				}
+				if (!seenSignatures.add(next.getName() + Type.getMethodDescriptor(next))) {
+					continue;
+				}
+				if (Modifier.isFinal(modifiers)) {
+					return null;
+				}
+				if (!Modifier.isPublic(modifiers) && !Modifier.isProtected(modifiers) && !packageName(current).equals(packageName(clazz))) {
+					return null;
+				}
+				if ("finalize".equals(next.getName()) && next.getParameterTypes().length == 0) {
+					continue;
+				}
+				methods.add(next);
+			}
+		}
+		return methods;
+	}
+
+	private static String packageName(Class<?> clazz) {
+		String name = clazz.getName();
+		int idx = name.lastIndexOf('.');
+		return idx == -1 ? "" : name.substring(0, idx);
+	}
+
+	private static byte[] generateProxyClass(Class<?> clazz, String proxyClassNm) {
+
+		final String clazzNm = Type.getInternalName(clazz);
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(V1_7, ACC_PUBLIC + ACC_SUPER, proxyClassNm, null, clazzNm, new String[] { LAZY_CLONE_PROXY_NM });
+
+		cw.visitField(ACC_PRIVATE + ACC_VOLATILE + ACC_TRANSIENT, STATE_FIELD_NAME, LAZY_CLONE_STATE_DESC, null, null).visitEnd();
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "getLazyCloneState", "()" + LAZY_CLONE_STATE_DESC, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, proxyClassNm, STATE_FIELD_NAME, LAZY_CLONE_STATE_DESC);
+		mv.visitInsn(ARETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PUBLIC, "setLazyCloneState", "(" + LAZY_CLONE_STATE_DESC + ")V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, proxyClassNm, STATE_FIELD_NAME, LAZY_CLONE_STATE_DESC);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(2, 2);
+		mv.visitEnd();
+
+		for (Method next : collectInterceptedMethods(clazz)) {
+			enhanceForInterceptedMethod(cw, proxyClassNm, clazzNm, next);
+		}
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void enhanceForInterceptedMethod(ClassWriter cw, String proxyClassNm, String clazzNm, Method method) {
+
+		final String methodDesc = Type.getMethodDescriptor(method);
+		final int access = method.getModifiers() & (ACC_PUBLIC | ACC_PROTECTED);
+
+		MethodVisitor mv = cw.visitMethod(access, method.getName(), methodDesc, null, null);
+		mv.visitCode();
+
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, proxyClassNm, STATE_FIELD_NAME, LAZY_CLONE_STATE_DESC);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESTATIC, LAZY_CLONE_STATE_NM, "populate", "(" + LAZY_CLONE_STATE_DESC + "Ljava/lang/Object;)V");
+
+		mv.visitVarInsn(ALOAD, 0);
+		int slot = 1;
+		for (Type next : Type.getArgumentTypes(method)) {
+			mv.visitVarInsn(next.getOpcode(ILOAD), slot);
+			slot += next.getSize();
+		}
+		mv.visitMethodInsn(INVOKESPECIAL, clazzNm, method.getName(), methodDesc);
+
+		final Type returnType = Type.getReturnType(method);
+		if (returnType.getSort() == Type.VOID) {
+			mv.visitInsn(RETURN);
+		} else {
+			mv.visitInsn(returnType.getOpcode(IRETURN));
+		}
+
+		mv.visitMaxs(Math.max(2, Math.max(slot, returnType.getSize())), slot);
+		mv.visitEnd();
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.proxy;
+
+import org.jadira.reflection.access.api.FieldAccess;
+import org.jadira.reflection.access.model.ClassModel;
+import org.jadira.reflection.access.model.FieldModel;
+import org.jadira.reflection.access.portable.PortableClassAccess;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
+import org.jadira.reflection.cloning.BasicCloner;
+import org.jadira.reflection.cloning.annotation.Cloneable;
+import org.jadira.reflection.cloning.api.NoCloneImplementor;
+import org.jadira.reflection.cloning.collection.FastIdentityHashMap;
+import org.jadira.reflection.core.platform.FeatureDetection;
+
+/**
+ * Tracks the proxies created for a single lazy clone. Proxies are populated shallowly: primitive
+ * fields are copied, references to objects that can themselves be proxied are replaced by new,
+ * unpopulated proxies, and all other references are deep cloned using the delegate
+ * {@link BasicCloner}. The references seen by the session are shared between all of these
+ * operations so that the shape of the graph is preserved.
+ */
+public class LazyCloneSession {
+
+	private static final boolean IS_UNSAFE_AVAILABLE = FeatureDetection.hasUnsafe();
+
+	private final BasicCloner delegate;
+
+	private final FastIdentityHashMap<Object, Object> references = new FastIdentityHashMap<Object, Object>();
+
+	/**
+	 * Creates a new session
+	 * @param delegate The BasicCloner used to create proxy instances and to clone objects that cannot
+	 * be proxied
+	 */
+	public LazyCloneSession(BasicCloner delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * Indicates whether the given object will be copied using a proxy
+	 * @param obj The object
+	 * @return True if a proxy can be used
+	 */
+	public boolean isProxied(Object obj) {
+
+		final Class<?> clazz = obj.getClass();
+		if (!LazyCloneProxyFactory.isProxyable(clazz)) {
+			return false;
+		}
+		if (delegate.getImmutableClasses().contains(clazz) || delegate.getNonCloneableClasses().contains(clazz) || delegate.isImmutableInstance(obj)) {
+			return false;
+		}
+		if (delegate.getImplementor(clazz) != null) {
+			return false;
+		}
+		final Cloneable cloneable = clazz.getAnnotation(Cloneable.class);
+		if (cloneable != null && !NoCloneImplementor.class.equals(cloneable.implementor())) {
+			return false;
+		}
+		final ClassModel<?> model = getClassModel(clazz);
+		return !model.isDetectedAsImmutable() && !model.isNonCloneable() && model.getCloneImplementor() == null;
+	}
+
+	/**
+	 * Returns an unpopulated proxy for the given source object, creating it if necessary
+	 * @param source The object to be copied. This must be an object for which {@link #isProxied(Object)}
+	 * is true.
+	 * @param <T> The type of the object
+	 * @return The proxy
+	 */
+	public synchronized <T> T getProxy(T source) {
+
+		@SuppressWarnings("unchecked")
+		T proxy = (T) references.get(source);
+		if (proxy == null) {
+			@SuppressWarnings("unchecked")
+			final Class<T> sourceClass = (Class<T>) source.getClass();
+			proxy = delegate.newInstance(LazyCloneProxyFactory.getProxyClass(sourceClass));
+			((LazyCloneProxy) proxy).setLazyCloneState(new LazyCloneState(this, source));
+			references.put(source, proxy);
+		}
+		return proxy;
+	}
+
+	/**
+	 * Copies the given object as a root of this session. Objects that can be proxied are copied as a
+	 * proxy which is populated immediately; other objects are deep cloned. If the object has already
+	 * been seen by the session the existing copy is returned.
+	 * @param obj The object to copy, may be null
+	 * @param <T> The type of the object
+	 * @return The copy
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T> T copy(T obj) {
+
+		final T copy = (T) copyReference(obj);
+		if (copy instanceof LazyCloneProxy) {
+			populate((LazyCloneProxy) copy);
+		}
+		return copy;
+	}
+
+	/**
+	 * Populates the given proxy from its source object. If the proxy has already been populated
+	 * this method does nothing.
+	 * @param proxy The proxy
+	 */
+	public synchronized void populate(LazyCloneProxy proxy) {
+
+		final LazyCloneState state = proxy.getLazyCloneState();
+		if (state == null) {
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		final ClassModel<Object> model = (ClassModel<Object>) getClassModel(state.getSource().getClass());
+
+		ClassModel<? super Object> classModelInHierarchy = model;
+		while (classModelInHierarchy != null) {
+			for (FieldModel<? super Object> f : classModelInHierarchy.getModelFields()) {
+				populateField(state.getSource(), proxy, f);
+			}
+			classModelInHierarchy = classModelInHierarchy.getSuperClassModel();
+		}
+
+		// Writing the volatile field last publishes the populated fields
+		proxy.setLazyCloneState(null);
+	}
+
+	private void populateField(Object source, Object proxy, FieldModel<Object> f) {
+
+		if ((!delegate.isCloneTransientFields() && f.isTransientField()) || (!delegate.isCloneTransientAnnotatedFields() && f.isTransientAnnotatedField())) {
+			// The proxy was allocated without running a constructor so already holds the default value
+			return;
+		}
+
+		final FieldAccess<Object> fieldAccess = f.getFieldAccess();
+		final Class<?> type = f.getFieldClass();
+
+		if (java.lang.Boolean.TYPE == type) {
+			fieldAccess.putBooleanValue(proxy, fieldAccess.getBooleanValue(source));
+		} else if (java.lang.Byte.TYPE == type) {
+			fieldAccess.putByteValue(proxy, fieldAccess.getByteValue(source));
+		} else if (java.lang.Character.TYPE == type) {
+			fieldAccess.putCharValue(proxy, fieldAccess.getCharValue(source));
+		} else if (java.lang.Short.TYPE == type) {
+			fieldAccess.putShortValue(proxy, fieldAccess.getShortValue(source));
+		} else if (java.lang.Integer.TYPE == type) {
+			fieldAccess.putIntValue(proxy, fieldAccess.getIntValue(source));
+		} else if (java.lang.Long.TYPE == type) {
+			fieldAccess.putLongValue(proxy, fieldAccess.getLongValue(source));
+		} else if (java.lang.Float.TYPE == type) {
+			fieldAccess.putFloatValue(proxy, fieldAccess.getFloatValue(source));
+		} else if (java.lang.Double.TYPE == type) {
+			fieldAccess.putDoubleValue(proxy, fieldAccess.getDoubleValue(source));
+		} else if (!delegate.isCloneSyntheticFields() && f.isSynthetic()) {
+			fieldAccess.putValue(proxy, fieldAccess.getValue(source));
+		} else {
+			fieldAccess.putValue(proxy, copyReference(fieldAccess.getValue(source)));
+		}
+	}
+
+	private Object copyReference(Object value) {
+
+		if (value == null) {
+			return null;
+		}
+		final Object existing = references.get(value);
+		if (existing != null) {
+			return existing;
+		}
+		if (isProxied(value)) {
+			return getProxy(value);
+		}
+		return delegate.clone(value, delegate, references, 0L);
+	}
+
+	private static ClassModel<?> getClassModel(Class<?> clazz) {
+		if (IS_UNSAFE_AVAILABLE) {
+			return UnsafeClassAccess.get(clazz).getClassModel();
+		} else {
+			return PortableClassAccess.get(clazz).getClassModel();
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.proxy;
+
+/**
+ * Records the source object for a {@link LazyCloneProxy} that has not yet been populated, together
+ * with the {@link LazyCloneSession} that created it.
+ */
+public final class LazyCloneState {
+
+	private final LazyCloneSession session;
+
+	private final Object source;
+
+	/**
+	 * Creates a new instance
+	 * @param session The session that created the proxy
+	 * @param source The object the proxy is a copy of
+	 */
+	public LazyCloneState(LazyCloneSession session, Object source) {
+		this.session = session;
+		this.source = source;
+	}
+
+	/**
+	 * The object the proxy is a copy of
+	 * @return The source object
+	 */
+	public Object getSource() {
+		return source;
+	}
+
+	/**
+	 * Populates the given proxy if this is still pending. Invoked by generated proxies before
+	 * delegating each method to the proxied class.
+	 * @param state The proxy's state, null if the proxy is already populated
+	 * @param proxy The proxy
+	 */
+	public static void populate(LazyCloneState state, Object proxy) {
+		if (state != null) {
+			state.session.populate((LazyCloneProxy) proxy);
+		}
+	}
+}
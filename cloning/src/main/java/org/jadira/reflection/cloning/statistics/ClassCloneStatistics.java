@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.statistics;
+
+/**
+ * A snapshot of the statistics recorded by {@link CloneStatistics} for a single class
+ */
+public class ClassCloneStatistics {
+
+	private final Class<?> type;
+	private final long objectsCloned;
+	private final long shallowBytes;
+	private final long implementorInvocations;
+	private final long implementorNanos;
+
+	ClassCloneStatistics(Class<?> type, long objectsCloned, long shallowBytes, long implementorInvocations, long implementorNanos) {
+		this.type = type;
+		this.objectsCloned = objectsCloned;
+		this.shallowBytes = shallowBytes;
+		this.implementorInvocations = implementorInvocations;
+		this.implementorNanos = implementorNanos;
+	}
+
+	/**
+	 * The class the statistics relate to
+	 * @return The class
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * The number of instances of the class that were copied
+	 * @return The number of objects cloned
+	 */
+	public long getObjectsCloned() {
+		return objectsCloned;
+	}
+
+	/**
+	 * The total shallow size of the copies, or zero if sizes cannot be determined on this platform
+	 * @return Size in bytes
+	 */
+	public long getShallowBytes() {
+		return shallowBytes;
+	}
+
+	/**
+	 * The number of copies made by a {@link org.jadira.reflection.cloning.api.CloneImplementor}
+	 * @return The number of implementor invocations
+	 */
+	public long getImplementorInvocations() {
+		return implementorInvocations;
+	}
+
+	/**
+	 * The time spent in {@link org.jadira.reflection.cloning.api.CloneImplementor}s, including
+	 * the time taken to clone the objects they delegate back to the cloner
+	 * @return Time in nanoseconds
+	 */
+	public long getImplementorNanos() {
+		return implementorNanos;
+	}
+
+	@Override
+	public String toString() {
+		return type.getName() + " objects=" + objectsCloned + " bytes=" + shallowBytes + " implementorInvocations=" + implementorInvocations + " implementorNanos=" + implementorNanos;
+	}
+}
@@ -0,0 +1,239 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+import org.jadira.reflection.core.platform.FeatureDetection;
+
+/**
+ * Records per-class statistics for the objects copied by a cloner: the number of objects cloned,
+ * their shallow size, and the number of copies made by and time spent in clone implementors, together
+ * with the hit rate of the reference cache. Counters are striped by thread so that recording adds
+ * little overhead when cloning in parallel.
+ * <p>
+ * Instances are standard MBeans and can be registered with an MBeanServer, for example:
+ * <code>ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, new ObjectName("org.jadira:type=CloneStatistics"))</code>.
+ * Shallow sizes require sun.misc.Unsafe and are reported as zero where it is not available.
+ */
+public class CloneStatistics implements CloneStatisticsMBean {
+
+	private static final UnsafeOperations UNSAFE_OPERATIONS = FeatureDetection.hasUnsafe() ? UnsafeOperations.getUnsafeOperations() : null;
+
+	private static final int OBJECTS = 0;
+	private static final int BYTES = 1;
+	private static final int IMPLEMENTOR_INVOCATIONS = 2;
+	private static final int IMPLEMENTOR_NANOS = 3;
+
+	private static final int LOOKUPS = 0;
+	private static final int HITS = 1;
+
+	private static final int TOP_CLASSES = 10;
+
+	private static final Comparator<ClassCloneStatistics> BY_SHALLOW_BYTES = new Comparator<ClassCloneStatistics>() {
+
+		@Override
+		public int compare(ClassCloneStatistics o1, ClassCloneStatistics o2) {
+			if (o1.getShallowBytes() != o2.getShallowBytes()) {
+				return o1.getShallowBytes() < o2.getShallowBytes() ? 1 : -1;
+			}
+			return o1.getObjectsCloned() < o2.getObjectsCloned() ? 1 : (o1.getObjectsCloned() == o2.getObjectsCloned() ? 0 : -1);
+		}
+	};
+
+	private final ConcurrentHashMap<Class<?>, ClassCounters> classCounters = new ConcurrentHashMap<Class<?>, ClassCounters>();
+
+	private final StripedCounters referenceCounters = new StripedCounters(2);
+
+	/**
+	 * Records an object copied by the cloner itself
+	 * @param type The class of the object
+	 * @param copy The copy
+	 */
+	public void recordClone(Class<?> type, Object copy) {
+		final ClassCounters counters = countersFor(type);
+		counters.counters.add(OBJECTS, 1L, BYTES, counters.sizeOf(copy));
+	}
+
+	/**
+	 * Records an object copied by a clone implementor
+	 * @param type The class of the object
+	 * @param copy The copy
+	 * @param nanos The time spent in the implementor
+	 */
+	public void recordImplementor(Class<?> type, Object copy, long nanos) {
+		final ClassCounters counters = countersFor(type);
+		counters.counters.add(OBJECTS, 1L, BYTES, counters.sizeOf(copy));
+		counters.counters.add(IMPLEMENTOR_INVOCATIONS, 1L, IMPLEMENTOR_NANOS, nanos);
+	}
+
+	/**
+	 * Records a lookup in the reference cache
+	 * @param hit True if an existing copy was found
+	 */
+	public void recordReferenceLookup(boolean hit) {
+		if (hit) {
+			referenceCounters.add(LOOKUPS, 1L, HITS, 1L);
+		} else {
+			referenceCounters.add(LOOKUPS, 1L);
+		}
+	}
+
+	private ClassCounters countersFor(Class<?> type) {
+		ClassCounters counters = classCounters.get(type);
+		if (counters == null) {
+			counters = new ClassCounters(type);
+			ClassCounters existing = classCounters.putIfAbsent(type, counters);
+			if (existing != null) {
+				counters = existing;
+			}
+		}
+		return counters;
+	}
+
+	/**
+	 * Returns a snapshot of the statistics for each class cloned, in descending order of total shallow size
+	 * @return Map of class to its statistics
+	 */
+	public Map<Class<?>, ClassCloneStatistics> getSnapshot() {
+
+		final List<ClassCloneStatistics> statistics = new ArrayList<ClassCloneStatistics>(classCounters.size());
+		for (ClassCounters next : classCounters.values()) {
+			final ClassCloneStatistics snapshot = next.snapshot();
+			if (snapshot.getObjectsCloned() > 0) {
+				statistics.add(snapshot);
+			}
+		}
+		Collections.sort(statistics, BY_SHALLOW_BYTES);
+
+		final Map<Class<?>, ClassCloneStatistics> result = new LinkedHashMap<Class<?>, ClassCloneStatistics>();
+		for (ClassCloneStatistics next : statistics) {
+			result.put(next.getType(), next);
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Returns a snapshot of the statistics for the given class
+	 * @param type The class
+	 * @return The statistics, which are zero if no instances have been cloned
+	 */
+	public ClassCloneStatistics getStatistics(Class<?> type) {
+		final ClassCounters counters = classCounters.get(type);
+		return counters == null ? new ClassCloneStatistics(type, 0L, 0L, 0L, 0L) : counters.snapshot();
+	}
+
+	@Override
+	public long getObjectsCloned() {
+		return sum(OBJECTS);
+	}
+
+	@Override
+	public long getShallowBytes() {
+		return sum(BYTES);
+	}
+
+	@Override
+	public long getImplementorNanos() {
+		return sum(IMPLEMENTOR_NANOS);
+	}
+
+	private long sum(int counter) {
+		long sum = 0L;
+		for (ClassCounters next : classCounters.values()) {
+			sum += next.counters.sum(counter);
+		}
+		return sum;
+	}
+
+	/**
+	 * The number of lookups made in the reference cache
+	 * @return The number of lookups
+	 */
+	public long getReferenceLookups() {
+		return referenceCounters.sum(LOOKUPS);
+	}
+
+	/**
+	 * The number of lookups in the reference cache that found an existing copy
+	 * @return The number of hits
+	 */
+	public long getReferenceHits() {
+		return referenceCounters.sum(HITS);
+	}
+
+	@Override
+	public double getReferenceHitRate() {
+		final long lookups = getReferenceLookups();
+		return lookups == 0L ? 0.0D : (double) getReferenceHits() / lookups;
+	}
+
+	@Override
+	public String[] getTopClasses() {
+
+		final List<String> top = new ArrayList<String>(TOP_CLASSES);
+		for (ClassCloneStatistics next : getSnapshot().values()) {
+			if (top.size() == TOP_CLASSES) {
+				break;
+			}
+			top.add(next.toString());
+		}
+		return top.toArray(new String[top.size()]);
+	}
+
+	@Override
+	public void reset() {
+		for (ClassCounters next : classCounters.values()) {
+			next.counters.reset();
+		}
+		referenceCounters.reset();
+	}
+
+	/**
+	 * The counters for a single class, together with its shallow size where this is fixed
+	 */
+	private static final class ClassCounters {
+
+		private final Class<?> type;
+
+		private final long shallowSize;
+
+		private final StripedCounters counters = new StripedCounters(4);
+
+		private ClassCounters(Class<?> type) {
+			this.type = type;
+			this.shallowSize = (UNSAFE_OPERATIONS == null || type.isArray()) ? 0L : UNSAFE_OPERATIONS.shallowSizeOf(type);
+		}
+
+		private long sizeOf(Object copy) {
+			if (UNSAFE_OPERATIONS != null && type.isArray() && copy != null) {
+				return UNSAFE_OPERATIONS.shallowSizeOf(copy);
+			}
+			return shallowSize;
+		}
+
+		private ClassCloneStatistics snapshot() {
+			return new ClassCloneStatistics(type, counters.sum(OBJECTS), counters.sum(BYTES), counters.sum(IMPLEMENTOR_INVOCATIONS), counters.sum(IMPLEMENTOR_NANOS));
+		}
+	}
+}
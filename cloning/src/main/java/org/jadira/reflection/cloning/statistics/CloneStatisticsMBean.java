@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.statistics;
+
+/**
+ * Management interface for {@link CloneStatistics}
+ */
+public interface CloneStatisticsMBean {
+
+	/**
+	 * The total number of objects copied
+	 * @return The number of objects cloned
+	 */
+	long getObjectsCloned();
+
+	/**
+	 * The total shallow size of the copies
+	 * @return Size in bytes
+	 */
+	long getShallowBytes();
+
+	/**
+	 * The total time spent in clone implementors
+	 * @return Time in nanoseconds
+	 */
+	long getImplementorNanos();
+
+	/**
+	 * The proportion of lookups in the reference cache that found an existing copy
+	 * @return The hit rate, between 0 and 1
+	 */
+	double getReferenceHitRate();
+
+	/**
+	 * The classes with the largest total shallow size, with their statistics
+	 * @return Descriptions of up to ten classes, in descending order of size
+	 */
+	String[] getTopClasses();
+
+	/**
+	 * Discard all recorded statistics
+	 */
+	void reset();
+}
@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.cloning.statistics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed number of long counters, striped by thread so that threads updating the same counter
+ * rarely contend for the same cache line. Reads sum across all stripes and so are only
+ * approximate while updates are in progress.
+ */
+final class StripedCounters {
+
+	/**
+	 * Each stripe is padded to a 64 byte cache line
+	 */
+	private static final int STRIPE_WIDTH = 8;
+
+	private static final int STRIPES;
+
+	static {
+		int stripes = 1;
+		final int processors = Math.min(16, Runtime.getRuntime().availableProcessors());
+		while (stripes < processors) {
+			stripes <<= 1;
+		}
+		STRIPES = stripes;
+	}
+
+	private final AtomicLongArray cells;
+
+	StripedCounters(int counters) {
+		if (counters < 1 || counters > STRIPE_WIDTH) {
+			throw new IllegalArgumentException("counters must be between 1 and " + STRIPE_WIDTH + ": " + counters);
+		}
+		this.cells = new AtomicLongArray(STRIPES * STRIPE_WIDTH);
+	}
+
+	private static int stripeOffset() {
+		return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_WIDTH;
+	}
+
+	void add(int counter, long delta) {
+		cells.getAndAdd(stripeOffset() + counter, delta);
+	}
+
+	void add(int counter1, long delta1, int counter2, long delta2) {
+		final int offset = stripeOffset();
+		cells.getAndAdd(offset + counter1, delta1);
+		cells.getAndAdd(offset + counter2, delta2);
+	}
+
+	long sum(int counter) {
+		long sum = 0L;
+		for (int i = counter; i < cells.length(); i += STRIPE_WIDTH) {
+			sum += cells.get(i);
+		}
+		return sum;
+	}
+
+	void reset() {
+		for (int i = 0; i < cells.length(); i++) {
+			cells.set(i, 0L);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ *  Copyright 2013 Chris Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.core.identity;
+
+/**
+ * Hash functions for the open addressing identity tables. Identity hash codes are often clustered
+ * and poorly distributed in their lower bits, so they are mixed before being masked to a table index.
+ */
+public final class IdentityHashing {
+
+	private IdentityHashing() {
+	}
+
+	/**
+	 * Returns the mixed identity hash code of the given reference
+	 * @param obj The reference, may be null
+	 * @return The hash
+	 */
+	public static int hash(Object obj) {
+		return spread(System.identityHashCode(obj));
+	}
+
+	/**
+	 * Returns a hash combining the identity hash codes of both references
+	 * @param left The left reference
+	 * @param right The right reference
+	 * @return The hash
+	 */
+	public static int hash(Object left, Object right) {
+		return spread(System.identityHashCode(left) * 31 + System.identityHashCode(right));
+	}
+
+	/**
+	 * Mixes the bits of the given hash code so that its lower bits can be used as a table index
+	 * @param h The hash code
+	 * @return The mixed hash
+	 */
+	public static int spread(int h) {
+		h ^= (h >>> 16);
+		h *= 0x85ebca6b;
+		h ^= (h >>> 13);
+		return h;
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.core.identity;
+
+import java.util.Arrays;
+
+/**
+ * A set of pairs of object references, compared by identity. Intended for tracking the pairs
+ * already visited while comparing two object graphs. Unlike a set of {@link Tuple}s no object
+ * is allocated for each pair: pairs are located by combining the identity hash codes of both
+ * references, and confirmed by identity comparison of both. The set can be cleared and reused;
+ * clearing a set that has grown large releases its storage.
+ * This class is not thread safe.
+ */
+public class IdentityPairSet {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * Capacity above which clear() replaces the table rather than emptying it
+	 */
+	private static final int RETAINED_CAPACITY = 1024;
+
+	private Object[] lefts;
+	private Object[] rights;
+	private int size;
+	private int threshold;
+
+	/**
+	 * Creates a new, empty instance
+	 */
+	public IdentityPairSet() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		lefts = new Object[capacity];
+		rights = new Object[capacity];
+		threshold = (capacity >> 1) + (capacity >> 2);
+	}
+
+	/**
+	 * Adds the given pair, unless it is already present
+	 * @param left The left reference, not null
+	 * @param right The right reference, not null
+	 * @return True if the pair was added, false if it was already present
+	 */
+	public boolean add(Object left, Object right) {
+
+		final int mask = lefts.length - 1;
+		int index = IdentityHashing.hash(left, right) & mask;
+		Object existing;
+		while ((existing = lefts[index]) != null) {
+			if (existing == left && rights[index] == right) {
+				return false;
+			}
+			index = (index + 1) & mask;
+		}
+		lefts[index] = left;
+		rights[index] = right;
+		if (++size > threshold) {
+			resize();
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates whether the given pair is present
+	 * @param left The left reference
+	 * @param right The right reference
+	 * @return True if the pair is present
+	 */
+	public boolean contains(Object left, Object right) {
+
+		final int mask = lefts.length - 1;
+		int index = IdentityHashing.hash(left, right) & mask;
+		Object existing;
+		while ((existing = lefts[index]) != null) {
+			if (existing == left && rights[index] == right) {
+				return true;
+			}
+			index = (index + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * The number of pairs in the set
+	 * @return The size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all pairs
+	 */
+	public void clear() {
+
+		if (size == 0) {
+			return;
+		}
+		if (lefts.length > RETAINED_CAPACITY) {
+			allocate(DEFAULT_CAPACITY);
+		} else {
+			Arrays.fill(lefts, null);
+			Arrays.fill(rights, null);
+		}
+		size = 0;
+	}
+
+	private void resize() {
+
+		final Object[] oldLefts = lefts;
+		final Object[] oldRights = rights;
+
+		allocate(oldLefts.length << 1);
+
+		final int mask = lefts.length - 1;
+		for (int i = 0; i < oldLefts.length; i++) {
+			final Object left = oldLefts[i];
+			if (left != null) {
+				final Object right = oldRights[i];
+				int index = IdentityHashing.hash(left, right) & mask;
+				while (lefts[index] != null) {
+					index = (index + 1) & mask;
+				}
+				lefts[index] = left;
+				rights[index] = right;
+			}
+		}
+	}
+}
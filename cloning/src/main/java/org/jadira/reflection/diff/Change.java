@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.diff;
+
+/**
+ * A single value that differs between two object graphs
+ */
+public class Change {
+
+	private final DiffPath path;
+
+	private final Object originalValue;
+
+	private final Object currentValue;
+
+	private final boolean removal;
+
+	Change(DiffPath path, Object originalValue, Object currentValue) {
+		this(path, originalValue, currentValue, false);
+	}
+
+	Change(DiffPath path, Object originalValue, Object currentValue, boolean removal) {
+		this.path = path;
+		this.originalValue = originalValue;
+		this.currentValue = currentValue;
+		this.removal = removal;
+	}
+
+	/**
+	 * The location of the value, as field names and element indexes separated from the root, for
+	 * example <code>customer.addresses[2].postCode</code>. Map keys are shown in square brackets
+	 * and Set members in braces, for example <code>accounts[GBP].holders{Bob}</code>. The root
+	 * itself has an empty path.
+	 * @return The path
+	 */
+	public String getPath() {
+		return path.toString();
+	}
+
+	/**
+	 * The value in the original graph. Primitive values are boxed.
+	 * @return The original value
+	 */
+	public Object getOriginalValue() {
+		return originalValue;
+	}
+
+	/**
+	 * The value in the current graph. Primitive values are boxed.
+	 * @return The current value
+	 */
+	public Object getCurrentValue() {
+		return currentValue;
+	}
+
+	/**
+	 * Indicates whether the key or member at this change's path was removed from its Map or Set,
+	 * as opposed to being given a current value of null
+	 * @return True if the value was removed
+	 */
+	public boolean isRemoval() {
+		return removal;
+	}
+
+	/**
+	 * Sets the current value at this change's path within the given graph
+	 * @param root The root of a graph with the same structure as the original graph
+	 * @return The root of the graph, which is the current value if this change is to the root itself
+	 */
+	Object applyTo(Object root) {
+
+		if (path.isRoot()) {
+			return currentValue;
+		}
+		final Object container = path.resolveContainer(root);
+		if (container == null) {
+			throw new IllegalStateException("Cannot apply change to " + getPath() + " as its container is null");
+		}
+		if (removal) {
+			path.remove(container);
+		} else {
+			path.set(container, currentValue);
+		}
+		return root;
+	}
+
+	@Override
+	public String toString() {
+		return getPath() + ": " + originalValue + " -> " + currentValue;
+	}
+}
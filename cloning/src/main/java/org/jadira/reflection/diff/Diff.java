@@ -0,0 +1,73 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.diff;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a {@link DiffEngine} comparison: the values that differ between an original and
+ * a current object graph. Can be applied as a patch to a graph with the same structure as the
+ * original, such as a copy of it.
+ */
+public class Diff {
+
+	private final List<Change> changes;
+
+	Diff(List<Change> changes) {
+		this.changes = Collections.unmodifiableList(changes);
+	}
+
+	/**
+	 * The changes, in the order they were found
+	 * @return The changes
+	 */
+	public List<Change> getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Indicates whether the graphs were found to be the same
+	 * @return True if there are no changes
+	 */
+	public boolean isEmpty() {
+		return changes.isEmpty();
+	}
+
+	/**
+	 * Applies the changes to the given graph, which must have the same structure as the original
+	 * graph. Current values are set by reference rather than copied, so the graph will share any
+	 * changed objects with the current graph.
+	 * @param root The root of the graph to update
+	 * @param <T> The type of the root
+	 * @return The root of the updated graph, which is a different object only if the root itself changed
+	 * @throws IllegalStateException If a change cannot be applied to the graph
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T applyTo(T root) {
+
+		Object result = root;
+		for (Change next : changes) {
+			result = next.applyTo(result);
+		}
+		return (T) result;
+	}
+
+	@Override
+	public String toString() {
+		return "Diff" + changes;
+	}
+}
@@ -0,0 +1,441 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.diff;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.api.ClassAccess;
+import org.jadira.reflection.access.api.ClassAccessFactory;
+import org.jadira.reflection.access.api.FieldAccess;
+import org.jadira.reflection.access.methodhandle.MethodHandleClassAccessFactory;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccessFactory;
+import org.jadira.reflection.core.identity.IdentityPairSet;
+import org.jadira.reflection.core.platform.FeatureDetection;
+
+/**
+ * Finds the differences between two object graphs in a single traversal of both, for example
+ * between a copy taken earlier and the live graph, without first comparing them for equality.
+ * <p>
+ * The graphs are walked together using {@link ClassAccess} and {@link FieldAccess}. Where both
+ * graphs hold the same reference, or a pair of objects has already been compared, the traversal
+ * does not descend. Arrays and Lists are compared element by element. Maps are compared by key and
+ * Sets by member: values whose keys are equal, and members that are equal, are compared in turn,
+ * so a Map or Set is not reported as changed merely because it holds copies. Keys and members that
+ * do not override equals() are matched with a key or member of the same structure instead, at a
+ * cost that grows with the square of their number. Objects of other classes that override equals()
+ * are compared using it. Other objects are compared field by field, excluding static, transient and
+ * synthetic fields as {@link org.jadira.reflection.equals.EqualsBuilder} does. The traversal does
+ * not descend below a change: a value whose class or (for arrays and lists) length differs is
+ * reported as a single change, as are keys and members that are added or removed.
+ * <p>
+ * Instances are reusable and may be shared between threads once configured.
+ */
+public class DiffEngine {
+
+	private static final ClassValue<Boolean> OVERRIDES_EQUALS = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return Boolean.valueOf(type.getMethod("equals", Object.class).getDeclaringClass() != Object.class);
+			} catch (NoSuchMethodException e) {
+				throw new IllegalStateException("Cannot find equals() method");
+			}
+		}
+	};
+
+	private static final Object NO_MATCH = new Object();
+
+	private ClassAccessFactory classAccessFactory;
+
+	private final ConcurrentHashMap<Class<?>, FieldAccess<Object>[]> comparedFields = new ConcurrentHashMap<Class<?>, FieldAccess<Object>[]>();
+
+	/**
+	 * Creates a new instance using {@link UnsafeClassAccessFactory} where available
+	 */
+	public DiffEngine() {
+		if (FeatureDetection.hasUnsafe()) {
+			this.classAccessFactory = UnsafeClassAccessFactory.get();
+		} else {
+			this.classAccessFactory = MethodHandleClassAccessFactory.get();
+		}
+	}
+
+	/**
+	 * Use the given factory to access the fields of compared objects
+	 * @param classAccessFactory The ClassAccessFactory
+	 * @return This instance
+	 */
+	public DiffEngine withClassAccessFactory(ClassAccessFactory classAccessFactory) {
+		this.classAccessFactory = classAccessFactory;
+		comparedFields.clear();
+		return this;
+	}
+
+	/**
+	 * Finds the values that differ between the given graphs
+	 * @param original The original graph, may be null
+	 * @param current The current graph, may be null
+	 * @return The differences
+	 */
+	public Diff diff(Object original, Object current) {
+
+		final Traversal traversal = new Traversal(original, current, null);
+		traverse(traversal, false);
+		return new Diff(traversal.changes);
+	}
+
+	/**
+	 * Indicates whether the given graphs have the same structure, as used to match keys and members
+	 */
+	boolean matches(Object original, Object current) {
+		return matches(original, current, null);
+	}
+
+	private boolean matches(Object original, Object current, Traversal outer) {
+
+		for (Traversal next = outer; next != null; next = next.outer) {
+			if (next.original == original && next.current == current) {
+				// Already being matched further up, so any difference will be found there
+				return true;
+			}
+		}
+		final Traversal traversal = new Traversal(original, current, outer);
+		traverse(traversal, true);
+		return traversal.changes.isEmpty();
+	}
+
+	private void traverse(Traversal traversal, boolean stopAtFirstChange) {
+
+		compare(traversal.original, traversal.current, DiffPath.ROOT, traversal);
+
+		WorkItem next;
+		while ((!stopAtFirstChange || traversal.changes.isEmpty()) && (next = traversal.pending.pollFirst()) != null) {
+			compare(next.original, next.current, next.path, traversal);
+		}
+	}
+
+	private void compare(Object original, Object current, DiffPath path, Traversal traversal) {
+
+		final List<Change> changes = traversal.changes;
+		final IdentityPairSet seenReferences = traversal.seenReferences;
+		final Deque<WorkItem> pending = traversal.pending;
+
+		if (original == current) {
+			return;
+		}
+		if (original == null || current == null || original.getClass() != current.getClass()) {
+			changes.add(new Change(path, original, current));
+			return;
+		}
+
+		final Class<?> clazz = original.getClass();
+
+		if (clazz.isArray()) {
+			if (Array.getLength(original) != Array.getLength(current)) {
+				changes.add(new Change(path, original, current));
+			} else if (clazz.getComponentType().isPrimitive()) {
+				comparePrimitiveArrays(original, current, path, changes);
+			} else if (seenReferences.add(original, current)) {
+				compareElements((Object[]) original, (Object[]) current, path, pending);
+			}
+		} else if (original instanceof List) {
+			final Object[] originalElements = ((List<?>) original).toArray();
+			final Object[] currentElements = ((List<?>) current).toArray();
+			if (originalElements.length != currentElements.length) {
+				changes.add(new Change(path, original, current));
+			} else if (seenReferences.add(original, current)) {
+				compareElements(originalElements, currentElements, path, pending);
+			}
+		} else if (original instanceof Map) {
+			if (seenReferences.add(original, current)) {
+				compareEntries((Map<?, ?>) original, (Map<?, ?>) current, path, traversal);
+			}
+		} else if (original instanceof Set) {
+			if (seenReferences.add(original, current)) {
+				compareMembers((Set<?>) original, (Set<?>) current, path, traversal);
+			}
+		} else if (OVERRIDES_EQUALS.get(clazz).booleanValue()) {
+			if (!original.equals(current)) {
+				changes.add(new Change(path, original, current));
+			}
+		} else if (seenReferences.add(original, current)) {
+			compareFields(original, current, path, changes, pending);
+		}
+	}
+
+	private static void compareElements(Object[] original, Object[] current, DiffPath path, Deque<WorkItem> pending) {
+
+		for (int i = 0; i < original.length; i++) {
+			if (original[i] != current[i]) {
+				pending.addLast(new WorkItem(original[i], current[i], path.index(i)));
+			}
+		}
+	}
+
+	private void compareEntries(Map<?, ?> original, Map<?, ?> current, DiffPath path, Traversal traversal) {
+
+		final List<Object> removedKeys = new ArrayList<Object>();
+		for (Map.Entry<?, ?> next : original.entrySet()) {
+			if (current.containsKey(next.getKey())) {
+				addWorkItem(next.getValue(), current.get(next.getKey()), path.key(next.getKey()), traversal.pending);
+			} else {
+				removedKeys.add(next.getKey());
+			}
+		}
+		final List<Object> addedKeys = new ArrayList<Object>();
+		for (Object next : current.keySet()) {
+			if (!original.containsKey(next)) {
+				addedKeys.add(next);
+			}
+		}
+
+		for (Object next : removedKeys) {
+			final Object matchingKey = removeMatch(next, addedKeys, traversal);
+			if (matchingKey == NO_MATCH) {
+				traversal.changes.add(new Change(path.key(next), original.get(next), null, true));
+			} else {
+				addWorkItem(original.get(next), current.get(matchingKey), path.key(next), traversal.pending);
+			}
+		}
+		for (Object next : addedKeys) {
+			traversal.changes.add(new Change(path.key(next), null, current.get(next)));
+		}
+	}
+
+	private void compareMembers(Set<?> original, Set<?> current, DiffPath path, Traversal traversal) {
+
+		final Map<Object, Object> unmatched = new LinkedHashMap<Object, Object>();
+		for (Object next : current) {
+			unmatched.put(next, next);
+		}
+		final List<Object> removedMembers = new ArrayList<Object>();
+		for (Object next : original) {
+			if (unmatched.containsKey(next)) {
+				addWorkItem(next, unmatched.remove(next), path.member(next), traversal.pending);
+			} else {
+				removedMembers.add(next);
+			}
+		}
+		final List<Object> addedMembers = new ArrayList<Object>(unmatched.keySet());
+
+		for (Object next : removedMembers) {
+			final Object matchingMember = removeMatch(next, addedMembers, traversal);
+			if (matchingMember == NO_MATCH) {
+				traversal.changes.add(new Change(path.member(next), next, null, true));
+			} else {
+				addWorkItem(next, matchingMember, path.member(next), traversal.pending);
+			}
+		}
+		for (Object next : addedMembers) {
+			traversal.changes.add(new Change(path.member(next), null, next));
+		}
+	}
+
+	/**
+	 * Removes and returns the first candidate with the same structure as the given key or member
+	 */
+	private Object removeMatch(Object original, List<Object> candidates, Traversal traversal) {
+
+		if (original == null) {
+			return NO_MATCH;
+		}
+		for (int i = 0; i < candidates.size(); i++) {
+			final Object candidate = candidates.get(i);
+			if (candidate != null && candidate.getClass() == original.getClass() && matches(original, candidate, traversal)) {
+				return candidates.remove(i);
+			}
+		}
+		return NO_MATCH;
+	}
+
+	private static void addWorkItem(Object original, Object current, DiffPath path, Deque<WorkItem> pending) {
+		if (original != current) {
+			pending.addLast(new WorkItem(original, current, path));
+		}
+	}
+
+	private static void comparePrimitiveArrays(Object original, Object current, DiffPath path, List<Change> changes) {
+
+		final boolean equal;
+		if (original instanceof int[]) {
+			equal = Arrays.equals((int[]) original, (int[]) current);
+		} else if (original instanceof long[]) {
+			equal = Arrays.equals((long[]) original, (long[]) current);
+		} else if (original instanceof byte[]) {
+			equal = Arrays.equals((byte[]) original, (byte[]) current);
+		} else if (original instanceof char[]) {
+			equal = Arrays.equals((char[]) original, (char[]) current);
+		} else if (original instanceof double[]) {
+			equal = Arrays.equals((double[]) original, (double[]) current);
+		} else if (original instanceof float[]) {
+			equal = Arrays.equals((float[]) original, (float[]) current);
+		} else if (original instanceof short[]) {
+			equal = Arrays.equals((short[]) original, (short[]) current);
+		} else {
+			equal = Arrays.equals((boolean[]) original, (boolean[]) current);
+		}
+		if (equal) {
+			return;
+		}
+
+		// Only arrays known to differ are inspected element by element
+		final int length = Array.getLength(original);
+		for (int i = 0; i < length; i++) {
+			final Object originalElement = Array.get(original, i);
+			final Object currentElement = Array.get(current, i);
+			if (!originalElement.equals(currentElement)) {
+				changes.add(new Change(path.index(i), originalElement, currentElement));
+			}
+		}
+	}
+
+	private void compareFields(Object original, Object current, DiffPath path, List<Change> changes, Deque<WorkItem> pending) {
+
+		final FieldAccess<Object>[] fields = getComparedFields(original.getClass());
+
+		for (int i = 0; i < fields.length; i++) {
+
+			final FieldAccess<Object> f = fields[i];
+			final Class<?> type = f.fieldClass();
+
+			if (!type.isPrimitive()) {
+				final Object originalValue = f.getValue(original);
+				final Object currentValue = f.getValue(current);
+				if (originalValue != currentValue) {
+					pending.addLast(new WorkItem(originalValue, currentValue, path.field(f)));
+				}
+			} else if (java.lang.Integer.TYPE == type) {
+				if (f.getIntValue(original) != f.getIntValue(current)) {
+					changes.add(new Change(path.field(f), Integer.valueOf(f.getIntValue(original)), Integer.valueOf(f.getIntValue(current))));
+				}
+			} else if (java.lang.Long.TYPE == type) {
+				if (f.getLongValue(original) != f.getLongValue(current)) {
+					changes.add(new Change(path.field(f), Long.valueOf(f.getLongValue(original)), Long.valueOf(f.getLongValue(current))));
+				}
+			} else if (java.lang.Boolean.TYPE == type) {
+				if (f.getBooleanValue(original) != f.getBooleanValue(current)) {
+					changes.add(new Change(path.field(f), Boolean.valueOf(f.getBooleanValue(original)), Boolean.valueOf(f.getBooleanValue(current))));
+				}
+			} else if (java.lang.Double.TYPE == type) {
+				if (Double.doubleToLongBits(f.getDoubleValue(original)) != Double.doubleToLongBits(f.getDoubleValue(current))) {
+					changes.add(new Change(path.field(f), Double.valueOf(f.getDoubleValue(original)), Double.valueOf(f.getDoubleValue(current))));
+				}
+			} else if (java.lang.Float.TYPE == type) {
+				if (Float.floatToIntBits(f.getFloatValue(original)) != Float.floatToIntBits(f.getFloatValue(current))) {
+					changes.add(new Change(path.field(f), Float.valueOf(f.getFloatValue(original)), Float.valueOf(f.getFloatValue(current))));
+				}
+			} else if (java.lang.Character.TYPE == type) {
+				if (f.getCharValue(original) != f.getCharValue(current)) {
+					changes.add(new Change(path.field(f), Character.valueOf(f.getCharValue(original)), Character.valueOf(f.getCharValue(current))));
+				}
+			} else if (java.lang.Short.TYPE == type) {
+				if (f.getShortValue(original) != f.getShortValue(current)) {
+					changes.add(new Change(path.field(f), Short.valueOf(f.getShortValue(original)), Short.valueOf(f.getShortValue(current))));
+				}
+			} else if (java.lang.Byte.TYPE == type) {
+				if (f.getByteValue(original) != f.getByteValue(current)) {
+					changes.add(new Change(path.field(f), Byte.valueOf(f.getByteValue(original)), Byte.valueOf(f.getByteValue(current))));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the accessors for the compared fields of the given class and its superclasses
+	 */
+	private FieldAccess<Object>[] getComparedFields(Class<?> clazz) {
+
+		FieldAccess<Object>[] fields = comparedFields.get(clazz);
+		if (fields == null) {
+
+			final List<FieldAccess<Object>> compared = new ArrayList<FieldAccess<Object>>();
+
+			@SuppressWarnings("unchecked")
+			ClassAccess<Object> classAccess = (ClassAccess<Object>) classAccessFactory.getClassAccess(clazz);
+			while (classAccess != null && classAccess.getType() != Object.class) {
+				for (FieldAccess<Object> f : classAccess.getDeclaredFieldAccessors()) {
+					if ((f.field().getName().indexOf('$') == -1)
+							&& (!Modifier.isTransient(f.field().getModifiers()))
+							&& (!Modifier.isStatic(f.field().getModifiers()))) {
+						compared.add(f);
+					}
+				}
+				@SuppressWarnings("unchecked")
+				final ClassAccess<Object> superClassAccess = (ClassAccess<Object>) classAccess.getSuperClassAccess();
+				classAccess = superClassAccess;
+			}
+
+			@SuppressWarnings("unchecked")
+			final FieldAccess<Object>[] comparedArray = (FieldAccess<Object>[]) compared.toArray(new FieldAccess[compared.size()]);
+			fields = comparedArray;
+			comparedFields.putIfAbsent(clazz, fields);
+		}
+		return fields;
+	}
+
+	/**
+	 * The state of one comparison of two graphs. A comparison made to match a key or member refers to
+	 * the comparison that needed the match, so that a cycle back to the same pair can be recognised.
+	 */
+	private static final class Traversal {
+
+		private final Object original;
+
+		private final Object current;
+
+		private final Traversal outer;
+
+		private final List<Change> changes = new ArrayList<Change>();
+
+		private final IdentityPairSet seenReferences = new IdentityPairSet();
+
+		private final Deque<WorkItem> pending = new ArrayDeque<WorkItem>();
+
+		private Traversal(Object original, Object current, Traversal outer) {
+			this.original = original;
+			this.current = current;
+			this.outer = outer;
+		}
+	}
+
+	/**
+	 * A pair of values still to be compared
+	 */
+	private static final class WorkItem {
+
+		private final Object original;
+
+		private final Object current;
+
+		private final DiffPath path;
+
+		private WorkItem(Object original, Object current, DiffPath path) {
+			this.original = original;
+			this.current = current;
+			this.path = path;
+		}
+	}
+}
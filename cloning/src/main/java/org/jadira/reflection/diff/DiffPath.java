@@ -0,0 +1,255 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.diff;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.jadira.reflection.access.api.FieldAccess;
+
+/**
+ * The location of a value within an object graph, as a chain of field, index, Map key and Set member
+ * steps from the root. Paths share their parents, so that no path need be built for values that are
+ * unchanged.
+ * <p>
+ * Keys and members are taken from the original graph. Within another graph they are found by
+ * equality, or failing that as the key or member with the same structure, so that a path also
+ * resolves within a copy of the original graph whose keys do not override equals().
+ */
+final class DiffPath {
+
+	static final DiffPath ROOT = new DiffPath(null, null, -1, null, false);
+
+	private static final DiffEngine MATCHER = new DiffEngine();
+
+	private static final Object NOT_FOUND = new Object();
+
+	private final DiffPath parent;
+
+	private final FieldAccess<Object> field;
+
+	private final int index;
+
+	private final Object key;
+
+	private final boolean member;
+
+	private DiffPath(DiffPath parent, FieldAccess<Object> field, int index, Object key, boolean member) {
+		this.parent = parent;
+		this.field = field;
+		this.index = index;
+		this.key = key;
+		this.member = member;
+	}
+
+	DiffPath field(FieldAccess<Object> fieldAccess) {
+		return new DiffPath(this, fieldAccess, -1, null, false);
+	}
+
+	DiffPath index(int elementIndex) {
+		return new DiffPath(this, null, elementIndex, null, false);
+	}
+
+	DiffPath key(Object mapKey) {
+		return new DiffPath(this, null, -1, mapKey, false);
+	}
+
+	DiffPath member(Object setMember) {
+		return new DiffPath(this, null, -1, setMember, true);
+	}
+
+	boolean isRoot() {
+		return parent == null;
+	}
+
+	/**
+	 * Returns the object holding the value at this path, starting from the given root
+	 */
+	Object resolveContainer(Object root) {
+
+		if (parent.isRoot()) {
+			return root;
+		}
+		final Object grandContainer = parent.resolveContainer(root);
+		if (grandContainer == null) {
+			throw new IllegalStateException("Cannot resolve path " + parent + " as it contains null");
+		}
+		return parent.get(grandContainer);
+	}
+
+	private Object get(Object container) {
+
+		if (field != null) {
+			return field.getValue(container);
+		} else if (member) {
+			final Object found = findMember((Collection<?>) container);
+			if (found == NOT_FOUND) {
+				throw new IllegalStateException("Cannot resolve path " + this + " as the member is not present");
+			}
+			return found;
+		} else if (index == -1) {
+			final Map<?, ?> map = (Map<?, ?>) container;
+			return map.get(findKey(map));
+		} else if (container instanceof List) {
+			return ((List<?>) container).get(index);
+		} else {
+			return Array.get(container, index);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	void set(Object container, Object value) {
+
+		if (member) {
+			final Collection<Object> members = (Collection<Object>) container;
+			removeMember(members);
+			members.add(value);
+			return;
+		}
+		if (field == null && index == -1) {
+			final Map<Object, Object> map = (Map<Object, Object>) container;
+			map.put(findKey(map), value);
+			return;
+		}
+		if (field == null) {
+			if (container instanceof List) {
+				((List<Object>) container).set(index, value);
+			} else {
+				Array.set(container, index, value);
+			}
+			return;
+		}
+
+		final Class<?> type = field.fieldClass();
+		if (!type.isPrimitive()) {
+			field.putValue(container, value);
+		} else if (java.lang.Boolean.TYPE == type) {
+			field.putBooleanValue(container, ((Boolean) value).booleanValue());
+		} else if (java.lang.Byte.TYPE == type) {
+			field.putByteValue(container, ((Byte) value).byteValue());
+		} else if (java.lang.Character.TYPE == type) {
+			field.putCharValue(container, ((Character) value).charValue());
+		} else if (java.lang.Short.TYPE == type) {
+			field.putShortValue(container, ((Short) value).shortValue());
+		} else if (java.lang.Integer.TYPE == type) {
+			field.putIntValue(container, ((Integer) value).intValue());
+		} else if (java.lang.Long.TYPE == type) {
+			field.putLongValue(container, ((Long) value).longValue());
+		} else if (java.lang.Float.TYPE == type) {
+			field.putFloatValue(container, ((Float) value).floatValue());
+		} else {
+			field.putDoubleValue(container, ((Double) value).doubleValue());
+		}
+	}
+
+	/**
+	 * Removes the key or member at this path from the given Map or Set
+	 */
+	void remove(Object container) {
+
+		if (member) {
+			removeMember((Collection<?>) container);
+		} else if (field == null && index == -1) {
+			final Map<?, ?> map = (Map<?, ?>) container;
+			map.remove(findKey(map));
+		} else {
+			throw new IllegalStateException("Cannot remove the value at " + this + " as it is not a key or member");
+		}
+	}
+
+	/**
+	 * Returns the key of the given map that corresponds to this step's key, or the key itself if
+	 * the map has no such key
+	 */
+	private Object findKey(Map<?, ?> map) {
+
+		if (map.containsKey(key)) {
+			return key;
+		}
+		final Object found = findMatch(map.keySet(), false);
+		return found == NOT_FOUND ? key : found;
+	}
+
+	private Object findMember(Collection<?> members) {
+
+		final Object found = findMatch(members, true);
+		return found == NOT_FOUND ? findMatch(members, false) : found;
+	}
+
+	private void removeMember(Collection<?> members) {
+
+		final Object found = findMember(members);
+		if (found != NOT_FOUND) {
+			final Iterator<?> iterator = members.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next() == found) {
+					iterator.remove();
+					return;
+				}
+			}
+		}
+	}
+
+	private Object findMatch(Collection<?> candidates, boolean byEquality) {
+
+		for (Object next : candidates) {
+			if (next == key) {
+				return next;
+			}
+			if (next == null || key == null || next.getClass() != key.getClass()) {
+				continue;
+			}
+			if (byEquality ? next.equals(key) : MATCHER.matches(key, next)) {
+				return next;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	@Override
+	public String toString() {
+
+		if (isRoot()) {
+			return "";
+		}
+		final StringBuilder builder = new StringBuilder();
+		appendTo(builder);
+		return builder.toString();
+	}
+
+	private void appendTo(StringBuilder builder) {
+
+		if (isRoot()) {
+			return;
+		}
+		parent.appendTo(builder);
+		if (member) {
+			builder.append('{').append(key).append('}');
+		} else if (field == null && index == -1) {
+			builder.append('[').append(key).append(']');
+		} else if (field == null) {
+			builder.append('[').append(index).append(']');
+		} else {
+			if (builder.length() > 0) {
+				builder.append('.');
+			}
+			builder.append(field.field().getName());
+		}
+	}
+}
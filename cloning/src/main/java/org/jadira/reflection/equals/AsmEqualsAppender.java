@@ -0,0 +1,273 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.equals;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.F_SAME;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.V1_7;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.api.ClassAccess;
+import org.jadira.reflection.access.api.FieldAccess;
+import org.jadira.reflection.access.classloader.AccessClassLoader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Compares the fields declared by a single class, on behalf of {@link EqualsBuilder}. A specialised
+ * subclass is generated with ASM for each class, so that the field filtering and the dispatch on
+ * field type happen once rather than on every comparison. Non-private fields are read directly;
+ * private fields, which the generated class cannot read, are read through their {@link FieldAccess}.
+ * @param <C> The Class whose declared fields are compared
+ */
+public abstract class AsmEqualsAppender<C> {
+
+	private static final ConcurrentHashMap<ClassAccess<?>, AsmEqualsAppender<?>> APPENDERS = new ConcurrentHashMap<ClassAccess<?>, AsmEqualsAppender<?>>();
+
+	private static final String APPENDER_NM = Type.getInternalName(AsmEqualsAppender.class);
+
+	private static final String EQUALS_BUILDER_NM = Type.getInternalName(EqualsBuilder.class);
+
+	private static final String FIELD_ACCESS_NM = Type.getInternalName(FieldAccess.class);
+
+	/**
+	 * Accessors for the compared fields, in the order they are compared
+	 */
+	protected final FieldAccess<C>[] fieldAccess;
+
+	/**
+	 * Constructor, intended for use by generated subclasses
+	 * @param fieldAccess Accessors for the compared fields
+	 */
+	protected AsmEqualsAppender(FieldAccess<C>[] fieldAccess) {
+		this.fieldAccess = fieldAccess;
+	}
+
+	/**
+	 * Appends each of the compared fields of the given objects to the builder, stopping once the
+	 * builder has determined the objects are not equal
+	 * @param builder The EqualsBuilder
+	 * @param lhs The left hand object
+	 * @param rhs The right hand object
+	 */
+	public abstract void append(EqualsBuilder builder, C lhs, C rhs);
+
+	/**
+	 * Get the appender for the class accessed by the given ClassAccess, generating it if necessary
+	 * @param classAccess ClassAccess for the class whose declared fields are to be compared
+	 * @param <C> The type of class
+	 * @return The appender. Where one cannot be generated for the class, the appender reads the
+	 * fields reflectively in the same way as the builder does when generated appenders are disabled
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C> AsmEqualsAppender<C> get(ClassAccess<C> classAccess) {
+
+		AsmEqualsAppender<?> appender = APPENDERS.get(classAccess);
+		if (appender == null) {
+			appender = create(classAccess);
+			APPENDERS.putIfAbsent(classAccess, appender);
+		}
+		return (AsmEqualsAppender<C>) appender;
+	}
+
+	private static <C> AsmEqualsAppender<?> create(ClassAccess<C> classAccess) {
+
+		final Class<C> clazz = classAccess.getType();
+		final String clazzName = clazz.getName();
+		if (clazzName.startsWith("java.") || clazzName.startsWith("javax.")) {
+			return new ReflectionAppender<C>(classAccess);
+		}
+
+		final FieldAccess<C>[] fields = collectComparedFields(classAccess);
+
+		final String appenderClassName = clazzName + AsmEqualsAppender.class.getSimpleName();
+
+		try {
+			Class<?> appenderClass;
+
+			AccessClassLoader loader = AccessClassLoader.get(clazz);
+			synchronized (loader) {
+				try {
+					appenderClass = loader.loadClass(appenderClassName);
+				} catch (ClassNotFoundException ignored) {
+					loader.registerClass(appenderClassName, generate(appenderClassName.replace('.', '/'), clazzName.replace('.', '/'), fields));
+					appenderClass = loader.findClass(appenderClassName);
+				}
+			}
+
+			// Direct field access is only possible from within the same runtime package
+			if (appenderClass.getClassLoader() != clazz.getClassLoader()) {
+				return new ReflectionAppender<C>(classAccess);
+			}
+
+			Constructor<?> c = appenderClass.getConstructor(new Class[] { FieldAccess[].class });
+			return (AsmEqualsAppender<?>) c.newInstance(new Object[] { fields });
+
+		} catch (Exception e) {
+			return new ReflectionAppender<C>(classAccess);
+		} catch (LinkageError e) {
+			return new ReflectionAppender<C>(classAccess);
+		}
+	}
+
+	/**
+	 * Returns the field accessors for the declared fields that EqualsBuilder compares - excluding
+	 * synthetic, static and transient fields - in the order that EqualsBuilder compares them
+	 */
+	@SuppressWarnings("unchecked")
+	private static <C> FieldAccess<C>[] collectComparedFields(ClassAccess<C> classAccess) {
+
+		final List<FieldAccess<C>> compared = new ArrayList<FieldAccess<C>>();
+		for (FieldAccess<C> next : classAccess.getDeclaredFieldAccessors()) {
+			final Field f = next.field();
+			if ((f.getName().indexOf('$') == -1)
+					&& (!Modifier.isTransient(f.getModifiers()))
+					&& (!Modifier.isStatic(f.getModifiers()))) {
+				compared.add(next);
+			}
+		}
+		return compared.toArray((FieldAccess<C>[]) new FieldAccess[compared.size()]);
+	}
+
+	private static byte[] generate(String appenderClassNm, String clazzNm, FieldAccess<?>[] fields) {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(V1_7, ACC_PUBLIC + ACC_SUPER, appenderClassNm, null, APPENDER_NM, null);
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "([L" + FIELD_ACCESS_NM + ";)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKESPECIAL, APPENDER_NM, "<init>", "([L" + FIELD_ACCESS_NM + ";)V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(2, 2);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PUBLIC, "append", "(L" + EQUALS_BUILDER_NM + ";Ljava/lang/Object;Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+
+		for (int i = 0; i < fields.length; i++) {
+
+			final Field field = fields[i].field();
+			final Type type = Type.getType(field.getType());
+			final Type appendType = type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY ? Type.getType(Object.class) : type;
+
+			mv.visitVarInsn(ALOAD, 1);
+			mv.visitMethodInsn(INVOKEVIRTUAL, EQUALS_BUILDER_NM, "isEquals", "()Z");
+			Label compare = new Label();
+			mv.visitJumpInsn(IFNE, compare);
+			mv.visitInsn(RETURN);
+			mv.visitLabel(compare);
+			mv.visitFrame(F_SAME, 0, null, 0, null);
+
+			mv.visitVarInsn(ALOAD, 1);
+			if (Modifier.isPrivate(field.getModifiers())) {
+				enhanceForFieldAccess(mv, appenderClassNm, i, 2, appendType);
+				enhanceForFieldAccess(mv, appenderClassNm, i, 3, appendType);
+			} else {
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitTypeInsn(CHECKCAST, clazzNm);
+				mv.visitFieldInsn(GETFIELD, clazzNm, field.getName(), type.getDescriptor());
+				mv.visitVarInsn(ALOAD, 3);
+				mv.visitTypeInsn(CHECKCAST, clazzNm);
+				mv.visitFieldInsn(GETFIELD, clazzNm, field.getName(), type.getDescriptor());
+			}
+			mv.visitMethodInsn(INVOKEVIRTUAL, EQUALS_BUILDER_NM, "append", "(" + appendType.getDescriptor() + appendType.getDescriptor() + ")L" + EQUALS_BUILDER_NM + ";");
+			mv.visitInsn(POP);
+		}
+
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(6, 4);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void enhanceForFieldAccess(MethodVisitor mv, String appenderClassNm, int index, int slot, Type appendType) {
+
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, appenderClassNm, "fieldAccess", "[L" + FIELD_ACCESS_NM + ";");
+		mv.visitIntInsn(SIPUSH, index);
+		mv.visitInsn(AALOAD);
+		mv.visitVarInsn(ALOAD, slot);
+		mv.visitMethodInsn(INVOKEINTERFACE, FIELD_ACCESS_NM, getterName(appendType), "(Ljava/lang/Object;)" + appendType.getDescriptor());
+	}
+
+	private static String getterName(Type type) {
+
+		switch (type.getSort()) {
+		case Type.BOOLEAN:
+			return "getBooleanValue";
+		case Type.BYTE:
+			return "getByteValue";
+		case Type.CHAR:
+			return "getCharValue";
+		case Type.SHORT:
+			return "getShortValue";
+		case Type.INT:
+			return "getIntValue";
+		case Type.FLOAT:
+			return "getFloatValue";
+		case Type.LONG:
+			return "getLongValue";
+		case Type.DOUBLE:
+			return "getDoubleValue";
+		default:
+			return "getValue";
+		}
+	}
+
+	/**
+	 * Appender used where no class can be generated, for example for JDK classes or classes whose
+	 * loader cannot see the generated class. It compares the fields using their {@link FieldAccess}.
+	 */
+	private static final class ReflectionAppender<C> extends AsmEqualsAppender<C> {
+
+		private final ClassAccess<C> classAccess;
+
+		ReflectionAppender(ClassAccess<C> classAccess) {
+			super(null);
+			this.classAccess = classAccess;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void append(EqualsBuilder builder, C lhs, C rhs) {
+			builder.reflectionAppendFields(lhs, rhs, (ClassAccess<Object>) classAccess);
+		}
+	}
+}
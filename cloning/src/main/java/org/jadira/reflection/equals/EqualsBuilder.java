@@ -16,15 +16,14 @@
 package org.jadira.reflection.equals;
 
 import java.lang.reflect.Modifier;
-import java.util.IdentityHashMap;
 
 import org.jadira.reflection.access.api.ClassAccess;
 import org.jadira.reflection.access.api.ClassAccessFactory;
 import org.jadira.reflection.access.api.FieldAccess;
 import org.jadira.reflection.access.api.MethodAccess;
-import org.jadira.reflection.access.portable.PortableClassAccessFactory;
+import org.jadira.reflection.access.methodhandle.MethodHandleClassAccessFactory;
 import org.jadira.reflection.access.unsafe.UnsafeClassAccessFactory;
-import org.jadira.reflection.core.identity.Tuple;
+import org.jadira.reflection.core.identity.IdentityPairSet;
 import org.jadira.reflection.core.platform.FeatureDetection;
 
 /**
@@ -58,7 +57,7 @@ public class EqualsBuilder {
 		};
 	};
 
-	private IdentityHashMap<Tuple<Object, Object>, Tuple<Object, Object>> seenReferences;
+	private final IdentityPairSet seenReferences = new IdentityPairSet();
 
 	/**
 	 * If the fields tested are equal. The default value is <code>true</code>.
@@ -69,13 +68,13 @@ public class EqualsBuilder {
 
 	private ClassAccessFactory classAccessFactory;
 
-	public EqualsBuilder() {
-		seenReferences = new IdentityHashMap<Tuple<Object, Object>, Tuple<Object, Object>>();
+	private boolean generatedAppenders = true;
 
+	public EqualsBuilder() {
 		if (FeatureDetection.hasUnsafe()) {
 			this.classAccessFactory = UnsafeClassAccessFactory.get();
 		} else {
-			this.classAccessFactory = PortableClassAccessFactory.get();
+			this.classAccessFactory = MethodHandleClassAccessFactory.get();
 		}
 	}
 
@@ -84,6 +83,17 @@ public class EqualsBuilder {
 		return this;
 	}
 
+	/**
+	 * Determines whether reflective comparison uses an {@link AsmEqualsAppender} generated for each
+	 * class, rather than inspecting each field on every comparison. Enabled by default.
+	 * @param newGeneratedAppenders True if generated appenders should be used
+	 * @return This instance
+	 */
+	public EqualsBuilder withGeneratedAppenders(boolean newGeneratedAppenders) {
+		this.generatedAppenders = newGeneratedAppenders;
+		return this;
+	}
+
 	public EqualsBuilder withClassAccessFactory(
 			ClassAccessFactory classAccessFactory) {
 		this.classAccessFactory = classAccessFactory;
@@ -99,6 +109,27 @@ public class EqualsBuilder {
 			return false;
 		}
 
+		EqualsBuilder equalsBuilder = reflectionBuilder.get();
+		if (equalsBuilder == null) {
+			// We have recursed into this method, for example from an equals() method
+			equalsBuilder = new EqualsBuilder();
+		} else {
+			reflectionBuilder.set(null);
+			equalsBuilder.reset();
+		}
+
+		equalsBuilder.reflectionEqualsInternal(lhs, rhs);
+		final boolean isEqual = equalsBuilder.isEquals();
+
+		// Release the visited references rather than retaining them in the ThreadLocal
+		equalsBuilder.reset();
+		reflectionBuilder.set(equalsBuilder);
+
+		return isEqual;
+	}
+
+	private void reflectionEqualsInternal(Object lhs, Object rhs) {
+
 		Class<?> lhsClass = lhs.getClass();
 		Class<?> rhsClass = rhs.getClass();
 
@@ -116,29 +147,24 @@ public class EqualsBuilder {
 				testClass = lhsClass;
 			}
 		} else {
-			return false;
+			this.setEquals(false);
+			return;
 		}
 
-		EqualsBuilder equalsBuilder = reflectionBuilder.get();
-		// In case we recurse into this method
-		reflectionBuilder.set(null);
-
-		equalsBuilder.reset();
-
-		ClassAccess<?> classAccess = equalsBuilder.classAccessFactory
-				.getClassAccess(testClass);
+		ClassAccess<?> classAccess = classAccessFactory.getClassAccess(testClass);
 
 		try {
 			while ((classAccess.getType() != Object.class)
 					&& (!classAccess.providesEquals())) {
-				equalsBuilder.reflectionAppend(lhs, rhs, classAccess);
+				reflectionAppend(lhs, rhs, classAccess);
 				classAccess = classAccess.getSuperClassAccess();
 			}
 		} catch (IllegalArgumentException e) {
-			return false;
+			this.setEquals(false);
+			return;
 		}
 
-		if (classAccess.getType() != Object.class) {
+		if (isEquals && classAccess.getType() != Object.class) {
 
 			final MethodAccess<Object> methodAccess;
 			try {
@@ -151,75 +177,81 @@ public class EqualsBuilder {
 			} catch (SecurityException e) {
 				throw new IllegalStateException("Cannot find equals() method");
 			}
-			equalsBuilder.setEquals(((Boolean) methodAccess.invoke(lhs, rhs))
+			this.setEquals(((Boolean) methodAccess.invoke(lhs, rhs))
 					.booleanValue());
 		}
-
-		final boolean isEqual = equalsBuilder.isEquals();
-		reflectionBuilder.set(equalsBuilder);
-
-		return isEqual;
 	}
 
 	private void reflectionAppend(Object lhs, Object rhs,
 			ClassAccess<?> classAccess) {
 
-		Tuple<Object, Object> t = Tuple.of(lhs, rhs);
-		if (seenReferences.containsKey(t)) {
+		if (!seenReferences.add(lhs, rhs)) {
 			return;
 		}
-		seenReferences.put(t, t);
 
 		@SuppressWarnings("unchecked")
 		ClassAccess<Object> classAccessInHierarchy = (ClassAccess<Object>) classAccess;
 		
 		while (classAccessInHierarchy != null) {
-		
-			FieldAccess<Object>[] fields = (FieldAccess<Object>[]) classAccessInHierarchy.getDeclaredFieldAccessors();
-	
-			for (int i = 0; (i < fields.length) && (isEquals); i++) {
-				FieldAccess<Object> f = fields[i];
-				if ((f.field().getName().indexOf('$') == -1)
-						&& (!Modifier.isTransient(f.field().getModifiers()))
-						&& (!Modifier.isStatic(f.field().getModifiers()))) {
-	
-					Class<?> type = f.fieldClass();
-					if (type.isPrimitive()) {
-						if (java.lang.Boolean.TYPE == type) {
-							append(f.getBooleanValue(lhs), f.getBooleanValue(rhs));
-						} else if (java.lang.Byte.TYPE == type) {
-							append(f.getByteValue(lhs), f.getByteValue(rhs));
-						} else if (java.lang.Character.TYPE == type) {
-							append(f.getCharValue(lhs), f.getCharValue(rhs));
-						} else if (java.lang.Short.TYPE == type) {
-							append(f.getShortValue(lhs), f.getShortValue(rhs));
-						} else if (java.lang.Integer.TYPE == type) {
-							append(f.getIntValue(lhs), f.getIntValue(rhs));
-						} else if (java.lang.Long.TYPE == type) {
-							append(f.getLongValue(lhs), f.getLongValue(rhs));
-						} else if (java.lang.Float.TYPE == type) {
-							append(f.getFloatValue(lhs), f.getFloatValue(rhs));
-						} else if (java.lang.Double.TYPE == type) {
-							append(f.getDoubleValue(lhs), f.getDoubleValue(rhs));
-						}
-					} else {
-						append(f.getValue(lhs), f.getValue(rhs));
-					}
-				}
+
+			final AsmEqualsAppender<Object> appender = generatedAppenders ? AsmEqualsAppender.get(classAccessInHierarchy) : null;
+			if (appender != null) {
+				appender.append(this, lhs, rhs);
+			} else {
+				reflectionAppendFields(lhs, rhs, classAccessInHierarchy);
 			}
 			
 			classAccessInHierarchy = classAccessInHierarchy.getSuperClassAccess();
 		}
 	}
 
+	void reflectionAppendFields(Object lhs, Object rhs, ClassAccess<Object> classAccess) {
+
+		FieldAccess<Object>[] fields = (FieldAccess<Object>[]) classAccess.getDeclaredFieldAccessors();
+
+		for (int i = 0; (i < fields.length) && (isEquals); i++) {
+			FieldAccess<Object> f = fields[i];
+			if ((f.field().getName().indexOf('$') == -1)
+					&& (!Modifier.isTransient(f.field().getModifiers()))
+					&& (!Modifier.isStatic(f.field().getModifiers()))) {
+
+				Class<?> type = f.fieldClass();
+				if (type.isPrimitive()) {
+					if (java.lang.Boolean.TYPE == type) {
+						append(f.getBooleanValue(lhs), f.getBooleanValue(rhs));
+					} else if (java.lang.Byte.TYPE == type) {
+						append(f.getByteValue(lhs), f.getByteValue(rhs));
+					} else if (java.lang.Character.TYPE == type) {
+						append(f.getCharValue(lhs), f.getCharValue(rhs));
+					} else if (java.lang.Short.TYPE == type) {
+						append(f.getShortValue(lhs), f.getShortValue(rhs));
+					} else if (java.lang.Integer.TYPE == type) {
+						append(f.getIntValue(lhs), f.getIntValue(rhs));
+					} else if (java.lang.Long.TYPE == type) {
+						append(f.getLongValue(lhs), f.getLongValue(rhs));
+					} else if (java.lang.Float.TYPE == type) {
+						append(f.getFloatValue(lhs), f.getFloatValue(rhs));
+					} else if (java.lang.Double.TYPE == type) {
+						append(f.getDoubleValue(lhs), f.getDoubleValue(rhs));
+					}
+				} else {
+					append(f.getValue(lhs), f.getValue(rhs));
+				}
+			}
+		}
+	}
+
 	public EqualsBuilder append(Object lhs, Object rhs) {
 
 		preCheckObject(lhs, rhs);
+		if (!isEquals || lhs == rhs) {
+			return this;
+		}
 
 		Class<?> lhsClass = lhs.getClass();
 		if (!lhsClass.isArray()) {
 			if (defaultDeepReflect) {
-				reflectionEquals(lhs, rhs);
+				reflectionEqualsInternal(lhs, rhs);
 			} else {
 				this.setEquals(lhs.equals(rhs));
 			}
@@ -496,7 +528,7 @@ public class EqualsBuilder {
 	}
 
 	public void reset() {
-		seenReferences = new IdentityHashMap<Tuple<Object, Object>, Tuple<Object, Object>>();
+		seenReferences.clear();
 		this.isEquals = true;
 	}
 }
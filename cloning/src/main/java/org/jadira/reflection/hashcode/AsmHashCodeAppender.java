@@ -0,0 +1,256 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.hashcode;
+
+import static org.objectweb.asm.Opcodes.AALOAD;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.V1_7;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.api.ClassAccess;
+import org.jadira.reflection.access.api.FieldAccess;
+import org.jadira.reflection.access.classloader.AccessClassLoader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Appends the fields declared by a single class to a {@link HashCodeBuilder}. A specialised
+ * subclass is generated with ASM for each class, so that the field filtering and the dispatch on
+ * field type happen once rather than on every invocation. Non-private fields are read directly;
+ * private fields, which the generated class cannot read, are read through their {@link FieldAccess}.
+ * @param <C> The Class whose declared fields are hashed
+ */
+public abstract class AsmHashCodeAppender<C> {
+
+	private static final ConcurrentHashMap<ClassAccess<?>, AsmHashCodeAppender<?>> APPENDERS = new ConcurrentHashMap<ClassAccess<?>, AsmHashCodeAppender<?>>();
+
+	private static final String APPENDER_NM = Type.getInternalName(AsmHashCodeAppender.class);
+
+	private static final String HASH_CODE_BUILDER_NM = Type.getInternalName(HashCodeBuilder.class);
+
+	private static final String FIELD_ACCESS_NM = Type.getInternalName(FieldAccess.class);
+
+	/**
+	 * Accessors for the hashed fields, in the order they are appended
+	 */
+	protected final FieldAccess<C>[] fieldAccess;
+
+	/**
+	 * Constructor, intended for use by generated subclasses
+	 * @param fieldAccess Accessors for the hashed fields
+	 */
+	protected AsmHashCodeAppender(FieldAccess<C>[] fieldAccess) {
+		this.fieldAccess = fieldAccess;
+	}
+
+	/**
+	 * Appends each of the hashed fields of the given object to the builder
+	 * @param builder The HashCodeBuilder
+	 * @param object The object
+	 */
+	public abstract void append(HashCodeBuilder builder, C object);
+
+	/**
+	 * Get the appender for the class accessed by the given ClassAccess, generating it if necessary
+	 * @param classAccess ClassAccess for the class whose declared fields are to be hashed
+	 * @param <C> The type of class
+	 * @return The appender. Where one cannot be generated for the class, the appender reads the
+	 * fields reflectively in the same way as the builder does when generated appenders are disabled
+	 */
+	@SuppressWarnings("unchecked")
+	public static <C> AsmHashCodeAppender<C> get(ClassAccess<C> classAccess) {
+
+		AsmHashCodeAppender<?> appender = APPENDERS.get(classAccess);
+		if (appender == null) {
+			appender = create(classAccess);
+			APPENDERS.putIfAbsent(classAccess, appender);
+		}
+		return (AsmHashCodeAppender<C>) appender;
+	}
+
+	private static <C> AsmHashCodeAppender<?> create(ClassAccess<C> classAccess) {
+
+		final Class<C> clazz = classAccess.getType();
+		final String clazzName = clazz.getName();
+		if (clazzName.startsWith("java.") || clazzName.startsWith("javax.")) {
+			return new ReflectionAppender<C>(classAccess);
+		}
+
+		final FieldAccess<C>[] fields = collectHashedFields(classAccess);
+
+		final String appenderClassName = clazzName + AsmHashCodeAppender.class.getSimpleName();
+
+		try {
+			Class<?> appenderClass;
+
+			AccessClassLoader loader = AccessClassLoader.get(clazz);
+			synchronized (loader) {
+				try {
+					appenderClass = loader.loadClass(appenderClassName);
+				} catch (ClassNotFoundException ignored) {
+					loader.registerClass(appenderClassName, generate(appenderClassName.replace('.', '/'), clazzName.replace('.', '/'), fields));
+					appenderClass = loader.findClass(appenderClassName);
+				}
+			}
+
+			// Direct field access is only possible from within the same runtime package
+			if (appenderClass.getClassLoader() != clazz.getClassLoader()) {
+				return new ReflectionAppender<C>(classAccess);
+			}
+
+			Constructor<?> c = appenderClass.getConstructor(new Class[] { FieldAccess[].class });
+			return (AsmHashCodeAppender<?>) c.newInstance(new Object[] { fields });
+
+		} catch (Exception e) {
+			return new ReflectionAppender<C>(classAccess);
+		} catch (LinkageError e) {
+			return new ReflectionAppender<C>(classAccess);
+		}
+	}
+
+	/**
+	 * Returns the field accessors for the declared fields that HashCodeBuilder hashes - excluding
+	 * synthetic, static and transient fields - in the order that HashCodeBuilder appends them
+	 */
+	@SuppressWarnings("unchecked")
+	private static <C> FieldAccess<C>[] collectHashedFields(ClassAccess<C> classAccess) {
+
+		final List<FieldAccess<C>> hashed = new ArrayList<FieldAccess<C>>();
+		for (FieldAccess<C> next : classAccess.getDeclaredFieldAccessors()) {
+			final Field f = next.field();
+			if ((f.getName().indexOf('$') == -1)
+					&& (!Modifier.isTransient(f.getModifiers()))
+					&& (!Modifier.isStatic(f.getModifiers()))) {
+				hashed.add(next);
+			}
+		}
+		return hashed.toArray((FieldAccess<C>[]) new FieldAccess[hashed.size()]);
+	}
+
+	private static byte[] generate(String appenderClassNm, String clazzNm, FieldAccess<?>[] fields) {
+
+		ClassWriter cw = new ClassWriter(0);
+		cw.visit(V1_7, ACC_PUBLIC + ACC_SUPER, appenderClassNm, null, APPENDER_NM, null);
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "([L" + FIELD_ACCESS_NM + ";)V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitMethodInsn(INVOKESPECIAL, APPENDER_NM, "<init>", "([L" + FIELD_ACCESS_NM + ";)V");
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(2, 2);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(ACC_PUBLIC, "append", "(L" + HASH_CODE_BUILDER_NM + ";Ljava/lang/Object;)V", null, null);
+		mv.visitCode();
+
+		for (int i = 0; i < fields.length; i++) {
+
+			final Field field = fields[i].field();
+			final Type type = Type.getType(field.getType());
+			final Type appendType = type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY ? Type.getType(Object.class) : type;
+
+			mv.visitVarInsn(ALOAD, 1);
+			if (Modifier.isPrivate(field.getModifiers())) {
+				enhanceForFieldAccess(mv, appenderClassNm, i, 2, appendType);
+			} else {
+				mv.visitVarInsn(ALOAD, 2);
+				mv.visitTypeInsn(CHECKCAST, clazzNm);
+				mv.visitFieldInsn(GETFIELD, clazzNm, field.getName(), type.getDescriptor());
+			}
+			mv.visitMethodInsn(INVOKEVIRTUAL, HASH_CODE_BUILDER_NM, "append", "(" + appendType.getDescriptor() + ")L" + HASH_CODE_BUILDER_NM + ";");
+			mv.visitInsn(POP);
+		}
+
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(4, 3);
+		mv.visitEnd();
+
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void enhanceForFieldAccess(MethodVisitor mv, String appenderClassNm, int index, int slot, Type appendType) {
+
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, appenderClassNm, "fieldAccess", "[L" + FIELD_ACCESS_NM + ";");
+		mv.visitIntInsn(SIPUSH, index);
+		mv.visitInsn(AALOAD);
+		mv.visitVarInsn(ALOAD, slot);
+		mv.visitMethodInsn(INVOKEINTERFACE, FIELD_ACCESS_NM, getterName(appendType), "(Ljava/lang/Object;)" + appendType.getDescriptor());
+	}
+
+	private static String getterName(Type type) {
+
+		switch (type.getSort()) {
+		case Type.BOOLEAN:
+			return "getBooleanValue";
+		case Type.BYTE:
+			return "getByteValue";
+		case Type.CHAR:
+			return "getCharValue";
+		case Type.SHORT:
+			return "getShortValue";
+		case Type.INT:
+			return "getIntValue";
+		case Type.FLOAT:
+			return "getFloatValue";
+		case Type.LONG:
+			return "getLongValue";
+		case Type.DOUBLE:
+			return "getDoubleValue";
+		default:
+			return "getValue";
+		}
+	}
+
+	/**
+	 * Appender used where no class can be generated, for example for JDK classes or classes whose
+	 * loader cannot see the generated class. It hashes the fields using their {@link FieldAccess}.
+	 */
+	private static final class ReflectionAppender<C> extends AsmHashCodeAppender<C> {
+
+		private final ClassAccess<C> classAccess;
+
+		ReflectionAppender(ClassAccess<C> classAccess) {
+			super(null);
+			this.classAccess = classAccess;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public void append(HashCodeBuilder builder, C object) {
+			builder.reflectionAppendFields(object, (ClassAccess<Object>) classAccess);
+		}
+	}
+}
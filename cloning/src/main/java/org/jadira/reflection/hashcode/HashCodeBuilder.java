@@ -22,7 +22,7 @@ import org.jadira.reflection.access.api.ClassAccess;
 import org.jadira.reflection.access.api.ClassAccessFactory;
 import org.jadira.reflection.access.api.FieldAccess;
 import org.jadira.reflection.access.api.MethodAccess;
-import org.jadira.reflection.access.portable.PortableClassAccessFactory;
+import org.jadira.reflection.access.methodhandle.MethodHandleClassAccessFactory;
 import org.jadira.reflection.access.unsafe.UnsafeClassAccessFactory;
 import org.jadira.reflection.core.platform.FeatureDetection;
 
@@ -78,6 +78,8 @@ public class HashCodeBuilder {
 
 	private boolean defaultDeepReflect = false;
 
+	private boolean generatedAppenders = true;
+
 	private <C> void reflectionAppend(C object) {
 
 		if (seenReferences.containsKey(object)) {
@@ -92,42 +94,17 @@ public class HashCodeBuilder {
 		while ((classAccess.getType() != Object.class)
 				&& (!classAccess.providesHashCode())) {
 
-			ClassAccess<? super C> classAccessInHierarchy = classAccess;
-						
-			for (FieldAccess<? super C> fieldAccess : classAccessInHierarchy.getDeclaredFieldAccessors()) {
+			@SuppressWarnings("unchecked")
+			final ClassAccess<Object> classAccessInHierarchy = (ClassAccess<Object>) classAccess;
 
-				if ((fieldAccess.field().getName().indexOf('$') == -1)
-						&& (!Modifier.isTransient(fieldAccess.field().getModifiers()))
-						&& (!Modifier.isStatic(fieldAccess.field().getModifiers()))) {
-				
-					Class<?> type = fieldAccess.fieldClass();
-					
-					if (type.isPrimitive()) {
-						if (java.lang.Boolean.TYPE == type) {
-							append(fieldAccess.getBooleanValue(object));
-						} else if (java.lang.Byte.TYPE == type) {
-							append(fieldAccess.getByteValue(object));
-						} else if (java.lang.Character.TYPE == type) {
-							append(fieldAccess.getCharValue(object));
-						} else if (java.lang.Short.TYPE == type) {
-							append(fieldAccess.getShortValue(object));
-						} else if (java.lang.Integer.TYPE == type) {
-							append(fieldAccess.getIntValue(object));
-						} else if (java.lang.Long.TYPE == type) {
-							append(fieldAccess.getLongValue(object));
-						} else if (java.lang.Float.TYPE == type) {
-							append(fieldAccess.getFloatValue(object));
-						} else if (java.lang.Double.TYPE == type) {
-							append(fieldAccess.getDoubleValue(object));
-						}
-					} else {
-						final Object value = fieldAccess.getValue(object);
-						append(value);
-					}
-				}
+			final AsmHashCodeAppender<Object> appender = generatedAppenders ? AsmHashCodeAppender.get(classAccessInHierarchy) : null;
+			if (appender != null) {
+				appender.append(this, object);
+			} else {
+				reflectionAppendFields(object, classAccessInHierarchy);
 			}
 
-			classAccessInHierarchy = classAccessInHierarchy.getSuperClassAccess();
+			classAccess = classAccess.getSuperClassAccess();
 		}
 		if (classAccess.getType() != Object.class) {
 
@@ -147,6 +124,42 @@ public class HashCodeBuilder {
 		}
 	}
 
+	void reflectionAppendFields(Object object, ClassAccess<Object> classAccess) {
+
+		for (FieldAccess<Object> fieldAccess : classAccess.getDeclaredFieldAccessors()) {
+
+			if ((fieldAccess.field().getName().indexOf('$') == -1)
+					&& (!Modifier.isTransient(fieldAccess.field().getModifiers()))
+					&& (!Modifier.isStatic(fieldAccess.field().getModifiers()))) {
+			
+				Class<?> type = fieldAccess.fieldClass();
+				
+				if (type.isPrimitive()) {
+					if (java.lang.Boolean.TYPE == type) {
+						append(fieldAccess.getBooleanValue(object));
+					} else if (java.lang.Byte.TYPE == type) {
+						append(fieldAccess.getByteValue(object));
+					} else if (java.lang.Character.TYPE == type) {
+						append(fieldAccess.getCharValue(object));
+					} else if (java.lang.Short.TYPE == type) {
+						append(fieldAccess.getShortValue(object));
+					} else if (java.lang.Integer.TYPE == type) {
+						append(fieldAccess.getIntValue(object));
+					} else if (java.lang.Long.TYPE == type) {
+						append(fieldAccess.getLongValue(object));
+					} else if (java.lang.Float.TYPE == type) {
+						append(fieldAccess.getFloatValue(object));
+					} else if (java.lang.Double.TYPE == type) {
+						append(fieldAccess.getDoubleValue(object));
+					}
+				} else {
+					final Object value = fieldAccess.getValue(object);
+					append(value);
+				}
+			}
+		}
+	}
+
 	public static <T> int reflectionHashCode(T object) {
 		return reflectionHashCode(37, 17, object);
 	}
@@ -189,7 +202,7 @@ public class HashCodeBuilder {
 		if (FeatureDetection.hasUnsafe()) {
 			this.classAccessFactory = UnsafeClassAccessFactory.get();
 		} else {
-			this.classAccessFactory = PortableClassAccessFactory.get();
+			this.classAccessFactory = MethodHandleClassAccessFactory.get();
 		}
 	}
 
@@ -216,7 +229,7 @@ public class HashCodeBuilder {
 		if (FeatureDetection.hasUnsafe()) {
 			this.classAccessFactory = UnsafeClassAccessFactory.get();
 		} else {
-			this.classAccessFactory = PortableClassAccessFactory.get();
+			this.classAccessFactory = MethodHandleClassAccessFactory.get();
 		}
 	}
 
@@ -225,6 +238,17 @@ public class HashCodeBuilder {
 		return this;
 	}
 
+	/**
+	 * Determines whether reflective hashing uses an {@link AsmHashCodeAppender} generated for each
+	 * class, rather than inspecting each field on every invocation. Enabled by default.
+	 * @param newGeneratedAppenders True if generated appenders should be used
+	 * @return This instance
+	 */
+	public HashCodeBuilder withGeneratedAppenders(boolean newGeneratedAppenders) {
+		this.generatedAppenders = newGeneratedAppenders;
+		return this;
+	}
+
 	public HashCodeBuilder withClassAccessFactory(
 			ClassAccessFactory classAccessFactory) {
 		this.classAccessFactory = classAccessFactory;
@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.size;
+
+/**
+ * The aggregated instance count and size attributed to a single class during a size estimate.
+ * Where part of the graph was sampled, the values are extrapolated estimates.
+ */
+public class ClassSizeStatistics {
+
+	private final Class<?> type;
+
+	private double instanceCount;
+
+	private double totalBytes;
+
+	ClassSizeStatistics(Class<?> type) {
+		this.type = type;
+	}
+
+	void add(double instances, double bytes) {
+		instanceCount += instances;
+		totalBytes += bytes;
+	}
+
+	/**
+	 * The class the statistics relate to
+	 * @return The class
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * The (estimated) number of reachable instances of the class
+	 * @return Instance count
+	 */
+	public long getInstanceCount() {
+		return Math.round(instanceCount);
+	}
+
+	/**
+	 * The (estimated) shallow size in bytes of all reachable instances of the class
+	 * @return Size in bytes
+	 */
+	public long getTotalBytes() {
+		return Math.round(totalBytes);
+	}
+
+	@Override
+	public String toString() {
+		return type.getName() + " instances=" + getInstanceCount() + " bytes=" + getTotalBytes();
+	}
+}
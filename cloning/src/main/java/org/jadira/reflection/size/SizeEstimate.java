@@ -0,0 +1,124 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.size;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The result of a {@link SizeEstimator} traversal. If the traversal was sampled the size is
+ * extrapolated, and if it was truncated or cancelled the size is a lower bound.
+ */
+public class SizeEstimate {
+
+	private static final Comparator<ClassSizeStatistics> BY_TOTAL_BYTES = new Comparator<ClassSizeStatistics>() {
+
+		@Override
+		public int compare(ClassSizeStatistics o1, ClassSizeStatistics o2) {
+			return o1.getTotalBytes() < o2.getTotalBytes() ? 1 : (o1.getTotalBytes() == o2.getTotalBytes() ? 0 : -1);
+		}
+	};
+
+	private final long totalBytes;
+	private final long visitedObjects;
+	private final boolean sampled;
+	private final boolean truncated;
+	private final boolean cancelled;
+	private final List<ClassSizeStatistics> histogram;
+
+	SizeEstimate(long totalBytes, long visitedObjects, boolean sampled, boolean truncated, boolean cancelled, Collection<ClassSizeStatistics> histogram) {
+
+		this.totalBytes = totalBytes;
+		this.visitedObjects = visitedObjects;
+		this.sampled = sampled;
+		this.truncated = truncated;
+		this.cancelled = cancelled;
+
+		if (histogram == null) {
+			this.histogram = Collections.emptyList();
+		} else {
+			final List<ClassSizeStatistics> sorted = new ArrayList<ClassSizeStatistics>(histogram);
+			Collections.sort(sorted, BY_TOTAL_BYTES);
+			this.histogram = Collections.unmodifiableList(sorted);
+		}
+	}
+
+	/**
+	 * The estimated deep size of the graph in bytes
+	 * @return Size in bytes
+	 */
+	public long getTotalBytes() {
+		return totalBytes;
+	}
+
+	/**
+	 * The number of objects actually visited, which is less than the number reachable if the
+	 * traversal was sampled, truncated or cancelled
+	 * @return The number of objects visited
+	 */
+	public long getVisitedObjects() {
+		return visitedObjects;
+	}
+
+	/**
+	 * Indicates whether one or more large arrays were sampled rather than fully traversed
+	 * @return True if the estimate was sampled
+	 */
+	public boolean isSampled() {
+		return sampled;
+	}
+
+	/**
+	 * Indicates whether the traversal stopped at the depth, object count or byte limit
+	 * @return True if the estimate was truncated
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/**
+	 * Indicates whether the traversal was cancelled before it completed
+	 * @return True if the estimate was cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Indicates whether every reachable object was visited
+	 * @return True if the estimate is exact
+	 */
+	public boolean isExact() {
+		return !sampled && !truncated && !cancelled;
+	}
+
+	/**
+	 * The per-class histogram, ordered by descending total size. Empty unless the histogram was
+	 * requested from the {@link SizeEstimator}.
+	 * @return The histogram
+	 */
+	public List<ClassSizeStatistics> getHistogram() {
+		return histogram;
+	}
+
+	@Override
+	public String toString() {
+		return "SizeEstimate[totalBytes=" + totalBytes + ", visitedObjects=" + visitedObjects + ", sampled=" + sampled + ", truncated=" + truncated + ", cancelled=" + cancelled + "]";
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.size;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jadira.reflection.access.model.ClassModel;
+import org.jadira.reflection.access.model.FieldModel;
+import org.jadira.reflection.access.model.FieldType;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
+import org.jadira.reflection.access.unsafe.UnsafeFieldAccess;
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+
+/**
+ * Estimates the deep size of an object graph. Unlike {@link UnsafeOperations#deepSizeOf(Object)}
+ * the traversal is iterative, can be bounded by depth, object count or size, can sample large
+ * reference arrays (and so the collections backed by them), can aggregate a per-class histogram
+ * and can be cancelled from another thread.
+ * <p>
+ * When an array longer than the sample threshold is encountered, only an evenly spaced sample of
+ * its elements is traversed and the sizes of the objects reached through them are scaled up by
+ * the ratio of the array length to the sample size. Linked structures are not sampled, but can be
+ * bounded with {@link #withMaxDepth(int)}.
+ * <p>
+ * Instances are reusable and may be shared between threads once configured. Requires
+ * sun.misc.Unsafe.
+ */
+public class SizeEstimator {
+
+	private static final UnsafeOperations UNSAFE_OPERATIONS = UnsafeOperations.getUnsafeOperations();
+
+	private static final ConcurrentHashMap<Class<?>, ClassLayout> CLASS_LAYOUTS = new ConcurrentHashMap<Class<?>, ClassLayout>();
+
+	/**
+	 * The number of objects visited between checks for cancellation
+	 */
+	private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+
+	private int maxDepth = Integer.MAX_VALUE;
+
+	private long maxObjects = Long.MAX_VALUE;
+
+	private long byteLimit = Long.MAX_VALUE;
+
+	private int sampleThreshold = Integer.MAX_VALUE;
+
+	private int sampleSize = 100;
+
+	private boolean histogram = false;
+
+	/**
+	 * Creates a new instance which traverses the complete graph without sampling
+	 */
+	public SizeEstimator() {
+	}
+
+	/**
+	 * Limit the number of references followed from the root. Objects beyond the limit are not counted.
+	 * @param maxDepth The maximum depth, where the root is at depth zero
+	 * @return This instance
+	 */
+	public SizeEstimator withMaxDepth(int maxDepth) {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("maxDepth must not be negative but was: " + maxDepth);
+		}
+		this.maxDepth = maxDepth;
+		return this;
+	}
+
+	/**
+	 * Limit the number of objects visited
+	 * @param maxObjects The maximum number of objects to visit
+	 * @return This instance
+	 */
+	public SizeEstimator withMaxObjects(long maxObjects) {
+		if (maxObjects < 1) {
+			throw new IllegalArgumentException("maxObjects must be positive but was: " + maxObjects);
+		}
+		this.maxObjects = maxObjects;
+		return this;
+	}
+
+	/**
+	 * Stop the traversal once the estimated size reaches the given limit. This is the cheapest way
+	 * of determining whether a graph exceeds a memory budget.
+	 * @param byteLimit The size in bytes at which to stop
+	 * @return This instance
+	 */
+	public SizeEstimator withByteLimit(long byteLimit) {
+		if (byteLimit < 1) {
+			throw new IllegalArgumentException("byteLimit must be positive but was: " + byteLimit);
+		}
+		this.byteLimit = byteLimit;
+		return this;
+	}
+
+	/**
+	 * Sample reference arrays longer than the given threshold
+	 * @param sampleThreshold Arrays with more elements than this are sampled
+	 * @param sampleSize The number of elements to visit in a sampled array
+	 * @return This instance
+	 */
+	public SizeEstimator withSampling(int sampleThreshold, int sampleSize) {
+		if (sampleSize < 1) {
+			throw new IllegalArgumentException("sampleSize must be positive but was: " + sampleSize);
+		}
+		if (sampleThreshold < sampleSize) {
+			throw new IllegalArgumentException("sampleThreshold must not be less than sampleSize but was: " + sampleThreshold);
+		}
+		this.sampleThreshold = sampleThreshold;
+		this.sampleSize = sampleSize;
+		return this;
+	}
+
+	/**
+	 * Aggregate a per-class histogram during the traversal
+	 * @param histogram True if the histogram should be collected
+	 * @return This instance
+	 */
+	public SizeEstimator withHistogram(boolean histogram) {
+		this.histogram = histogram;
+		return this;
+	}
+
+	/**
+	 * Estimate the deep size of the given object
+	 * @param root The object to estimate
+	 * @return The estimate
+	 */
+	public SizeEstimate estimate(Object root) {
+		return estimate(root, null);
+	}
+
+	/**
+	 * Estimate the deep size of the given object. The traversal stops early, producing a partial
+	 * estimate, if the given flag is set by another thread.
+	 * @param root The object to estimate
+	 * @param cancelled Flag indicating that the estimate should be cancelled, may be null
+	 * @return The estimate
+	 */
+	public SizeEstimate estimate(Object root, AtomicBoolean cancelled) {
+
+		final IdentityHashMap<Object, Boolean> seenObjects = new IdentityHashMap<Object, Boolean>();
+		final Map<Class<?>, ClassSizeStatistics> statistics = histogram ? new HashMap<Class<?>, ClassSizeStatistics>() : null;
+		final WorkStack stack = new WorkStack();
+
+		double totalBytes = 0.0D;
+		long visitedObjects = 0;
+		boolean wasSampled = false;
+		boolean wasTruncated = false;
+		boolean wasCancelled = false;
+
+		push(stack, seenObjects, root, 0, 1.0D);
+
+		while (stack.size > 0) {
+
+			if (cancelled != null && (visitedObjects % CANCELLATION_CHECK_INTERVAL) == 0 && cancelled.get()) {
+				wasCancelled = true;
+				break;
+			}
+			if (visitedObjects >= maxObjects || totalBytes >= byteLimit) {
+				wasTruncated = true;
+				break;
+			}
+
+			stack.size--;
+			final Object next = stack.objects[stack.size];
+			final int depth = stack.depths[stack.size];
+			final double scale = stack.scales[stack.size];
+			stack.objects[stack.size] = null;
+
+			visitedObjects++;
+
+			final Class<?> clazz = next.getClass();
+			final long shallowSize;
+
+			if (clazz.isArray()) {
+
+				shallowSize = UNSAFE_OPERATIONS.shallowSizeOf(next);
+
+				if (!clazz.getComponentType().isPrimitive()) {
+
+					final Object[] array = (Object[]) next;
+					if (depth >= maxDepth) {
+						wasTruncated |= hasUnseen(array, seenObjects);
+					} else if (array.length > sampleThreshold) {
+						wasSampled = true;
+						final double step = (double) array.length / sampleSize;
+						final double elementScale = scale * step;
+						for (int i = 0; i < sampleSize; i++) {
+							push(stack, seenObjects, array[(int) (i * step)], depth + 1, elementScale);
+						}
+					} else {
+						for (int i = 0; i < array.length; i++) {
+							push(stack, seenObjects, array[i], depth + 1, scale);
+						}
+					}
+				}
+
+			} else {
+
+				final ClassLayout layout = layoutOf(clazz);
+				shallowSize = layout.shallowSize;
+
+				final long[] offsets = layout.referenceOffsets;
+				for (int i = 0; i < offsets.length; i++) {
+					final Object fieldObject = UNSAFE_OPERATIONS.getObject(next, offsets[i]);
+					if (depth >= maxDepth) {
+						if (fieldObject != null && !(fieldObject instanceof Class) && !seenObjects.containsKey(fieldObject)) {
+							wasTruncated = true;
+						}
+					} else {
+						push(stack, seenObjects, fieldObject, depth + 1, scale);
+					}
+				}
+			}
+
+			final double scaledSize = shallowSize * scale;
+			totalBytes += scaledSize;
+
+			if (statistics != null) {
+				ClassSizeStatistics classStatistics = statistics.get(clazz);
+				if (classStatistics == null) {
+					classStatistics = new ClassSizeStatistics(clazz);
+					statistics.put(clazz, classStatistics);
+				}
+				classStatistics.add(scale, scaledSize);
+			}
+		}
+
+		final Collection<ClassSizeStatistics> histogramValues = statistics == null ? null : statistics.values();
+		return new SizeEstimate(Math.round(totalBytes), visitedObjects, wasSampled, wasTruncated, wasCancelled, histogramValues);
+	}
+
+	private static void push(WorkStack stack, IdentityHashMap<Object, Boolean> seenObjects, Object next, int depth, double scale) {
+
+		// Class instances are shared metadata rather than part of the graph
+		if (next == null || next instanceof Class || seenObjects.containsKey(next)) {
+			return;
+		}
+		seenObjects.put(next, Boolean.TRUE);
+		stack.push(next, depth, scale);
+	}
+
+	private static boolean hasUnseen(Object[] array, IdentityHashMap<Object, Boolean> seenObjects) {
+
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] != null && !(array[i] instanceof Class) && !seenObjects.containsKey(array[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static ClassLayout layoutOf(Class<?> clazz) {
+
+		ClassLayout layout = CLASS_LAYOUTS.get(clazz);
+		if (layout == null) {
+			layout = new ClassLayout(clazz);
+			CLASS_LAYOUTS.putIfAbsent(clazz, layout);
+		}
+		return layout;
+	}
+
+	/**
+	 * The shallow size and reference field offsets of a class, derived from its ClassModel
+	 */
+	private static final class ClassLayout {
+
+		private final long shallowSize;
+
+		private final long[] referenceOffsets;
+
+		private ClassLayout(Class<?> clazz) {
+
+			this.shallowSize = UNSAFE_OPERATIONS.shallowSizeOf(clazz);
+
+			int count = 0;
+			long[] offsets = new long[8];
+
+			ClassModel<?> model = UnsafeClassAccess.get(clazz).getClassModel();
+			while (model != null) {
+				for (FieldModel<?> fieldModel : model.getModelFields()) {
+					if (fieldModel.getFieldType() != FieldType.PRIMITIVE) {
+						if (count == offsets.length) {
+							long[] newOffsets = new long[count * 2];
+							System.arraycopy(offsets, 0, newOffsets, 0, count);
+							offsets = newOffsets;
+						}
+						offsets[count++] = ((UnsafeFieldAccess<?>) fieldModel.getFieldAccess()).fieldOffset();
+					}
+				}
+				model = model.getSuperClassModel();
+			}
+
+			this.referenceOffsets = new long[count];
+			System.arraycopy(offsets, 0, referenceOffsets, 0, count);
+		}
+	}
+
+	/**
+	 * Stack of pending objects, held in parallel arrays so that no allocation is needed per object
+	 */
+	private static final class WorkStack {
+
+		private Object[] objects = new Object[64];
+		private int[] depths = new int[64];
+		private double[] scales = new double[64];
+		private int size;
+
+		private void push(Object object, int depth, double scale) {
+
+			if (size == objects.length) {
+				final int newLength = size * 2;
+				Object[] newObjects = new Object[newLength];
+				System.arraycopy(objects, 0, newObjects, 0, size);
+				objects = newObjects;
+				int[] newDepths = new int[newLength];
+				System.arraycopy(depths, 0, newDepths, 0, size);
+				depths = newDepths;
+				double[] newScales = new double[newLength];
+				System.arraycopy(scales, 0, newScales, 0, size);
+				scales = newScales;
+			}
+			objects[size] = object;
+			depths[size] = depth;
+			scales[size] = scale;
+			size++;
+		}
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.snapshot;
+
+import java.lang.reflect.Constructor;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+
+/**
+ * The hash based collections which are written as their entries rather than their fields. The
+ * layout of these depends on the hash codes of their members, which may be identity hash codes
+ * that differ when the snapshot is read, so they are rebuilt once the whole graph has been read.
+ * Subclasses of these collections are written in the same way, together with the fields they
+ * declare themselves. The load factor, and for LinkedHashMap the access order, are retained.
+ */
+enum HashedCollection {
+
+	// More specific types precede the types they extend, so that forClass finds the closest match
+	LINKED_HASH_MAP(LinkedHashMap.class, true) {
+		@Override
+		Object newInstance(float loadFactor, boolean accessOrder) {
+			return new LinkedHashMap<Object, Object>(DEFAULT_CAPACITY, loadFactor, accessOrder);
+		}
+
+		@Override
+		float getLoadFactor(Object instance) {
+			return UNSAFE_OPERATIONS.getFloat(instance, offset(HASH_MAP_LOAD_FACTOR, "loadFactor of HashMap"));
+		}
+
+		@Override
+		boolean isAccessOrder(Object instance) {
+			return UNSAFE_OPERATIONS.getBoolean(instance, offset(LINKED_HASH_MAP_ACCESS_ORDER, "accessOrder of LinkedHashMap"));
+		}
+
+		@Override
+		void restore(Object instance, float loadFactor, boolean accessOrder) {
+			UNSAFE_OPERATIONS.putFloat(instance, offset(HASH_MAP_LOAD_FACTOR, "loadFactor of HashMap"), loadFactor);
+			UNSAFE_OPERATIONS.putBoolean(instance, offset(LINKED_HASH_MAP_ACCESS_ORDER, "accessOrder of LinkedHashMap"), accessOrder);
+		}
+	},
+	HASH_MAP(HashMap.class, true) {
+		@Override
+		Object newInstance(float loadFactor, boolean accessOrder) {
+			return new HashMap<Object, Object>(DEFAULT_CAPACITY, loadFactor);
+		}
+
+		@Override
+		float getLoadFactor(Object instance) {
+			return UNSAFE_OPERATIONS.getFloat(instance, offset(HASH_MAP_LOAD_FACTOR, "loadFactor of HashMap"));
+		}
+
+		@Override
+		void restore(Object instance, float loadFactor, boolean accessOrder) {
+			UNSAFE_OPERATIONS.putFloat(instance, offset(HASH_MAP_LOAD_FACTOR, "loadFactor of HashMap"), loadFactor);
+		}
+	},
+	HASHTABLE(Hashtable.class, true) {
+		@Override
+		Object newInstance(float loadFactor, boolean accessOrder) {
+			return new Hashtable<Object, Object>(DEFAULT_CAPACITY, loadFactor);
+		}
+
+		@Override
+		float getLoadFactor(Object instance) {
+			return UNSAFE_OPERATIONS.getFloat(instance, offset(HASHTABLE_LOAD_FACTOR, "loadFactor of Hashtable"));
+		}
+
+		@Override
+		void restore(Object instance, float loadFactor, boolean accessOrder) {
+			UNSAFE_OPERATIONS.putFloat(instance, offset(HASHTABLE_LOAD_FACTOR, "loadFactor of Hashtable"), loadFactor);
+		}
+	},
+	CONCURRENT_HASH_MAP(ConcurrentHashMap.class, true) {
+		@Override
+		Object newInstance(float loadFactor, boolean accessOrder) {
+			return new ConcurrentHashMap<Object, Object>();
+		}
+	},
+	IDENTITY_HASH_MAP(IdentityHashMap.class, true) {
+		@Override
+		Object newInstance(float loadFactor, boolean accessOrder) {
+			return new IdentityHashMap<Object, Object>();
+		}
+	},
+	LINKED_HASH_SET(LinkedHashSet.class, false) {
+		@Override
+		Object newInstance(float loadFactor, boolean accessOrder) {
+			return new LinkedHashSet<Object>(DEFAULT_CAPACITY, loadFactor);
+		}
+
+		@Override
+		float getLoadFactor(Object instance) {
+			return HASH_MAP.getLoadFactor(backingMap(instance));
+		}
+
+		@Override
+		void restore(Object instance, float loadFactor, boolean accessOrder) {
+			HASH_MAP.restore(backingMap(instance), loadFactor, false);
+		}
+	},
+	HASH_SET(HashSet.class, false) {
+		@Override
+		Object newInstance(float loadFactor, boolean accessOrder) {
+			return new HashSet<Object>(DEFAULT_CAPACITY, loadFactor);
+		}
+
+		@Override
+		float getLoadFactor(Object instance) {
+			return HASH_MAP.getLoadFactor(backingMap(instance));
+		}
+
+		@Override
+		void restore(Object instance, float loadFactor, boolean accessOrder) {
+			HASH_MAP.restore(backingMap(instance), loadFactor, false);
+		}
+	};
+
+	private static final HashedCollection[] VALUES = values();
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private static final UnsafeOperations UNSAFE_OPERATIONS = UnsafeOperations.getUnsafeOperations();
+
+	private static final long HASH_MAP_LOAD_FACTOR = fieldOffset(HashMap.class, "loadFactor");
+
+	private static final long LINKED_HASH_MAP_ACCESS_ORDER = fieldOffset(LinkedHashMap.class, "accessOrder");
+
+	private static final long HASHTABLE_LOAD_FACTOR = fieldOffset(Hashtable.class, "loadFactor");
+
+	private static final long HASH_SET_MAP = fieldOffset(HashSet.class, "map");
+
+	private final Class<?> type;
+
+	private final boolean map;
+
+	private HashedCollection(Class<?> type, boolean map) {
+		this.type = type;
+		this.map = map;
+	}
+
+	/**
+	 * Creates an empty instance of the JDK collection itself
+	 */
+	abstract Object newInstance(float loadFactor, boolean accessOrder);
+
+	/**
+	 * Returns the load factor of the given collection, or the default where the collection does not retain one
+	 */
+	float getLoadFactor(Object instance) {
+		return DEFAULT_LOAD_FACTOR;
+	}
+
+	/**
+	 * Indicates whether the given collection iterates in access order
+	 */
+	boolean isAccessOrder(Object instance) {
+		return false;
+	}
+
+	/**
+	 * Applies the load factor and access order to a collection created by a subclass constructor
+	 */
+	void restore(Object instance, float loadFactor, boolean accessOrder) {
+	}
+
+	/**
+	 * Creates an empty instance of the given class, which is the JDK collection or a subclass of it.
+	 * A subclass is created using its no-argument constructor, after which any members added by the
+	 * constructor are removed and the load factor and access order are applied.
+	 * @throws IllegalStateException If a subclass does not declare a no-argument constructor
+	 */
+	Object newInstance(Class<?> clazz, float loadFactor, boolean accessOrder) {
+
+		if (clazz == type) {
+			return newInstance(loadFactor, accessOrder);
+		}
+
+		final Object instance;
+		try {
+			final Constructor<?> constructor = clazz.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			instance = constructor.newInstance();
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Cannot read " + clazz.getName() + ": a subclass of " + type.getName() + " requires a no-argument constructor", e);
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot create instance of " + clazz.getName() + ": " + e.getMessage(), e);
+		}
+
+		if (map) {
+			((Map<?, ?>) instance).clear();
+		} else {
+			((Collection<?>) instance).clear();
+		}
+		restore(instance, loadFactor, accessOrder);
+		return instance;
+	}
+
+	Class<?> getType() {
+		return type;
+	}
+
+	boolean isMap() {
+		return map;
+	}
+
+	/**
+	 * Adds the given members, which are alternating keys and values for maps
+	 */
+	@SuppressWarnings("unchecked")
+	void fill(Object instance, Object[] members) {
+		if (map) {
+			final Map<Object, Object> target = (Map<Object, Object>) instance;
+			for (int i = 0; i < members.length; i += 2) {
+				target.put(members[i], members[i + 1]);
+			}
+		} else {
+			final Collection<Object> target = (Collection<Object>) instance;
+			for (int i = 0; i < members.length; i++) {
+				target.add(members[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the HashedCollection for the given class or its closest superclass, or null
+	 */
+	static HashedCollection forClass(Class<?> clazz) {
+
+		if (!Map.class.isAssignableFrom(clazz) && !Collection.class.isAssignableFrom(clazz)) {
+			return null;
+		}
+		for (HashedCollection next : VALUES) {
+			if (next.type.isAssignableFrom(clazz)) {
+				return next;
+			}
+		}
+		return null;
+	}
+
+	private static Object backingMap(Object set) {
+		return UNSAFE_OPERATIONS.getObject(set, offset(HASH_SET_MAP, "map of HashSet"));
+	}
+
+	private static long fieldOffset(Class<?> clazz, String fieldName) {
+		try {
+			return UNSAFE_OPERATIONS.getObjectFieldOffset(clazz.getDeclaredField(fieldName));
+		} catch (NoSuchFieldException e) {
+			return -1L;
+		} catch (RuntimeException e) {
+			return -1L;
+		}
+	}
+
+	/**
+	 * Checks that the offset of a JDK field was found, failing rather than silently losing its value
+	 */
+	private static long offset(long offset, String description) {
+		if (offset < 0L) {
+			throw new IllegalStateException("Cannot access " + description + " in this JVM");
+		}
+		return offset;
+	}
+}
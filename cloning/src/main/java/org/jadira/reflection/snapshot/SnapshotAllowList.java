@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.snapshot;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The classes which may be loaded while reading a snapshot. A class is allowed if it is named
+ * explicitly, or if it belongs to one of the allowed packages; an array is allowed if its element
+ * type is. Immutable.
+ */
+final class SnapshotAllowList {
+
+	/**
+	 * The JDK classes commonly found in object graphs, together with the hash based collections
+	 */
+	private static final String[] DEFAULT_CLASS_NAMES = new String[] {
+		"java.lang.Object", "java.lang.Number", "java.lang.String",
+		"java.lang.Boolean", "java.lang.Byte", "java.lang.Character", "java.lang.Short",
+		"java.lang.Integer", "java.lang.Long", "java.lang.Float", "java.lang.Double",
+		"java.math.BigInteger", "java.math.BigDecimal",
+		"java.util.ArrayList", "java.util.ArrayDeque", "java.util.LinkedList", "java.util.LinkedList$Node",
+		"java.util.TreeMap", "java.util.TreeMap$Entry", "java.util.TreeSet",
+		"java.util.Date", "java.util.UUID"
+	};
+
+	static final SnapshotAllowList DEFAULT;
+
+	static {
+		final Set<String> classNames = new HashSet<String>(Arrays.asList(DEFAULT_CLASS_NAMES));
+		for (HashedCollection next : HashedCollection.values()) {
+			classNames.add(next.getType().getName());
+		}
+		DEFAULT = new SnapshotAllowList(classNames, new String[0]);
+	}
+
+	private final Set<String> classNames;
+
+	private final String[] packagePrefixes;
+
+	private SnapshotAllowList(Set<String> classNames, String[] packagePrefixes) {
+		this.classNames = classNames;
+		this.packagePrefixes = packagePrefixes;
+	}
+
+	/**
+	 * Returns a list which also allows the given classes
+	 */
+	SnapshotAllowList withClasses(Class<?>... classes) {
+
+		final Set<String> newClassNames = new HashSet<String>(classNames);
+		for (Class<?> next : classes) {
+			while (next.isArray()) {
+				next = next.getComponentType();
+			}
+			newClassNames.add(next.getName());
+		}
+		return new SnapshotAllowList(newClassNames, packagePrefixes);
+	}
+
+	/**
+	 * Returns a list which also allows the classes of the given packages, excluding their subpackages
+	 */
+	SnapshotAllowList withPackages(String... packageNames) {
+
+		final String[] newPackagePrefixes = Arrays.copyOf(packagePrefixes, packagePrefixes.length + packageNames.length);
+		for (int i = 0; i < packageNames.length; i++) {
+			newPackagePrefixes[packagePrefixes.length + i] = packageNames[i] + ".";
+		}
+		return new SnapshotAllowList(classNames, newPackagePrefixes);
+	}
+
+	/**
+	 * Indicates whether the class with the given binary name, as returned by Class.getName(), may be loaded
+	 */
+	boolean isAllowed(String className) {
+
+		String elementName = className;
+		if (className.startsWith("[")) {
+			int dimensions = 0;
+			while (dimensions < className.length() && className.charAt(dimensions) == '[') {
+				dimensions++;
+			}
+			final String descriptor = className.substring(dimensions);
+			if (descriptor.length() == 1) {
+				// An array of primitives
+				return "ZBCSIJFD".indexOf(descriptor.charAt(0)) != -1;
+			}
+			if (!descriptor.startsWith("L") || !descriptor.endsWith(";")) {
+				return false;
+			}
+			elementName = descriptor.substring(1, descriptor.length() - 1);
+		}
+
+		if (classNames.contains(elementName)) {
+			return true;
+		}
+		for (String next : packagePrefixes) {
+			if (elementName.startsWith(next) && elementName.indexOf('.', next.length()) == -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
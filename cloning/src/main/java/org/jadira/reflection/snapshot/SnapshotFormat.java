@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.snapshot;
+
+/**
+ * Constants describing the binary layout of a snapshot.
+ * <p>
+ * A snapshot starts with a header, followed by the reference to the root object. Each reference
+ * is a tag followed by any data needed to create the object it refers to; the fields or elements
+ * of each object created are written afterwards, in the order the objects were first referenced.
+ * Classes are written by name on first use and by index thereafter, and for classes written
+ * field by field the first use also lists the fields written.
+ */
+final class SnapshotFormat {
+
+	static final int MAGIC = 0x4A534E50;
+
+	static final byte VERSION = 2;
+
+	/** A null reference */
+	static final byte TAG_NULL = 0;
+	/** A reference to an object already written, followed by its handle */
+	static final byte TAG_HANDLE = 1;
+	/** An object written field by field, followed by its class */
+	static final byte TAG_OBJECT = 2;
+	/** An array, followed by its class and length */
+	static final byte TAG_ARRAY = 3;
+	/** A String, followed by its characters */
+	static final byte TAG_STRING = 4;
+	/** A boxed primitive, followed by its type and value */
+	static final byte TAG_BOXED = 5;
+	/** An enum constant, followed by its class and name */
+	static final byte TAG_ENUM = 6;
+	/** A Class, followed by its name */
+	static final byte TAG_CLASS = 7;
+	/**
+	 * A hash based collection written as its entries, followed by its class, its load factor and its
+	 * access order. The class lists the fields declared by any subclass of the JDK collection, which
+	 * are written ahead of the entries.
+	 */
+	static final byte TAG_HASHED = 8;
+
+	/** Marks a class written by name rather than by index */
+	static final int NEW_CLASS = -1;
+
+	private SnapshotFormat() {
+	}
+}
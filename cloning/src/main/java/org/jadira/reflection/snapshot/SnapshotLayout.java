@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.snapshot;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jadira.reflection.access.model.ClassModel;
+import org.jadira.reflection.access.model.FieldModel;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
+import org.jadira.reflection.access.unsafe.UnsafeFieldAccess;
+
+/**
+ * The instance fields of a class, across its hierarchy, in the order they are written to a
+ * snapshot. Each field is identified by a key combining its declaring class and name, so that
+ * a snapshot can be read back when the field order reported by the JVM differs. For a subclass of
+ * a {@link HashedCollection}, the layout holds only the fields declared by the subclass, as the state
+ * of the JDK collection itself is written as its entries.
+ */
+final class SnapshotLayout {
+
+	private static final ConcurrentHashMap<Class<?>, SnapshotLayout> LAYOUTS = new ConcurrentHashMap<Class<?>, SnapshotLayout>();
+
+	static final byte TYPE_BOOLEAN = 'Z';
+	static final byte TYPE_BYTE = 'B';
+	static final byte TYPE_CHAR = 'C';
+	static final byte TYPE_SHORT = 'S';
+	static final byte TYPE_INT = 'I';
+	static final byte TYPE_LONG = 'J';
+	static final byte TYPE_FLOAT = 'F';
+	static final byte TYPE_DOUBLE = 'D';
+	static final byte TYPE_REFERENCE = 'L';
+
+	final String[] keys;
+
+	final byte[] types;
+
+	final Class<?>[] fieldTypes;
+
+	final long[] offsets;
+
+	private final Map<String, Integer> indexes;
+
+	private SnapshotLayout(Class<?> clazz) {
+
+		final HashedCollection hashed = HashedCollection.forClass(clazz);
+		final Class<?> limit = hashed == null ? null : hashed.getType();
+
+		final List<FieldModel<?>> fields = new ArrayList<FieldModel<?>>();
+		ClassModel<?> model = UnsafeClassAccess.get(clazz).getClassModel();
+		while (model != null && model.getModelClass() != limit) {
+			for (FieldModel<?> next : model.getModelFields()) {
+				fields.add(next);
+			}
+			model = model.getSuperClassModel();
+		}
+
+		keys = new String[fields.size()];
+		types = new byte[fields.size()];
+		fieldTypes = new Class<?>[fields.size()];
+		offsets = new long[fields.size()];
+		indexes = new HashMap<String, Integer>();
+
+		for (int i = 0; i < fields.size(); i++) {
+			final Field field = fields.get(i).getField();
+			keys[i] = field.getDeclaringClass().getName() + "." + field.getName();
+			types[i] = typeOf(field.getType());
+			fieldTypes[i] = field.getType();
+			offsets[i] = ((UnsafeFieldAccess<?>) fields.get(i).getFieldAccess()).fieldOffset();
+			indexes.put(keys[i], Integer.valueOf(i));
+		}
+	}
+
+	static SnapshotLayout get(Class<?> clazz) {
+
+		SnapshotLayout layout = LAYOUTS.get(clazz);
+		if (layout == null) {
+			layout = new SnapshotLayout(clazz);
+			LAYOUTS.putIfAbsent(clazz, layout);
+		}
+		return layout;
+	}
+
+	/**
+	 * Returns the index of the field with the given key and type
+	 * @throws IllegalStateException If the class does not have a matching field
+	 */
+	int indexOf(Class<?> clazz, String key, byte type) {
+
+		final Integer index = indexes.get(key);
+		if (index == null) {
+			throw new IllegalStateException("Snapshot contains field " + key + " which is not present in " + clazz.getName());
+		}
+		if (types[index.intValue()] != type) {
+			throw new IllegalStateException("Snapshot contains field " + key + " with a different type to " + clazz.getName());
+		}
+		return index.intValue();
+	}
+
+	static byte typeOf(Class<?> type) {
+
+		if (!type.isPrimitive()) {
+			return TYPE_REFERENCE;
+		} else if (type == Boolean.TYPE) {
+			return TYPE_BOOLEAN;
+		} else if (type == Byte.TYPE) {
+			return TYPE_BYTE;
+		} else if (type == Character.TYPE) {
+			return TYPE_CHAR;
+		} else if (type == Short.TYPE) {
+			return TYPE_SHORT;
+		} else if (type == Integer.TYPE) {
+			return TYPE_INT;
+		} else if (type == Long.TYPE) {
+			return TYPE_LONG;
+		} else if (type == Float.TYPE) {
+			return TYPE_FLOAT;
+		} else {
+			return TYPE_DOUBLE;
+		}
+	}
+}
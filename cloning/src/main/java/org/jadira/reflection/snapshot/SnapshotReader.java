@@ -0,0 +1,412 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.snapshot;
+
+import static org.jadira.reflection.snapshot.SnapshotFormat.MAGIC;
+import static org.jadira.reflection.snapshot.SnapshotFormat.NEW_CLASS;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_ARRAY;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_BOXED;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_CLASS;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_ENUM;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_HANDLE;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_HASHED;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_NULL;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_OBJECT;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_STRING;
+import static org.jadira.reflection.snapshot.SnapshotFormat.VERSION;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+
+/**
+ * Reads a single object graph from a buffer written by {@link SnapshotWriter}. Not thread safe.
+ */
+final class SnapshotReader {
+
+	private static final UnsafeOperations UNSAFE_OPERATIONS = UnsafeOperations.getUnsafeOperations();
+
+	private static final Map<String, Class<?>> PRIMITIVE_CLASSES = new HashMap<String, Class<?>>();
+
+	static {
+		final Class<?>[] primitives = new Class<?>[] { Boolean.TYPE, Byte.TYPE, Character.TYPE, Short.TYPE, Integer.TYPE, Long.TYPE, Float.TYPE, Double.TYPE, Void.TYPE };
+		for (Class<?> next : primitives) {
+			PRIMITIVE_CLASSES.put(next.getName(), next);
+		}
+	}
+
+	private final ByteBuffer buffer;
+
+	private final ClassLoader classLoader;
+
+	private final SnapshotAllowList allowList;
+
+	private final List<Object> handles = new ArrayList<Object>();
+
+	private final List<Class<?>> classes = new ArrayList<Class<?>>();
+
+	/**
+	 * For each class read field by field, the offsets of the fields in the order they were written
+	 */
+	private final Map<Class<?>, ReadLayout> layouts = new HashMap<Class<?>, ReadLayout>();
+
+	/**
+	 * Objects whose fields or elements are still to be read, in order of first reference
+	 */
+	private final List<Object> pending = new ArrayList<Object>();
+
+	/**
+	 * Hash based collections, with their members, to be filled once the graph is complete
+	 */
+	private final List<Object> hashed = new ArrayList<Object>();
+
+	SnapshotReader(ByteBuffer buffer, ClassLoader classLoader, SnapshotAllowList allowList) {
+		this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+		this.classLoader = classLoader;
+		this.allowList = allowList;
+	}
+
+	Object read() {
+
+		if (buffer.getInt() != MAGIC) {
+			throw new IllegalStateException("Buffer does not contain a snapshot");
+		}
+		final byte version = buffer.get();
+		if (version != VERSION) {
+			throw new IllegalStateException("Unsupported snapshot version: " + version);
+		}
+
+		final Object root = readReference();
+
+		for (int i = 0; i < pending.size(); i++) {
+			final Object next = pending.get(i);
+			pending.set(i, null);
+			readBody(next);
+		}
+
+		// Filled innermost first, so that collections used as members are complete before they are hashed
+		for (int i = hashed.size() - 2; i >= 0; i -= 2) {
+			final Object collection = hashed.get(i);
+			HashedCollection.forClass(collection.getClass()).fill(collection, (Object[]) hashed.get(i + 1));
+		}
+
+		return root;
+	}
+
+	private Object readReference() {
+
+		final byte tag = buffer.get();
+		final Object result;
+
+		switch (tag) {
+		case TAG_NULL:
+			return null;
+		case TAG_HANDLE:
+			final int handle = buffer.getInt();
+			if (handle < 0 || handle >= handles.size()) {
+				throw new IllegalStateException("Corrupt snapshot, unknown handle: " + handle);
+			}
+			return handles.get(handle);
+		case TAG_ENUM:
+			final Class<?> enumClass = readClass(false);
+			if (!enumClass.isEnum()) {
+				throw new IllegalStateException("Corrupt snapshot, not an enum: " + enumClass.getName());
+			}
+			return readEnum(enumClass);
+		case TAG_CLASS:
+			return loadClass(readString());
+		case TAG_STRING:
+			result = readString();
+			break;
+		case TAG_BOXED:
+			result = readBoxed();
+			break;
+		case TAG_ARRAY:
+			final Class<?> arrayClass = readClass(false);
+			if (!arrayClass.isArray()) {
+				throw new IllegalStateException("Corrupt snapshot, not an array: " + arrayClass.getName());
+			}
+			result = Array.newInstance(arrayClass.getComponentType(), readLength(1));
+			pending.add(result);
+			break;
+		case TAG_HASHED:
+			final Class<?> hashedClass = readClass(true);
+			final HashedCollection hashedCollection = HashedCollection.forClass(hashedClass);
+			if (hashedCollection == null) {
+				throw new IllegalStateException("Not a supported hashed collection: " + hashedClass.getName());
+			}
+			final float loadFactor = buffer.getFloat();
+			if (!(loadFactor > 0.0f)) {
+				throw new IllegalStateException("Corrupt snapshot, invalid load factor: " + loadFactor);
+			}
+			result = hashedCollection.newInstance(hashedClass, loadFactor, buffer.get() != 0);
+			pending.add(result);
+			break;
+		case TAG_OBJECT:
+			final Class<?> objectClass = readClass(true);
+			if (objectClass.isArray() || objectClass.isInterface() || objectClass.isPrimitive()
+					|| Modifier.isAbstract(objectClass.getModifiers()) || HashedCollection.forClass(objectClass) != null) {
+				throw new IllegalStateException("Corrupt snapshot, not a class written field by field: " + objectClass.getName());
+			}
+			result = UNSAFE_OPERATIONS.allocateInstance(objectClass);
+			pending.add(result);
+			break;
+		default:
+			throw new IllegalStateException("Corrupt snapshot, unexpected tag: " + tag);
+		}
+
+		handles.add(result);
+		return result;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readEnum(Class<?> enumClass) {
+		return Enum.valueOf((Class) enumClass, readString());
+	}
+
+	private Object readBoxed() {
+
+		final byte type = buffer.get();
+		switch (type) {
+		case SnapshotLayout.TYPE_INT:
+			return Integer.valueOf(buffer.getInt());
+		case SnapshotLayout.TYPE_LONG:
+			return Long.valueOf(buffer.getLong());
+		case SnapshotLayout.TYPE_DOUBLE:
+			return Double.valueOf(buffer.getDouble());
+		case SnapshotLayout.TYPE_BOOLEAN:
+			return Boolean.valueOf(buffer.get() != 0);
+		case SnapshotLayout.TYPE_FLOAT:
+			return Float.valueOf(buffer.getFloat());
+		case SnapshotLayout.TYPE_SHORT:
+			return Short.valueOf(buffer.getShort());
+		case SnapshotLayout.TYPE_CHAR:
+			return Character.valueOf(buffer.getChar());
+		case SnapshotLayout.TYPE_BYTE:
+			return Byte.valueOf(buffer.get());
+		default:
+			throw new IllegalStateException("Corrupt snapshot, unexpected boxed type: " + type);
+		}
+	}
+
+	private Class<?> readClass(boolean withLayout) {
+
+		final int index = buffer.getInt();
+		if (index != NEW_CLASS) {
+			if (index < 0 || index >= classes.size()) {
+				throw new IllegalStateException("Corrupt snapshot, unknown class index: " + index);
+			}
+			return classes.get(index);
+		}
+
+		final Class<?> clazz = loadClass(readString());
+		classes.add(clazz);
+
+		if (withLayout) {
+			final SnapshotLayout current = SnapshotLayout.get(clazz);
+			final int fieldCount = buffer.getInt();
+			if (fieldCount < 0 || fieldCount > current.offsets.length) {
+				throw new IllegalStateException("Corrupt snapshot, invalid field count for " + clazz.getName() + ": " + fieldCount);
+			}
+			final long[] offsets = new long[fieldCount];
+			final byte[] types = new byte[fieldCount];
+			final Class<?>[] fieldTypes = new Class<?>[fieldCount];
+			for (int i = 0; i < fieldCount; i++) {
+				final String key = readString();
+				types[i] = buffer.get();
+				final int fieldIndex = current.indexOf(clazz, key, types[i]);
+				offsets[i] = current.offsets[fieldIndex];
+				fieldTypes[i] = current.fieldTypes[fieldIndex];
+			}
+			layouts.put(clazz, new ReadLayout(types, fieldTypes, offsets));
+		}
+		return clazz;
+	}
+
+	private Class<?> loadClass(String name) {
+
+		final Class<?> primitive = PRIMITIVE_CLASSES.get(name);
+		if (primitive != null) {
+			return primitive;
+		}
+		// Checked before the class is loaded, so that a snapshot cannot cause other classes to be loaded
+		if (!allowList.isAllowed(name)) {
+			throw new IllegalStateException("Snapshot contains a class which is not allowed: " + name);
+		}
+		try {
+			return Class.forName(name, false, classLoader);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Cannot load class in snapshot: " + name, e);
+		}
+	}
+
+	private String readString() {
+
+		final char[] chars = new char[readLength(2)];
+		buffer.asCharBuffer().get(chars);
+		buffer.position(buffer.position() + (chars.length * 2));
+		return new String(chars);
+	}
+
+	/**
+	 * Reads the length of a string or array, checking it against the bytes remaining so that a
+	 * corrupt length cannot cause a huge allocation
+	 * @param minimumElementSize The fewest bytes taken by each element
+	 */
+	private int readLength(int minimumElementSize) {
+
+		final int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining() / minimumElementSize) {
+			throw new IllegalStateException("Corrupt snapshot, invalid length: " + length);
+		}
+		return length;
+	}
+
+	private void readBody(Object obj) {
+
+		final Class<?> clazz = obj.getClass();
+		if (clazz.isArray()) {
+			readArrayElements(obj, clazz.getComponentType());
+			return;
+		}
+
+		final ReadLayout layout = layouts.get(clazz);
+		if (layout == null) {
+			throw new IllegalStateException("Corrupt snapshot, no fields were written for " + clazz.getName());
+		}
+		readFields(obj, layout);
+
+		if (HashedCollection.forClass(clazz) != null) {
+			final Object[] members = new Object[readLength(1)];
+			for (int i = 0; i < members.length; i++) {
+				members[i] = readReference();
+			}
+			hashed.add(obj);
+			hashed.add(members);
+		}
+	}
+
+	private void readFields(Object obj, ReadLayout layout) {
+
+		for (int i = 0; i < layout.types.length; i++) {
+
+			final long offset = layout.offsets[i];
+			switch (layout.types[i]) {
+			case SnapshotLayout.TYPE_REFERENCE:
+				// Unsafe does not check the type of the value, so it is checked here
+				final Object value = readReference();
+				if (value != null && !layout.fieldTypes[i].isInstance(value)) {
+					throw new IllegalStateException("Corrupt snapshot, " + value.getClass().getName() + " cannot be assigned to a field of type " + layout.fieldTypes[i].getName());
+				}
+				UNSAFE_OPERATIONS.putObject(obj, offset, value);
+				break;
+			case SnapshotLayout.TYPE_INT:
+				UNSAFE_OPERATIONS.putInt(obj, offset, buffer.getInt());
+				break;
+			case SnapshotLayout.TYPE_LONG:
+				UNSAFE_OPERATIONS.putLong(obj, offset, buffer.getLong());
+				break;
+			case SnapshotLayout.TYPE_DOUBLE:
+				UNSAFE_OPERATIONS.putDouble(obj, offset, buffer.getDouble());
+				break;
+			case SnapshotLayout.TYPE_BOOLEAN:
+				UNSAFE_OPERATIONS.putBoolean(obj, offset, buffer.get() != 0);
+				break;
+			case SnapshotLayout.TYPE_FLOAT:
+				UNSAFE_OPERATIONS.putFloat(obj, offset, buffer.getFloat());
+				break;
+			case SnapshotLayout.TYPE_SHORT:
+				UNSAFE_OPERATIONS.putShort(obj, offset, buffer.getShort());
+				break;
+			case SnapshotLayout.TYPE_CHAR:
+				UNSAFE_OPERATIONS.putChar(obj, offset, buffer.getChar());
+				break;
+			default:
+				UNSAFE_OPERATIONS.putByte(obj, offset, buffer.get());
+			}
+		}
+	}
+
+	private void readArrayElements(Object array, Class<?> componentType) {
+
+		if (!componentType.isPrimitive()) {
+			final Object[] elements = (Object[]) array;
+			for (int i = 0; i < elements.length; i++) {
+				final Object value = readReference();
+				if (value != null && !componentType.isInstance(value)) {
+					throw new IllegalStateException("Corrupt snapshot, " + value.getClass().getName() + " cannot be stored in an array of " + componentType.getName());
+				}
+				elements[i] = value;
+			}
+		} else if (componentType == Byte.TYPE) {
+			buffer.get((byte[]) array);
+		} else if (componentType == Boolean.TYPE) {
+			final boolean[] elements = (boolean[]) array;
+			for (int i = 0; i < elements.length; i++) {
+				elements[i] = buffer.get() != 0;
+			}
+		} else if (componentType == Character.TYPE) {
+			final char[] elements = (char[]) array;
+			buffer.asCharBuffer().get(elements);
+			buffer.position(buffer.position() + elements.length * 2);
+		} else if (componentType == Short.TYPE) {
+			final short[] elements = (short[]) array;
+			buffer.asShortBuffer().get(elements);
+			buffer.position(buffer.position() + elements.length * 2);
+		} else if (componentType == Integer.TYPE) {
+			final int[] elements = (int[]) array;
+			buffer.asIntBuffer().get(elements);
+			buffer.position(buffer.position() + elements.length * 4);
+		} else if (componentType == Float.TYPE) {
+			final float[] elements = (float[]) array;
+			buffer.asFloatBuffer().get(elements);
+			buffer.position(buffer.position() + elements.length * 4);
+		} else if (componentType == Long.TYPE) {
+			final long[] elements = (long[]) array;
+			buffer.asLongBuffer().get(elements);
+			buffer.position(buffer.position() + elements.length * 8);
+		} else {
+			final double[] elements = (double[]) array;
+			buffer.asDoubleBuffer().get(elements);
+			buffer.position(buffer.position() + elements.length * 8);
+		}
+	}
+
+	/**
+	 * The types and offsets of the fields of a class, in the order they were written
+	 */
+	private static final class ReadLayout {
+
+		private final byte[] types;
+
+		private final Class<?>[] fieldTypes;
+
+		private final long[] offsets;
+
+		private ReadLayout(byte[] types, Class<?>[] fieldTypes, long[] offsets) {
+			this.types = types;
+			this.fieldTypes = fieldTypes;
+			this.offsets = offsets;
+		}
+	}
+}
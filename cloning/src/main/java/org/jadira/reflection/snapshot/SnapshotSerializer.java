@@ -0,0 +1,201 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.snapshot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+
+/**
+ * Writes point in time snapshots of object graphs into a compact binary form held off-heap, in a
+ * direct {@link ByteBuffer} or a file, and reads them back into new object graphs. Shared
+ * references and cycles are preserved.
+ * <p>
+ * Objects are written field by field, using the same field model as the cloners, so the classes
+ * in the graph need not be Serializable and constructors are not invoked when reading. Strings,
+ * boxed primitives, enum constants and Classes are written by value; enum constants and Classes
+ * are resolved to the instances in the reading JVM. The JDK's hash based maps and sets are
+ * written as their entries and rebuilt when read, as their layout may depend on identity hash
+ * codes. This includes their subclasses, which are recreated using their no-argument constructor,
+ * and retains the load factor and, for LinkedHashMap, the access order.
+ * <p>
+ * When reading, only allowed classes are loaded, so that a snapshot from an untrusted source cannot
+ * instantiate arbitrary classes. Common JDK value and collection classes are allowed by default;
+ * the classes of the application must be allowed using {@link #withAllowedClasses(Class...)} or
+ * {@link #withAllowedPackages(String...)}. Each value read is checked against the declared type of
+ * the field or array that receives it, and a malformed snapshot is rejected with an
+ * IllegalStateException.
+ * <p>
+ * A snapshot can be read by a JVM whose classes declare their fields in a different order, but
+ * every field written must still be present with the same type. Instances are reusable and may
+ * be shared between threads once configured. Requires sun.misc.Unsafe.
+ */
+public class SnapshotSerializer {
+
+	private static final int INITIAL_CAPACITY = 64 * 1024;
+
+	private ClassLoader classLoader;
+
+	private SnapshotAllowList allowList = SnapshotAllowList.DEFAULT;
+
+	/**
+	 * Creates a new instance which loads classes using the context class loader of the reading thread
+	 */
+	public SnapshotSerializer() {
+		if (!UnsafeOperations.isUnsafeAvailable()) {
+			throw new IllegalStateException("SnapshotSerializer requires sun.misc.Unsafe");
+		}
+	}
+
+	/**
+	 * Load the classes in snapshots being read from the given ClassLoader
+	 * @param classLoader The ClassLoader, or null to use the context class loader of the reading thread
+	 * @return This instance
+	 */
+	public SnapshotSerializer withClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+		return this;
+	}
+
+	/**
+	 * Allow the given classes to be loaded when reading snapshots. Arrays of allowed classes are
+	 * also allowed.
+	 * @param classes The classes to allow
+	 * @return This instance
+	 */
+	public SnapshotSerializer withAllowedClasses(Class<?>... classes) {
+		this.allowList = allowList.withClasses(classes);
+		return this;
+	}
+
+	/**
+	 * Allow the classes in the given packages to be loaded when reading snapshots. Subpackages must
+	 * be allowed separately.
+	 * @param packageNames The names of the packages to allow
+	 * @return This instance
+	 */
+	public SnapshotSerializer withAllowedPackages(String... packageNames) {
+		this.allowList = allowList.withPackages(packageNames);
+		return this;
+	}
+
+	/**
+	 * Writes a snapshot of the given object graph into a new direct ByteBuffer
+	 * @param root The root of the graph, may be null
+	 * @return A buffer positioned at the start of the snapshot and limited to its end
+	 */
+	public ByteBuffer write(Object root) {
+
+		final SnapshotWriter writer = new SnapshotWriter(ByteBuffer.allocateDirect(INITIAL_CAPACITY), true);
+		writer.write(root);
+
+		final ByteBuffer result = writer.getBuffer();
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Writes a snapshot of the given object graph into the given buffer, starting at its position.
+	 * The position is advanced past the snapshot.
+	 * @param root The root of the graph, may be null
+	 * @param buffer The buffer to write to
+	 * @return The number of bytes written
+	 * @throws java.nio.BufferOverflowException If the snapshot does not fit in the remaining space
+	 */
+	public int write(Object root, ByteBuffer buffer) {
+
+		final SnapshotWriter writer = new SnapshotWriter(buffer.duplicate(), false);
+		writer.write(root);
+
+		final int written = writer.getBuffer().position() - buffer.position();
+		buffer.position(writer.getBuffer().position());
+		return written;
+	}
+
+	/**
+	 * Writes a snapshot of the given object graph to a file, replacing any existing content
+	 * @param root The root of the graph, may be null
+	 * @param file The file to write
+	 * @return The number of bytes written
+	 * @throws IOException If the file cannot be written
+	 */
+	public long write(Object root, File file) throws IOException {
+
+		final ByteBuffer snapshot = write(root);
+		final long size = snapshot.remaining();
+
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			final FileChannel channel = out.getChannel();
+			while (snapshot.hasRemaining()) {
+				channel.write(snapshot);
+			}
+		} finally {
+			out.close();
+		}
+		return size;
+	}
+
+	/**
+	 * Reads a snapshot from the given buffer, starting at its position. The position is advanced
+	 * past the snapshot.
+	 * @param buffer The buffer to read
+	 * @return The root of a new object graph
+	 * @throws IllegalStateException If the buffer does not contain a readable snapshot, or the snapshot
+	 * contains a class which is not allowed
+	 */
+	public Object read(ByteBuffer buffer) {
+
+		final ByteBuffer source = buffer.duplicate();
+		final Object result = new SnapshotReader(source, getClassLoader(), allowList).read();
+		buffer.position(source.position());
+		return result;
+	}
+
+	/**
+	 * Reads a snapshot from the given file, which is memory mapped rather than read onto the heap
+	 * @param file The file to read
+	 * @return The root of a new object graph
+	 * @throws IOException If the file cannot be read
+	 * @throws IllegalStateException If the file does not contain a readable snapshot, or the snapshot
+	 * contains a class which is not allowed
+	 */
+	public Object read(File file) throws IOException {
+
+		final RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = in.getChannel();
+			final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new SnapshotReader(mapped, getClassLoader(), allowList).read();
+		} finally {
+			in.close();
+		}
+	}
+
+	private ClassLoader getClassLoader() {
+		if (classLoader != null) {
+			return classLoader;
+		}
+		final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		return contextClassLoader == null ? SnapshotSerializer.class.getClassLoader() : contextClassLoader;
+	}
+}
@@ -0,0 +1,367 @@
+/*
+ *  Copyright 2013 Christopher Pheby
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.jadira.reflection.snapshot;
+
+import static org.jadira.reflection.snapshot.SnapshotFormat.MAGIC;
+import static org.jadira.reflection.snapshot.SnapshotFormat.NEW_CLASS;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_ARRAY;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_BOXED;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_CLASS;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_ENUM;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_HANDLE;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_HASHED;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_NULL;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_OBJECT;
+import static org.jadira.reflection.snapshot.SnapshotFormat.TAG_STRING;
+import static org.jadira.reflection.snapshot.SnapshotFormat.VERSION;
+
+import java.lang.reflect.Array;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+
+/**
+ * Writes a single object graph to a buffer. Not thread safe.
+ */
+final class SnapshotWriter {
+
+	private static final UnsafeOperations UNSAFE_OPERATIONS = UnsafeOperations.getUnsafeOperations();
+
+	private static final int MINIMUM_GROWTH = 64 * 1024;
+
+	private ByteBuffer buffer;
+
+	private final boolean growable;
+
+	private final IdentityHashMap<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+
+	private final IdentityHashMap<Class<?>, Integer> classes = new IdentityHashMap<Class<?>, Integer>();
+
+	/**
+	 * Objects whose fields or elements are still to be written, in order of first reference
+	 */
+	private final List<Object> pending = new ArrayList<Object>();
+
+	SnapshotWriter(ByteBuffer buffer, boolean growable) {
+		this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+		this.growable = growable;
+	}
+
+	ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	void write(Object root) {
+
+		ensure(5);
+		buffer.putInt(MAGIC);
+		buffer.put(VERSION);
+
+		writeReference(root);
+
+		for (int i = 0; i < pending.size(); i++) {
+			final Object next = pending.get(i);
+			pending.set(i, null);
+			writeBody(next);
+		}
+	}
+
+	private void ensure(int bytes) {
+
+		if (buffer.remaining() >= bytes) {
+			return;
+		}
+		if (!growable) {
+			throw new BufferOverflowException();
+		}
+		final int required = buffer.position() + bytes;
+		if (required < 0) {
+			throw new IllegalStateException("Snapshot exceeds the maximum buffer size");
+		}
+		final ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(required, buffer.capacity() + Math.max(buffer.capacity(), MINIMUM_GROWTH))).order(ByteOrder.BIG_ENDIAN);
+		buffer.flip();
+		grown.put(buffer);
+		buffer = grown;
+	}
+
+	private void writeReference(Object obj) {
+
+		if (obj == null) {
+			ensure(1);
+			buffer.put(TAG_NULL);
+			return;
+		}
+
+		final Integer handle = handles.get(obj);
+		if (handle != null) {
+			ensure(5);
+			buffer.put(TAG_HANDLE);
+			buffer.putInt(handle.intValue());
+			return;
+		}
+
+		if (obj instanceof Enum) {
+			ensure(1);
+			buffer.put(TAG_ENUM);
+			writeClass(((Enum<?>) obj).getDeclaringClass(), null);
+			writeString(((Enum<?>) obj).name());
+			return;
+		}
+		if (obj instanceof Class) {
+			ensure(1);
+			buffer.put(TAG_CLASS);
+			writeString(((Class<?>) obj).getName());
+			return;
+		}
+
+		handles.put(obj, Integer.valueOf(handles.size()));
+
+		final Class<?> clazz = obj.getClass();
+		if (clazz == String.class) {
+			ensure(1);
+			buffer.put(TAG_STRING);
+			writeString((String) obj);
+		} else if (clazz.isArray()) {
+			ensure(1);
+			buffer.put(TAG_ARRAY);
+			writeClass(clazz, null);
+			ensure(4);
+			buffer.putInt(Array.getLength(obj));
+			pending.add(obj);
+		} else if (!writeBoxed(obj)) {
+			final HashedCollection hashed = HashedCollection.forClass(clazz);
+			if (hashed != null) {
+				ensure(1);
+				buffer.put(TAG_HASHED);
+				writeClass(clazz, SnapshotLayout.get(clazz));
+				ensure(5);
+				buffer.putFloat(hashed.getLoadFactor(obj));
+				buffer.put(hashed.isAccessOrder(obj) ? (byte) 1 : (byte) 0);
+			} else {
+				ensure(1);
+				buffer.put(TAG_OBJECT);
+				writeClass(clazz, SnapshotLayout.get(clazz));
+			}
+			pending.add(obj);
+		}
+	}
+
+	private boolean writeBoxed(Object obj) {
+
+		final Class<?> clazz = obj.getClass();
+		if (clazz == Integer.class) {
+			ensure(6);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_INT).putInt(((Integer) obj).intValue());
+		} else if (clazz == Long.class) {
+			ensure(10);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_LONG).putLong(((Long) obj).longValue());
+		} else if (clazz == Double.class) {
+			ensure(10);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_DOUBLE).putDouble(((Double) obj).doubleValue());
+		} else if (clazz == Boolean.class) {
+			ensure(3);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_BOOLEAN).put(((Boolean) obj).booleanValue() ? (byte) 1 : (byte) 0);
+		} else if (clazz == Float.class) {
+			ensure(6);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_FLOAT).putFloat(((Float) obj).floatValue());
+		} else if (clazz == Short.class) {
+			ensure(4);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_SHORT).putShort(((Short) obj).shortValue());
+		} else if (clazz == Character.class) {
+			ensure(4);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_CHAR).putChar(((Character) obj).charValue());
+		} else if (clazz == Byte.class) {
+			ensure(3);
+			buffer.put(TAG_BOXED).put(SnapshotLayout.TYPE_BYTE).put(((Byte) obj).byteValue());
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private void writeClass(Class<?> clazz, SnapshotLayout layout) {
+
+		final Integer index = classes.get(clazz);
+		if (index != null) {
+			ensure(4);
+			buffer.putInt(index.intValue());
+			return;
+		}
+
+		classes.put(clazz, Integer.valueOf(classes.size()));
+		ensure(4);
+		buffer.putInt(NEW_CLASS);
+		writeString(clazz.getName());
+
+		if (layout != null) {
+			ensure(4);
+			buffer.putInt(layout.keys.length);
+			for (int i = 0; i < layout.keys.length; i++) {
+				writeString(layout.keys[i]);
+				ensure(1);
+				buffer.put(layout.types[i]);
+			}
+		}
+	}
+
+	private void writeString(String value) {
+
+		final int length = value.length();
+		ensure(4 + (length * 2));
+		buffer.putInt(length);
+		buffer.asCharBuffer().put(value);
+		buffer.position(buffer.position() + (length * 2));
+	}
+
+	private void writeBody(Object obj) {
+
+		final Class<?> clazz = obj.getClass();
+		if (clazz.isArray()) {
+			writeArrayElements(obj, clazz.getComponentType());
+			return;
+		}
+
+		writeFields(obj, SnapshotLayout.get(clazz));
+
+		final HashedCollection hashed = HashedCollection.forClass(clazz);
+		if (hashed != null) {
+			writeHashedMembers(obj, hashed);
+		}
+	}
+
+	private void writeFields(Object obj, SnapshotLayout layout) {
+
+		for (int i = 0; i < layout.types.length; i++) {
+
+			final long offset = layout.offsets[i];
+			switch (layout.types[i]) {
+			case SnapshotLayout.TYPE_REFERENCE:
+				writeReference(UNSAFE_OPERATIONS.getObject(obj, offset));
+				break;
+			case SnapshotLayout.TYPE_INT:
+				ensure(4);
+				buffer.putInt(UNSAFE_OPERATIONS.getInt(obj, offset));
+				break;
+			case SnapshotLayout.TYPE_LONG:
+				ensure(8);
+				buffer.putLong(UNSAFE_OPERATIONS.getLong(obj, offset));
+				break;
+			case SnapshotLayout.TYPE_DOUBLE:
+				ensure(8);
+				buffer.putDouble(UNSAFE_OPERATIONS.getDouble(obj, offset));
+				break;
+			case SnapshotLayout.TYPE_BOOLEAN:
+				ensure(1);
+				buffer.put(UNSAFE_OPERATIONS.getBoolean(obj, offset) ? (byte) 1 : (byte) 0);
+				break;
+			case SnapshotLayout.TYPE_FLOAT:
+				ensure(4);
+				buffer.putFloat(UNSAFE_OPERATIONS.getFloat(obj, offset));
+				break;
+			case SnapshotLayout.TYPE_SHORT:
+				ensure(2);
+				buffer.putShort(UNSAFE_OPERATIONS.getShort(obj, offset));
+				break;
+			case SnapshotLayout.TYPE_CHAR:
+				ensure(2);
+				buffer.putChar(UNSAFE_OPERATIONS.getChar(obj, offset));
+				break;
+			default:
+				ensure(1);
+				buffer.put(UNSAFE_OPERATIONS.getByte(obj, offset));
+			}
+		}
+	}
+
+	private void writeArrayElements(Object array, Class<?> componentType) {
+
+		if (!componentType.isPrimitive()) {
+			final Object[] elements = (Object[]) array;
+			for (int i = 0; i < elements.length; i++) {
+				writeReference(elements[i]);
+			}
+		} else if (componentType == Byte.TYPE) {
+			final byte[] elements = (byte[]) array;
+			ensure(elements.length);
+			buffer.put(elements);
+		} else if (componentType == Boolean.TYPE) {
+			final boolean[] elements = (boolean[]) array;
+			ensure(elements.length);
+			for (int i = 0; i < elements.length; i++) {
+				buffer.put(elements[i] ? (byte) 1 : (byte) 0);
+			}
+		} else if (componentType == Character.TYPE) {
+			final char[] elements = (char[]) array;
+			ensure(elements.length * 2);
+			buffer.asCharBuffer().put(elements);
+			buffer.position(buffer.position() + elements.length * 2);
+		} else if (componentType == Short.TYPE) {
+			final short[] elements = (short[]) array;
+			ensure(elements.length * 2);
+			buffer.asShortBuffer().put(elements);
+			buffer.position(buffer.position() + elements.length * 2);
+		} else if (componentType == Integer.TYPE) {
+			final int[] elements = (int[]) array;
+			ensure(elements.length * 4);
+			buffer.asIntBuffer().put(elements);
+			buffer.position(buffer.position() + elements.length * 4);
+		} else if (componentType == Float.TYPE) {
+			final float[] elements = (float[]) array;
+			ensure(elements.length * 4);
+			buffer.asFloatBuffer().put(elements);
+			buffer.position(buffer.position() + elements.length * 4);
+		} else if (componentType == Long.TYPE) {
+			final long[] elements = (long[]) array;
+			ensure(elements.length * 8);
+			buffer.asLongBuffer().put(elements);
+			buffer.position(buffer.position() + elements.length * 8);
+		} else {
+			final double[] elements = (double[]) array;
+			ensure(elements.length * 8);
+			buffer.asDoubleBuffer().put(elements);
+			buffer.position(buffer.position() + elements.length * 8);
+		}
+	}
+
+	private void writeHashedMembers(Object obj, HashedCollection hashed) {
+
+		final Object[] members;
+		if (hashed.isMap()) {
+			// Taken as an array first so that the count is consistent for concurrent maps
+			final Object[] entries = ((Map<?, ?>) obj).entrySet().toArray();
+			members = new Object[entries.length * 2];
+			for (int i = 0; i < entries.length; i++) {
+				members[i * 2] = ((Map.Entry<?, ?>) entries[i]).getKey();
+				members[i * 2 + 1] = ((Map.Entry<?, ?>) entries[i]).getValue();
+			}
+		} else {
+			members = ((Collection<?>) obj).toArray();
+		}
+
+		ensure(4);
+		buffer.putInt(members.length);
+		for (int i = 0; i < members.length; i++) {
+			writeReference(members[i]);
+		}
+	}
+}
@@ -1,16 +1,42 @@
  package org.jadira.cloning;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
@@ -19,14 +45,28 @@ import javax.xml.datatype.XMLGregorianCalendar;
 import org.jadira.cloning.data.DeepCopyHolder;
 import org.jadira.cloning.data.ExampleEnum;
 import org.jadira.cloning.data.IdHolder;
+import org.jadira.cloning.data.NodeHolder;
+import org.jadira.cloning.data.PrimitivesHolder;
 import org.jadira.cloning.data.ReferencesHolder;
+import org.jadira.reflection.access.asm.AsmClassAccess;
+import org.jadira.reflection.access.model.ClassModel;
+import org.jadira.reflection.access.portable.PortableClassAccess;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
 import org.jadira.reflection.access.unsafe.UnsafeOperations;
 import org.jadira.reflection.cloning.BasicCloner;
+import org.jadira.reflection.cloning.CloneWarmupCache;
+import org.jadira.reflection.cloning.LazyCloner;
 import org.jadira.reflection.cloning.MinimalCloner;
 import org.jadira.reflection.cloning.api.Cloner;
 import org.jadira.reflection.cloning.implementor.AsmCloneStrategy;
+import org.jadira.reflection.cloning.implementor.CloneContext;
 import org.jadira.reflection.cloning.implementor.InvokeDynamicCloneStrategy;
 import org.jadira.reflection.cloning.implementor.PortableCloneStrategy;
+import org.jadira.reflection.cloning.implementor.TreeShapedClasses;
+import org.jadira.reflection.cloning.implementor.UnsafeCloneStrategy;
+import org.jadira.reflection.cloning.proxy.LazyCloneProxyFactory;
+import org.jadira.reflection.cloning.statistics.ClassCloneStatistics;
+import org.jadira.reflection.cloning.statistics.CloneStatistics;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -229,6 +269,402 @@ public class TestCloner {
 		assertEquals(5, clonedLinkedList.size());
 	}
 	
+	@Test
+	public void testPutImmutableInstance() {
+
+		final BasicCloner cloner = new BasicCloner();
+		final IdHolder shared = new IdHolder();
+		final IdHolder[] holders = new IdHolder[] { shared, new IdHolder() };
+		cloner.putImmutableInstance(shared);
+		final IdHolder[] clone = cloner.clone(holders);
+		assertSame(shared, clone[0]);
+		assertNotSame(holders[1], clone[1]);
+	}
+
+	@Test
+	public void testParallelClone() {
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			BasicCloner[] cloners = new BasicCloner[] { new BasicCloner(new UnsafeCloneStrategy()), new BasicCloner(new PortableCloneStrategy()) };
+			for (int i = 0; i < cloners.length; i++) {
+				cloners[i].setForkJoinPool(pool);
+				cloners[i].setParallelThreshold(16);
+				doTestParallelClone(cloners[i]);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public void doTestParallelClone(BasicCloner cloner) {
+
+		final IdHolder[] array = new IdHolder[5000];
+		final ArrayList<IdHolder> list = new ArrayList<IdHolder>();
+		final HashMap<String, IdHolder> map = new HashMap<String, IdHolder>();
+		for (int i = 0; i < array.length; i++) {
+			array[i] = new IdHolder();
+			array[i].setId("Id " + i);
+			list.add(array[i]);
+			map.put(array[i].getId(), array[i]);
+		}
+		final Object[] source = new Object[] { array, list, map };
+
+		final Object[] clone = cloner.clone(source);
+
+		final IdHolder[] clonedArray = (IdHolder[]) clone[0];
+		@SuppressWarnings("unchecked")
+		final ArrayList<IdHolder> clonedList = (ArrayList<IdHolder>) clone[1];
+		@SuppressWarnings("unchecked")
+		final HashMap<String, IdHolder> clonedMap = (HashMap<String, IdHolder>) clone[2];
+
+		assertEquals(array.length, clonedArray.length);
+		assertEquals(list, clonedList);
+		assertEquals(map, clonedMap);
+		for (int i = 0; i < array.length; i++) {
+			assertEquals(array[i], clonedArray[i]);
+			assertNotSame(array[i], clonedArray[i]);
+			assertNotSame(list.get(i), clonedList.get(i));
+			assertNotSame(map.get(array[i].getId()), clonedMap.get(array[i].getId()));
+		}
+	}
+
+	@Test
+	public void testParallelCloneCopiesSharedInstancesOnce() {
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			BasicCloner[] cloners = new BasicCloner[] { new BasicCloner(new UnsafeCloneStrategy()), new BasicCloner(new PortableCloneStrategy()) };
+			for (int i = 0; i < cloners.length; i++) {
+				cloners[i].setForkJoinPool(pool);
+				cloners[i].setParallelThreshold(16);
+				for (int run = 0; run < 10; run++) {
+					doTestParallelCloneCopiesSharedInstancesOnce(cloners[i]);
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private void doTestParallelCloneCopiesSharedInstancesOnce(BasicCloner cloner) {
+
+		final NodeHolder[] sharedNodes = new NodeHolder[8];
+		final List<ArrayList<IdHolder>> sharedLists = new ArrayList<ArrayList<IdHolder>>();
+		for (int i = 0; i < sharedNodes.length; i++) {
+			sharedNodes[i] = new NodeHolder();
+			sharedNodes[i].setValue(i);
+			// Lists are published once all of their members are cloned, so copying one takes a while
+			final ArrayList<IdHolder> list = new ArrayList<IdHolder>();
+			for (int j = 0; j < 500; j++) {
+				final IdHolder member = new IdHolder();
+				member.setId("List " + i + " member " + j);
+				list.add(member);
+			}
+			sharedLists.add(list);
+		}
+
+		final Object[] source = new Object[4000];
+		for (int i = 0; i < source.length; i += 2) {
+			final NodeHolder next = new NodeHolder();
+			next.setNext(sharedNodes[(i / 2) % sharedNodes.length]);
+			source[i] = next;
+			source[i + 1] = sharedLists.get((i / 2) % sharedLists.size());
+		}
+
+		assertSharedInstancesCopiedOnce(sharedNodes, sharedLists, cloner.clone(source));
+		// Each member of the batch is cloned by a separate task, sharing the table of references
+		assertSharedInstancesCopiedOnce(sharedNodes, sharedLists, cloner.cloneAll(Arrays.asList(source)).toArray());
+		assertSharedInstancesCopiedOnce(sharedNodes, sharedLists, cloner.cloneAll(source));
+	}
+
+	private static void assertSharedInstancesCopiedOnce(NodeHolder[] sharedNodes, List<ArrayList<IdHolder>> sharedLists, Object[] clone) {
+
+		final IdentityHashMap<Object, Object> copies = new IdentityHashMap<Object, Object>();
+		for (int i = 0; i < clone.length; i += 2) {
+			final NodeHolder clonedNext = ((NodeHolder) clone[i]).getNext();
+			assertNotSame(sharedNodes[(i / 2) % sharedNodes.length], clonedNext);
+			assertEquals((i / 2) % sharedNodes.length, clonedNext.getValue());
+			copies.put(clonedNext, clonedNext);
+			assertNotSame(sharedLists.get((i / 2) % sharedLists.size()), clone[i + 1]);
+			assertEquals(sharedLists.get((i / 2) % sharedLists.size()), clone[i + 1]);
+			copies.put(clone[i + 1], clone[i + 1]);
+		}
+		assertEquals(sharedNodes.length + sharedLists.size(), copies.size());
+	}
+
+	@Test
+	public void testCloneAll() {
+
+		final NodeHolder shared = new NodeHolder();
+		shared.setName("Shared");
+		final List<NodeHolder> batch = new ArrayList<NodeHolder>();
+		for (int i = 0; i < 100; i++) {
+			final NodeHolder next = new NodeHolder();
+			next.setValue(i);
+			next.setNext(shared);
+			batch.add(next);
+		}
+		batch.add(null);
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final BasicCloner parallelCloner = new BasicCloner();
+			parallelCloner.setForkJoinPool(pool);
+			parallelCloner.setParallelThreshold(16);
+
+			final List<Cloner> cloners = new ArrayList<Cloner>(Arrays.asList(CLONERS));
+			cloners.add(new LazyCloner());
+			cloners.add(parallelCloner);
+
+			for (Cloner cloner : cloners) {
+
+				final List<NodeHolder> clones = cloner.cloneAll(batch);
+				assertEquals(batch.size(), clones.size());
+				assertNull(clones.get(100));
+				final NodeHolder clonedShared = clones.get(0).getNext();
+				assertNotSame(shared, clonedShared);
+				assertEquals("Shared", clonedShared.getName());
+				for (int i = 0; i < 100; i++) {
+					assertNotSame(batch.get(i), clones.get(i));
+					assertEquals(i, clones.get(i).getValue());
+					assertSame(clonedShared, clones.get(i).getNext());
+				}
+
+				final NodeHolder[] array = batch.toArray(new NodeHolder[batch.size()]);
+				final NodeHolder[] clonedArray = cloner.cloneAll(array);
+				assertNotSame(array, clonedArray);
+				assertSame(batch.get(0), array[0]);
+				assertNotSame(array[0], clonedArray[0]);
+				assertSame(clonedArray[0].getNext(), clonedArray[99].getNext());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCloneInto() {
+
+		Cloner[] cloners = new Cloner[] { new BasicCloner(new UnsafeCloneStrategy()), new BasicCloner(new AsmCloneStrategy()), new BasicCloner(new PortableCloneStrategy()) };
+		for (int i = 0; i < cloners.length; i++) {
+			doTestCloneInto(cloners[i]);
+		}
+	}
+
+	public void doTestCloneInto(Cloner cloner) {
+
+		final IdHolder[] array = new IdHolder[10];
+		final ArrayList<IdHolder> list = new ArrayList<IdHolder>();
+		final HashMap<String, IdHolder> map = new HashMap<String, IdHolder>();
+		for (int i = 0; i < array.length; i++) {
+			array[i] = new IdHolder();
+			array[i].setId("Id " + i);
+			list.add(array[i]);
+			map.put(array[i].getId(), array[i]);
+		}
+		final PrimitivesHolder holder = new PrimitivesHolder(1L, 2.0D, 'A', new int[] { 1, 2, 3 });
+		holder.next = new PrimitivesHolder(3L, 4.0D, 'B', null);
+		holder.next.next = holder;
+		final Object[] source = new Object[] { array, list, map, holder };
+
+		final Object[] target = cloner.clone(source);
+		final IdHolder[] targetArray = (IdHolder[]) target[0];
+		final IdHolder targetElement = targetArray[3];
+		final PrimitivesHolder targetHolder = (PrimitivesHolder) target[3];
+		final PrimitivesHolder targetNext = targetHolder.next;
+		final int[] targetValues = targetHolder.getValues();
+
+		for (int i = 0; i < array.length; i++) {
+			array[i].setId("Updated " + i);
+		}
+		map.clear();
+		map.put("Key", array[0]);
+		holder.getValues()[1] = 20;
+		holder.next = new PrimitivesHolder(5L, 6.0D, 'C', null);
+
+		cloner.cloneInto(source, target);
+
+		assertSame(targetArray, target[0]);
+		assertSame(targetElement, targetArray[3]);
+		assertEquals("Updated 3", targetElement.getId());
+		assertSame(targetElement, ((List<?>) target[1]).get(3));
+		assertEquals(1, ((HashMap<?, ?>) target[2]).size());
+		assertSame(targetArray[0], ((HashMap<?, ?>) target[2]).get("Key"));
+
+		assertSame(targetHolder, target[3]);
+		assertSame(targetValues, targetHolder.getValues());
+		assertEquals(20, targetValues[1]);
+		assertSame(targetNext, targetHolder.next);
+		assertEquals(5L, targetNext.getLongValue());
+		assertEquals('C', targetNext.getCharValue());
+		assertNull(targetNext.next);
+
+		for (int i = 0; i < array.length; i++) {
+			assertNotSame(array[i], targetArray[i]);
+			assertEquals(array[i], targetArray[i]);
+		}
+	}
+
+	@Test
+	public void testCloneIntoCollections() {
+
+		final BasicCloner cloner = new BasicCloner();
+
+		final IdHolder key = new IdHolder();
+		key.setId("Key");
+		final HashMap<IdHolder, String> map = new HashMap<IdHolder, String>();
+		map.put(key, "Value");
+		final TreeMap<String, String> sorted = new TreeMap<String, String>(Collections.reverseOrder());
+		sorted.put("A", "1");
+		sorted.put("B", "2");
+		final PriorityQueue<String> queue = new PriorityQueue<String>(4, Collections.reverseOrder());
+		queue.add("A");
+		final ArrayBlockingQueue<String> bounded = new ArrayBlockingQueue<String>(4);
+		bounded.add("A");
+		bounded.add("B");
+		bounded.add("C");
+		final List<String> unmodifiable = Collections.unmodifiableList(new ArrayList<String>(Arrays.asList("A")));
+		final Object[] source = new Object[] { map, sorted, queue, bounded, unmodifiable };
+
+		final IdHolder targetKey = new IdHolder();
+		targetKey.setId("Key");
+		final HashMap<IdHolder, String> targetMap = new HashMap<IdHolder, String>();
+		targetMap.put(targetKey, "Old");
+		final TreeMap<String, String> targetSorted = new TreeMap<String, String>();
+		final PriorityQueue<String> targetQueue = new PriorityQueue<String>();
+		final ArrayBlockingQueue<String> targetBounded = new ArrayBlockingQueue<String>(2);
+		targetBounded.add("X");
+		final List<String> targetUnmodifiable = Collections.unmodifiableList(new ArrayList<String>());
+		final Object[] target = new Object[] { targetMap, targetSorted, targetQueue, targetBounded, targetUnmodifiable };
+
+		cloner.cloneInto(source, target);
+
+		// The equal key held by the target is reused
+		assertSame(targetMap, target[0]);
+		assertSame(targetKey, targetMap.keySet().iterator().next());
+		assertEquals("Value", targetMap.get(targetKey));
+
+		// Collections ordered differently, or too small, are replaced rather than refilled
+		assertNotSame(targetSorted, target[1]);
+		assertEquals(Arrays.asList("B", "A"), new ArrayList<Object>(((TreeMap<?, ?>) target[1]).keySet()));
+		assertTrue(targetSorted.isEmpty());
+		assertNotSame(targetQueue, target[2]);
+		assertEquals("A", ((PriorityQueue<?>) target[2]).peek());
+		assertNotSame(targetBounded, target[3]);
+		assertEquals(Arrays.asList("A", "B", "C"), new ArrayList<Object>((ArrayBlockingQueue<?>) target[3]));
+		assertEquals(Arrays.asList("X"), new ArrayList<String>(targetBounded));
+
+		assertNotSame(targetUnmodifiable, target[4]);
+		assertEquals(unmodifiable, target[4]);
+	}
+
+	@Test
+	public void testLazyCloner() {
+
+		final NodeHolder first = new NodeHolder();
+		first.setName("first");
+		first.setValue(1);
+		first.getTags().add("a");
+		final NodeHolder second = new NodeHolder();
+		second.setName("second");
+		second.setValue(2);
+		first.setNext(second);
+		second.setNext(first);
+
+		final LazyCloner cloner = new LazyCloner();
+		final NodeHolder clone = cloner.clone(first);
+
+		assertNotSame(first, clone);
+		assertFalse(LazyCloner.isPending(clone));
+		assertEquals("first", clone.getName());
+		assertEquals(1, clone.getValue());
+		assertEquals(first.getTags(), clone.getTags());
+		assertNotSame(first.getTags(), clone.getTags());
+
+		final NodeHolder clonedSecond = clone.getNext();
+		assertNotSame(second, clonedSecond);
+		assertTrue(LazyCloner.isPending(clonedSecond));
+		assertEquals(2, clonedSecond.getValue());
+		assertFalse(LazyCloner.isPending(clonedSecond));
+		assertSame(clone, clonedSecond.getNext());
+
+		clonedSecond.setName("changed");
+		assertEquals("second", second.getName());
+
+		// IdHolder.equals() reads the id field of the other instance directly, so it is not proxied
+		assertTrue(LazyCloneProxyFactory.isProxyable(NodeHolder.class));
+		assertFalse(LazyCloneProxyFactory.isProxyable(IdHolder.class));
+		final IdHolder idHolder = new IdHolder();
+		idHolder.setId("id");
+		final NodeHolder withIdHolder = new NodeHolder();
+		withIdHolder.setName("holder");
+		final Object[] graph = new Object[] { withIdHolder, idHolder };
+		final Object[] clonedGraph = cloner.clone(graph);
+		assertSame(IdHolder.class, clonedGraph[1].getClass());
+		assertEquals(idHolder, clonedGraph[1]);
+		assertEquals(clonedGraph[1], idHolder);
+
+		final PrimitivesHolder withPublicFields = new PrimitivesHolder();
+		withPublicFields.intValue = 3;
+		final PrimitivesHolder deepClone = cloner.clone(withPublicFields);
+		assertSame(PrimitivesHolder.class, deepClone.getClass());
+		assertEquals(3, deepClone.intValue);
+	}
+
+	@Test
+	public void testClonePlans() {
+
+		BasicCloner[] cloners = new BasicCloner[] { new BasicCloner(new UnsafeCloneStrategy()), new BasicCloner(new AsmCloneStrategy()), new BasicCloner(new PortableCloneStrategy()) };
+		for (int i = 0; i < cloners.length; i++) {
+			cloners[i].setUseClonePlans(true);
+			doTestClonePlans(cloners[i]);
+		}
+	}
+
+	public void doTestClonePlans(BasicCloner cloner) {
+
+		final PrimitivesHolder source = new PrimitivesHolder(42L, 3.5D, 'Q', new int[] { 1, 2, 3 });
+		source.intValue = 7;
+		source.transientValue = 9;
+		source.booleanValue = true;
+		source.byteValue = (byte) 2;
+		source.shortValue = (short) 3;
+		source.floatValue = 1.5F;
+		source.idHolder = new IdHolder();
+		source.idHolder.setId("A Sample Value to Copy");
+		source.next = new PrimitivesHolder();
+		source.next.next = source;
+
+		cloner.setCloneTransientFields(false);
+		PrimitivesHolder clone = cloner.clone(source);
+
+		assertNotSame(source, clone);
+		assertEquals(7, clone.intValue);
+		assertEquals(0, clone.transientValue);
+		assertEquals(42L, clone.getLongValue());
+		assertEquals(3.5D, clone.getDoubleValue(), 0.0D);
+		assertEquals('Q', clone.getCharValue());
+		assertTrue(clone.booleanValue);
+		assertEquals((byte) 2, clone.byteValue);
+		assertEquals((short) 3, clone.shortValue);
+		assertEquals(1.5F, clone.floatValue, 0.0F);
+		assertEquals(source.idHolder, clone.idHolder);
+		assertNotSame(source.idHolder, clone.idHolder);
+		assertNotSame(source.getValues(), clone.getValues());
+		assertEquals(3, clone.getValues()[2]);
+		assertNotSame(source.next, clone.next);
+		assertSame(clone, clone.next.next);
+
+		cloner.setCloneTransientFields(true);
+		clone = cloner.clone(source);
+		assertEquals(9, clone.transientValue);
+
+		// Plans are retained by the cloner that generated them
+		assertNotNull(cloner.getClonePlan(PrimitivesHolder.class));
+		assertNull(new BasicCloner().getClonePlan(PrimitivesHolder.class));
+	}
+
 	@Test
     public void testBasicWithPortable() throws DatatypeConfigurationException {
 
@@ -285,6 +721,241 @@ public class TestCloner {
         Assert.assertNotSame(source.xmlCalendar, dest.xmlCalendar);
     }
 	
+	private static NodeHolder createRing(int size) {
+
+		final NodeHolder first = new NodeHolder();
+		NodeHolder last = first;
+		for (int i = 1; i < size; i++) {
+			final NodeHolder next = new NodeHolder();
+			next.setName("Node " + i);
+			next.setValue(i);
+			last.setNext(next);
+			last = next;
+		}
+		last.setNext(first);
+		return first;
+	}
+
+	@Test
+	public void testCollectionImplementors() {
+
+		final IdHolder a = new IdHolder();
+		a.setId("A");
+		final IdHolder b = new IdHolder();
+		b.setId("B");
+
+		final LinkedHashMap<IdHolder, IdHolder> accessOrdered = new LinkedHashMap<IdHolder, IdHolder>(16, 0.75f, true);
+		accessOrdered.put(a, b);
+		accessOrdered.put(b, a);
+		accessOrdered.get(a);
+
+		final TreeSet<IdHolder> sorted = new TreeSet<IdHolder>(new Comparator<IdHolder>() {
+
+			@Override
+			public int compare(IdHolder o1, IdHolder o2) {
+				return o2.getId().compareTo(o1.getId());
+			}
+		});
+		sorted.add(a);
+		sorted.add(b);
+
+		final EnumMap<ExampleEnum, IdHolder> enumMap = new EnumMap<ExampleEnum, IdHolder>(ExampleEnum.class);
+		enumMap.put(ExampleEnum.C, a);
+
+		final ArrayDeque<IdHolder> deque = new ArrayDeque<IdHolder>();
+		deque.add(a);
+		deque.addFirst(b);
+
+		final List<String> immutable = Collections.singletonList("A");
+
+		for (int i = 0; i < CLONERS.length; i++) {
+
+			if (!(CLONERS[i] instanceof BasicCloner)) {
+				continue;
+			}
+
+			final LinkedHashMap<IdHolder, IdHolder> accessOrderedCopy = CLONERS[i].clone(accessOrdered);
+			assertEquals(accessOrdered, accessOrderedCopy);
+			assertNotSame(a, accessOrderedCopy.keySet().iterator().next());
+			assertEquals(b, accessOrderedCopy.keySet().iterator().next());
+			accessOrderedCopy.get(accessOrderedCopy.keySet().iterator().next());
+			assertEquals(a, accessOrderedCopy.keySet().iterator().next());
+
+			final TreeSet<IdHolder> sortedCopy = CLONERS[i].clone(sorted);
+			assertSame(sorted.comparator(), sortedCopy.comparator());
+			assertEquals(b, sortedCopy.first());
+			assertNotSame(b, sortedCopy.first());
+
+			final EnumMap<ExampleEnum, IdHolder> enumMapCopy = CLONERS[i].clone(enumMap);
+			assertEquals(enumMap, enumMapCopy);
+			assertNotSame(a, enumMapCopy.get(ExampleEnum.C));
+
+			final EnumSet<ExampleEnum> enumSet = EnumSet.of(ExampleEnum.A, ExampleEnum.G);
+			assertEquals(enumSet, CLONERS[i].clone(enumSet));
+			assertNotSame(enumSet, CLONERS[i].clone(enumSet));
+
+			final ArrayDeque<IdHolder> dequeCopy = CLONERS[i].clone(deque);
+			assertEquals(b, dequeCopy.peekFirst());
+			assertEquals(a, dequeCopy.peekLast());
+			assertNotSame(b, dequeCopy.peekFirst());
+
+			final CopyOnWriteArrayList<IdHolder> copyOnWrite = new CopyOnWriteArrayList<IdHolder>(deque);
+			final CopyOnWriteArrayList<IdHolder> copyOnWriteCopy = CLONERS[i].clone(copyOnWrite);
+			assertEquals(copyOnWrite, copyOnWriteCopy);
+			assertNotSame(b, copyOnWriteCopy.get(0));
+
+			final IdentityHashMap<IdHolder, IdHolder> identityMap = new IdentityHashMap<IdHolder, IdHolder>();
+			identityMap.put(a, a);
+			final IdentityHashMap<IdHolder, IdHolder> identityMapCopy = CLONERS[i].clone(identityMap);
+			final IdHolder identityKey = identityMapCopy.keySet().iterator().next();
+			assertNotSame(a, identityKey);
+			assertSame(identityKey, identityMapCopy.get(identityKey));
+
+			assertSame(Collections.emptyList(), CLONERS[i].clone(Collections.emptyList()));
+			assertSame(immutable, CLONERS[i].clone(immutable));
+			final List<IdHolder> singleton = Collections.singletonList(a);
+			final List<IdHolder> singletonCopy = CLONERS[i].clone(singleton);
+			assertEquals(singleton, singletonCopy);
+			assertNotSame(a, singletonCopy.get(0));
+		}
+	}
+
+	@Test
+	public void testWarmupCache() throws IOException {
+
+		final BasicCloner recordingCloner = new BasicCloner(new AsmCloneStrategy());
+		recordingCloner.setWarmupCache(new CloneWarmupCache());
+		recordingCloner.initialiseFor(NodeHolder.class);
+		assertTrue(recordingCloner.getWarmupCache().getRecordedClasses().contains(NodeHolder.class));
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		recordingCloner.getWarmupCache().save(out);
+		// Only class names and fingerprints are saved, never the bytecode of the generated accessors
+		assertFalse(new String(out.toByteArray(), "ISO-8859-1").contains(AsmClassAccess.class.getName().replace('.', '/')));
+
+		final CloneWarmupCache loaded = CloneWarmupCache.load(new ByteArrayInputStream(out.toByteArray()), getClass().getClassLoader());
+		assertEquals(recordingCloner.getWarmupCache().getRecordedClasses(), loaded.getRecordedClasses());
+
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			final BasicCloner cloner = new BasicCloner(new AsmCloneStrategy());
+			assertEquals(1, loaded.warm(cloner, pool));
+			final NodeHolder ring = createRing(10);
+			assertEquals(ring.getNext().getName(), cloner.clone(ring).getNext().getName());
+		} finally {
+			pool.shutdown();
+		}
+
+		// Entries that fail the checksum are discarded
+		final byte[] damaged = out.toByteArray();
+		damaged[damaged.length - 1]++;
+		assertTrue(CloneWarmupCache.load(new ByteArrayInputStream(damaged), getClass().getClassLoader()).getRecordedClasses().isEmpty());
+
+		try {
+			CloneWarmupCache.load(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }), getClass().getClassLoader());
+			Assert.fail("Expected IOException");
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testConcurrentClassModels() throws Exception {
+
+		final ForkJoinPool pool = new ForkJoinPool(8);
+		try {
+			final List<Callable<ClassModel<?>>> tasks = new ArrayList<Callable<ClassModel<?>>>();
+			for (int i = 0; i < 64; i++) {
+				final Class<?> clazz = i % 2 == 0 ? PrimitivesHolder.class : ReferencesHolder.class;
+				tasks.add(new Callable<ClassModel<?>>() {
+					@Override
+					public ClassModel<?> call() {
+						return ClassModel.get(PortableClassAccess.get(clazz));
+					}
+				});
+			}
+			final List<Future<ClassModel<?>>> results = pool.invokeAll(tasks);
+			for (int i = 0; i < results.size(); i++) {
+				assertSame(results.get(i % 2).get(), results.get(i).get());
+			}
+			assertSame(PortableClassAccess.get(PrimitivesHolder.class), results.get(0).get().getClassAccess());
+			assertSame(ClassModel.get(PortableClassAccess.get(PrimitivesHolder.class)), results.get(0).get());
+			assertNotSame(ClassModel.get(UnsafeClassAccess.get(PrimitivesHolder.class)), results.get(0).get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCloneStatistics() {
+
+		final NodeHolder shared = new NodeHolder();
+		final NodeHolder[] nodes = new NodeHolder[3];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new NodeHolder();
+			nodes[i].setNext(shared);
+		}
+
+		final CloneStatistics statistics = new CloneStatistics();
+		final BasicCloner cloner = new BasicCloner();
+		cloner.setCloneStatistics(statistics);
+		cloner.clone(nodes);
+
+		final ClassCloneStatistics nodeStatistics = statistics.getStatistics(NodeHolder.class);
+		assertEquals(4L, nodeStatistics.getObjectsCloned());
+		assertEquals(4L * UnsafeOperations.getUnsafeOperations().shallowSizeOf(NodeHolder.class), nodeStatistics.getShallowBytes());
+		assertEquals(1L, statistics.getStatistics(NodeHolder[].class).getObjectsCloned());
+		assertEquals(4L, statistics.getStatistics(ArrayList.class).getImplementorInvocations());
+		assertEquals(2L, statistics.getReferenceHits());
+		assertTrue(statistics.getReferenceHitRate() > 0.0D);
+		assertTrue(statistics.getSnapshot().containsKey(NodeHolder.class));
+		assertTrue(statistics.getTopClasses().length > 0);
+
+		statistics.reset();
+		assertEquals(0L, statistics.getObjectsCloned());
+		assertEquals(0L, statistics.getReferenceLookups());
+	}
+
+	@Test
+	public void testCloneContext() {
+
+		assertTrue(TreeShapedClasses.isTreeShaped(IdHolder.class, new BasicCloner()));
+		assertFalse(TreeShapedClasses.isTreeShaped(NodeHolder.class, new BasicCloner()));
+		assertFalse(TreeShapedClasses.isTreeShaped(IdHolder.class, new MinimalCloner()));
+
+		final IdHolder idHolder = new IdHolder();
+		idHolder.setId("tree");
+		final IdHolder clonedIdHolder = new BasicCloner().clone(idHolder);
+		assertNotSame(idHolder, clonedIdHolder);
+		assertEquals(idHolder, clonedIdHolder);
+
+		// A chain deep enough to be cloned from the work stack, closed into a cycle
+		final NodeHolder first = new NodeHolder();
+		NodeHolder last = first;
+		for (int i = 1; i < 1000; i++) {
+			final NodeHolder next = new NodeHolder();
+			next.setValue(i);
+			last.setNext(next);
+			last = next;
+		}
+		last.setNext(first);
+
+		final BasicCloner basicCloner = new BasicCloner();
+		final MinimalCloner minimalCloner = new MinimalCloner();
+		final CloneContext context = new CloneContext();
+		for (int attempt = 0; attempt < 2; attempt++) {
+			for (NodeHolder copy : Arrays.asList(basicCloner.clone(first, context), minimalCloner.clone(first, context), basicCloner.clone(first))) {
+				assertNotSame(first, copy);
+				NodeHolder current = copy;
+				for (int i = 0; i < 1000; i++) {
+					assertEquals(i, current.getValue());
+					current = current.getNext();
+				}
+				assertSame(copy, current);
+			}
+		}
+	}
+
 	@Test
     public void testMinimal() throws DatatypeConfigurationException {
 
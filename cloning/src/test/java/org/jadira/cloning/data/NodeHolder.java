@@ -0,0 +1,40 @@
+package org.jadira.cloning.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class NodeHolder {
+
+	private String name;
+	private int value;
+	private NodeHolder next;
+	private List<String> tags = new ArrayList<String>();
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public int getValue() {
+		return value;
+	}
+
+	public void setValue(int value) {
+		this.value = value;
+	}
+
+	public NodeHolder getNext() {
+		return next;
+	}
+
+	public void setNext(NodeHolder next) {
+		this.next = next;
+	}
+
+	public List<String> getTags() {
+		return tags;
+	}
+}
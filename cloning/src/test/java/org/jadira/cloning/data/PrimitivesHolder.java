@@ -0,0 +1,46 @@
+package org.jadira.cloning.data;
+
+public class PrimitivesHolder {
+
+	public int intValue;
+	long longValue;
+	private double doubleValue;
+	private final char charValue;
+	public transient int transientValue;
+
+	public boolean booleanValue;
+	public byte byteValue;
+	public short shortValue;
+	public float floatValue;
+
+	public IdHolder idHolder;
+	private int[] values;
+	public PrimitivesHolder next;
+
+	public PrimitivesHolder() {
+		this.charValue = 'X';
+	}
+
+	public PrimitivesHolder(long longValue, double doubleValue, char charValue, int[] values) {
+		this.longValue = longValue;
+		this.doubleValue = doubleValue;
+		this.charValue = charValue;
+		this.values = values;
+	}
+
+	public long getLongValue() {
+		return longValue;
+	}
+
+	public double getDoubleValue() {
+		return doubleValue;
+	}
+
+	public char getCharValue() {
+		return charValue;
+	}
+
+	public int[] getValues() {
+		return values;
+	}
+}
@@ -0,0 +1,40 @@
+package org.jadira.reflection.access.methodhandle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.jadira.cloning.data.IdHolder;
+import org.jadira.cloning.data.PrimitivesHolder;
+import org.jadira.reflection.access.api.ClassAccess;
+import org.jadira.reflection.access.api.FieldAccess;
+import org.junit.Test;
+
+public class TestMethodHandleClassAccess {
+
+	@Test
+	public void testMethodHandleClassAccess() throws NoSuchFieldException {
+
+		final ClassAccess<PrimitivesHolder> classAccess = MethodHandleClassAccess.get(PrimitivesHolder.class);
+		final PrimitivesHolder holder = classAccess.newInstance();
+		// As with the other ClassAccess implementations, no constructor is run
+		assertEquals('\0', holder.getCharValue());
+
+		final FieldAccess<PrimitivesHolder> longAccess = classAccess.getDeclaredFieldAccess(PrimitivesHolder.class.getDeclaredField("longValue"));
+		longAccess.putLongValue(holder, 42L);
+		assertEquals(42L, holder.getLongValue());
+		assertEquals(42L, longAccess.getLongValue(holder));
+		assertEquals(Long.valueOf(42L), longAccess.getValue(holder));
+
+		final FieldAccess<PrimitivesHolder> charAccess = classAccess.getDeclaredFieldAccess(PrimitivesHolder.class.getDeclaredField("charValue"));
+		charAccess.putCharValue(holder, 'Y');
+		assertEquals('Y', charAccess.getCharValue(holder));
+		charAccess.putValue(holder, Character.valueOf('Z'));
+		assertEquals(Character.valueOf('Z'), charAccess.getValue(holder));
+
+		final FieldAccess<PrimitivesHolder> idAccess = classAccess.getDeclaredFieldAccess(PrimitivesHolder.class.getDeclaredField("idHolder"));
+		final IdHolder idHolder = new IdHolder();
+		idAccess.putValue(holder, idHolder);
+		assertSame(idHolder, idAccess.getValue(holder));
+		assertSame(idHolder, holder.idHolder);
+	}
+}
@@ -0,0 +1,41 @@
+package org.jadira.reflection.access.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jadira.cloning.data.IdHolder;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
+import org.junit.Test;
+
+public class TestModelRegistry {
+
+	@Test
+	public void testModelRegistry() {
+
+		final AtomicInteger computed = new AtomicInteger();
+		final ModelRegistry<Object> registry = new ModelRegistry<Object>() {
+			@Override
+			protected Object computeValue(Class<?> type) {
+				computed.incrementAndGet();
+				return new Object();
+			}
+		};
+
+		// A JDK class, held by the registry, and a class of the library's loader, held in a ClassValue
+		assertSame(registry.get(ArrayList.class), registry.get(ArrayList.class));
+		assertSame(registry.get(IdHolder.class), registry.get(IdHolder.class));
+		assertEquals(2, computed.get());
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testJdkClassModels() {
+
+		final ClassModel<ArrayList> model = ClassModel.get(UnsafeClassAccess.get(ArrayList.class));
+		assertSame(model, ClassModel.get(UnsafeClassAccess.get(ArrayList.class)));
+		assertSame(model.getModelFields()[0], FieldModel.get(model.getModelFields()[0].getField(), model.getModelFields()[0].getFieldAccess()));
+	}
+}
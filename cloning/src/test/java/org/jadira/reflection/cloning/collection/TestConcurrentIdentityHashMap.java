@@ -0,0 +1,31 @@
+package org.jadira.reflection.cloning.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.jadira.cloning.data.IdHolder;
+import org.junit.Test;
+
+public class TestConcurrentIdentityHashMap {
+
+	@Test
+	public void testConcurrentIdentityHashMap() {
+
+		final ConcurrentIdentityHashMap<Object, Object> map = new ConcurrentIdentityHashMap<Object, Object>(16, 4);
+		final IdHolder key = new IdHolder();
+		final IdHolder equalKey = new IdHolder();
+		assertNull(map.putIfAbsent(key, "A"));
+		assertEquals("A", map.putIfAbsent(key, "B"));
+		assertNull(map.get(equalKey));
+
+		assertTrue(map.replace(key, "A", "C"));
+		assertFalse(map.remove(key, "A"));
+		assertEquals(1, map.entrySet().size());
+		assertSame(key, map.keySet().iterator().next());
+		assertTrue(map.remove(key, "C"));
+		assertTrue(map.isEmpty());
+	}
+}
@@ -0,0 +1,132 @@
+package org.jadira.reflection.cloning.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.jadira.cloning.data.IdHolder;
+import org.junit.Test;
+
+public class TestFastIdentityHashMap {
+
+	@Test
+	public void testFastIdentityHashMap() {
+
+		final FastIdentityHashMap<Object, Object> map = new FastIdentityHashMap<Object, Object>(2);
+		final Object[] keys = new Object[1000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = new IdHolder();
+			assertNull(map.put(keys[i], Integer.valueOf(i)));
+		}
+		map.put(null, "NULL");
+		assertEquals(1001, map.size());
+		assertFalse(map.containsKey(new IdHolder()));
+
+		for (int i = 0; i < keys.length; i += 2) {
+			assertEquals(Integer.valueOf(i), map.remove(keys[i]));
+		}
+		assertEquals(501, map.size());
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), map.get(keys[i]));
+		}
+		assertEquals("NULL", map.get(null));
+
+		// Updates through the entry set, as used by Map's default methods, write through to the map
+		for (Map.Entry<Object, Object> next : map.entrySet()) {
+			if (next.getKey() == keys[1]) {
+				next.setValue("ONE");
+			}
+		}
+		assertEquals("ONE", map.get(keys[1]));
+		assertEquals(new FastIdentityHashMap<Object, Object>(map), map);
+
+		final int capacity = map.capacity();
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(capacity, map.capacity());
+		assertNull(map.get(keys[1]));
+	}
+
+	@Test
+	public void testSerialization() throws IOException, ClassNotFoundException {
+
+		final FastIdentityHashMap<Object, Object> map = new FastIdentityHashMap<Object, Object>();
+		for (int i = 0; i < 20; i++) {
+			map.put(Integer.valueOf(1000 + i), "Value" + i);
+		}
+		map.put(null, "NULL");
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(map);
+		out.close();
+
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		@SuppressWarnings("unchecked")
+		final FastIdentityHashMap<Object, Object> copy = (FastIdentityHashMap<Object, Object>) in.readObject();
+		in.close();
+
+		// Keys are new instances after deserialization, so look each one up through the copy's own key set
+		assertEquals(21, copy.size());
+		assertEquals("NULL", copy.get(null));
+		int found = 0;
+		for (Object next : copy.keySet()) {
+			if (next != null) {
+				assertEquals("Value" + (((Integer) next).intValue() - 1000), copy.get(next));
+				found++;
+			}
+		}
+		assertEquals(20, found);
+	}
+
+	@Test
+	public void testViewRemoval() {
+
+		final FastIdentityHashMap<Object, Object> map = new FastIdentityHashMap<Object, Object>(4);
+		final Object[] keys = new Object[500];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = new IdHolder();
+			map.put(keys[i], Integer.valueOf(i));
+		}
+
+		// Removal through the iterator must visit every entry exactly once, including wrapped clusters
+		int visited = 0;
+		for (Iterator<Map.Entry<Object, Object>> it = map.entrySet().iterator(); it.hasNext();) {
+			final Map.Entry<Object, Object> next = it.next();
+			visited++;
+			if (((Integer) next.getValue()).intValue() % 3 == 0) {
+				it.remove();
+			}
+		}
+		assertEquals(keys.length, visited);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(i % 3 != 0, map.containsKey(keys[i]));
+		}
+
+		final Map.Entry<Object, Object> entry = new AbstractMap.SimpleEntry<Object, Object>(keys[10], map.get(keys[10]));
+		assertFalse(map.entrySet().remove(new AbstractMap.SimpleEntry<Object, Object>(keys[10], "Other")));
+		assertTrue(map.entrySet().remove(entry));
+		assertFalse(map.containsKey(keys[10]));
+		assertFalse(map.entrySet().remove(entry));
+
+		assertTrue(map.keySet().removeAll(Arrays.asList(keys[1], keys[2])));
+		assertFalse(map.containsKey(keys[1]));
+		assertFalse(map.containsKey(keys[2]));
+
+		assertTrue(map.values().retainAll(Arrays.asList(map.get(keys[4]), map.get(keys[5]))));
+		assertEquals(2, map.size());
+		assertTrue(map.containsKey(keys[4]));
+		assertTrue(map.containsKey(keys[5]));
+	}
+}
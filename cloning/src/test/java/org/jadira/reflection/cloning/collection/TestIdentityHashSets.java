@@ -0,0 +1,47 @@
+package org.jadira.reflection.cloning.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.jadira.cloning.data.IdHolder;
+import org.junit.Test;
+
+public class TestIdentityHashSets {
+
+	@Test
+	public void testIdentitySets() {
+
+		final List<Set<Object>> sets = new ArrayList<Set<Object>>();
+		sets.add(new FastIdentityHashSet<Object>());
+		sets.add(new CopyOnWriteIdentityHashSet<Object>());
+
+		for (Set<Object> set : sets) {
+			final IdHolder[] members = new IdHolder[100];
+			for (int i = 0; i < members.length; i++) {
+				members[i] = new IdHolder();
+				members[i].setId("Id");
+				assertTrue(set.add(members[i]));
+				assertFalse(set.add(members[i]));
+				assertFalse(set.contains(new IdHolder()));
+				assertEquals(i + 1, set.size());
+				for (int j = 0; j <= i; j++) {
+					assertTrue(set.contains(members[j]));
+				}
+			}
+			for (int i = members.length - 1; i >= 0; i--) {
+				assertTrue(set.remove(members[i]));
+				assertFalse(set.contains(members[i]));
+				assertFalse(set.remove(members[i]));
+				for (int j = 0; j < i; j++) {
+					assertTrue(set.contains(members[j]));
+				}
+			}
+			assertTrue(set.isEmpty());
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package org.jadira.reflection.core.identity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jadira.cloning.data.IdHolder;
+import org.junit.Test;
+
+public class TestIdentityPairSet {
+
+	@Test
+	public void testIdentityPairSet() {
+
+		final Object lhs = new IdHolder();
+		final Object rhs = new IdHolder();
+
+		final IdentityPairSet pairs = new IdentityPairSet();
+		final Object[] rights = new Object[2000];
+		for (int i = 0; i < rights.length; i++) {
+			rights[i] = new IdHolder();
+			assertTrue(pairs.add(lhs, rights[i]));
+		}
+		assertFalse(pairs.add(lhs, rights[1000]));
+		assertFalse(pairs.contains(lhs, new IdHolder()));
+		assertTrue(pairs.add(rhs, lhs));
+		assertFalse(pairs.add(rhs, lhs));
+		assertTrue(pairs.contains(rhs, lhs));
+		assertFalse(pairs.contains(lhs, rhs));
+		assertEquals(2001, pairs.size());
+		pairs.clear();
+		assertEquals(0, pairs.size());
+		assertFalse(pairs.contains(rhs, lhs));
+	}
+}
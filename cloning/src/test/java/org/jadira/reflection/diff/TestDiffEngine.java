@@ -0,0 +1,118 @@
+package org.jadira.reflection.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jadira.cloning.data.NodeHolder;
+import org.jadira.reflection.cloning.BasicCloner;
+import org.jadira.reflection.cloning.api.Cloner;
+import org.junit.Test;
+
+public class TestDiffEngine {
+
+	@Test
+	public void testDiffEngine() {
+
+		final NodeHolder first = new NodeHolder();
+		first.setName("first");
+		first.getTags().add("tag");
+		final NodeHolder second = new NodeHolder();
+		second.setName("second");
+		first.setNext(second);
+		second.setNext(first);
+
+		final Cloner cloner = new BasicCloner();
+		final NodeHolder original = cloner.clone(first);
+		final DiffEngine engine = new DiffEngine();
+		assertTrue(engine.diff(original, first).isEmpty());
+
+		first.setValue(5);
+		second.setName("changed");
+		first.getTags().set(0, "other");
+
+		final Diff diff = engine.diff(original, first);
+		final List<String> paths = new ArrayList<String>();
+		for (Change next : diff.getChanges()) {
+			paths.add(next.getPath());
+		}
+		assertEquals(Arrays.asList("value", "next.name", "tags[0]"), paths);
+		assertEquals(Integer.valueOf(0), diff.getChanges().get(0).getOriginalValue());
+		assertEquals(Integer.valueOf(5), diff.getChanges().get(0).getCurrentValue());
+
+		final NodeHolder replica = cloner.clone(original);
+		assertSame(replica, diff.applyTo(replica));
+		assertEquals(5, replica.getValue());
+		assertEquals("other", replica.getTags().get(0));
+		assertEquals("changed", replica.getNext().getName());
+		assertSame(replica, replica.getNext().getNext());
+		assertTrue(engine.diff(replica, first).isEmpty());
+	}
+
+	@Test
+	public void testDiffMapsAndSets() {
+
+		final NodeHolder first = new NodeHolder();
+		first.setName("first");
+		final NodeHolder second = new NodeHolder();
+		second.setName("second");
+		second.setNext(first);
+
+		final Set<NodeHolder> nodes = new HashSet<NodeHolder>();
+		nodes.add(first);
+		nodes.add(second);
+		final Set<String> names = new HashSet<String>(Arrays.asList("first", "second"));
+		final Map<NodeHolder, String> labels = new HashMap<NodeHolder, String>();
+		labels.put(first, "one");
+
+		final Map<String, Object> root = new HashMap<String, Object>();
+		root.put("nodes", nodes);
+		root.put("names", names);
+		root.put("labels", labels);
+		root.put("first", first);
+
+		// The copies of members and keys that do not override equals() are matched by structure
+		final Cloner cloner = new BasicCloner();
+		final Map<String, Object> original = cloner.clone(root);
+		final DiffEngine engine = new DiffEngine();
+		assertTrue(engine.diff(original, root).isEmpty());
+
+		second.setValue(2);
+		labels.put(first, "uno");
+		names.remove("second");
+		names.add("third");
+		root.remove("first");
+
+		final Diff diff = engine.diff(original, root);
+		final List<String> paths = new ArrayList<String>();
+		int removals = 0;
+		for (Change next : diff.getChanges()) {
+			paths.add(next.getPath());
+			if (next.isRemoval()) {
+				assertNull(next.getCurrentValue());
+				removals++;
+			}
+		}
+		// A changed member that does not override equals() no longer matches, so is removed and added
+		assertEquals(6, paths.size());
+		assertEquals(3, removals);
+		assertTrue(paths.containsAll(Arrays.asList("[first]", "[names]{second}", "[names]{third}", "[nodes]{" + second + "}")));
+		assertEquals("uno", diff.getChanges().get(paths.indexOf("[labels][" + original.get("first") + "]")).getCurrentValue());
+
+		final Map<String, Object> replica = cloner.clone(original);
+		diff.applyTo(replica);
+		assertFalse(replica.containsKey("first"));
+		assertEquals(new HashSet<String>(Arrays.asList("first", "third")), replica.get("names"));
+		assertTrue(engine.diff(replica, root).isEmpty());
+	}
+}
@@ -0,0 +1,87 @@
+package org.jadira.reflection.equals;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractMap.SimpleEntry;
+
+import org.jadira.cloning.data.IdHolder;
+import org.jadira.cloning.data.NodeHolder;
+import org.jadira.cloning.data.PrimitivesHolder;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
+import org.junit.Test;
+
+public class TestEqualsBuilder {
+
+	@Test
+	public void testGeneratedEquals() {
+
+		assertNotNull(AsmEqualsAppender.get(UnsafeClassAccess.get(PrimitivesHolder.class)));
+
+		final IdHolder idHolder = new IdHolder();
+		idHolder.setId("A");
+		final PrimitivesHolder lhs = new PrimitivesHolder(1L, 2.0D, 'L', new int[] { 1, 2 });
+		lhs.intValue = 3;
+		lhs.idHolder = idHolder;
+		final PrimitivesHolder rhs = new PrimitivesHolder(1L, 2.0D, 'L', new int[] { 1, 2 });
+		rhs.intValue = 3;
+		rhs.idHolder = idHolder;
+		rhs.transientValue = 4;
+
+		assertTrue(EqualsBuilder.reflectionEquals(lhs, rhs));
+
+		final PrimitivesHolder different = new PrimitivesHolder(5L, 2.0D, 'L', new int[] { 1, 2 });
+		different.intValue = 3;
+		different.idHolder = idHolder;
+		assertFalse(EqualsBuilder.reflectionEquals(lhs, different));
+
+		rhs.next = new PrimitivesHolder();
+		assertFalse(EqualsBuilder.reflectionEquals(lhs, rhs));
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testReflectionAppenderFallback() {
+
+		// No appender can be generated for JDK classes, so their fields are compared reflectively
+		final AsmEqualsAppender<SimpleEntry> appender = AsmEqualsAppender.get(UnsafeClassAccess.get(SimpleEntry.class));
+		assertNotNull(appender);
+
+		EqualsBuilder builder = new EqualsBuilder();
+		appender.append(builder, new SimpleEntry<String, String>("A", "B"), new SimpleEntry<String, String>("A", "B"));
+		assertTrue(builder.isEquals());
+
+		builder = new EqualsBuilder();
+		appender.append(builder, new SimpleEntry<String, String>("A", "B"), new SimpleEntry<String, String>("A", "C"));
+		assertFalse(builder.isEquals());
+	}
+
+	@Test
+	public void testCyclicEquals() {
+
+		final NodeHolder lhs = createRing(100);
+		final NodeHolder rhs = createRing(100);
+
+		assertTrue(new EqualsBuilder().withDefaultDeepReflect(true).append(lhs, rhs).isEquals());
+		assertTrue(EqualsBuilder.reflectionEquals(lhs, lhs));
+
+		rhs.getNext().getNext().setValue(-1);
+		assertFalse(new EqualsBuilder().withDefaultDeepReflect(true).append(lhs, rhs).isEquals());
+	}
+
+	private static NodeHolder createRing(int size) {
+
+		final NodeHolder first = new NodeHolder();
+		NodeHolder last = first;
+		for (int i = 1; i < size; i++) {
+			final NodeHolder next = new NodeHolder();
+			next.setName("Node " + i);
+			next.setValue(i);
+			last.setNext(next);
+			last = next;
+		}
+		last.setNext(first);
+		return first;
+	}
+}
@@ -0,0 +1,34 @@
+package org.jadira.reflection.hashcode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.jadira.cloning.data.IdHolder;
+import org.jadira.cloning.data.PrimitivesHolder;
+import org.jadira.reflection.access.unsafe.UnsafeClassAccess;
+import org.junit.Test;
+
+public class TestHashCodeBuilder {
+
+	@Test
+	public void testGeneratedHashCode() {
+
+		assertNotNull(AsmHashCodeAppender.get(UnsafeClassAccess.get(PrimitivesHolder.class)));
+
+		final IdHolder idHolder = new IdHolder();
+		idHolder.setId("A");
+		final PrimitivesHolder lhs = new PrimitivesHolder(1L, 2.0D, 'L', new int[] { 1, 2 });
+		lhs.intValue = 3;
+		lhs.idHolder = idHolder;
+		final PrimitivesHolder rhs = new PrimitivesHolder(1L, 2.0D, 'L', new int[] { 1, 2 });
+		rhs.intValue = 3;
+		rhs.idHolder = idHolder;
+		rhs.transientValue = 4;
+
+		assertEquals(HashCodeBuilder.reflectionHashCode(lhs), HashCodeBuilder.reflectionHashCode(rhs));
+
+		final int generatedHashCode = new HashCodeBuilder().withDefaultDeepReflect(true).append(lhs).toHashCode();
+		final int reflectedHashCode = new HashCodeBuilder().withDefaultDeepReflect(true).withGeneratedAppenders(false).append(lhs).toHashCode();
+		assertEquals(reflectedHashCode, generatedHashCode);
+	}
+}
@@ -0,0 +1,51 @@
+package org.jadira.reflection.size;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jadira.cloning.data.IdHolder;
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+import org.junit.Test;
+
+public class TestSizeEstimator {
+
+	@Test
+	public void testSizeEstimator() {
+
+		final List<IdHolder> list = new ArrayList<IdHolder>();
+		for (int i = 0; i < 10000; i++) {
+			final IdHolder next = new IdHolder();
+			next.setId("Id " + (i % 10));
+			list.add(next);
+		}
+
+		final SizeEstimate exact = new SizeEstimator().withHistogram(true).estimate(list);
+		assertTrue(exact.isExact());
+		assertEquals(UnsafeOperations.getUnsafeOperations().deepSizeOf(list), exact.getTotalBytes());
+		ClassSizeStatistics idHolderStatistics = null;
+		for (ClassSizeStatistics next : exact.getHistogram()) {
+			if (next.getType() == IdHolder.class) {
+				idHolderStatistics = next;
+			}
+		}
+		assertEquals(10000L, idHolderStatistics.getInstanceCount());
+
+		final SizeEstimate sampled = new SizeEstimator().withSampling(1000, 500).estimate(list);
+		assertTrue(sampled.isSampled());
+		assertTrue(sampled.getVisitedObjects() < exact.getVisitedObjects());
+		assertTrue(Math.abs(sampled.getTotalBytes() - exact.getTotalBytes()) < exact.getTotalBytes() / 10);
+
+		final SizeEstimate limited = new SizeEstimator().withByteLimit(1024).estimate(list);
+		assertTrue(limited.isTruncated());
+		assertTrue(limited.getTotalBytes() >= 1024);
+		assertTrue(limited.getTotalBytes() < exact.getTotalBytes());
+
+		final SizeEstimate cancelled = new SizeEstimator().estimate(list, new AtomicBoolean(true));
+		assertTrue(cancelled.isCancelled());
+		assertEquals(0L, cancelled.getTotalBytes());
+	}
+}
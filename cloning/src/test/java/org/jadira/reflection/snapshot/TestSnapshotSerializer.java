@@ -0,0 +1,183 @@
+package org.jadira.reflection.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+
+import org.jadira.cloning.data.ExampleEnum;
+import org.jadira.cloning.data.IdHolder;
+import org.jadira.cloning.data.NodeHolder;
+import org.jadira.reflection.access.unsafe.UnsafeOperations;
+import org.junit.Test;
+
+public class TestSnapshotSerializer {
+
+	@Test
+	public void testSnapshotSerializer() throws IOException {
+
+		final NodeHolder first = new NodeHolder();
+		first.setName("first");
+		first.getTags().add("tag");
+		final NodeHolder second = new NodeHolder();
+		second.setValue(2);
+		first.setNext(second);
+		second.setNext(first);
+
+		final IdHolder key = new IdHolder();
+		final HashMap<Object, Object> map = new HashMap<Object, Object>();
+		map.put(key, first);
+		map.put(ExampleEnum.C, second);
+
+		final Object[] graph = new Object[] { first, map, key, new int[] { 1, 2, 3 }, ExampleEnum.D, Long.valueOf(1000L) };
+
+		final SnapshotSerializer serializer = new SnapshotSerializer().withAllowedPackages("org.jadira.cloning.data");
+		final ByteBuffer buffer = serializer.write(graph);
+		assertTrue(buffer.isDirect());
+
+		final Object[] copy = (Object[]) serializer.read(buffer);
+		assertFalse(buffer.hasRemaining());
+
+		final NodeHolder firstCopy = (NodeHolder) copy[0];
+		assertNotSame(first, firstCopy);
+		assertEquals("first", firstCopy.getName());
+		assertEquals(Arrays.asList("tag"), firstCopy.getTags());
+		assertEquals(2, firstCopy.getNext().getValue());
+		assertSame(firstCopy, firstCopy.getNext().getNext());
+
+		@SuppressWarnings("unchecked")
+		final HashMap<Object, Object> mapCopy = (HashMap<Object, Object>) copy[1];
+		assertSame(firstCopy, mapCopy.get(copy[2]));
+		assertSame(firstCopy.getNext(), mapCopy.get(ExampleEnum.C));
+		assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, (int[]) copy[3]));
+		assertSame(ExampleEnum.D, copy[4]);
+		assertEquals(Long.valueOf(1000L), copy[5]);
+
+		try {
+			serializer.write(graph, ByteBuffer.allocate(16));
+			fail("Expected BufferOverflowException");
+		} catch (BufferOverflowException e) {
+		}
+
+		final File file = File.createTempFile("snapshot", ".bin");
+		try {
+			assertEquals(buffer.limit(), serializer.write(graph, file));
+			final NodeHolder fileCopy = (NodeHolder) ((Object[]) serializer.read(file))[0];
+			assertSame(fileCopy, fileCopy.getNext().getNext());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testHashedCollections() {
+
+		final LinkedHashMap<String, Integer> accessOrdered = new LinkedHashMap<String, Integer>(16, 0.5f, true);
+		accessOrdered.put("A", Integer.valueOf(1));
+		accessOrdered.put("B", Integer.valueOf(2));
+		accessOrdered.get("A");
+
+		final NamedHashMap named = new NamedHashMap();
+		named.name = "named";
+		named.put(new IdHolder(), "value");
+
+		final SnapshotSerializer serializer = new SnapshotSerializer().withAllowedClasses(IdHolder.class, NamedHashMap.class);
+		final Object[] copy = (Object[]) serializer.read(serializer.write(new Object[] { accessOrdered, named }));
+
+		@SuppressWarnings("unchecked")
+		final LinkedHashMap<String, Integer> accessOrderedCopy = (LinkedHashMap<String, Integer>) copy[0];
+		assertEquals(Arrays.asList("B", "A"), new ArrayList<String>(accessOrderedCopy.keySet()));
+		accessOrderedCopy.get("B");
+		assertEquals(Arrays.asList("A", "B"), new ArrayList<String>(accessOrderedCopy.keySet()));
+
+		// Subclasses are rebuilt from their entries, so keys hashed by identity are found again
+		final NamedHashMap namedCopy = (NamedHashMap) copy[1];
+		assertEquals("named", namedCopy.name);
+		assertEquals(1, namedCopy.size());
+		assertEquals("value", namedCopy.get(namedCopy.keySet().iterator().next()));
+	}
+
+	@Test
+	public void testAllowedClasses() {
+
+		final ByteBuffer buffer = new SnapshotSerializer().write(new IdHolder());
+		try {
+			new SnapshotSerializer().read(buffer.duplicate());
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains(IdHolder.class.getName()));
+		}
+		assertNotSame(null, new SnapshotSerializer().withAllowedClasses(IdHolder.class).read(buffer.duplicate()));
+		assertTrue(new SnapshotSerializer().read(new SnapshotSerializer().write(new int[][] { { 1 } })) instanceof int[][]);
+	}
+
+	@Test
+	public void testCorruptSnapshots() throws NoSuchFieldException {
+
+		final SnapshotSerializer serializer = new SnapshotSerializer().withAllowedPackages("org.jadira.cloning.data");
+
+		// A value that does not match the declared type of its field is rejected
+		final NodeHolder node = new NodeHolder();
+		final UnsafeOperations unsafeOperations = UnsafeOperations.getUnsafeOperations();
+		unsafeOperations.putObject(node, unsafeOperations.getObjectFieldOffset(NodeHolder.class.getDeclaredField("name")), new int[] { 1 });
+		assertCorrupt(serializer, serializer.write(node));
+
+		// A negative string length
+		final ByteBuffer negativeLength = serializer.write("text");
+		negativeLength.putInt(6, -1);
+		assertCorrupt(serializer, negativeLength);
+
+		// An array whose class is not an array class; both names have the same length
+		final ByteBuffer notArray = serializer.write(new Object[] { "a" });
+		replace(notArray, "[Ljava.lang.Object;", "java.lang.Character");
+		assertCorrupt(serializer, notArray);
+	}
+
+	private static void assertCorrupt(SnapshotSerializer serializer, ByteBuffer buffer) {
+		try {
+			serializer.read(buffer);
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt snapshot"));
+		}
+	}
+
+	private static void replace(ByteBuffer buffer, String original, String replacement) {
+
+		final Charset utf16 = Charset.forName("UTF-16BE");
+		final byte[] target = original.getBytes(utf16);
+		for (int i = 0; i <= buffer.limit() - target.length; i++) {
+			boolean found = true;
+			for (int j = 0; found && j < target.length; j++) {
+				found = buffer.get(i + j) == target[j];
+			}
+			if (found) {
+				final byte[] bytes = replacement.getBytes(utf16);
+				for (int j = 0; j < bytes.length; j++) {
+					buffer.put(i + j, bytes[j]);
+				}
+				return;
+			}
+		}
+		fail("Snapshot does not contain " + original);
+	}
+
+	public static class NamedHashMap extends HashMap<Object, Object> {
+
+		private static final long serialVersionUID = 1L;
+
+		private String name;
+	}
+}